@@ -0,0 +1,781 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Cette classe abstraite factorise la gestion de l'index et des cellules vides des colonnes.
+ * Le stockage des valeurs (liste d'objets, tableaux primitifs, bitset, octets...) est laissé aux sous-classes :
+ * les valeurs non nulles sont lues et écrites via {@link #read(int)} et {@link #write(int, Comparable)},
+ * les cellules vides sont marquées dans un bitset.
+ *
+ * @param <TKind> le type de données stocké dans la colonne
+ */
+public abstract class AbstractColumn<TKind extends Comparable<? super TKind>> implements IColumn, Cloneable {
+
+    @Serial
+    private static final long serialVersionUID = 1565080100631675814L;
+
+    /**
+     * Le nom de la colonne.
+     */
+    String name;
+    /**
+     * Le type de données stocké dans la colonne.
+     */
+    Class<?> type;
+    /**
+     * Le nombre de lignes de la colonne.
+     */
+    int size;
+    /**
+     * Les lignes dont la cellule est vide (null).
+     */
+    BitSet nulls;
+    /**
+     * L'index de cette colonne.
+     */
+    transient IIndex<TKind> index;
+    /**
+     * Le facteur de ramification de l'arbre B+.
+     */
+    int branchingFactor;
+    /**
+     * Indique si les noeuds de l'index sont stockés hors du tas.
+     */
+    boolean offHeapIndex;
+    /**
+     * Le type d'index de la colonne (null pour un arbre B+, valeur des colonnes sérialisées avant son ajout).
+     */
+    IndexKind indexKind;
+    /**
+     * Le nombre de premières lignes dont le stockage est partagé avec un instantané de la colonne.
+     * Le stockage est copié avant toute modification en place de l'une de ces lignes ; les ajouts ne le copient pas.
+     */
+    transient int sharedRows;
+    /**
+     * Indique si la colonne est un instantané en lecture seule (voir {@link #snapshot()}).
+     */
+    transient boolean frozen;
+    /**
+     * L'index d'un instantané : un instantané de l'index de la colonne, ou s'il ne sait pas en créer,
+     * un index construit à la première recherche.
+     */
+    private transient volatile IIndex<TKind> snapshotIndex;
+
+    /**
+     * Constructeur de la classe AbstractColumn.
+     *
+     * @param type             le type de données stocké dans la colonne
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     */
+    protected AbstractColumn(Class<?> type, String name, int maxValuesPerNode) {
+        this(type, name, maxValuesPerNode, false);
+    }
+
+    /**
+     * Constructeur de la classe AbstractColumn.
+     *
+     * @param type             le type de données stocké dans la colonne
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     * @param offHeapIndex     true pour stocker les noeuds de l'index hors du tas
+     */
+    protected AbstractColumn(Class<?> type, String name, int maxValuesPerNode, boolean offHeapIndex) {
+        this.name = name;
+        this.type = type;
+        this.nulls = new BitSet();
+        this.offHeapIndex = offHeapIndex;
+
+        enableIndex(maxValuesPerNode);
+    }
+
+    /**
+     * Lit la valeur non nulle d'une ligne dans le stockage de la colonne.
+     *
+     * @param row la ligne à lire
+     * @return la valeur de la ligne
+     */
+    protected abstract TKind read(int row);
+
+    /**
+     * Écrit une valeur non nulle dans le stockage de la colonne. La capacité a déjà été assurée.
+     *
+     * @param row   la ligne à écrire
+     * @param value la valeur à écrire
+     */
+    protected abstract void write(int row, TKind value);
+
+    /**
+     * Assure que le stockage peut contenir au moins le nombre de lignes donné.
+     *
+     * @param capacity le nombre de lignes à pouvoir stocker
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Supprime une ligne du stockage en décalant les lignes suivantes.
+     *
+     * @param row la ligne à supprimer
+     */
+    protected abstract void shift(int row);
+
+    /**
+     * Vide le stockage de la colonne.
+     */
+    protected abstract void clearStorage();
+
+    /**
+     * Estime la mémoire occupée par le stockage des valeurs, en octets.
+     *
+     * @return l'estimation de la mémoire occupée par le stockage
+     */
+    protected abstract long storageFootprint();
+
+    /**
+     * Remplace le stockage par une copie, avant une modification en place de lignes partagées avec un instantané.
+     */
+    protected abstract void copyStorage();
+
+    /**
+     * Appelée lorsqu'une cellule devient vide : les sous-classes qui stockent des objets y libèrent l'ancienne valeur.
+     *
+     * @param row la ligne vidée
+     */
+    protected void release(int row) {
+    }
+
+    /**
+     * Appelée sur la copie créée par {@link #snapshot()} : les sous-classes y copient les objets de leur stockage
+     * que les ajouts de la colonne d'origine modifient en place (les tableaux ne le sont qu'au-delà de la taille de l'instantané).
+     */
+    protected void prepareSnapshot() {
+    }
+
+    /**
+     * Copie le stockage s'il est partagé avec un instantané. À appeler avant de modifier en place des lignes existantes.
+     */
+    protected final void unshare() {
+        if (sharedRows > 0) {
+            copyStorage();
+            sharedRows = 0;
+        }
+    }
+
+    /**
+     * Vérifie si la cellule d'une ligne est vide.
+     *
+     * @param row la ligne à vérifier
+     * @return true si la cellule est vide, false sinon
+     */
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void enableIndex(int maxValuesPerNode) {
+        enableIndex(maxValuesPerNode, Column.DEFAULT_FILL_FACTOR);
+    }
+
+    @Override
+    public void enableIndex(int maxValuesPerNode, double fillFactor) {
+        enableIndex(maxValuesPerNode, fillFactor, offHeapIndex);
+    }
+
+    @Override
+    public void enableIndex(int maxValuesPerNode, double fillFactor, boolean offHeap) {
+        if (maxValuesPerNode > 0) {
+            // L'index n'est assigné qu'une fois chargé : en cas de doublon, la colonne garde son état précédent
+            IIndex<TKind> built = IIndex.forType(type, maxValuesPerNode + 1, offHeap, indexKind);
+            indexValues(built, fillFactor);
+            this.offHeapIndex = offHeap;
+            this.branchingFactor = maxValuesPerNode + 1;
+            this.index = built;
+        } else {
+            this.offHeapIndex = offHeap;
+            this.branchingFactor = 0;
+            this.index = null;
+        }
+    }
+
+    @Override
+    public void enableIndex(int maxValuesPerNode, IndexKind kind) {
+        IndexKind previous = indexKind;
+        this.indexKind = kind;
+        try {
+            enableIndex(maxValuesPerNode);
+        } catch (RuntimeException e) {
+            this.indexKind = previous;
+            throw e;
+        }
+    }
+
+    /**
+     * Ajoute une valeur à la fin de la colonne.
+     *
+     * @param value la valeur à ajouter
+     */
+    public void addValue(TKind value) {
+        int row = size;
+        append(value);
+
+        if (index != null && value != null) {
+            index.insert(value, row);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addValue(Object value) {
+        addValue((TKind) value);
+    }
+
+    /**
+     * Ajoute une valeur à la fin de la colonne si elle n'est pas déjà présente dans l'index.
+     *
+     * @param value la valeur à ajouter
+     * @return true si la valeur a été ajoutée, false si la colonne indexée contient déjà cette valeur
+     */
+    public boolean addValueIfAbsent(TKind value) {
+        if (index != null && value != null && !index.insertIfAbsent(value, size)) {
+            return false;
+        }
+        append(value);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addValueIfAbsent(Object value) {
+        return addValueIfAbsent((TKind) value);
+    }
+
+    /**
+     * Ajoute un lot de valeurs à la fin du stockage de la colonne, sans toucher à l'index :
+     * la capacité est assurée une seule fois pour tout le lot.
+     *
+     * @param batch les valeurs à ajouter
+     * @param count le nombre de valeurs à ajouter
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void appendAll(Object[] batch, int count) {
+        checkWritable();
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            if (batch[i] == null) {
+                nulls.set(size + i);
+            } else {
+                write(size + i, (TKind) batch[i]);
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * Insère dans l'index les valeurs d'un lot de lignes ajoutées à partir d'une ligne donnée, en une seule passe
+     * sur l'arbre B+. Les lignes déjà refusées sont ignorées ; une ligne est refusée si sa valeur est déjà présente
+     * dans l'index ou dans une ligne précédente du lot.
+     *
+     * @param batch    les valeurs du lot (batch[i] est la valeur de la ligne firstRow + i)
+     * @param count    le nombre de valeurs du lot
+     * @param firstRow la ligne de la première valeur du lot
+     * @param accepted les lignes acceptées du lot, mis à false pour les lignes refusées
+     * @return le nombre de lignes refusées par cette colonne
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int indexAllIfAbsent(Object[] batch, int count, int firstRow, boolean[] accepted) {
+        checkWritable();
+        ArrayList<TKind> keys = new ArrayList<>(count);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (accepted[i] && batch[i] != null) {
+                positions[keys.size()] = i;
+                keys.add((TKind) batch[i]);
+            }
+        }
+        int[] rows = new int[keys.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = firstRow + positions[i];
+        }
+
+        boolean[] inserted = new boolean[rows.length];
+        int rejected = rows.length - index.insertAllIfAbsent(keys, rows, inserted);
+        for (int i = 0; i < rows.length; i++) {
+            if (!inserted[i]) {
+                accepted[positions[i]] = false;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Met à jour la valeur d'une ligne donnée de la colonne.
+     *
+     * @param row   la ligne à mettre à jour
+     * @param value la nouvelle valeur à assigner
+     */
+    public void updateValue(int row, TKind value) {
+        TKind oldValue = set(row, value);
+
+        if (index != null) {
+            if (oldValue != null) {
+                index.delete(oldValue);
+            }
+            if (value != null) {
+                index.insert(value, row);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void updateValue(int row, Object value) {
+        updateValue(row, (TKind) value);
+    }
+
+    /**
+     * Met à jour la valeur d'une ligne donnée si la valeur n'est pas déjà présente dans l'index.
+     *
+     * @param row   la ligne à mettre à jour
+     * @param value la nouvelle valeur à assigner
+     * @return true si la valeur a été assignée, false si la colonne indexée contient déjà cette valeur
+     */
+    public boolean updateValueIfAbsent(int row, TKind value) {
+        if (index != null && value != null) {
+            if (!index.insertIfAbsent(value, row)) {
+                return false;
+            }
+            TKind oldValue = set(row, value);
+            if (oldValue != null) {
+                index.delete(oldValue);
+            }
+            return true;
+        }
+        updateValue(row, value);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean updateValueIfAbsent(int row, Object value) {
+        return updateValueIfAbsent(row, (TKind) value);
+    }
+
+    @Override
+    public void removeValue(Object value) {
+        int row = search(value);
+        if (row >= 0) {
+            removeAt(row);
+        }
+    }
+
+    /**
+     * Supprime une ligne de la colonne à partir de son index.
+     * Les lignes suivantes sont décalées : leurs identifiants sont décrémentés en place dans l'index,
+     * en un seul parcours et sans réinsérer leurs clés.
+     *
+     * @param row l'index de la ligne à supprimer
+     */
+    @Override
+    public void removeAt(int row) {
+        checkWritable();
+        TKind value = get(row);
+        if (row < sharedRows) {
+            unshare();
+        }
+        shift(row);
+        for (int i = row; i < size - 1; i++) {
+            nulls.set(i, nulls.get(i + 1));
+        }
+        nulls.clear(size - 1);
+        size--;
+
+        if (index != null) {
+            if (value != null) {
+                index.delete(value);
+            }
+            if (row < size) {
+                index.shiftRows(row);
+            }
+        }
+    }
+
+    /**
+     * Vide une cellule de la colonne sans décaler les lignes suivantes.
+     *
+     * @param row l'index de la ligne à vider
+     */
+    @Override
+    public void clearAt(int row) {
+        TKind value = set(row, null);
+
+        if (index != null && value != null) {
+            index.delete(value);
+        }
+    }
+
+    /**
+     * Retourne la valeur d'une ligne, ou null si la cellule est vide.
+     *
+     * @param row la ligne dont on veut récupérer la valeur
+     * @return la valeur de la ligne
+     */
+    public TKind get(int row) {
+        Objects.checkIndex(row, size);
+        return nulls.get(row) ? null : read(row);
+    }
+
+    @Override
+    public Object getValue(int row) {
+        return get(row);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Recherche la première ligne contenant une valeur donnée.
+     *
+     * @param value la valeur à chercher
+     * @return la ligne contenant la valeur, ou -1 si la valeur n'est pas trouvée
+     */
+    public int search(TKind value) {
+        IIndex<TKind> index = readIndex();
+        if (index != null && value != null) {
+            return index.search(value);
+        }
+        return scan(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int search(Object value) {
+        return search((TKind) value);
+    }
+
+    /**
+     * Recherche la ligne de chaque valeur d'un lot. Si la colonne est indexée, les valeurs non nulles
+     * sont cherchées en un seul parcours de l'arbre B+.
+     *
+     * @param values les valeurs à chercher
+     * @param count  le nombre de valeurs à chercher
+     * @param rows   reçoit, pour chaque valeur, la première ligne la contenant ou -1 si la valeur n'est pas trouvée
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void searchAll(Object[] values, int count, int[] rows) {
+        IIndex<TKind> index = readIndex();
+        if (index == null) {
+            for (int i = 0; i < count; i++) {
+                rows[i] = scan((TKind) values[i]);
+            }
+            return;
+        }
+
+        ArrayList<TKind> keys = new ArrayList<>(count);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (values[i] == null) {
+                rows[i] = scan(null);
+            } else {
+                positions[keys.size()] = i;
+                keys.add((TKind) values[i]);
+            }
+        }
+        if (keys.size() == count) {
+            index.searchAll(keys, rows);
+            return;
+        }
+        int[] found = new int[keys.size()];
+        index.searchAll(keys, found);
+        for (int i = 0; i < found.length; i++) {
+            rows[positions[i]] = found[i];
+        }
+    }
+
+    /**
+     * Parcourt la colonne pour trouver la première ligne contenant une valeur donnée.
+     * Les sous-classes peuvent redéfinir cette méthode pour parcourir directement leur stockage.
+     *
+     * @param value la valeur à chercher
+     * @return la ligne contenant la valeur, ou -1 si la valeur n'est pas trouvée
+     */
+    protected int scan(TKind value) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(get(i), value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return search(value) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Integer> rangeIterator(Object from, BPlusTree.RangePolicy fromPolicy, Object to, BPlusTree.RangePolicy toPolicy) {
+        return rangeIterator((TKind) from, fromPolicy, (TKind) to, toPolicy);
+    }
+
+    /**
+     * Retourne les lignes dont la valeur est comprise entre deux bornes, dans l'ordre des valeurs.
+     *
+     * @param from       la borne inférieure, ou null pour partir de la plus petite valeur
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure, ou null pour aller jusqu'à la plus grande valeur
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes dont la valeur est comprise entre les deux bornes
+     */
+    public Iterator<Integer> rangeIterator(TKind from, BPlusTree.RangePolicy fromPolicy, TKind to, BPlusTree.RangePolicy toPolicy) {
+        IIndex<TKind> index = readIndex();
+        if (index != null && index.isOrdered()) {
+            return index.rangeIterator(from, fromPolicy, to, toPolicy);
+        }
+
+        ArrayList<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (nulls.get(i)) {
+                continue;
+            }
+            TKind value = read(i);
+            if (from != null) {
+                int cmp = value.compareTo(from);
+                if (cmp < 0 || (cmp == 0 && fromPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                    continue;
+                }
+            }
+            if (to != null) {
+                int cmp = value.compareTo(to);
+                if (cmp > 0 || (cmp == 0 && toPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                    continue;
+                }
+            }
+            rows.add(i);
+        }
+        rows.sort((a, b) -> read(a).compareTo(read(b)));
+        return rows.iterator();
+    }
+
+    @Override
+    public void drop() {
+        checkWritable();
+        clearStorage();
+        sharedRows = 0;
+        nulls.clear();
+        size = 0;
+        if (index != null) {
+            index = IIndex.forType(type, branchingFactor, offHeapIndex, indexKind);
+        }
+    }
+
+    @Override
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return index != null || frozen && branchingFactor > 0;
+    }
+
+    @Override
+    public IndexKind getIndexKind() {
+        return indexKind != null ? indexKind : IndexKind.BTREE;
+    }
+
+    @Override
+    public int getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * Estime la mémoire occupée par les valeurs de la colonne (hors index), en octets.
+     *
+     * @return l'estimation de la mémoire occupée par les valeurs de la colonne
+     */
+    @Override
+    public long memoryFootprint() {
+        return storageFootprint() + 8L * ((nulls.length() + 63) / 64) + 40;
+    }
+
+    @Override
+    public TreeNode toJTree() {
+        DefaultMutableTreeNode root = new DefaultMutableTreeNode(name);
+        IIndex<TKind> index = readIndex();
+        if (index != null) {
+            root.add(index.toJTree());
+        } else {
+            for (int i = 0; i < size; i++) {
+                root.add(new DefaultMutableTreeNode(get(i)));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Retourne un instantané en lecture seule de la colonne, qui partage son stockage sans le copier.
+     * Les valeurs ajoutées ensuite à la colonne ne sont pas visibles de l'instantané, et la première modification
+     * en place d'une ligne existante copie le stockage de la colonne : l'instantané peut donc être lu par d'autres
+     * threads sans verrou pendant que la colonne est modifiée. Son index partage les noeuds de l'index de la colonne
+     * si celui-ci le permet (arbres B+ à clés int, long et double, voir {@link IIndex#snapshot()}) ; sinon il est
+     * reconstruit par chargement en masse à la première recherche, en O(n log n).
+     *
+     * @return l'instantané de la colonne
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public AbstractColumn<TKind> snapshot() {
+        if (frozen) {
+            return this;
+        }
+        AbstractColumn<TKind> copy;
+        try {
+            copy = (AbstractColumn<TKind>) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.nulls = (BitSet) nulls.clone();
+        copy.index = null;
+        copy.snapshotIndex = index != null ? index.snapshot() : null;
+        copy.frozen = true;
+        copy.sharedRows = 0;
+        copy.prepareSnapshot();
+        sharedRows = size;
+        return copy;
+    }
+
+    /**
+     * Retourne l'index à utiliser pour une lecture : celui de la colonne, ou pour un instantané, l'instantané de l'index
+     * de la colonne ou à défaut un index construit par chargement en masse à la première lecture.
+     *
+     * @return l'index, ou null si la colonne n'est pas indexée
+     */
+    private IIndex<TKind> readIndex() {
+        if (!frozen) {
+            return index;
+        }
+        IIndex<TKind> built = snapshotIndex;
+        if (built == null && branchingFactor > 0) {
+            synchronized (this) {
+                built = snapshotIndex;
+                if (built == null) {
+                    built = IIndex.forType(type, branchingFactor, offHeapIndex, indexKind);
+                    indexValues(built, Column.DEFAULT_FILL_FACTOR);
+                    snapshotIndex = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    private void checkWritable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Column snapshots are read-only");
+    }
+
+    /**
+     * Ajoute une valeur (éventuellement nulle) à la fin du stockage, sans toucher à l'index.
+     *
+     * @param value la valeur à ajouter
+     */
+    private void append(TKind value) {
+        checkWritable();
+        ensureCapacity(size + 1);
+        if (value == null) {
+            nulls.set(size);
+        } else {
+            write(size, value);
+        }
+        size++;
+    }
+
+    /**
+     * Remplace la valeur d'une ligne dans le stockage, sans toucher à l'index.
+     *
+     * @param row   la ligne à modifier
+     * @param value la nouvelle valeur (éventuellement nulle)
+     * @return l'ancienne valeur de la ligne
+     */
+    private TKind set(int row, TKind value) {
+        checkWritable();
+        TKind oldValue = get(row);
+        if (value == null) {
+            nulls.set(row);
+            release(row);
+        } else {
+            if (row < sharedRows) {
+                unshare();
+            }
+            write(row, value);
+            nulls.clear(row);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Charge en masse dans un index toutes les valeurs non nulles de la colonne.
+     *
+     * @param index      l'index à remplir
+     * @param fillFactor le taux de remplissage des noeuds de l'arbre B+
+     */
+    private void indexValues(IIndex<TKind> index, double fillFactor) {
+        ArrayList<TKind> keys = new ArrayList<>(size);
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (!nulls.get(i)) {
+                rows[keys.size()] = i;
+                keys.add(read(i));
+            }
+        }
+        index.bulkLoad(keys, keys.size() == rows.length ? rows : Arrays.copyOf(rows, keys.size()), fillFactor);
+    }
+
+    /**
+     * Restaure l'état d'une colonne relue depuis un fichier de table, une fois son stockage rempli.
+     * Si aucun index n'est fourni alors que la colonne était indexée, l'index est reconstruit par chargement en masse.
+     *
+     * @param size            le nombre de lignes
+     * @param nulls           les lignes dont la cellule est vide
+     * @param branchingFactor le facteur de ramification de l'index, ou 0 si la colonne n'est pas indexée
+     * @param index           l'index relu, ou null pour le reconstruire
+     */
+    void restore(int size, BitSet nulls, int branchingFactor, IIndex<TKind> index) {
+        this.size = size;
+        this.nulls = nulls;
+        if (index != null) {
+            this.branchingFactor = branchingFactor;
+            this.index = index;
+        } else {
+            enableIndex(branchingFactor - 1);
+        }
+    }
+
+    @Serial
+    protected Object readResolve() {
+        // L'index n'est pas sérialisé : il est reconstruit une fois le stockage des sous-classes relu
+        if (branchingFactor >= 1) {
+            index = IIndex.forType(type, branchingFactor, offHeapIndex, indexKind);
+            indexValues(index, Column.DEFAULT_FILL_FACTOR);
+        }
+        return this;
+    }
+}
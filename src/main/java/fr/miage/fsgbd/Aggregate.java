@@ -0,0 +1,250 @@
+package fr.miage.fsgbd;
+
+import java.util.BitSet;
+
+/**
+ * Agrégats d'une colonne (nombre de valeurs, somme, moyenne, minimum, maximum) sur les lignes sélectionnées par une
+ * requête (voir {@link Query#aggregate(String)} et {@link Query#groupBy(String, String)}). Les cellules vides sont ignorées.
+ * <p>
+ * Les agrégats sont accumulés sur des vecteurs de sélection : les colonnes d'entiers et de doubles sont agrégées par
+ * des boucles sur leur stockage primitif, les autres colonnes passent par leurs valeurs (minimum et maximum seulement,
+ * sauf pour les colonnes génériques de nombres). Les résultats partiels d'une exécution parallèle sont fusionnés
+ * par {@link #merge(Aggregate)}.
+ */
+public final class Aggregate {
+    private final IColumn column;
+    /**
+     * Le nombre de valeurs non nulles agrégées.
+     */
+    private long count;
+    private long longSum;
+    private double doubleSum;
+    private int intMin = Integer.MAX_VALUE;
+    private int intMax = Integer.MIN_VALUE;
+    private double doubleMin = Double.POSITIVE_INFINITY;
+    private double doubleMax = Double.NEGATIVE_INFINITY;
+    private Comparable<Object> min;
+    private Comparable<Object> max;
+
+    Aggregate(IColumn column) {
+        this.column = column;
+    }
+
+    /**
+     * Ajoute aux agrégats les valeurs des lignes d'un vecteur de sélection.
+     *
+     * @param rows  les lignes.
+     * @param count le nombre de lignes.
+     */
+    @SuppressWarnings("unchecked")
+    void accumulate(int[] rows, int count) {
+        if (column instanceof IntColumn ints) {
+            accumulateInts(ints.values, ints.nulls, rows, count, false);
+        } else if (column instanceof DoubleColumn doubles) {
+            accumulateDoubles(doubles.values, doubles.nulls, rows, count, false);
+        } else if (column instanceof OffHeapIntColumn offHeap) {
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = offHeap.getInt(rows[i]);
+            }
+            accumulateInts(values, offHeap.nulls, rows, count, true);
+        } else if (column instanceof OffHeapDoubleColumn offHeap) {
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = offHeap.getDouble(rows[i]);
+            }
+            accumulateDoubles(values, offHeap.nulls, rows, count, true);
+        } else {
+            for (int i = 0; i < count; i++) {
+                Object value = column.getValue(rows[i]);
+                if (value == null)
+                    continue;
+                this.count++;
+                if (value instanceof Integer integer) {
+                    longSum += integer;
+                } else if (value instanceof Number number) {
+                    doubleSum += number.doubleValue();
+                }
+                accumulateComparable((Comparable<Object>) value);
+            }
+        }
+    }
+
+    /**
+     * Ajoute aux agrégats la valeur d'une ligne.
+     *
+     * @param row la ligne.
+     */
+    @SuppressWarnings("unchecked")
+    void accumulate(int row) {
+        if (column instanceof IntColumn || column instanceof OffHeapIntColumn) {
+            if (((AbstractColumn<?>) column).nulls.get(row))
+                return;
+            int value = column instanceof IntColumn ints ? ints.values[row] : ((OffHeapIntColumn) column).getInt(row);
+            longSum += value;
+            intMin = Math.min(intMin, value);
+            intMax = Math.max(intMax, value);
+            count++;
+        } else if (column instanceof DoubleColumn || column instanceof OffHeapDoubleColumn) {
+            if (((AbstractColumn<?>) column).nulls.get(row))
+                return;
+            double value = column instanceof DoubleColumn doubles ? doubles.values[row] : ((OffHeapDoubleColumn) column).getDouble(row);
+            doubleSum += value;
+            doubleMin = Math.min(doubleMin, value);
+            doubleMax = Math.max(doubleMax, value);
+            count++;
+        } else {
+            Object value = column.getValue(row);
+            if (value == null)
+                return;
+            count++;
+            if (value instanceof Integer integer) {
+                longSum += integer;
+            } else if (value instanceof Number number) {
+                doubleSum += number.doubleValue();
+            }
+            accumulateComparable((Comparable<Object>) value);
+        }
+    }
+
+    private void accumulateComparable(Comparable<Object> value) {
+        if (min == null || value.compareTo(min) < 0)
+            min = value;
+        if (max == null || value.compareTo(max) > 0)
+            max = value;
+    }
+
+    /**
+     * Ajoute à ces agrégats ceux d'une autre partie des lignes de la même colonne.
+     *
+     * @param other les agrégats à ajouter.
+     * @return ces agrégats.
+     */
+    Aggregate merge(Aggregate other) {
+        count += other.count;
+        longSum += other.longSum;
+        doubleSum += other.doubleSum;
+        intMin = Math.min(intMin, other.intMin);
+        intMax = Math.max(intMax, other.intMax);
+        doubleMin = Math.min(doubleMin, other.doubleMin);
+        doubleMax = Math.max(doubleMax, other.doubleMax);
+        if (other.min != null)
+            accumulateComparable(other.min);
+        if (other.max != null)
+            accumulateComparable(other.max);
+        return this;
+    }
+
+    /**
+     * Agrège des entiers lus dans un tableau, indexé par ligne ou par position dans le vecteur (valeurs déjà copiées).
+     */
+    private void accumulateInts(int[] values, BitSet nulls, int[] rows, int count, boolean byPosition) {
+        long sum = 0;
+        int min = intMin, max = intMax;
+        int n = 0;
+        boolean noNulls = nulls.isEmpty();
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (!noNulls && nulls.get(row))
+                continue;
+            int value = values[byPosition ? i : row];
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            n++;
+        }
+        longSum += sum;
+        intMin = min;
+        intMax = max;
+        this.count += n;
+    }
+
+    /**
+     * Agrège des doubles lus dans un tableau, indexé par ligne ou par position dans le vecteur (valeurs déjà copiées).
+     */
+    private void accumulateDoubles(double[] values, BitSet nulls, int[] rows, int count, boolean byPosition) {
+        double sum = 0;
+        double min = doubleMin, max = doubleMax;
+        int n = 0;
+        boolean noNulls = nulls.isEmpty();
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (!noNulls && nulls.get(row))
+                continue;
+            double value = values[byPosition ? i : row];
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            n++;
+        }
+        doubleSum += sum;
+        doubleMin = min;
+        doubleMax = max;
+        this.count += n;
+    }
+
+    /**
+     * Retourne le nombre de valeurs non nulles agrégées.
+     *
+     * @return le nombre de valeurs.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Retourne la somme des valeurs.
+     *
+     * @return la somme (Long pour une colonne d'entiers, Double pour une colonne de doubles).
+     * @throws IllegalArgumentException si la colonne n'est pas numérique.
+     */
+    public Number sum() {
+        Class<?> type = column.getType();
+        if (type == Integer.class)
+            return longSum;
+        if (type == Double.class)
+            return doubleSum;
+        throw new IllegalArgumentException("Column is not numeric: " + column.getName());
+    }
+
+    /**
+     * Retourne la moyenne des valeurs.
+     *
+     * @return la moyenne, ou null si aucune valeur n'a été agrégée.
+     * @throws IllegalArgumentException si la colonne n'est pas numérique.
+     */
+    public Double avg() {
+        double sum = sum().doubleValue();
+        return count == 0 ? null : sum / count;
+    }
+
+    /**
+     * Retourne la plus petite valeur.
+     *
+     * @return la plus petite valeur, ou null si aucune valeur n'a été agrégée.
+     */
+    public Object min() {
+        if (count == 0)
+            return null;
+        if (column instanceof IntColumn || column instanceof OffHeapIntColumn)
+            return intMin;
+        if (column instanceof DoubleColumn || column instanceof OffHeapDoubleColumn)
+            return doubleMin;
+        return min;
+    }
+
+    /**
+     * Retourne la plus grande valeur.
+     *
+     * @return la plus grande valeur, ou null si aucune valeur n'a été agrégée.
+     */
+    public Object max() {
+        if (count == 0)
+            return null;
+        if (column instanceof IntColumn || column instanceof OffHeapIntColumn)
+            return intMax;
+        if (column instanceof DoubleColumn || column instanceof OffHeapDoubleColumn)
+            return doubleMax;
+        return max;
+    }
+}
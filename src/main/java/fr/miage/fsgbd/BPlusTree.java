@@ -2,6 +2,7 @@ package fr.miage.fsgbd;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 public class BPlusTree<K extends Comparable<? super K>, V> {
     /**
@@ -36,6 +37,24 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         return root.getValue(key);
     }
 
+    /**
+     * Cherche les valeurs associées à un lot de clés. Les clés sont triées puis cherchées en un seul parcours
+     * de l'arbre : chaque noeud est visité une seule fois pour toutes les clés de son intervalle, les descentes
+     * partagent donc leur chemin depuis la racine et les feuilles sont lues dans l'ordre des clés.
+     *
+     * @param keys   les clés à chercher.
+     * @param values reçoit, pour chaque clé, la valeur associée ou null si la clé n'est pas présente dans l'arbre.
+     */
+    public void searchAll(List<K> keys, V[] values) {
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        if (order.length > 0)
+            root.getValues(keys, order, 0, order.length, values);
+    }
+
     /**
      * Insère une valeur dans l'arbre.
      *
@@ -43,7 +62,19 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
      * @param value la valeur à insérer.
      */
     public void insert(K key, V value) {
-        root.insertValue(key, value);
+        root.insertValue(key, value, true);
+    }
+
+    /**
+     * Insère une valeur dans l'arbre seulement si la clé n'y est pas déjà présente.
+     * La vérification d'existence et l'insertion sont faites en une seule descente de l'arbre.
+     *
+     * @param key   la clé de la valeur à insérer.
+     * @param value la valeur à insérer.
+     * @return true si la valeur a été insérée, false si la clé était déjà présente (l'arbre n'est alors pas modifié).
+     */
+    public boolean insertIfAbsent(K key, V value) {
+        return root.insertValue(key, value, false);
     }
 
     /**
@@ -55,6 +86,180 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         root.deleteValue(key);
     }
 
+    /**
+     * Retourne les valeurs dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     *
+     * @param key1    la borne inférieure
+     * @param policy1 la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param key2    la borne supérieure
+     * @param policy2 la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return la liste des valeurs associées aux clés comprises entre les deux bornes
+     */
+    public List<V> getRange(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        List<V> result = new ArrayList<>();
+        rangeIterator(key1, policy1, key2, policy2).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les valeurs dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     * L'itérateur parcourt directement la chaîne des feuilles sans construire de liste intermédiaire.
+     * L'arbre ne doit pas être modifié pendant le parcours.
+     *
+     * @param key1    la borne inférieure, ou null pour partir de la première clé
+     * @param policy1 la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param key2    la borne supérieure, ou null pour aller jusqu'à la dernière clé
+     * @param policy2 la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les valeurs comprises entre les deux bornes
+     */
+    public Iterator<V> rangeIterator(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        return new RangeIterator(key1, policy1, key2, policy2);
+    }
+
+    /**
+     * Retourne un Spliterator ordonné sur les valeurs dont la clé est comprise entre deux bornes.
+     *
+     * @param key1    la borne inférieure, ou null pour partir de la première clé
+     * @param policy1 la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param key2    la borne supérieure, ou null pour aller jusqu'à la dernière clé
+     * @param policy2 la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un Spliterator sur les valeurs comprises entre les deux bornes
+     */
+    public Spliterator<V> rangeSpliterator(K key1, RangePolicy policy1, K key2, RangePolicy policy2) {
+        return Spliterators.spliteratorUnknownSize(rangeIterator(key1, policy1, key2, policy2), Spliterator.ORDERED);
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur toutes les valeurs de l'arbre, dans l'ordre des clés.
+     *
+     * @return un itérateur sur toutes les valeurs de l'arbre
+     */
+    public Iterator<V> iterator() {
+        return rangeIterator(null, RangePolicy.INCLUSIVE, null, RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Remplace chaque valeur de l'arbre par le résultat d'une fonction, en parcourant la chaîne des feuilles.
+     * Les clés et la structure de l'arbre ne sont pas modifiées.
+     *
+     * @param operator la fonction appliquée à chaque valeur.
+     */
+    public void replaceAll(UnaryOperator<V> operator) {
+        for (LeafNode leaf = findLeaf(null); leaf != null; leaf = leaf.next) {
+            leaf.values.replaceAll(operator);
+        }
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, valeur) donnés, en construisant l'arbre de bas en haut :
+     * les couples sont triés, les feuilles sont remplies séquentiellement puis chaque niveau interne est construit
+     * à partir du niveau inférieur. Le coût est O(n log n) pour le tri puis O(n), sans aucune séparation de noeud.
+     *
+     * @param keys       les clés à charger.
+     * @param values     les valeurs associées aux clés (même taille que keys).
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(List<K> keys, List<V> values, double fillFactor) {
+        if (keys.size() != values.size())
+            throw new IllegalArgumentException("Keys and values must have the same size");
+        if (fillFactor <= 0 || fillFactor > 1)
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+
+        int count = keys.size();
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        for (int i = 1; i < count; i++) {
+            if (keys.get(order[i]).compareTo(keys.get(order[i - 1])) == 0)
+                throw new IllegalArgumentException("Duplicate key: " + keys.get(order[i]));
+        }
+
+        int leafCapacity = nodeCapacity(branchingFactor - 1, branchingFactor / 2, fillFactor);
+        int leafCount = Math.max(1, (count + leafCapacity - 1) / leafCapacity);
+        List<Node> level = new ArrayList<>(leafCount);
+        LeafNode previous = null;
+        int offset = 0;
+        for (int i = 0; i < leafCount; i++) {
+            int size = count / leafCount + (i < count % leafCount ? 1 : 0);
+            LeafNode leaf = new LeafNode();
+            for (int j = offset; j < offset + size; j++) {
+                leaf.keys.add(keys.get(order[j]));
+                leaf.values.add(values.get(order[j]));
+            }
+            offset += size;
+            if (previous != null)
+                previous.next = leaf;
+            previous = leaf;
+            level.add(leaf);
+        }
+
+        int childCapacity = nodeCapacity(branchingFactor, (branchingFactor + 1) / 2, fillFactor);
+        while (level.size() > 1) {
+            int parentCount = parentCount(level.size(), childCapacity);
+            List<Node> parents = new ArrayList<>(parentCount);
+            offset = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int size = level.size() / parentCount + (i < level.size() % parentCount ? 1 : 0);
+                InternalNode parent = new InternalNode();
+                for (int j = offset; j < offset + size; j++) {
+                    Node child = level.get(j);
+                    if (j > offset)
+                        parent.keys.add(child.getFirstLeafKey());
+                    parent.children.add(child);
+                }
+                offset += size;
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        root = level.get(0);
+    }
+
+    /**
+     * Calcule le nombre d'éléments à placer dans un noeud construit par chargement en masse.
+     *
+     * @param max        le nombre maximal d'éléments d'un noeud
+     * @param min        le nombre minimal d'éléments d'un noeud (en dessous, le noeud est en sous-charge)
+     * @param fillFactor le taux de remplissage souhaité
+     * @return le nombre d'éléments par noeud
+     */
+    static int nodeCapacity(int max, int min, double fillFactor) {
+        return Math.max(Math.max(min, 2), Math.min(max, (int) Math.round(max * fillFactor)));
+    }
+
+    /**
+     * Calcule le nombre de noeuds internes nécessaires pour un niveau lors d'un chargement en masse.
+     * Chaque noeud interne doit avoir au moins deux enfants.
+     *
+     * @param childCount    le nombre de noeuds du niveau inférieur
+     * @param childCapacity le nombre d'enfants souhaité par noeud interne
+     * @return le nombre de noeuds internes
+     */
+    static int parentCount(int childCount, int childCapacity) {
+        int parentCount = (childCount + childCapacity - 1) / childCapacity;
+        while (parentCount > 1 && childCount / parentCount < 2)
+            parentCount--;
+        return parentCount;
+    }
+
+    /**
+     * Retourne la feuille dans laquelle se trouve (ou se trouverait) une clé.
+     *
+     * @param key la clé à chercher, ou null pour la première feuille
+     * @return la feuille correspondante
+     */
+    private LeafNode findLeaf(K key) {
+        Node node = root;
+        while (node instanceof BPlusTree.InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            node = key == null ? internal.children.get(0) : internal.getChild(key);
+        }
+        return (LeafNode) node;
+    }
+
     public DefaultMutableTreeNode toJTree() {
         return toJTree(root);
     }
@@ -68,7 +273,7 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             sb.append("(");
             sb.append(key.toString());
             sb.append(",");
-            sb.append(node.getValue(key).toString());
+            sb.append(node.getValue(key));
             sb.append(")");
         }
 
@@ -86,6 +291,63 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         EXCLUSIVE, INCLUSIVE
     }
 
+    /**
+     * Itérateur parcourant la chaîne des feuilles entre deux bornes.
+     */
+    private class RangeIterator implements Iterator<V> {
+        /**
+         * La borne supérieure, ou null si le parcours va jusqu'à la dernière clé.
+         */
+        private final K upperKey;
+        /**
+         * La politique appliquée à la borne supérieure.
+         */
+        private final RangePolicy upperPolicy;
+        /**
+         * La feuille courante, ou null si le parcours est terminé.
+         */
+        private LeafNode leaf;
+        /**
+         * La position de la prochaine valeur dans la feuille courante.
+         */
+        private int position;
+
+        RangeIterator(K lowerKey, RangePolicy lowerPolicy, K upperKey, RangePolicy upperPolicy) {
+            this.upperKey = upperKey;
+            this.upperPolicy = upperPolicy;
+            this.leaf = findLeaf(lowerKey);
+            if (lowerKey != null) {
+                int loc = Collections.binarySearch(leaf.keys, lowerKey);
+                position = loc >= 0 ? (lowerPolicy == RangePolicy.INCLUSIVE ? loc : loc + 1) : -loc - 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (leaf != null && position >= leaf.keyNumber()) {
+                leaf = leaf.next;
+                position = 0;
+            }
+            if (leaf == null)
+                return false;
+            if (upperKey != null) {
+                int cmp = leaf.keys.get(position).compareTo(upperKey);
+                if (cmp > 0 || (cmp == 0 && upperPolicy == RangePolicy.EXCLUSIVE)) {
+                    leaf = null;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return leaf.values.get(position++);
+        }
+    }
+
     /**
      * Cette classe est une classe abstraite représentant un noeud de l'arbre B+.
      */
@@ -112,6 +374,17 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
          */
         abstract V getValue(K key);
 
+        /**
+         * Cherche dans ce sous-arbre les clés [from, to) d'un lot, dans l'ordre des clés.
+         *
+         * @param keys    les clés du lot
+         * @param order   les positions des clés du lot, triées par clé
+         * @param from    la première position de order à chercher
+         * @param to      la fin (exclue) des positions à chercher
+         * @param results reçoit la valeur de chaque clé à sa position dans le lot, ou null
+         */
+        abstract void getValues(List<K> keys, Integer[] order, int from, int to, V[] results);
+
         /**
          * Supprime la valeur associée à la clé donnée en paramètre.
          *
@@ -122,10 +395,12 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         /**
          * Insère une clé et sa valeur associée dans le noeud.
          *
-         * @param key   la clé à insérer
-         * @param value la valeur associée à la clé à insérer
+         * @param key     la clé à insérer
+         * @param value   la valeur associée à la clé à insérer
+         * @param replace true pour remplacer la valeur si la clé existe déjà, false pour laisser l'arbre inchangé
+         * @return true si une nouvelle clé a été ajoutée, false si la clé existait déjà
          */
-        abstract void insertValue(K key, V value);
+        abstract boolean insertValue(K key, V value, boolean replace);
 
         /**
          * Retourne la première clé de feuille dans ce noeud.
@@ -134,18 +409,6 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
          */
         abstract K getFirstLeafKey();
 
-        /**
-         * Retourne une liste de valeurs associées aux clés qui sont comprises entre les deux clés données en paramètre.
-         *
-         * @param key1    la première clé
-         * @param policy1 la politique à appliquer pour inclure ou exclure la première clé
-         * @param key2    la deuxième clé
-         * @param policy2 la politique à appliquer pour inclure ou exclure la deuxième clé
-         * @return une liste de valeurs associées aux clés comprises entre les deux clés données
-         */
-        abstract List<V> getRange(K key1, RangePolicy policy1, K key2,
-                                  RangePolicy policy2);
-
         /**
          * Fusionne ce noeud avec son frère.
          *
@@ -209,20 +472,40 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return getChild(key).getValue(key);
         }
 
+        @Override
+        void getValues(List<K> probes, Integer[] order, int from, int to, V[] results) {
+            int start = from;
+            while (start < to) {
+                // Les clés suivantes inférieures à la clé de séparation de l'enfant vont au même enfant
+                int childIndex = getChildIndex(probes.get(order[start]));
+                int end = start + 1;
+                while (end < to && (childIndex == keys.size() || probes.get(order[end]).compareTo(keys.get(childIndex)) < 0))
+                    end++;
+                children.get(childIndex).getValues(probes, order, start, end, results);
+                start = end;
+            }
+        }
+
         @Override
         void deleteValue(K key) {
-            Node child = getChild(key);
+            int childIndex = getChildIndex(key);
+            Node child = children.get(childIndex);
             child.deleteValue(key);
             if (child.isUnderflow()) {
-                Node childLeftSibling = getChildLeftSibling(key);
-                Node childRightSibling = getChildRightSibling(key);
-                Node left = childLeftSibling != null ? childLeftSibling : child;
-                Node right = childLeftSibling != null ? child : childRightSibling;
+                // On fusionne avec le frère de gauche s'il existe, sinon avec celui de droite.
+                // Les positions sont utilisées plutôt que les clés, qui peuvent ne plus correspondre
+                // à la première clé de feuille après des suppressions.
+                int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+                if (leftIndex + 1 >= children.size())
+                    return;
+                Node left = children.get(leftIndex);
+                Node right = children.get(leftIndex + 1);
                 left.merge(right);
-                deleteChild(right.getFirstLeafKey());
+                deleteChild(leftIndex);
                 if (left.isOverflow()) {
                     Node sibling = left.split();
-                    insertChild(sibling.getFirstLeafKey(), sibling);
+                    keys.add(leftIndex, sibling.getFirstLeafKey());
+                    children.add(leftIndex + 1, sibling);
                 }
                 if (root.keyNumber() == 0)
                     root = left;
@@ -230,9 +513,10 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        void insertValue(K key, V value) {
+        boolean insertValue(K key, V value, boolean replace) {
             Node child = getChild(key);
-            child.insertValue(key, value);
+            if (!child.insertValue(key, value, replace))
+                return false;
             if (child.isOverflow()) {
                 Node sibling = child.split();
                 insertChild(sibling.getFirstLeafKey(), sibling);
@@ -245,6 +529,7 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 newRoot.children.add(sibling);
                 root = newRoot;
             }
+            return true;
         }
 
         @Override
@@ -252,12 +537,6 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return children.get(0).getFirstLeafKey();
         }
 
-        @Override
-        List<V> getRange(K key1, RangePolicy policy1, K key2,
-                         RangePolicy policy2) {
-            return getChild(key1).getRange(key1, policy1, key2, policy2);
-        }
-
         @Override
         void merge(Node sibling) {
             @SuppressWarnings("unchecked")
@@ -298,22 +577,28 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
          * @return l'enfant correspondant à la clé
          */
         Node getChild(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            return children.get(childIndex);
+            return children.get(getChildIndex(key));
         }
 
         /**
-         * Supprime l'enfant correspondant à la clé donnée en paramètre.
+         * Retourne la position de l'enfant correspondant à la clé donnée en paramètre.
          *
-         * @param key la clé pour laquelle supprimer l'enfant
+         * @param key la clé pour laquelle récupérer la position de l'enfant
+         * @return la position de l'enfant correspondant à la clé
          */
-        void deleteChild(K key) {
+        int getChildIndex(K key) {
             int loc = Collections.binarySearch(keys, key);
-            if (loc >= 0) {
-                keys.remove(loc);
-                children.remove(loc + 1);
-            }
+            return loc >= 0 ? loc + 1 : -loc - 1;
+        }
+
+        /**
+         * Supprime l'enfant situé à droite de la clé de séparation donnée, ainsi que cette clé.
+         *
+         * @param keyIndex la position de la clé de séparation
+         */
+        void deleteChild(int keyIndex) {
+            keys.remove(keyIndex);
+            children.remove(keyIndex + 1);
         }
 
         /**
@@ -332,36 +617,6 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 children.add(childIndex + 1, child);
             }
         }
-
-        /**
-         * Retourne l'enfant à gauche de celui correspondant à la clé donnée en paramètre.
-         *
-         * @param key la clé pour laquelle récupérer l'enfant à gauche
-         * @return l'enfant à gauche de celui correspondant à la clé
-         */
-        Node getChildLeftSibling(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            if (childIndex > 0)
-                return children.get(childIndex - 1);
-
-            return null;
-        }
-
-        /**
-         * Retourne l'enfant à droite de celui correspondant à la clé donnée en paramètre.
-         *
-         * @param key la clé pour laquelle récupérer l'enfant à droite
-         * @return l'enfant à droite de celui correspondant à la clé
-         */
-        Node getChildRightSibling(K key) {
-            int loc = Collections.binarySearch(keys, key);
-            int childIndex = loc >= 0 ? loc + 1 : -loc - 1;
-            if (childIndex < keyNumber())
-                return children.get(childIndex + 1);
-
-            return null;
-        }
     }
 
     /**
@@ -392,6 +647,14 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return loc >= 0 ? values.get(loc) : null;
         }
 
+        @Override
+        void getValues(List<K> probes, Integer[] order, int from, int to, V[] results) {
+            for (int i = from; i < to; i++) {
+                int loc = Collections.binarySearch(keys, probes.get(order[i]));
+                results[order[i]] = loc >= 0 ? values.get(loc) : null;
+            }
+        }
+
         @Override
         void deleteValue(K key) {
             int loc = Collections.binarySearch(keys, key);
@@ -402,15 +665,16 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
         }
 
         @Override
-        void insertValue(K key, V value) {
+        boolean insertValue(K key, V value, boolean replace) {
             int loc = Collections.binarySearch(keys, key);
             int valueIndex = loc >= 0 ? loc : -loc - 1;
             if (loc >= 0) {
-                values.set(valueIndex, value);
-            } else {
-                keys.add(valueIndex, key);
-                values.add(valueIndex, value);
+                if (replace)
+                    values.set(valueIndex, value);
+                return false;
             }
+            keys.add(valueIndex, key);
+            values.add(valueIndex, value);
             if (root.isOverflow()) {
                 Node sibling = split();
                 InternalNode newRoot = new InternalNode();
@@ -419,6 +683,7 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
                 newRoot.children.add(sibling);
                 root = newRoot;
             }
+            return true;
         }
 
         @Override
@@ -426,31 +691,6 @@ public class BPlusTree<K extends Comparable<? super K>, V> {
             return keys.get(0);
         }
 
-        @Override
-        List<V> getRange(K key1, RangePolicy policy1, K key2,
-                         RangePolicy policy2) {
-            List<V> result = new LinkedList<V>();
-            LeafNode node = this;
-            while (node != null) {
-                Iterator<K> kIt = node.keys.iterator();
-                Iterator<V> vIt = node.values.iterator();
-                while (kIt.hasNext()) {
-                    K key = kIt.next();
-                    V value = vIt.next();
-                    int cmp1 = key.compareTo(key1);
-                    int cmp2 = key.compareTo(key2);
-                    if (((policy1 == RangePolicy.EXCLUSIVE && cmp1 > 0) || (policy1 == RangePolicy.INCLUSIVE && cmp1 >= 0))
-                            && ((policy2 == RangePolicy.EXCLUSIVE && cmp2 < 0) || (policy2 == RangePolicy.INCLUSIVE && cmp2 <= 0)))
-                        result.add(value);
-                    else if ((policy2 == RangePolicy.EXCLUSIVE && cmp2 >= 0)
-                            || (policy2 == RangePolicy.INCLUSIVE && cmp2 > 0))
-                        return result;
-                }
-                node = node.next;
-            }
-            return result;
-        }
-
         @Override
         void merge(Node sibling) {
             @SuppressWarnings("unchecked")
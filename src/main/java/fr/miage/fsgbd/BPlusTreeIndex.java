@@ -0,0 +1,94 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * Index générique reposant sur un arbre B+ dont les valeurs sont des identifiants de ligne.
+ * Utilisé pour les types de clés qui n'ont pas d'arbre spécialisé (String, Boolean...).
+ *
+ * @param <K> le type des clés indexées
+ */
+public class BPlusTreeIndex<K extends Comparable<? super K>> implements IIndex<K> {
+    /**
+     * L'arbre B+ associant chaque clé à son identifiant de ligne.
+     */
+    private final BPlusTree<K, Integer> tree;
+
+    /**
+     * Crée un index avec un facteur de branche donné.
+     *
+     * @param branchingFactor le facteur de branche de l'arbre B+.
+     */
+    public BPlusTreeIndex(int branchingFactor) {
+        this.tree = new BPlusTree<>(branchingFactor);
+    }
+
+    @Override
+    public int search(K key) {
+        Integer row = tree.search(key);
+        return row == null ? -1 : row;
+    }
+
+    @Override
+    public void searchAll(List<K> keys, int[] rows) {
+        Integer[] values = new Integer[keys.size()];
+        tree.searchAll(keys, values);
+        for (int i = 0; i < values.length; i++) {
+            rows[i] = values[i] == null ? -1 : values[i];
+        }
+    }
+
+    @Override
+    public void insert(K key, int row) {
+        tree.insert(key, row);
+    }
+
+    @Override
+    public boolean insertIfAbsent(K key, int row) {
+        return tree.insertIfAbsent(key, row);
+    }
+
+    @Override
+    public void delete(K key) {
+        tree.delete(key);
+    }
+
+    @Override
+    public void bulkLoad(List<K> keys, int[] rows, double fillFactor) {
+        List<Integer> values = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            values.add(row);
+        }
+        tree.bulkLoad(keys, values, fillFactor);
+    }
+
+    @Override
+    public void shiftRows(int removedRow) {
+        tree.replaceAll(row -> row > removedRow ? row - 1 : row);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(K from, BPlusTree.RangePolicy fromPolicy, K to, BPlusTree.RangePolicy toPolicy) {
+        Iterator<Integer> rows = tree.rangeIterator(from, fromPolicy, to, toPolicy);
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public int nextInt() {
+                return rows.next();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+        };
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        return tree.toJTree();
+    }
+}
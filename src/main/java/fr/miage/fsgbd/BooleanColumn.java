@@ -0,0 +1,81 @@
+package fr.miage.fsgbd;
+
+import java.io.Serial;
+import java.util.BitSet;
+
+/**
+ * Colonne de booléens stockés dans un bitset (un bit par cellule).
+ */
+public class BooleanColumn extends AbstractColumn<Boolean> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les valeurs de la colonne : le bit d'une ligne vaut 1 si la valeur est true.
+     */
+    BitSet values = new BitSet();
+
+    /**
+     * Constructeur de la classe BooleanColumn.
+     *
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     */
+    public BooleanColumn(String name, int maxValuesPerNode) {
+        super(Boolean.class, name, maxValuesPerNode);
+    }
+
+    /**
+     * Retourne la valeur d'une ligne sans boxing. La valeur d'une cellule vide n'est pas significative.
+     *
+     * @param row la ligne dont on veut récupérer la valeur
+     * @return la valeur de la ligne
+     */
+    public boolean getBoolean(int row) {
+        return values.get(row);
+    }
+
+    @Override
+    protected Boolean read(int row) {
+        return values.get(row);
+    }
+
+    @Override
+    protected void write(int row, Boolean value) {
+        values.set(row, value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        // Le bitset s'agrandit tout seul
+    }
+
+    @Override
+    protected void shift(int row) {
+        for (int i = row; i < size - 1; i++) {
+            values.set(i, values.get(i + 1));
+        }
+        values.clear(size - 1);
+    }
+
+    @Override
+    protected void clearStorage() {
+        values.clear();
+    }
+
+    @Override
+    protected void copyStorage() {
+        // Le bitset n'est jamais partagé : chaque instantané en reçoit une copie
+    }
+
+    @Override
+    protected void prepareSnapshot() {
+        values = (BitSet) values.clone();
+    }
+
+    @Override
+    protected long storageFootprint() {
+        return 40 + 8L * ((values.length() + 63) / 64);
+    }
+}
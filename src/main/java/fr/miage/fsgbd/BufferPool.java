@@ -0,0 +1,278 @@
+package fr.miage.fsgbd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Un cache de pages de taille fixe d'un fichier, avec un nombre borné de cadres en mémoire.
+ * Une page doit être épinglée ({@link #pin(int)}) pour être lue ou modifiée, puis désépinglée ({@link #unpin(int, boolean)})
+ * en indiquant si elle a été modifiée. Quand tous les cadres sont occupés, une page non épinglée est évincée
+ * selon l'algorithme de l'horloge (CLOCK) : une page récemment utilisée a une seconde chance avant d'être évincée.
+ * Une page modifiée n'est écrite dans le fichier qu'à son éviction ou lors de {@link #flush()}.
+ * Les erreurs d'entrée/sortie sont levées sous forme d'{@link UncheckedIOException}.
+ */
+public class BufferPool implements Closeable {
+    private static final int NO_PAGE = -1;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    /**
+     * Les cadres contenant les pages en mémoire.
+     */
+    private final ByteBuffer[] frames;
+    /**
+     * La page contenue dans chaque cadre, ou NO_PAGE.
+     */
+    private final int[] framePages;
+    private final int[] pinCounts;
+    private final boolean[] dirty;
+    /**
+     * Le bit de référence de l'algorithme de l'horloge.
+     */
+    private final boolean[] referenced;
+    /**
+     * Associe une page en mémoire à son cadre (la recherche d'une page absente donne -1, soit NO_PAGE).
+     */
+    private final IntHashIndex pageTable = new IntHashIndex();
+    /**
+     * La position de l'aiguille de l'horloge.
+     */
+    private int clockHand;
+    /**
+     * Le nombre de pages du fichier, y compris celles allouées mais pas encore écrites.
+     */
+    private int pageCount;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long writes;
+
+    /**
+     * Ouvre (ou crée) un fichier de pages.
+     *
+     * @param file       le fichier
+     * @param pageSize   la taille d'une page, en octets
+     * @param frameCount le nombre de pages pouvant être en mémoire en même temps
+     * @throws IOException si le fichier ne peut pas être ouvert
+     */
+    public BufferPool(Path file, int pageSize, int frameCount) throws IOException {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        if (frameCount <= 0)
+            throw new IllegalArgumentException("Illegal frame count: " + frameCount);
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.pageSize = pageSize;
+        this.pageCount = (int) ((channel.size() + pageSize - 1) / pageSize);
+        this.frames = new ByteBuffer[frameCount];
+        this.framePages = new int[frameCount];
+        this.pinCounts = new int[frameCount];
+        this.dirty = new boolean[frameCount];
+        this.referenced = new boolean[frameCount];
+        Arrays.fill(framePages, NO_PAGE);
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public int frameCount() {
+        return frames.length;
+    }
+
+    /**
+     * Alloue une nouvelle page à la fin du fichier. Son contenu est rempli de zéros au premier épinglage.
+     *
+     * @return le numéro de la nouvelle page
+     */
+    public int allocatePage() {
+        return pageCount++;
+    }
+
+    /**
+     * Épingle une page : elle reste en mémoire jusqu'au désépinglage correspondant.
+     *
+     * @param page le numéro de la page
+     * @return le tampon de la page, valide tant qu'elle est épinglée
+     * @throws IllegalStateException si tous les cadres sont épinglés
+     */
+    public ByteBuffer pin(int page) {
+        if (page < 0 || page >= pageCount)
+            throw new IndexOutOfBoundsException("Page " + page + " out of bounds for length " + pageCount);
+
+        int frame = pageTable.search(page);
+        if (frame != NO_PAGE) {
+            hits++;
+        } else {
+            misses++;
+            frame = victim();
+            load(frame, page);
+        }
+        pinCounts[frame]++;
+        referenced[frame] = true;
+        return frames[frame];
+    }
+
+    /**
+     * Désépingle une page.
+     *
+     * @param page     le numéro de la page
+     * @param modified true si la page a été modifiée et doit être réécrite dans le fichier
+     */
+    public void unpin(int page, boolean modified) {
+        int frame = pageTable.search(page);
+        if (frame == NO_PAGE || pinCounts[frame] == 0)
+            throw new IllegalStateException("Page " + page + " is not pinned");
+
+        pinCounts[frame]--;
+        dirty[frame] |= modified;
+    }
+
+    /**
+     * Écrit dans le fichier toutes les pages modifiées et force leur écriture sur le disque.
+     */
+    public void flush() {
+        for (int frame = 0; frame < frames.length; frame++) {
+            if (dirty[frame]) {
+                writeBack(frame);
+            }
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Retourne le nombre d'épinglages servis par une page déjà en mémoire.
+     *
+     * @return le nombre de succès du cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retourne le nombre d'épinglages ayant nécessité de lire la page dans le fichier.
+     *
+     * @return le nombre d'échecs du cache
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retourne le nombre de pages évincées pour libérer un cadre.
+     *
+     * @return le nombre d'évictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Retourne le nombre de pages modifiées écrites dans le fichier.
+     *
+     * @return le nombre d'écritures
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Remet les compteurs à zéro.
+     */
+    public void resetCounters() {
+        hits = misses = evictions = writes = 0;
+    }
+
+    /**
+     * Choisit un cadre libre, ou évince une page non épinglée selon l'algorithme de l'horloge.
+     *
+     * @return le cadre à utiliser
+     */
+    private int victim() {
+        for (int step = 0; step < 2 * frames.length; step++) {
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % frames.length;
+            if (framePages[frame] == NO_PAGE)
+                return frame;
+            if (pinCounts[frame] > 0)
+                continue;
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+            evict(frame);
+            return frame;
+        }
+        throw new IllegalStateException("All " + frames.length + " buffer pool frames are pinned");
+    }
+
+    private void evict(int frame) {
+        if (dirty[frame]) {
+            writeBack(frame);
+        }
+        pageTable.delete(framePages[frame]);
+        framePages[frame] = NO_PAGE;
+        evictions++;
+    }
+
+    private void load(int frame, int page) {
+        if (frames[frame] == null) {
+            frames[frame] = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer buffer = frames[frame].clear();
+        try {
+            long position = (long) page * pageSize;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Une page allouée mais jamais écrite se trouve au-delà de la fin du fichier : elle est remplie de zéros
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+        buffer.clear();
+
+        framePages[frame] = page;
+        dirty[frame] = false;
+        pageTable.insert(page, frame);
+    }
+
+    private void writeBack(int frame) {
+        ByteBuffer buffer = frames[frame].duplicate().clear();
+        try {
+            long position = (long) framePages[frame] * pageSize;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        dirty[frame] = false;
+        writes++;
+    }
+}
@@ -1,39 +1,48 @@
 package fr.miage.fsgbd;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.TreeNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
- * Cette classe représente une colonne d'une table de base de données. Elle implémente l'interface IColumn.
+ * Cette classe représente une colonne d'une table de base de données, dont les valeurs sont stockées dans une liste
+ * d'objets. Elle accepte tout type comparable ; les colonnes typées (IntColumn, StringColumn...) stockent leurs
+ * valeurs sans objet par cellule. Les cellules vides contiennent null dans la liste.
  *
  * @param <TKind> le type de données stocké dans la colonne
  */
-public class Column<TKind extends Comparable<? super TKind>> implements IColumn {
+public class Column<TKind extends Comparable<? super TKind>> extends AbstractColumn<TKind> {
+
+    @Serial
+    private static final long serialVersionUID = 9101062337225685193L;
 
     /**
-     * Le nom de la colonne.
-     */
-    String name;
-    /**
-     * Une liste contenant les valeurs stockées dans la colonne.
-     */
-    ArrayList<TKind> values;
-    /**
-     * L'index de cette colonne (arbre B+).
+     * Les champs sérialisés, ceux de la colonne avant l'ajout de la classe AbstractColumn :
+     * les fichiers .abr existants restent lisibles.
      */
-    transient BPlusTree<TKind, Integer> index;
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("values", ArrayList.class),
+            new ObjectStreamField("branchingFactor", int.class),
+            new ObjectStreamField("type", Class.class),
+            new ObjectStreamField("offHeapIndex", boolean.class),
+            new ObjectStreamField("indexKind", IndexKind.class),
+    };
+
     /**
-     * Le facteur de ramification de l'arbre B+.
+     * Le taux de remplissage des noeuds lorsque l'index est construit à partir des valeurs existantes.
      */
-    int branchingFactor;
+    public static final double DEFAULT_FILL_FACTOR = 0.9;
+
     /**
-     * Le type de données stocké dans la colonne.
+     * Une liste contenant les valeurs stockées dans la colonne.
      */
-    Class<?> type;
+    ArrayList<TKind> values = new ArrayList<>();
 
     /**
      * Constructeur de la classe Column.
@@ -43,249 +52,134 @@ public class Column<TKind extends Comparable<? super TKind>> implements IColumn
      * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
      */
     public Column(Class<?> type, String name, int maxValuesPerNode) {
-        this.name = name;
-        this.values = new ArrayList<>();
-        this.type = type;
-
-        enableIndex(maxValuesPerNode);
+        super(type, name, maxValuesPerNode);
     }
 
-    /**
-     * Active l'index de cette colonne avec le facteur de ramification donné en paramètre.
-     *
-     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
-     */
-    public void enableIndex(int maxValuesPerNode) {
-        if (maxValuesPerNode > 0) {
-            this.branchingFactor = maxValuesPerNode + 1;
-            this.index = new BPlusTree<>(branchingFactor);
-            for (int i = 0; i < values.size(); i++) {
-                index.insert(values.get(i), i);
-            }
-        } else {
-            this.branchingFactor = 0;
-            this.index = null;
-        }
-    }
-
-    /**
-     * Ajoute une valeur à la fin de la liste de valeurs de la colonne.
-     *
-     * @param value la valeur à ajouter
-     */
-    public void addValue(TKind value) {
-        int row = values.size();
-        values.add(value);
-
-        if (index != null) {
-            index.insert(value, row);
-        }
-    }
-
-    /**
-     * Supprime une valeur de la liste de valeurs de la colonne.
-     *
-     * @param value la valeur à supprimer
-     */
-    public void removeValue(TKind value) {
-        int row = search(value);
-        if (row >= 0) {
-            removeAt(row);
-        }
-    }
-
-    /**
-     * Retourne le nom de la colonne.
-     *
-     * @return le nom de la colonne
-     */
     @Override
-    public String getName() {
-        return name;
+    protected TKind read(int row) {
+        return values.get(row);
     }
 
-    /**
-     * Ajoute une valeur à la fin de la liste de valeurs de la colonne.
-     *
-     * @param value la valeur à ajouter
-     */
     @Override
-    public void addValue(Object value) {
-        addValue((TKind) value);
+    protected void write(int row, TKind value) {
+        values.set(row, value);
     }
 
-    /**
-     * Met à jour la valeur d'une ligne donnée de la colonne.
-     *
-     * @param row   la ligne à mettre à jour
-     * @param value la nouvelle valeur à assigner
-     */
     @Override
-    public void updateValue(int row, Object value) {
-        updateValue(row, (TKind) value);
+    protected void release(int row) {
+        values.set(row, null);
     }
 
     /**
-     * Supprime une valeur de la liste de valeurs de la colonne à partir de sa valeur.
+     * Agrandit la liste jusqu'au nombre de lignes donné : les nouvelles lignes contiennent null
+     * jusqu'à ce qu'une valeur y soit écrite.
      *
-     * @param value la valeur à supprimer
+     * @param capacity le nombre de lignes à pouvoir stocker
      */
     @Override
-    public void removeValue(Object value) {
-        removeValue((TKind) value);
+    protected void ensureCapacity(int capacity) {
+        values.ensureCapacity(capacity);
+        while (values.size() < capacity) {
+            values.add(null);
+        }
     }
 
-    /**
-     * Supprime une ligne de la colonne à partir de son index.
-     *
-     * @param row l'index de la ligne à supprimer
-     */
     @Override
-    public void removeAt(int row) {
-        TKind value = values.get(row);
+    protected void shift(int row) {
         values.remove(row);
-
-        if (index != null) {
-            index.delete(value);
-        }
     }
 
-    /**
-     * Retourne la valeur d'une ligne donnée de la colonne.
-     *
-     * @param row la ligne dont on veut récupérer la valeur
-     * @return la valeur de la ligne donnée
-     */
     @Override
-    public Object getValue(int row) {
-        return values.get(row);
+    protected void clearStorage() {
+        values = new ArrayList<>();
     }
 
-    /**
-     * Retourne le nombre de valeurs dans la colonne.
-     *
-     * @return le nombre de valeurs dans la colonne
-     */
     @Override
-    public int size() {
-        return values.size();
+    protected void copyStorage() {
+        // La liste de l'instantané est déjà copiée par prepareSnapshot : rien n'est partagé
     }
 
     /**
-     * Recherche l'index de la première occurrence d'une valeur donnée dans la colonne.
-     *
-     * @param value la valeur à chercher
-     * @return l'index de la première occurrence de la valeur donnée, ou -1 si la valeur n'est pas trouvée
+     * Copie la liste des valeurs dans l'instantané : une ArrayList est modifiée en place par les ajouts.
+     * Contrairement aux colonnes typées, le coût de l'instantané est donc proportionnel à la taille.
      */
     @Override
-    public int search(Object value) {
-        return search((TKind) value);
+    protected void prepareSnapshot() {
+        values = new ArrayList<>(values);
     }
 
     /**
-     * Vérifie si la colonne contient une valeur donnée.
+     * Estime la mémoire occupée par la liste des valeurs, en octets.
+     * L'estimation suppose des références compressées (4 octets) et compte chaque objet boxé.
      *
-     * @param value la valeur à chercher
-     * @return true si la colonne contient la valeur donnée, false sinon
-     */
-    @Override
-    public boolean contains(Object value) {
-        return values.contains((TKind) value);
-    }
-
-    /**
-     * Supprime toutes les valeurs de la colonne.
+     * @return l'estimation de la mémoire occupée par la liste des valeurs
      */
     @Override
-    public void drop() {
-        values.clear();
-        if (index != null) {
-            index = new BPlusTree<>(branchingFactor);
+    protected long storageFootprint() {
+        long bytes = 24 + 16 + 4L * values.size();
+        for (TKind value : values) {
+            if (value instanceof String) {
+                bytes += 24 + align(16 + ((String) value).length());
+            } else if (value instanceof Long || value instanceof Double) {
+                bytes += 24;
+            } else if (value != null && !(value instanceof Boolean)) {
+                bytes += 16;
+            }
         }
+        return bytes;
     }
 
-    /**
-     * Retourne le type de données stocké dans la colonne.
-     *
-     * @return le type de données stocké dans la colonne
-     */
     @Override
-    public Class<?> getType() {
-        return type;
+    protected int scan(TKind value) {
+        return values.indexOf(value);
     }
 
-    /**
-     * Vérifie si la colonne est indexée.
-     *
-     * @return true si la colonne est indexée, false sinon
-     */
     @Override
-    public boolean isIndexed() {
-        return index != null;
+    @SuppressWarnings("unchecked")
+    public Column<TKind> snapshot() {
+        return (Column<TKind>) super.snapshot();
     }
 
     /**
-     * Convertit la colonne en un arbre de nœuds Swing pour affichage dans une JTable.
+     * Arrondit une taille d'objet au multiple de 8 octets supérieur.
      *
-     * @return l'arbre de nœuds Swing correspondant à la colonne
+     * @param bytes la taille à arrondir
+     * @return la taille arrondie
      */
-    @Override
-    public TreeNode toJTree() {
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode(name);
-        if (index != null) {
-            root.add(index.toJTree());
-        } else {
-            for (Object value : values) {
-                root.add(new DefaultMutableTreeNode(value));
-            }
-        }
-        return root;
-    }
-
-    /**
-     * Met à jour la valeur d'une ligne donnée de la colonne.
-     *
-     * @param row   la ligne à mettre à jour
-     * @param value la nouvelle valeur à assigner
-     */
-    public void updateValue(int row, TKind value) {
-        TKind oldValue = values.get(row);
-        values.set(row, value);
-
-        if (index != null) {
-            index.delete(oldValue);
-            index.insert(value, row);
-        }
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
     }
 
-
-    /**
-     * Recherche l'index de la première occurrence d'une valeur donnée dans la colonne.
-     *
-     * @param value la valeur à chercher
-     * @return l'index de la première occurrence de la valeur donnée, ou -1 si la valeur n'est pas trouvée
-     */
-    public int search(TKind value) {
-        if (index == null) {
-            return values.indexOf(value);
-        }
-        Integer valueRef = index.search(value);
-        if (valueRef == null) {
-            return -1;
-        }
-        return valueRef;
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        fields.put("values", values);
+        fields.put("branchingFactor", branchingFactor);
+        fields.put("type", type);
+        fields.put("offHeapIndex", offHeapIndex);
+        fields.put("indexKind", indexKind);
+        out.writeFields();
     }
 
     @Serial
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
-
-        if (branchingFactor >= 1) {
-            index = new BPlusTree<>(branchingFactor);
-            for (int i = 0; i < values.size(); i++) {
-                index.insert(values.get(i), i);
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        values = (ArrayList<TKind>) fields.get("values", null);
+        branchingFactor = fields.get("branchingFactor", 0);
+        type = (Class<?>) fields.get("type", null);
+        offHeapIndex = fields.get("offHeapIndex", false);
+        indexKind = (IndexKind) fields.get("indexKind", null);
+
+        size = values.size();
+        nulls = new BitSet();
+        for (int i = 0; i < size; i++) {
+            if (values.get(i) == null) {
+                nulls.set(i);
             }
         }
+        // L'index est reconstruit par readResolve
     }
 }
-
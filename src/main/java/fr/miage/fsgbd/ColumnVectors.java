@@ -0,0 +1,357 @@
+package fr.miage.fsgbd;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * Noyaux d'évaluation des conditions par tranches de lignes, sur le stockage des colonnes typées.
+ * <p>
+ * Les comparaisons sur une colonne d'entiers ou de doubles sont ramenées à un intervalle inclus [low, high]
+ * et évaluées par une boucle sans branchement sur le tableau primitif de la colonne : chaque ligne est écrite
+ * dans le vecteur de sélection, et la position d'écriture n'avance que si la valeur est dans l'intervalle.
+ * Les cellules vides sont retirées ensuite, seulement si la tranche en contient. Les autres colonnes et conditions
+ * sont évaluées ligne par ligne sur les valeurs de la colonne, mais toujours à travers des vecteurs de sélection.
+ */
+final class ColumnVectors {
+    /**
+     * Le nombre de lignes d'une tranche.
+     */
+    static final int CHUNK_SIZE = 2048;
+
+    /**
+     * Condition qu'aucune ligne ne vérifie.
+     */
+    static final VectorPredicate NONE = new VectorPredicate() {
+        @Override
+        public int select(int from, int to, int[] rows) {
+            return 0;
+        }
+
+        @Override
+        public int refine(int[] rows, int count) {
+            return 0;
+        }
+    };
+
+    private ColumnVectors() {
+    }
+
+    /**
+     * Compile un intervalle de valeurs d'une colonne. Les bornes nulles ne limitent pas l'intervalle ;
+     * les cellules vides n'en font jamais partie.
+     *
+     * @param column        la colonne.
+     * @param from          la borne inférieure, ou null.
+     * @param fromInclusive true si la borne inférieure fait partie de l'intervalle.
+     * @param to            la borne supérieure, ou null.
+     * @param toInclusive   true si la borne supérieure fait partie de l'intervalle.
+     * @param test          le test d'une valeur, utilisé si la colonne n'a pas de noyau spécialisé.
+     * @return la condition compilée.
+     */
+    @SuppressWarnings("unchecked")
+    static VectorPredicate range(IColumn column, Object from, boolean fromInclusive, Object to, boolean toInclusive, Predicate<Object> test) {
+        boolean ints = column instanceof IntColumn || column instanceof OffHeapIntColumn;
+        boolean doubles = column instanceof DoubleColumn || column instanceof OffHeapDoubleColumn;
+        if (ints && (from == null || from instanceof Integer) && (to == null || to instanceof Integer)) {
+            long low = from == null ? Integer.MIN_VALUE : (Integer) from + (fromInclusive ? 0L : 1L);
+            long high = to == null ? Integer.MAX_VALUE : (Integer) to - (toInclusive ? 0L : 1L);
+            return low > high ? NONE : new IntRange((AbstractColumn<Integer>) column, (int) low, (int) high);
+        }
+        if (doubles && (from == null || from instanceof Double) && (to == null || to instanceof Double)) {
+            double low = from == null ? Double.NEGATIVE_INFINITY : fromInclusive ? (Double) from : Math.nextUp((Double) from);
+            double high = to == null ? Double.POSITIVE_INFINITY : toInclusive ? (Double) to : Math.nextDown((Double) to);
+            return low > high ? NONE : new DoubleRange((AbstractColumn<Double>) column, low, high);
+        }
+        return generic(column, test);
+    }
+
+    /**
+     * Compile un test quelconque sur les valeurs d'une colonne (cellules vides comprises).
+     *
+     * @param column la colonne.
+     * @param test   le test d'une valeur.
+     * @return la condition compilée.
+     */
+    static VectorPredicate generic(IColumn column, Predicate<Object> test) {
+        return new VectorPredicate() {
+            @Override
+            public int select(int from, int to, int[] rows) {
+                int n = 0;
+                for (int row = from; row < to; row++) {
+                    rows[n] = row;
+                    if (test.test(column.getValue(row)))
+                        n++;
+                }
+                return n;
+            }
+
+            @Override
+            public int refine(int[] rows, int count) {
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    rows[n] = row;
+                    if (test.test(column.getValue(row)))
+                        n++;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Compile une conjonction : la première condition sélectionne, les suivantes restreignent sa sélection.
+     *
+     * @param operands les conditions compilées.
+     * @return la condition compilée.
+     */
+    static VectorPredicate and(VectorPredicate[] operands) {
+        return new VectorPredicate() {
+            @Override
+            public int select(int from, int to, int[] rows) {
+                int count = operands[0].select(from, to, rows);
+                for (int i = 1; i < operands.length && count > 0; i++) {
+                    count = operands[i].refine(rows, count);
+                }
+                return count;
+            }
+
+            @Override
+            public int refine(int[] rows, int count) {
+                for (int i = 0; i < operands.length && count > 0; i++) {
+                    count = operands[i].refine(rows, count);
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Compile une disjonction : chaque condition restreint une copie du vecteur de sélection, puis les lignes
+     * retenues par au moins une condition sont gardées dans leur ordre d'origine.
+     *
+     * @param operands les conditions compilées.
+     * @return la condition compilée.
+     */
+    static VectorPredicate or(VectorPredicate[] operands) {
+        int[][] selections = new int[operands.length][CHUNK_SIZE];
+        int[] counts = new int[operands.length];
+        int[] positions = new int[operands.length];
+        return new VectorPredicate() {
+            @Override
+            public int select(int from, int to, int[] rows) {
+                return refine(rows, fill(from, to, rows));
+            }
+
+            @Override
+            public int refine(int[] rows, int count) {
+                for (int k = 0; k < operands.length; k++) {
+                    System.arraycopy(rows, 0, selections[k], 0, count);
+                    counts[k] = operands[k].refine(selections[k], count);
+                    positions[k] = 0;
+                }
+                // Chaque sélection est une sous-suite du vecteur d'origine : un curseur par sélection suffit
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    boolean kept = false;
+                    for (int k = 0; k < operands.length; k++) {
+                        if (positions[k] < counts[k] && selections[k][positions[k]] == row) {
+                            positions[k]++;
+                            kept = true;
+                        }
+                    }
+                    if (kept)
+                        rows[n++] = row;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Remplit un vecteur de sélection avec toutes les lignes d'un intervalle.
+     *
+     * @return le nombre de lignes.
+     */
+    static int fill(int from, int to, int[] rows) {
+        for (int row = from; row < to; row++) {
+            rows[row - from] = row;
+        }
+        return to - from;
+    }
+
+    /**
+     * Retire d'un vecteur de sélection trié les cellules vides d'une colonne, si l'intervalle en contient.
+     */
+    private static int dropNulls(BitSet nulls, int from, int to, int[] rows, int count) {
+        int first = nulls.nextSetBit(from);
+        if (first == -1 || first >= to)
+            return count;
+        return dropNulls(nulls, rows, count);
+    }
+
+    /**
+     * Retire d'un vecteur de sélection les cellules vides d'une colonne.
+     */
+    private static int dropNulls(BitSet nulls, int[] rows, int count) {
+        if (nulls.isEmpty())
+            return count;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            rows[n] = row;
+            if (!nulls.get(row))
+                n++;
+        }
+        return n;
+    }
+
+    /**
+     * Intervalle [low, high] sur une colonne d'entiers (tableau sur le tas ou pages hors du tas).
+     */
+    private static final class IntRange implements VectorPredicate {
+        private final AbstractColumn<Integer> column;
+        private final int low;
+        private final int high;
+        private int[] buffer;
+
+        IntRange(AbstractColumn<Integer> column, int low, int high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            int[] values;
+            int base;
+            if (column instanceof IntColumn ints) {
+                values = ints.values;
+                base = 0;
+            } else {
+                values = load(from, to);
+                base = from;
+            }
+            int low = this.low, high = this.high;
+            int n = 0;
+            for (int row = from; row < to; row++) {
+                int value = values[row - base];
+                rows[n] = row;
+                n += (value >= low & value <= high) ? 1 : 0;
+            }
+            return dropNulls(column.nulls, from, to, rows, n);
+        }
+
+        @Override
+        public int refine(int[] rows, int count) {
+            int low = this.low, high = this.high;
+            int n = 0;
+            if (column instanceof IntColumn ints) {
+                int[] values = ints.values;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    int value = values[row];
+                    rows[n] = row;
+                    n += (value >= low & value <= high) ? 1 : 0;
+                }
+            } else {
+                OffHeapIntColumn offHeap = (OffHeapIntColumn) column;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    int value = offHeap.getInt(row);
+                    rows[n] = row;
+                    n += (value >= low & value <= high) ? 1 : 0;
+                }
+            }
+            return dropNulls(column.nulls, rows, n);
+        }
+
+        /**
+         * Copie les valeurs d'un intervalle de lignes d'une colonne hors du tas dans un tampon.
+         */
+        private int[] load(int from, int to) {
+            if (buffer == null)
+                buffer = new int[CHUNK_SIZE];
+            OffHeapIntColumn offHeap = (OffHeapIntColumn) column;
+            for (int row = from; row < to; row++) {
+                buffer[row - from] = offHeap.getInt(row);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Intervalle [low, high] sur une colonne de doubles (tableau sur le tas ou pages hors du tas).
+     */
+    private static final class DoubleRange implements VectorPredicate {
+        private final AbstractColumn<Double> column;
+        private final double low;
+        private final double high;
+        private double[] buffer;
+
+        DoubleRange(AbstractColumn<Double> column, double low, double high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int select(int from, int to, int[] rows) {
+            double[] values;
+            int base;
+            if (column instanceof DoubleColumn doubles) {
+                values = doubles.values;
+                base = 0;
+            } else {
+                values = load(from, to);
+                base = from;
+            }
+            double low = this.low, high = this.high;
+            int n = 0;
+            for (int row = from; row < to; row++) {
+                double value = values[row - base];
+                rows[n] = row;
+                n += (value >= low & value <= high) ? 1 : 0;
+            }
+            return dropNulls(column.nulls, from, to, rows, n);
+        }
+
+        @Override
+        public int refine(int[] rows, int count) {
+            double low = this.low, high = this.high;
+            int n = 0;
+            if (column instanceof DoubleColumn doubles) {
+                double[] values = doubles.values;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    double value = values[row];
+                    rows[n] = row;
+                    n += (value >= low & value <= high) ? 1 : 0;
+                }
+            } else {
+                OffHeapDoubleColumn offHeap = (OffHeapDoubleColumn) column;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    double value = offHeap.getDouble(row);
+                    rows[n] = row;
+                    n += (value >= low & value <= high) ? 1 : 0;
+                }
+            }
+            return dropNulls(column.nulls, rows, n);
+        }
+
+        /**
+         * Copie les valeurs d'un intervalle de lignes d'une colonne hors du tas dans un tampon.
+         */
+        private double[] load(int from, int to) {
+            if (buffer == null)
+                buffer = new double[CHUNK_SIZE];
+            OffHeapDoubleColumn offHeap = (OffHeapDoubleColumn) column;
+            for (int row = from; row < to; row++) {
+                buffer[row - from] = offHeap.getDouble(row);
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,1340 @@
+package fr.miage.fsgbd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Format de fichier colonnaire compact pour l'échange de tables, alternative binaire à {@link CSVExporter}.
+ * <pre>
+ * [en-tête : numéro magique, version][groupes de lignes][pied][longueur du pied][numéro magique]
+ * </pre>
+ * Les lignes sont découpées en groupes d'au plus {@link #ROW_GROUP_SIZE} lignes. Dans un groupe, les valeurs de chaque
+ * colonne sont écrites à la suite dans un segment : la carte des cellules vides s'il y en a, puis les valeurs encodées
+ * selon le type de la colonne :
+ * <ul>
+ *     <li>entiers : écarts à la plus petite valeur, ou différences successives, empaquetés sur le nombre de bits
+ *     nécessaire (l'encodage le plus court est retenu) ;</li>
+ *     <li>nombres à virgule : valeurs brutes ;</li>
+ *     <li>chaînes : dictionnaire des valeurs distinctes et codes empaquetés quand le groupe contient peu de valeurs
+ *     distinctes, sinon longueurs empaquetées suivies des octets UTF-8 ;</li>
+ *     <li>booléens : carte de bits.</li>
+ * </ul>
+ * Le pied, écrit en dernier pour que l'écriture se fasse en flux, décrit les colonnes (nom, type) puis chaque groupe :
+ * son nombre de lignes et, par colonne, la position, la longueur et l'encodage du segment, le nombre de cellules vides
+ * et les valeurs minimale et maximale. Ces statistiques permettent à {@link #scan(String, Condition)} de sauter sans
+ * les lire les groupes qui ne peuvent pas vérifier une condition. Tout est écrit en petit-boutiste.
+ * <p>
+ * Comme avec le format CSV, les lignes supprimées ne sont pas écrites et seul l'index de la clé primaire est
+ * reconstruit à la relecture.
+ */
+public final class ColumnarFile {
+    /**
+     * L'extension des fichiers colonnaires.
+     */
+    public static final String EXTENSION = ".col";
+
+    /**
+     * Le nombre maximal de lignes d'un groupe (un multiple de 64, pour que les cartes de bits des groupes successifs
+     * soient alignées sur des mots).
+     */
+    static final int ROW_GROUP_SIZE = 1 << 16;
+
+    /**
+     * « FSGBDCOL » en ASCII, lu en petit-boutiste.
+     */
+    private static final long MAGIC = 0x4c4f434442475346L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 12;
+
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_STRING = 3;
+    private static final int TYPE_BOOLEAN = 4;
+
+    /**
+     * Entiers : écarts à la plus petite valeur, empaquetés.
+     */
+    private static final int INT_PACKED = 1;
+    /**
+     * Entiers : première valeur puis différences successives, empaquetées.
+     */
+    private static final int INT_DELTA = 2;
+    private static final int DOUBLE_PLAIN = 3;
+    /**
+     * Chaînes : longueurs empaquetées puis octets.
+     */
+    private static final int STRING_PLAIN = 4;
+    /**
+     * Chaînes : dictionnaire (longueurs empaquetées puis octets des valeurs distinctes) puis codes empaquetés.
+     */
+    private static final int STRING_DICTIONARY = 5;
+    private static final int BOOLEAN_BITMAP = 6;
+
+    private ColumnarFile() {
+    }
+
+    /**
+     * Écrit une table dans un fichier colonnaire, dans l'ordre de stockage des lignes.
+     *
+     * @param filename le nom du fichier, remplacé s'il existe
+     * @param table    la table, qui ne doit pas être modifiée pendant l'écriture
+     * @throws IOException              si l'écriture échoue
+     * @throws IllegalArgumentException si une colonne a un type non supporté
+     */
+    public static void export(String filename, Table table) throws IOException {
+        List<IColumn> columns = table.getColumns();
+        ChunkEncoder[] encoders = new ChunkEncoder[columns.size()];
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i] = ChunkEncoder.forColumn(columns.get(i));
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(1 << 20);
+            out.putLong(MAGIC);
+            out.putInt(VERSION);
+            long position = out.writeTo(channel, 0);
+
+            List<RowGroup> groups = new ArrayList<>();
+            int[] rows = new int[ROW_GROUP_SIZE];
+            int rowSlots = table.numRowSlots();
+            int row = 0;
+            while (true) {
+                int count = 0;
+                for (; row < rowSlots && count < rows.length; row++) {
+                    if (!table.isRowDeleted(row))
+                        rows[count++] = row;
+                }
+                if (count == 0)
+                    break;
+
+                RowGroup group = new RowGroup(count, encoders.length);
+                for (int i = 0; i < encoders.length; i++) {
+                    out.clear();
+                    ColumnChunk chunk = encoders[i].encode(rows, count, out);
+                    chunk.position = position;
+                    chunk.length = out.length();
+                    position = out.writeTo(channel, position);
+                    group.chunks[i] = chunk;
+                }
+                groups.add(group);
+            }
+
+            out.clear();
+            out.putInt(columns.size());
+            for (int i = 0; i < encoders.length; i++) {
+                out.putString(columns.get(i).getName());
+                out.putByte(encoders[i].type);
+            }
+            out.putInt(groups.size());
+            for (RowGroup group : groups) {
+                group.write(out, encoders);
+            }
+            int footerLength = out.length();
+            out.putInt(footerLength);
+            out.putLong(MAGIC);
+            out.writeTo(channel, position);
+        }
+    }
+
+    /**
+     * Lit une table depuis un fichier écrit par {@link #export(String, Table)}.
+     *
+     * @param filename le nom du fichier
+     * @return la table, dont la clé primaire est indexée
+     * @throws IOException              si la lecture échoue ou si le fichier n'est pas un fichier colonnaire
+     * @throws IllegalArgumentException si la clé primaire contient des doublons
+     */
+    public static Table importFrom(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            Footer footer = Footer.read(channel);
+            int rows = 0;
+            for (RowGroup group : footer.groups) {
+                rows += group.rowCount;
+            }
+            ChunkDecoder[] decoders = footer.decoders(rows);
+            SegmentReader reader = new SegmentReader(channel);
+            int offset = 0;
+            for (RowGroup group : footer.groups) {
+                decodeGroup(reader, group, decoders, offset);
+                offset += group.rowCount;
+            }
+            Table table = createTable(decoders, rows);
+
+            // Comme pour l'import CSV, l'index de la clé primaire est construit en une fois (chargement en masse)
+            if (table.numColumns() > 0) {
+                try {
+                    table.getPkColumn().enableIndex(4);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid file format. Duplicate primary key.", e);
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Lit les lignes d'un fichier écrit par {@link #export(String, Table)} qui vérifient une condition.
+     * Les groupes de lignes dont les statistiques montrent qu'aucune ligne ne peut vérifier la condition ne sont pas lus ;
+     * les autres sont décodés puis filtrés par le moteur de requêtes.
+     *
+     * @param filename le nom du fichier
+     * @param filter   la condition
+     * @return les lignes qui vérifient la condition, dans l'ordre du fichier
+     * @throws IOException              si la lecture échoue ou si le fichier n'est pas un fichier colonnaire
+     * @throws IllegalArgumentException si la condition porte sur une colonne inexistante
+     */
+    public static List<Object[]> scan(String filename, Condition filter) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            Footer footer = Footer.read(channel);
+            Map<String, Integer> columnIndexes = new HashMap<>();
+            for (int i = 0; i < footer.names.length; i++) {
+                columnIndexes.put(footer.names[i], i);
+            }
+            SegmentReader reader = new SegmentReader(channel);
+            List<Object[]> result = new ArrayList<>();
+            for (RowGroup group : footer.groups) {
+                boolean mayMatch = filter.mayMatch(column -> {
+                    Integer index = columnIndexes.get(column);
+                    return index == null ? null : group.chunks[index].statistics;
+                });
+                if (!mayMatch)
+                    continue;
+
+                ChunkDecoder[] decoders = footer.decoders(group.rowCount);
+                decodeGroup(reader, group, decoders, 0);
+                result.addAll(createTable(decoders, group.rowCount).select().where(filter).execute());
+            }
+            return result;
+        }
+    }
+
+    private static void decodeGroup(SegmentReader reader, RowGroup group, ChunkDecoder[] decoders, int offset) throws IOException {
+        for (int i = 0; i < decoders.length; i++) {
+            ColumnChunk chunk = group.chunks[i];
+            ByteBuffer segment = reader.read(chunk.position, chunk.length);
+            decoders[i].decode(segment, chunk, offset, group.rowCount);
+        }
+    }
+
+    private static Table createTable(ChunkDecoder[] decoders, int rows) {
+        List<IColumn> columns = new ArrayList<>(decoders.length);
+        for (ChunkDecoder decoder : decoders) {
+            columns.add(decoder.finish(rows));
+        }
+        return new Table(true, columns, new int[0]);
+    }
+
+    /**
+     * Le nombre de bits nécessaires pour représenter un entier positif.
+     */
+    private static int bitWidth(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Empaquette des valeurs positives sur un nombre de bits donné, dans des mots de 64 bits.
+     */
+    private static void pack(long[] values, int count, int width, Output out) {
+        if (width == 0)
+            return;
+        long word = 0;
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            long value = values[i];
+            word |= value << used;
+            used += width;
+            if (used >= 64) {
+                out.putLong(word);
+                used -= 64;
+                word = used == 0 ? 0 : value >>> (width - used);
+            }
+        }
+        if (used > 0)
+            out.putLong(word);
+    }
+
+    /**
+     * Lit les mots de valeurs empaquetées par {@link #pack(long[], int, int, Output)}.
+     *
+     * @return les mots, dans un tableau qui peut être plus grand que nécessaire
+     */
+    private static long[] readPacked(ByteBuffer in, int count, int width, long[] words) {
+        int wordCount = (int) (((long) count * width + 63) >>> 6);
+        if (words.length < wordCount)
+            words = new long[wordCount];
+        in.asLongBuffer().get(words, 0, wordCount);
+        in.position(in.position() + 8 * wordCount);
+        return words;
+    }
+
+    /**
+     * Extrait une valeur empaquetée.
+     */
+    private static long unpack(long[] words, int index, int width, long mask) {
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + width > 64)
+            value |= words[word + 1] << (64 - shift);
+        return value & mask;
+    }
+
+    private static long mask(int width) {
+        return width == 64 ? -1L : (1L << width) - 1;
+    }
+
+    /**
+     * Écrit des entiers en écarts à leur plus petite valeur, empaquetés : la plus petite valeur, le nombre de bits,
+     * puis les écarts.
+     *
+     * @param scratch un tableau d'au moins count cases
+     */
+    private static void packInts(int[] values, int count, long[] scratch, Output out) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        if (count == 0)
+            min = max = 0;
+        for (int i = 0; i < count; i++) {
+            scratch[i] = (long) values[i] - min;
+        }
+        int width = bitWidth((long) max - min);
+        out.putInt(min);
+        out.putByte(width);
+        pack(scratch, count, width, out);
+    }
+
+    /**
+     * Lit des entiers écrits par {@link #packInts(int[], int, long[], Output)}.
+     *
+     * @return le tableau de mots à réutiliser
+     */
+    private static long[] unpackInts(ByteBuffer in, int count, int[] target, int offset, long[] words) {
+        int min = in.getInt();
+        int width = in.get();
+        if (width == 0) {
+            Arrays.fill(target, offset, offset + count, min);
+            return words;
+        }
+        words = readPacked(in, count, width, words);
+        long mask = mask(width);
+        for (int i = 0; i < count; i++) {
+            target[offset + i] = (int) (min + unpack(words, i, width, mask));
+        }
+        return words;
+    }
+
+    /**
+     * Ajoute une carte de bits à une carte plus grande, à partir d'une position quelconque.
+     */
+    private static void orBits(long[] target, int offset, long[] words, int wordCount) {
+        for (int i = 0; i < wordCount; i++) {
+            long word = words[i];
+            if (word == 0)
+                continue;
+            int bit = offset + 64 * i;
+            int index = bit >>> 6;
+            int shift = bit & 63;
+            target[index] |= word << shift;
+            if (shift != 0 && index + 1 < target.length)
+                target[index + 1] |= word >>> (64 - shift);
+        }
+    }
+
+    /**
+     * Les statistiques d'une colonne sur un groupe de lignes.
+     */
+    static final class Statistics {
+        final int rowCount;
+        final int nullCount;
+        /**
+         * La plus petite et la plus grande valeur non vide, ou null si le groupe n'a que des cellules vides ou si les
+         * bornes ne sont pas connues.
+         */
+        final Object min;
+        final Object max;
+
+        Statistics(int rowCount, int nullCount, Object min, Object max) {
+            this.rowCount = rowCount;
+            this.nullCount = nullCount;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Indique si le groupe peut contenir une valeur non vide comprise entre deux bornes.
+         *
+         * @param from          la borne inférieure, ou null
+         * @param fromInclusive true si la borne inférieure est incluse
+         * @param to            la borne supérieure, ou null
+         * @param toInclusive   true si la borne supérieure est incluse
+         * @return false si aucune valeur du groupe n'est comprise entre les bornes
+         */
+        boolean mayContain(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+            if (min == null)
+                return nullCount < rowCount;
+            try {
+                if (from != null) {
+                    int cmp = Condition.compare(max, from);
+                    if (cmp < 0 || cmp == 0 && !fromInclusive)
+                        return false;
+                }
+                if (to != null) {
+                    int cmp = Condition.compare(min, to);
+                    if (cmp > 0 || cmp == 0 && !toInclusive)
+                        return false;
+                }
+                return true;
+            } catch (ClassCastException e) {
+                // Borne d'un autre type que la colonne : le groupe n'est pas écarté
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Un segment : les valeurs d'une colonne dans un groupe de lignes.
+     */
+    private static final class ColumnChunk {
+        long position;
+        int length;
+        int encoding;
+        Statistics statistics;
+
+        void write(Output out, int type) {
+            out.putLong(position);
+            out.putInt(length);
+            out.putByte(encoding);
+            out.putInt(statistics.nullCount);
+            out.putByte(statistics.min != null ? 1 : 0);
+            if (statistics.min != null) {
+                putValue(out, type, statistics.min);
+                putValue(out, type, statistics.max);
+            }
+        }
+
+        static ColumnChunk read(ByteBuffer in, int type, int rowCount) throws IOException {
+            ColumnChunk chunk = new ColumnChunk();
+            chunk.position = in.getLong();
+            chunk.length = in.getInt();
+            chunk.encoding = in.get();
+            int nullCount = in.getInt();
+            Object min = null;
+            Object max = null;
+            if (in.get() != 0) {
+                min = getValue(in, type);
+                max = getValue(in, type);
+            }
+            chunk.statistics = new Statistics(rowCount, nullCount, min, max);
+            return chunk;
+        }
+
+        private static void putValue(Output out, int type, Object value) {
+            switch (type) {
+                case TYPE_INTEGER -> out.putInt((Integer) value);
+                case TYPE_DOUBLE -> out.putDouble((Double) value);
+                case TYPE_STRING -> out.putString((String) value);
+                case TYPE_BOOLEAN -> out.putByte((Boolean) value ? 1 : 0);
+                default -> throw new AssertionError(type);
+            }
+        }
+
+        private static Object getValue(ByteBuffer in, int type) throws IOException {
+            return switch (type) {
+                case TYPE_INTEGER -> in.getInt();
+                case TYPE_DOUBLE -> in.getDouble();
+                case TYPE_STRING -> getString(in);
+                case TYPE_BOOLEAN -> in.get() != 0;
+                default -> throw new IOException("Invalid file format. Unknown column type: " + type);
+            };
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] encoded = new byte[in.getInt()];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Un groupe de lignes : son nombre de lignes et un segment par colonne.
+     */
+    private static final class RowGroup {
+        final int rowCount;
+        final ColumnChunk[] chunks;
+
+        RowGroup(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.chunks = new ColumnChunk[columnCount];
+        }
+
+        void write(Output out, ChunkEncoder[] encoders) {
+            out.putInt(rowCount);
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i].write(out, encoders[i].type);
+            }
+        }
+    }
+
+    /**
+     * Le pied du fichier : le schéma et la description des groupes de lignes.
+     */
+    private static final class Footer {
+        String[] names;
+        int[] types;
+        List<RowGroup> groups;
+
+        static Footer read(FileChannel channel) throws IOException {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE)
+                throw new IOException("Invalid file format. Not a columnar file.");
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            if (header.getLong() != MAGIC || trailer.getLong(4) != MAGIC)
+                throw new IOException("Invalid file format. Not a columnar file.");
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported columnar file version: " + version);
+            int footerLength = trailer.getInt(0);
+            if (footerLength < 0 || footerLength > size - HEADER_SIZE - TRAILER_SIZE)
+                throw new IOException("Invalid file format. Corrupted footer.");
+
+            ByteBuffer in = readFully(channel, size - TRAILER_SIZE - footerLength, footerLength);
+            Footer footer = new Footer();
+            int columnCount = in.getInt();
+            footer.names = new String[columnCount];
+            footer.types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                footer.names[i] = getString(in);
+                footer.types[i] = in.get();
+            }
+            int groupCount = in.getInt();
+            footer.groups = new ArrayList<>(groupCount);
+            for (int g = 0; g < groupCount; g++) {
+                RowGroup group = new RowGroup(in.getInt(), columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    group.chunks[i] = ColumnChunk.read(in, footer.types[i], group.rowCount);
+                }
+                footer.groups.add(group);
+            }
+            return footer;
+        }
+
+        ChunkDecoder[] decoders(int rows) throws IOException {
+            ChunkDecoder[] decoders = new ChunkDecoder[names.length];
+            for (int i = 0; i < decoders.length; i++) {
+                decoders[i] = ChunkDecoder.forType(names[i], types[i], rows);
+            }
+            return decoders;
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new IOException("Invalid file format. Unexpected end of file.");
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Lit les segments dans un tampon réutilisé d'un segment à l'autre.
+     */
+    private static final class SegmentReader {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        SegmentReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer read(long position, int length) throws IOException {
+            if (buffer.capacity() < length)
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new IOException("Invalid file format. Unexpected end of file.");
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Tampon d'écriture extensible.
+     */
+    private static final class Output {
+        private ByteBuffer buffer;
+
+        Output(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int length() {
+            return buffer.position();
+        }
+
+        /**
+         * @return le tableau du tampon, valide jusqu'à la prochaine écriture
+         */
+        byte[] array() {
+            return buffer.array();
+        }
+
+        void clear() {
+            buffer.clear();
+        }
+
+        private void ensure(int count) {
+            if (buffer.remaining() < count) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + count)).order(ByteOrder.LITTLE_ENDIAN);
+                buffer = grown.put(buffer.flip());
+            }
+        }
+
+        void putByte(int value) {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] bytes, int from, int count) {
+            ensure(count);
+            buffer.put(bytes, from, count);
+        }
+
+        /**
+         * Écrit à la suite des tranches d'un tableau d'octets.
+         */
+        void putSlices(byte[] source, int[] offsets, int[] lengths, int count) {
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += lengths[i];
+            }
+            ensure(total);
+            byte[] target = buffer.array();
+            int position = buffer.position();
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(source, offsets[i], target, position, lengths[i]);
+                position += lengths[i];
+            }
+            buffer.position(position);
+        }
+
+        void putLongs(long[] values, int count) {
+            ensure(8 * count);
+            buffer.asLongBuffer().put(values, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+        }
+
+        void putDoubles(double[] values, int count) {
+            ensure(8 * count);
+            buffer.asDoubleBuffer().put(values, 0, count);
+            buffer.position(buffer.position() + 8 * count);
+        }
+
+        void putString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            putInt(encoded.length);
+            putBytes(encoded, 0, encoded.length);
+        }
+
+        /**
+         * Écrit le contenu du tampon dans le fichier.
+         *
+         * @return la position qui suit les octets écrits
+         */
+        long writeTo(FileChannel channel, long position) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+            return position;
+        }
+    }
+
+    /**
+     * Encode les segments d'une colonne. Les tableaux de travail sont réutilisés d'un groupe à l'autre.
+     */
+    private abstract static class ChunkEncoder {
+        final IColumn column;
+        final int type;
+        final long[] nulls = new long[ROW_GROUP_SIZE / 64];
+        long[] scratch = new long[ROW_GROUP_SIZE];
+
+        ChunkEncoder(IColumn column, int type) {
+            this.column = column;
+            this.type = type;
+        }
+
+        static ChunkEncoder forColumn(IColumn column) {
+            Class<?> type = column.getType();
+            if (type == Integer.class)
+                return new IntEncoder(column);
+            if (type == Double.class)
+                return new DoubleEncoder(column);
+            if (type == String.class)
+                return new StringEncoder(column);
+            if (type == Boolean.class)
+                return new BooleanEncoder(column);
+            throw new IllegalArgumentException("Export failed. Unsupported column type: " + type.getSimpleName());
+        }
+
+        /**
+         * Encode les valeurs de lignes de la colonne.
+         *
+         * @param rows  les lignes du groupe
+         * @param count le nombre de lignes
+         * @param out   reçoit le segment
+         * @return la description du segment, sans sa position ni sa longueur
+         */
+        abstract ColumnChunk encode(int[] rows, int count, Output out);
+
+        /**
+         * Remplit la carte des cellules vides du groupe.
+         *
+         * @return le nombre de cellules vides
+         */
+        int readNulls(int[] rows, int count) {
+            Arrays.fill(nulls, 0);
+            int nullCount = 0;
+            if (column instanceof AbstractColumn<?> abstractColumn) {
+                BitSet columnNulls = abstractColumn.nulls;
+                for (int i = 0; i < count; i++) {
+                    if (columnNulls.get(rows[i])) {
+                        nulls[i >>> 6] |= 1L << i;
+                        nullCount++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (column.getValue(rows[i]) == null) {
+                        nulls[i >>> 6] |= 1L << i;
+                        nullCount++;
+                    }
+                }
+            }
+            return nullCount;
+        }
+
+        boolean isNull(int i) {
+            return (nulls[i >>> 6] & 1L << i) != 0;
+        }
+
+        void writeNulls(int count, int nullCount, Output out) {
+            if (nullCount > 0)
+                out.putLongs(nulls, (count + 63) >>> 6);
+        }
+
+        ColumnChunk chunk(int encoding, int count, int nullCount, Object min, Object max) {
+            ColumnChunk chunk = new ColumnChunk();
+            chunk.encoding = encoding;
+            chunk.statistics = new Statistics(count, nullCount, min, max);
+            return chunk;
+        }
+    }
+
+    private static final class IntEncoder extends ChunkEncoder {
+        private final int[] values = new int[ROW_GROUP_SIZE];
+
+        IntEncoder(IColumn column) {
+            super(column, TYPE_INTEGER);
+        }
+
+        @Override
+        ColumnChunk encode(int[] rows, int count, Output out) {
+            int nullCount = readNulls(rows, count);
+            if (column instanceof IntColumn ints) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = ints.values[rows[i]];
+                }
+            } else if (column instanceof OffHeapIntColumn ints) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = ints.getInt(rows[i]);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    Integer value = (Integer) column.getValue(rows[i]);
+                    values[i] = value == null ? 0 : value;
+                }
+            }
+            if (nullCount == count) {
+                Arrays.fill(values, 0, count, 0);
+            } else if (nullCount > 0) {
+                // Une cellule vide reprend la valeur précédente : elle ne change ni les bornes ni les différences
+                int previous = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!isNull(i)) {
+                        previous = values[i];
+                        break;
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    if (isNull(i)) values[i] = previous;
+                    else previous = values[i];
+                }
+            }
+
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            long minDelta = Long.MAX_VALUE;
+            long maxDelta = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+                if (i > 0) {
+                    long delta = (long) values[i] - values[i - 1];
+                    minDelta = Math.min(minDelta, delta);
+                    maxDelta = Math.max(maxDelta, delta);
+                }
+            }
+            int packedWidth = bitWidth((long) max - min);
+            int deltaWidth = count > 1 ? bitWidth(maxDelta - minDelta) : 0;
+
+            writeNulls(count, nullCount, out);
+            int encoding;
+            if ((long) deltaWidth * (count - 1) + 64 < (long) packedWidth * count) {
+                encoding = INT_DELTA;
+                for (int i = 1; i < count; i++) {
+                    scratch[i - 1] = (long) values[i] - values[i - 1] - minDelta;
+                }
+                out.putInt(values[0]);
+                out.putLong(minDelta);
+                out.putByte(deltaWidth);
+                pack(scratch, count - 1, deltaWidth, out);
+            } else {
+                encoding = INT_PACKED;
+                packInts(values, count, scratch, out);
+            }
+            return nullCount == count ? chunk(encoding, count, nullCount, null, null) : chunk(encoding, count, nullCount, min, max);
+        }
+    }
+
+    private static final class DoubleEncoder extends ChunkEncoder {
+        private final double[] values = new double[ROW_GROUP_SIZE];
+
+        DoubleEncoder(IColumn column) {
+            super(column, TYPE_DOUBLE);
+        }
+
+        @Override
+        ColumnChunk encode(int[] rows, int count, Output out) {
+            int nullCount = readNulls(rows, count);
+            if (column instanceof DoubleColumn doubles) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = doubles.values[rows[i]];
+                }
+            } else if (column instanceof OffHeapDoubleColumn doubles) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = doubles.getDouble(rows[i]);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    Double value = (Double) column.getValue(rows[i]);
+                    values[i] = value == null ? 0 : value;
+                }
+            }
+
+            Double min = null;
+            Double max = null;
+            if (nullCount < count) {
+                // Même ordre que Double.compareTo, utilisé par les conditions (NaN en dernier, -0.0 avant 0.0)
+                double low = Double.NaN;
+                double high = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < count; i++) {
+                    if (isNull(i)) {
+                        values[i] = 0;
+                        continue;
+                    }
+                    if (Double.compare(values[i], low) < 0) low = values[i];
+                    if (Double.compare(values[i], high) > 0) high = values[i];
+                }
+                min = low;
+                max = high;
+            } else {
+                Arrays.fill(values, 0, count, 0);
+            }
+
+            writeNulls(count, nullCount, out);
+            out.putDoubles(values, count);
+            return chunk(DOUBLE_PLAIN, count, nullCount, min, max);
+        }
+    }
+
+    private static final class StringEncoder extends ChunkEncoder {
+        /**
+         * Les octets des valeurs du groupe : le stockage de la colonne, ou une copie pour une colonne générique.
+         */
+        private byte[] bytes;
+        private final int[] offsets = new int[ROW_GROUP_SIZE];
+        private final int[] lengths = new int[ROW_GROUP_SIZE];
+        private byte[] copy = new byte[1 << 16];
+        /**
+         * Table de hachage du dictionnaire : le code de la valeur plus un, ou 0 pour une case libre.
+         */
+        private final int[] slots = new int[Integer.highestOneBit(ROW_GROUP_SIZE / 2) * 2];
+        private final int[] codes = new int[ROW_GROUP_SIZE];
+        private final int[] entries = new int[ROW_GROUP_SIZE];
+        private final int[] entryLengths = new int[ROW_GROUP_SIZE];
+
+        StringEncoder(IColumn column) {
+            super(column, TYPE_STRING);
+        }
+
+        @Override
+        ColumnChunk encode(int[] rows, int count, Output out) {
+            int nullCount = readNulls(rows, count);
+            if (column instanceof StringColumn strings) {
+                bytes = strings.bytes;
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    offsets[i] = strings.offsets[row];
+                    lengths[i] = isNull(i) ? 0 : strings.lengths[row];
+                }
+            } else {
+                int position = 0;
+                for (int i = 0; i < count; i++) {
+                    String value = (String) column.getValue(rows[i]);
+                    byte[] encoded = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+                    if (position + encoded.length > copy.length)
+                        copy = Arrays.copyOf(copy, Math.max(position + encoded.length, copy.length * 2));
+                    System.arraycopy(encoded, 0, copy, position, encoded.length);
+                    offsets[i] = position;
+                    lengths[i] = encoded.length;
+                    position += encoded.length;
+                }
+                bytes = copy;
+            }
+
+            int distinct = buildDictionary(count, count / 4);
+            writeNulls(count, nullCount, out);
+            int encoding;
+            int[] candidates;
+            int candidateCount;
+            int bytesStart;
+            int bytesEnd;
+            if (distinct >= 0) {
+                encoding = STRING_DICTIONARY;
+                out.putInt(distinct);
+                packInts(entryLengths, distinct, scratch, out);
+                bytesStart = out.length();
+                out.putSlices(bytes, entries, entryLengths, distinct);
+                bytesEnd = out.length();
+                packInts(codes, count, scratch, out);
+                candidates = entries;
+                candidateCount = distinct;
+            } else {
+                encoding = STRING_PLAIN;
+                packInts(lengths, count, scratch, out);
+                bytesStart = out.length();
+                out.putSlices(bytes, offsets, lengths, count);
+                bytesEnd = out.length();
+                candidates = null;
+                candidateCount = count;
+            }
+
+            // Les bornes sont calculées dans l'ordre des octets UTF-8, qui est l'ordre de String.compareTo tant
+            // qu'aucun caractère de U+E000 à U+FFFF ne côtoie un caractère hors du plan multilingue de base :
+            // les bornes ne sont pas enregistrées si un octet de tête de ces caractères apparaît dans les octets écrits
+            boolean ordered = true;
+            byte[] written = out.array();
+            for (int j = bytesStart; j < bytesEnd; j++) {
+                if ((written[j] & 0xFF) >= 0xEE) {
+                    ordered = false;
+                    break;
+                }
+            }
+
+            // Les chaînes sont d'abord comparées sur leurs 8 premiers octets, lus comme un entier non signé
+            int minIndex = -1;
+            int maxIndex = -1;
+            long minPrefix = 0;
+            long maxPrefix = 0;
+            for (int i = 0; i < candidateCount && ordered; i++) {
+                if (candidates == null && isNull(i))
+                    continue;
+                int from = candidates == null ? offsets[i] : entries[i];
+                int length = candidates == null ? lengths[i] : entryLengths[i];
+                long prefix = 0;
+                for (int j = 0; j < Math.min(length, 8); j++) {
+                    prefix |= (bytes[from + j] & 0xFFL) << (56 - 8 * j);
+                }
+                if (minIndex < 0) {
+                    minIndex = maxIndex = i;
+                    minPrefix = maxPrefix = prefix;
+                    continue;
+                }
+                int cmp = Long.compareUnsigned(prefix, minPrefix);
+                if (cmp < 0 || cmp == 0 && compare(from, length, candidates, minIndex) < 0) {
+                    minIndex = i;
+                    minPrefix = prefix;
+                }
+                cmp = Long.compareUnsigned(prefix, maxPrefix);
+                if (cmp > 0 || cmp == 0 && compare(from, length, candidates, maxIndex) > 0) {
+                    maxIndex = i;
+                    maxPrefix = prefix;
+                }
+            }
+            if (!ordered || minIndex < 0)
+                return chunk(encoding, count, nullCount, null, null);
+            return chunk(encoding, count, nullCount, string(candidates, minIndex), string(candidates, maxIndex));
+        }
+
+        /**
+         * Construit le dictionnaire des valeurs non vides du groupe, sauf s'il dépasse une taille donnée.
+         *
+         * @return le nombre de valeurs distinctes, ou -1 si le dictionnaire dépasse la taille maximale
+         */
+        private int buildDictionary(int count, int maxEntries) {
+            Arrays.fill(slots, 0);
+            int mask = slots.length - 1;
+            int shift = Integer.numberOfLeadingZeros(mask);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (isNull(i)) {
+                    codes[i] = 0;
+                    continue;
+                }
+                int from = offsets[i];
+                int length = lengths[i];
+                int hash = 1;
+                for (int j = from; j < from + length; j++) {
+                    hash = 31 * hash + bytes[j];
+                }
+                // Hachage de Fibonacci : des chaînes qui ne diffèrent que par leur fin ne tombent pas
+                // dans des cases voisines
+                int slot = (hash * 0x9E3779B9) >>> shift;
+                while (true) {
+                    int code = slots[slot] - 1;
+                    if (code < 0) {
+                        if (distinct == maxEntries)
+                            return -1;
+                        entries[distinct] = from;
+                        entryLengths[distinct] = length;
+                        slots[slot] = ++distinct;
+                        codes[i] = distinct - 1;
+                        break;
+                    }
+                    if (entryLengths[code] == length && Arrays.equals(bytes, entries[code], entries[code] + length, bytes, from, from + length)) {
+                        codes[i] = code;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+            return distinct;
+        }
+
+        private int compare(int from, int length, int[] candidates, int index) {
+            int otherFrom = candidates == null ? offsets[index] : entries[index];
+            int otherLength = candidates == null ? lengths[index] : entryLengths[index];
+            return Arrays.compareUnsigned(bytes, from, from + length, bytes, otherFrom, otherFrom + otherLength);
+        }
+
+        private String string(int[] candidates, int index) {
+            int from = candidates == null ? offsets[index] : entries[index];
+            int length = candidates == null ? lengths[index] : entryLengths[index];
+            return new String(bytes, from, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class BooleanEncoder extends ChunkEncoder {
+        private final long[] values = new long[ROW_GROUP_SIZE / 64];
+
+        BooleanEncoder(IColumn column) {
+            super(column, TYPE_BOOLEAN);
+        }
+
+        @Override
+        ColumnChunk encode(int[] rows, int count, Output out) {
+            int nullCount = readNulls(rows, count);
+            Arrays.fill(values, 0);
+            if (column instanceof BooleanColumn booleans) {
+                for (int i = 0; i < count; i++) {
+                    if (booleans.values.get(rows[i]) && !isNull(i))
+                        values[i >>> 6] |= 1L << i;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    if (Boolean.TRUE.equals(column.getValue(rows[i])))
+                        values[i >>> 6] |= 1L << i;
+                }
+            }
+
+            int trueCount = 0;
+            for (int i = 0; i < (count + 63) >>> 6; i++) {
+                trueCount += Long.bitCount(values[i]);
+            }
+            int falseCount = count - nullCount - trueCount;
+            Boolean min = falseCount > 0 ? Boolean.FALSE : trueCount > 0 ? Boolean.TRUE : null;
+            Boolean max = trueCount > 0 ? Boolean.TRUE : falseCount > 0 ? Boolean.FALSE : null;
+
+            writeNulls(count, nullCount, out);
+            out.putLongs(values, (count + 63) >>> 6);
+            return chunk(BOOLEAN_BITMAP, count, nullCount, min, max);
+        }
+    }
+
+    /**
+     * Remplit le stockage d'une colonne avec les segments de ses groupes de lignes.
+     */
+    private abstract static class ChunkDecoder {
+        final long[] nulls;
+        long[] words = new long[ROW_GROUP_SIZE];
+
+        ChunkDecoder(int rows) {
+            this.nulls = new long[(rows + 63) >>> 6];
+        }
+
+        static ChunkDecoder forType(String name, int type, int rows) throws IOException {
+            return switch (type) {
+                case TYPE_INTEGER -> new IntDecoder(name, rows);
+                case TYPE_DOUBLE -> new DoubleDecoder(name, rows);
+                case TYPE_STRING -> new StringDecoder(name, rows);
+                case TYPE_BOOLEAN -> new BooleanDecoder(name, rows);
+                default -> throw new IOException("Invalid file format. Unknown column type: " + type);
+            };
+        }
+
+        /**
+         * Décode un segment.
+         *
+         * @param in     le segment
+         * @param chunk  la description du segment
+         * @param offset la ligne de la colonne qui reçoit la première valeur du segment
+         * @param count  le nombre de lignes du segment
+         */
+        abstract void decode(ByteBuffer in, ColumnChunk chunk, int offset, int count) throws IOException;
+
+        /**
+         * Lit la carte des cellules vides d'un segment et l'ajoute à celle de la colonne.
+         *
+         * @return la carte du segment, ou null s'il n'a pas de cellule vide
+         */
+        long[] readNulls(ByteBuffer in, ColumnChunk chunk, int offset, int count) {
+            if (chunk.statistics.nullCount == 0)
+                return null;
+            int wordCount = (count + 63) >>> 6;
+            long[] chunkNulls = new long[wordCount];
+            in.asLongBuffer().get(chunkNulls);
+            in.position(in.position() + 8 * wordCount);
+            orBits(nulls, offset, chunkNulls, wordCount);
+            return chunkNulls;
+        }
+
+        static IOException unknownEncoding(ColumnChunk chunk) {
+            return new IOException("Invalid file format. Unknown encoding: " + chunk.encoding);
+        }
+
+        /**
+         * Termine le chargement de la colonne.
+         *
+         * @param rows le nombre de lignes chargées
+         * @return la colonne
+         */
+        abstract IColumn finish(int rows);
+    }
+
+    private static final class IntDecoder extends ChunkDecoder {
+        private final IntColumn column;
+
+        IntDecoder(String name, int rows) {
+            super(rows);
+            this.column = new IntColumn(name, 0);
+            column.ensureCapacity(rows);
+        }
+
+        @Override
+        void decode(ByteBuffer in, ColumnChunk chunk, int offset, int count) throws IOException {
+            readNulls(in, chunk, offset, count);
+            int[] values = column.values;
+            switch (chunk.encoding) {
+                case INT_PACKED -> words = unpackInts(in, count, values, offset, words);
+                case INT_DELTA -> {
+                    long value = in.getInt();
+                    long minDelta = in.getLong();
+                    int width = in.get();
+                    values[offset] = (int) value;
+                    if (width == 0) {
+                        for (int i = 1; i < count; i++) {
+                            value += minDelta;
+                            values[offset + i] = (int) value;
+                        }
+                    } else {
+                        words = readPacked(in, count - 1, width, words);
+                        long mask = mask(width);
+                        for (int i = 1; i < count; i++) {
+                            value += minDelta + unpack(words, i - 1, width, mask);
+                            values[offset + i] = (int) value;
+                        }
+                    }
+                }
+                default -> throw unknownEncoding(chunk);
+            }
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, BitSet.valueOf(nulls), 0, null);
+            return column;
+        }
+    }
+
+    private static final class DoubleDecoder extends ChunkDecoder {
+        private final DoubleColumn column;
+
+        DoubleDecoder(String name, int rows) {
+            super(rows);
+            this.column = new DoubleColumn(name, 0);
+            column.ensureCapacity(rows);
+        }
+
+        @Override
+        void decode(ByteBuffer in, ColumnChunk chunk, int offset, int count) throws IOException {
+            if (chunk.encoding != DOUBLE_PLAIN)
+                throw unknownEncoding(chunk);
+            readNulls(in, chunk, offset, count);
+            in.asDoubleBuffer().get(column.values, offset, count);
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, BitSet.valueOf(nulls), 0, null);
+            return column;
+        }
+    }
+
+    private static final class StringDecoder extends ChunkDecoder {
+        private final StringColumn column;
+        private int[] entryLengths = new int[0];
+        private int[] codes = new int[0];
+
+        StringDecoder(String name, int rows) {
+            super(rows);
+            this.column = new StringColumn(name, 0);
+            column.ensureCapacity(rows);
+        }
+
+        @Override
+        void decode(ByteBuffer in, ColumnChunk chunk, int offset, int count) throws IOException {
+            long[] chunkNulls = readNulls(in, chunk, offset, count);
+            int[] offsets = column.offsets;
+            int[] lengths = column.lengths;
+            switch (chunk.encoding) {
+                case STRING_PLAIN -> {
+                    words = unpackInts(in, count, lengths, offset, words);
+                    int total = 0;
+                    for (int i = 0; i < count; i++) {
+                        offsets[offset + i] = column.byteCount + total;
+                        total += lengths[offset + i];
+                    }
+                    readBytes(in, total);
+                }
+                case STRING_DICTIONARY -> {
+                    // Les lignes de même valeur désignent les mêmes octets de la colonne
+                    int distinct = in.getInt();
+                    if (entryLengths.length < distinct)
+                        entryLengths = new int[distinct];
+                    words = unpackInts(in, distinct, entryLengths, 0, words);
+                    int[] entryOffsets = new int[distinct];
+                    int total = 0;
+                    for (int i = 0; i < distinct; i++) {
+                        entryOffsets[i] = column.byteCount + total;
+                        total += entryLengths[i];
+                    }
+                    readBytes(in, total);
+                    if (codes.length < count)
+                        codes = new int[count];
+                    words = unpackInts(in, count, codes, 0, words);
+                    for (int i = 0; i < count; i++) {
+                        if (chunkNulls != null && (chunkNulls[i >>> 6] & 1L << i) != 0) {
+                            offsets[offset + i] = column.byteCount;
+                            lengths[offset + i] = 0;
+                        } else {
+                            int code = codes[i];
+                            if (code >= distinct)
+                                throw new IOException("Invalid file format. Dictionary code out of range: " + code);
+                            offsets[offset + i] = entryOffsets[code];
+                            lengths[offset + i] = entryLengths[code];
+                        }
+                    }
+                }
+                default -> throw unknownEncoding(chunk);
+            }
+        }
+
+        private void readBytes(ByteBuffer in, int count) {
+            if (column.byteCount + count > column.bytes.length)
+                column.bytes = Arrays.copyOf(column.bytes, Math.max(column.byteCount + count, column.bytes.length * 2));
+            in.get(column.bytes, column.byteCount, count);
+            column.byteCount += count;
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, BitSet.valueOf(nulls), 0, null);
+            return column;
+        }
+    }
+
+    private static final class BooleanDecoder extends ChunkDecoder {
+        private final BooleanColumn column;
+        private final long[] values;
+
+        BooleanDecoder(String name, int rows) {
+            super(rows);
+            this.column = new BooleanColumn(name, 0);
+            this.values = new long[(rows + 63) >>> 6];
+        }
+
+        @Override
+        void decode(ByteBuffer in, ColumnChunk chunk, int offset, int count) throws IOException {
+            if (chunk.encoding != BOOLEAN_BITMAP)
+                throw unknownEncoding(chunk);
+            readNulls(in, chunk, offset, count);
+            int wordCount = (count + 63) >>> 6;
+            in.asLongBuffer().get(words, 0, wordCount);
+            in.position(in.position() + 8 * wordCount);
+            orBits(values, offset, words, wordCount);
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.values = BitSet.valueOf(values);
+            column.restore(rows, BitSet.valueOf(nulls), 0, null);
+            return column;
+        }
+    }
+}
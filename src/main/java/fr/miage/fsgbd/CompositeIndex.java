@@ -0,0 +1,123 @@
+package fr.miage.fsgbd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index composite d'une table, portant sur une liste ordonnée de colonnes (voir {@link Table#createCompositeIndex(String...)}).
+ * Ses clés sont les tuples des valeurs de ces colonnes, comparés dans l'ordre lexicographique : une égalité sur
+ * les premières colonnes (un préfixe du tuple), éventuellement suivie d'un intervalle sur la colonne suivante,
+ * correspond à un seul intervalle de clés de l'arbre B+. L'index est maintenu par la table.
+ */
+public class CompositeIndex {
+    /**
+     * La table indexée.
+     */
+    private final Table table;
+    /**
+     * Les colonnes de l'index, dans l'ordre.
+     */
+    private final int[] columns;
+
+    CompositeIndex(Table table, int[] columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    /**
+     * Récupère les identifiants des lignes dont les premières colonnes de l'index sont égales à des valeurs.
+     *
+     * @param prefix les valeurs des premières colonnes de l'index, dans l'ordre.
+     * @return les identifiants des lignes, dans l'ordre des clés de l'index.
+     * @throws IllegalArgumentException si le préfixe contient plus de valeurs que l'index n'a de colonnes.
+     */
+    public int[] search(Object... prefix) {
+        if (prefix.length > columns.length)
+            throw new IllegalArgumentException("Too many values for index of " + columns.length + " columns");
+        if (prefix.length == columns.length)
+            return index().search(CompositeKey.of(prefix));
+        return index().searchRange(CompositeKey.lowerBound(prefix), BPlusTree.RangePolicy.INCLUSIVE,
+                CompositeKey.upperBound(prefix), BPlusTree.RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Récupère les identifiants des lignes dont les premières colonnes de l'index sont égales à des valeurs
+     * et dont la colonne suivante est comprise entre deux bornes.
+     *
+     * @param prefix     les valeurs des premières colonnes de l'index, dans l'ordre (éventuellement aucune).
+     * @param from       la borne inférieure de la colonne suivante, ou null pour partir de la plus petite valeur.
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure.
+     * @param to         la borne supérieure de la colonne suivante, ou null pour aller jusqu'à la plus grande valeur.
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure.
+     * @return les identifiants des lignes, dans l'ordre des clés de l'index.
+     * @throws IllegalArgumentException si le préfixe couvre toutes les colonnes de l'index.
+     */
+    public int[] searchRange(Object[] prefix, Object from, BPlusTree.RangePolicy fromPolicy, Object to, BPlusTree.RangePolicy toPolicy) {
+        if (prefix.length >= columns.length)
+            throw new IllegalArgumentException("The range column must follow the prefix in the index");
+        CompositeKey lower = from == null ? CompositeKey.lowerBound(prefix)
+                : fromPolicy == BPlusTree.RangePolicy.INCLUSIVE ? CompositeKey.lowerBound(append(prefix, from)) : CompositeKey.upperBound(append(prefix, from));
+        CompositeKey upper = to == null ? CompositeKey.upperBound(prefix)
+                : toPolicy == BPlusTree.RangePolicy.INCLUSIVE ? CompositeKey.upperBound(append(prefix, to)) : CompositeKey.lowerBound(append(prefix, to));
+        return index().searchRange(lower, BPlusTree.RangePolicy.INCLUSIVE, upper, BPlusTree.RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Récupère les lignes dont les premières colonnes de l'index sont égales à des valeurs.
+     *
+     * @param prefix les valeurs des premières colonnes de l'index, dans l'ordre.
+     * @return la liste des lignes, dans l'ordre des clés de l'index.
+     */
+    public List<Object[]> findRows(Object... prefix) {
+        return getRows(search(prefix));
+    }
+
+    /**
+     * Récupère les lignes dont les premières colonnes de l'index sont égales à des valeurs
+     * et dont la colonne suivante est comprise entre deux bornes incluses.
+     *
+     * @param prefix les valeurs des premières colonnes de l'index, dans l'ordre (éventuellement aucune).
+     * @param from   la borne inférieure de la colonne suivante, ou null pour partir de la plus petite valeur.
+     * @param to     la borne supérieure de la colonne suivante, ou null pour aller jusqu'à la plus grande valeur.
+     * @return la liste des lignes, dans l'ordre des clés de l'index.
+     */
+    public List<Object[]> findRowsInRange(Object[] prefix, Object from, Object to) {
+        return getRows(searchRange(prefix, from, BPlusTree.RangePolicy.INCLUSIVE, to, BPlusTree.RangePolicy.INCLUSIVE));
+    }
+
+    /**
+     * Retourne les noms des colonnes de l'index, dans l'ordre.
+     *
+     * @return les noms des colonnes.
+     */
+    public String[] getColumnNames() {
+        String[] names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = table.getColumn(columns[i]).getName();
+        }
+        return names;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SecondaryIndex<CompositeKey> index() {
+        int position = table.findSecondaryIndex(columns);
+        if (position == -1)
+            throw new IllegalStateException("Index no longer exists");
+        return (SecondaryIndex<CompositeKey>) table.secondaryIndexes()[position];
+    }
+
+    private List<Object[]> getRows(int[] rows) {
+        List<Object[]> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(table.getRow(row));
+        }
+        return result;
+    }
+
+    private static Object[] append(Object[] prefix, Object value) {
+        Object[] values = new Object[prefix.length + 1];
+        System.arraycopy(prefix, 0, values, 0, prefix.length);
+        values[prefix.length] = value;
+        return values;
+    }
+}
@@ -0,0 +1,119 @@
+package fr.miage.fsgbd;
+
+import java.util.Arrays;
+
+/**
+ * Clé d'un index composite : un tuple de valeurs comparé dans l'ordre lexicographique
+ * (première colonne, puis deuxième colonne à égalité, etc.). Les valeurs nulles sont placées en premier.
+ * <p>
+ * Une clé peut aussi servir de borne pour un parcours : un préfixe de tuple, placé avant (ou après) tous
+ * les tuples qui commencent par ce préfixe.
+ */
+public final class CompositeKey implements Comparable<CompositeKey> {
+    /**
+     * Les valeurs du tuple.
+     */
+    private final Object[] values;
+    /**
+     * La position de la clé parmi les tuples commençant par ses valeurs : -1 avant eux, 1 après eux, 0 pour une clé exacte.
+     */
+    private final int bound;
+
+    private CompositeKey(Object[] values, int bound) {
+        this.values = values;
+        this.bound = bound;
+    }
+
+    /**
+     * Crée la clé exacte d'un tuple.
+     *
+     * @param values les valeurs du tuple, dans l'ordre des colonnes de l'index.
+     * @return la clé du tuple.
+     */
+    public static CompositeKey of(Object... values) {
+        return new CompositeKey(values.clone(), 0);
+    }
+
+    /**
+     * Crée une borne placée avant tous les tuples commençant par un préfixe.
+     *
+     * @param prefix les premières valeurs du tuple.
+     * @return la borne inférieure du préfixe.
+     */
+    public static CompositeKey lowerBound(Object... prefix) {
+        return new CompositeKey(prefix.clone(), -1);
+    }
+
+    /**
+     * Crée une borne placée après tous les tuples commençant par un préfixe.
+     *
+     * @param prefix les premières valeurs du tuple.
+     * @return la borne supérieure du préfixe.
+     */
+    public static CompositeKey upperBound(Object... prefix) {
+        return new CompositeKey(prefix.clone(), 1);
+    }
+
+    /**
+     * Retourne une valeur du tuple.
+     *
+     * @param index la position de la valeur.
+     * @return la valeur.
+     */
+    public Object get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Retourne le nombre de valeurs du tuple.
+     *
+     * @return le nombre de valeurs.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public int compareTo(CompositeKey other) {
+        int length = Math.min(values.length, other.values.length);
+        for (int i = 0; i < length; i++) {
+            Object a = values[i], b = other.values[i];
+            if (a == b)
+                continue;
+            if (a == null)
+                return -1;
+            if (b == null)
+                return 1;
+            int cmp = ((Comparable) a).compareTo(b);
+            if (cmp != 0)
+                return cmp;
+        }
+        // Une clé est un préfixe de l'autre : la borne du préfixe le place avant ou après les tuples qui le prolongent
+        if (values.length < other.values.length)
+            return bound > 0 ? 1 : -1;
+        if (values.length > other.values.length)
+            return other.bound > 0 ? -1 : 1;
+        return Integer.compare(bound, other.bound);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CompositeKey))
+            return false;
+        CompositeKey other = (CompositeKey) o;
+        return bound == other.bound && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(values) + bound;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
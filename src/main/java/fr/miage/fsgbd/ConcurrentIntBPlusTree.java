@@ -0,0 +1,830 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Arbre B+ à clés int utilisable par plusieurs threads sans verrou global.
+ * Chaque noeud possède un verrou à version (StampedLock) :
+ * <ul>
+ *     <li>les lectures descendent l'arbre sans prendre aucun verrou (couplage optimiste) : elles lisent un noeud,
+ *     puis valident que sa version n'a pas changé avant de passer à l'enfant, et recommencent depuis la racine
+ *     si un écrivain l'a modifié entre-temps. Les lecteurs ne se bloquent donc jamais entre eux ;</li>
+ *     <li>une écriture descend de la même façon puis verrouille uniquement la feuille, si l'écriture ne la fait
+ *     ni déborder ni passer sous le minimum ;</li>
+ *     <li>sinon, l'écriture recommence en verrouillant les noeuds de la racine vers la feuille (crabbing) :
+ *     les ancêtres sont relâchés dès qu'un noeud ne peut plus être séparé ou fusionné par l'écriture.</li>
+ * </ul>
+ * Les noeuds ne sont jamais réalloués : une fusion qui ne tient pas dans un noeud devient une redistribution.
+ * Les feuilles ne sont pas chaînées : l'itérateur redescend depuis la racine pour passer à la feuille suivante.
+ * {@link #bulkLoad} et {@link #toJTree()} ne doivent pas être appelés pendant des écritures concurrentes.
+ */
+public class ConcurrentIntBPlusTree implements IIndex<Integer> {
+    /**
+     * Nombre à partir duquel on considère qu'un noeud est plein et doit être séparé en deux.
+     */
+    private final int branchingFactor;
+    /**
+     * La racine de l'arbre. Elle n'est remplacée que par un écrivain qui détient le verrou de l'ancienne racine.
+     */
+    private volatile Node root;
+
+    /**
+     * Crée un arbre B+ avec un facteur de branche donné.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     */
+    public ConcurrentIntBPlusTree(int branchingFactor) {
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Illegal branching factor: " + branchingFactor);
+
+        this.branchingFactor = branchingFactor;
+        root = new LeafNode();
+    }
+
+    /**
+     * Cherche la ligne associée à une clé, sans prendre de verrou.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public int search(int key) {
+        while (true) {
+            Node node = root;
+            long stamp = node.lock.tryOptimisticRead();
+            if (stamp != 0 && node == root) {
+                while (node instanceof InternalNode internal) {
+                    Node child = internal.children[internal.getChildIndex(key)];
+                    long childStamp = child != null ? child.lock.tryOptimisticRead() : 0;
+                    if (childStamp == 0 || !node.lock.validate(stamp)) {
+                        node = null;
+                        break;
+                    }
+                    node = child;
+                    stamp = childStamp;
+                }
+                if (node != null) {
+                    LeafNode leaf = (LeafNode) node;
+                    int loc = binarySearch(leaf.keys, leaf.keyCount, key);
+                    int row = loc >= 0 ? leaf.rows[loc] : -1;
+                    if (leaf.lock.validate(stamp))
+                        return row;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Insère une ligne dans l'arbre. Si la clé est déjà présente, sa ligne est remplacée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(int key, int row) {
+        insertValue(key, row, true);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre seulement si la clé n'y est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(int key, int row) {
+        return insertValue(key, row, false);
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(int key) {
+        // Chemin rapide : seule la feuille est verrouillée si elle reste au-dessus du minimum
+        LeafNode leaf = lockLeaf(key);
+        try {
+            int loc = binarySearch(leaf.keys, leaf.keyCount, key);
+            if (loc < 0)
+                return;
+            if (leaf == root || leaf.keyCount - 1 >= branchingFactor / 2) {
+                leaf.deleteAt(loc);
+                return;
+            }
+        } finally {
+            leaf.lock.tryUnlockWrite();
+        }
+
+        LockedPath path = lockPath(key, false);
+        try {
+            LeafNode target = (LeafNode) path.last();
+            int loc = binarySearch(target.keys, target.keyCount, key);
+            if (loc < 0)
+                return;
+            target.deleteAt(loc);
+            for (int i = path.size - 2; i >= 0; i--) {
+                Node child = path.nodes[i + 1];
+                if (!child.isUnderflow())
+                    break;
+                ((InternalNode) path.nodes[i]).rebalance(path.childIndexes[i]);
+            }
+            Node top = path.nodes[0];
+            if (top == root && top instanceof InternalNode internal && internal.keyCount == 0) {
+                root = internal.children[0];
+            }
+        } finally {
+            path.unlockAll();
+        }
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     * L'itérateur lit une feuille à la fois sans prendre de verrou : il voit chaque feuille dans un état cohérent,
+     * mais pas nécessairement l'ensemble de l'arbre dans un même état.
+     *
+     * @param from       la borne inférieure
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int from, BPlusTree.RangePolicy fromPolicy, int to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(true, from, fromPolicy, true, to, toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut.
+     * Les lectures en cours terminent sur l'ancien arbre ; aucune écriture ne doit être en cours.
+     *
+     * @param keys       les clés à charger.
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(int[] keys, int[] rows, int count, double fillFactor) {
+        if (fillFactor <= 0 || fillFactor > 1)
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+
+        int[] sortedKeys = Arrays.copyOf(keys, count);
+        int[] sortedRows = Arrays.copyOf(rows, count);
+        IntBPlusTree.sortPairs(sortedKeys, sortedRows, count);
+        for (int i = 1; i < count; i++) {
+            if (sortedKeys[i] == sortedKeys[i - 1])
+                throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+        }
+
+        int leafCapacity = BPlusTree.nodeCapacity(branchingFactor - 1, branchingFactor / 2, fillFactor);
+        int leafCount = Math.max(1, (count + leafCapacity - 1) / leafCapacity);
+        Node[] level = new Node[leafCount];
+        int[] firstKeys = new int[leafCount];
+        int offset = 0;
+        for (int i = 0; i < leafCount; i++) {
+            int size = count / leafCount + (i < count % leafCount ? 1 : 0);
+            LeafNode leaf = new LeafNode();
+            System.arraycopy(sortedKeys, offset, leaf.keys, 0, size);
+            System.arraycopy(sortedRows, offset, leaf.rows, 0, size);
+            leaf.keyCount = size;
+            firstKeys[i] = size > 0 ? sortedKeys[offset] : 0;
+            offset += size;
+            level[i] = leaf;
+        }
+
+        int levelSize = leafCount;
+        int childCapacity = BPlusTree.nodeCapacity(branchingFactor, (branchingFactor + 1) / 2, fillFactor);
+        while (levelSize > 1) {
+            int parentCount = BPlusTree.parentCount(levelSize, childCapacity);
+            offset = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int size = levelSize / parentCount + (i < levelSize % parentCount ? 1 : 0);
+                InternalNode parent = new InternalNode();
+                for (int j = 0; j < size; j++) {
+                    parent.children[j] = level[offset + j];
+                    if (j > 0)
+                        parent.keys[j - 1] = firstKeys[offset + j];
+                }
+                parent.keyCount = size - 1;
+                level[i] = parent;
+                firstKeys[i] = firstKeys[offset];
+                offset += size;
+            }
+            levelSize = parentCount;
+        }
+        root = level[0];
+    }
+
+    @Override
+    public int search(Integer key) {
+        return search(key.intValue());
+    }
+
+    @Override
+    public void insert(Integer key, int row) {
+        insert(key.intValue(), row);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Integer key, int row) {
+        return insertIfAbsent(key.intValue(), row);
+    }
+
+    @Override
+    public void delete(Integer key) {
+        delete(key.intValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(Integer from, BPlusTree.RangePolicy fromPolicy, Integer to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(from != null, from != null ? from : 0, fromPolicy, to != null, to != null ? to : 0, toPolicy);
+    }
+
+    @Override
+    public void bulkLoad(List<Integer> keys, int[] rows, double fillFactor) {
+        int[] primitiveKeys = new int[keys.size()];
+        for (int i = 0; i < primitiveKeys.length; i++) {
+            primitiveKeys[i] = keys.get(i);
+        }
+        bulkLoad(primitiveKeys, rows, primitiveKeys.length, fillFactor);
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        return toJTree(root);
+    }
+
+    private DefaultMutableTreeNode toJTree(Node node) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < node.keyCount; i++) {
+            if (sb.length() > 0)
+                sb.append(' ');
+
+            sb.append("(");
+            sb.append(node.keys[i]);
+            if (node instanceof LeafNode) {
+                sb.append(",");
+                sb.append(((LeafNode) node).rows[i]);
+            }
+            sb.append(")");
+        }
+
+        DefaultMutableTreeNode treeNode = new DefaultMutableTreeNode(sb.toString(), true);
+        if (node instanceof InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            for (int i = 0; i <= internal.keyCount; i++) {
+                treeNode.add(toJTree(internal.children[i]));
+            }
+        }
+
+        return treeNode;
+    }
+
+    private boolean insertValue(int key, int row, boolean replace) {
+        // Chemin rapide : seule la feuille est verrouillée si elle ne déborde pas
+        LeafNode leaf = lockLeaf(key);
+        try {
+            int loc = binarySearch(leaf.keys, leaf.keyCount, key);
+            if (loc >= 0) {
+                if (replace)
+                    leaf.rows[loc] = row;
+                return false;
+            }
+            if (leaf.keyCount + 1 <= branchingFactor - 1) {
+                leaf.insertAt(-loc - 1, key, row);
+                return true;
+            }
+        } finally {
+            leaf.lock.tryUnlockWrite();
+        }
+
+        LockedPath path = lockPath(key, true);
+        try {
+            LeafNode target = (LeafNode) path.last();
+            int loc = binarySearch(target.keys, target.keyCount, key);
+            if (loc >= 0) {
+                if (replace)
+                    target.rows[loc] = row;
+                return false;
+            }
+            target.insertAt(-loc - 1, key, row);
+            for (int i = path.size - 1; i >= 0; i--) {
+                Node node = path.nodes[i];
+                if (!node.isOverflow())
+                    break;
+                int splitKey = node.getSplitKey();
+                Node sibling = node.split();
+                if (i > 0) {
+                    ((InternalNode) path.nodes[i - 1]).insertChild(path.childIndexes[i - 1], splitKey, sibling);
+                } else {
+                    // Le haut du chemin n'est conservé verrouillé que s'il peut déborder : c'est alors la racine
+                    InternalNode newRoot = new InternalNode();
+                    newRoot.keys[0] = splitKey;
+                    newRoot.children[0] = node;
+                    newRoot.children[1] = sibling;
+                    newRoot.keyCount = 1;
+                    root = newRoot;
+                }
+            }
+            return true;
+        } finally {
+            path.unlockAll();
+        }
+    }
+
+    /**
+     * Descend sans verrou jusqu'à la feuille d'une clé, puis la verrouille en écriture si elle n'a pas été modifiée.
+     *
+     * @param key la clé à chercher
+     * @return la feuille correspondante, verrouillée en écriture
+     */
+    private LeafNode lockLeaf(int key) {
+        while (true) {
+            Node node = root;
+            long stamp = node.lock.tryOptimisticRead();
+            if (stamp != 0 && node == root) {
+                while (node instanceof InternalNode internal) {
+                    Node child = internal.children[internal.getChildIndex(key)];
+                    long childStamp = child != null ? child.lock.tryOptimisticRead() : 0;
+                    if (childStamp == 0 || !node.lock.validate(stamp)) {
+                        node = null;
+                        break;
+                    }
+                    node = child;
+                    stamp = childStamp;
+                }
+                if (node != null && node.lock.tryConvertToWriteLock(stamp) != 0)
+                    return (LeafNode) node;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Verrouille en écriture le chemin de la racine vers la feuille d'une clé. Un ancêtre est relâché dès qu'un
+     * descendant verrouillé est sûr : l'écriture ne peut pas le séparer (insertion) ou le faire passer sous le minimum
+     * (suppression), et ne remontera donc pas au-dessus de lui.
+     *
+     * @param key    la clé à chercher
+     * @param insert true pour une insertion, false pour une suppression
+     * @return les noeuds verrouillés, du plus haut à la feuille
+     */
+    private LockedPath lockPath(int key, boolean insert) {
+        LockedPath path = new LockedPath();
+        while (true) {
+            Node node = root;
+            long stamp = node.lock.writeLock();
+            if (node == root) {
+                path.push(node, stamp);
+                break;
+            }
+            node.lock.unlockWrite(stamp);
+        }
+        while (path.last() instanceof InternalNode internal) {
+            int childIndex = internal.getChildIndex(key);
+            Node child = internal.children[childIndex];
+            path.childIndexes[path.size - 1] = childIndex;
+            path.push(child, child.lock.writeLock());
+            if (insert ? child.isSafeForInsert() : child.isSafeForDelete()) {
+                path.unlockAbove();
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Recherche dichotomique d'une clé parmi les premières clés d'un tableau trié.
+     * Le nombre de clés est borné par la taille du tableau, pour les lectures optimistes d'un noeud en cours de modification.
+     */
+    private static int binarySearch(int[] keys, int count, int key) {
+        return IntBPlusTree.binarySearch(keys, Math.min(count, keys.length), key);
+    }
+
+    /**
+     * Les noeuds verrouillés en écriture par une insertion ou une suppression, avec la position de l'enfant suivi.
+     */
+    private static class LockedPath {
+        Node[] nodes = new Node[8];
+        long[] stamps = new long[8];
+        int[] childIndexes = new int[8];
+        int size;
+
+        void push(Node node, long stamp) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                stamps = Arrays.copyOf(stamps, size * 2);
+                childIndexes = Arrays.copyOf(childIndexes, size * 2);
+            }
+            nodes[size] = node;
+            stamps[size++] = stamp;
+        }
+
+        Node last() {
+            return nodes[size - 1];
+        }
+
+        /**
+         * Relâche tous les noeuds sauf le dernier, qui devient le haut du chemin.
+         */
+        void unlockAbove() {
+            for (int i = 0; i < size - 1; i++) {
+                nodes[i].lock.unlockWrite(stamps[i]);
+            }
+            nodes[0] = nodes[size - 1];
+            stamps[0] = stamps[size - 1];
+            size = 1;
+        }
+
+        void unlockAll() {
+            for (int i = size - 1; i >= 0; i--) {
+                nodes[i].lock.unlockWrite(stamps[i]);
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * Cette classe abstraite représente un noeud de l'arbre.
+     */
+    private abstract class Node {
+        /**
+         * Le verrou à version du noeud : verrou exclusif des écrivains, version validée par les lecteurs.
+         */
+        final StampedLock lock = new StampedLock();
+        /**
+         * Les clés de ce noeud (seules les keyCount premières sont valides).
+         */
+        final int[] keys = new int[branchingFactor];
+        /**
+         * Le nombre de clés dans ce noeud.
+         */
+        int keyCount;
+
+        /**
+         * Retourne la clé de séparation à remonter dans le parent si le noeud est séparé.
+         */
+        abstract int getSplitKey();
+
+        abstract Node split();
+
+        abstract boolean isOverflow();
+
+        abstract boolean isUnderflow();
+
+        abstract boolean isSafeForInsert();
+
+        abstract boolean isSafeForDelete();
+    }
+
+    /**
+     * Cette classe représente un noeud interne de l'arbre : keyCount clés et keyCount + 1 enfants.
+     */
+    private class InternalNode extends Node {
+        /**
+         * Les enfants de ce noeud.
+         */
+        final Node[] children = new Node[branchingFactor + 1];
+
+        @Override
+        int getSplitKey() {
+            return keys[keyCount / 2];
+        }
+
+        @Override
+        Node split() {
+            int from = keyCount / 2 + 1, to = keyCount;
+            InternalNode sibling = new InternalNode();
+            sibling.keyCount = to - from;
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(children, from, sibling.children, 0, to - from + 1);
+
+            Arrays.fill(children, from, to + 1, null);
+            keyCount = from - 1;
+
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyCount + 1 > branchingFactor;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyCount + 1 < (branchingFactor + 1) / 2;
+        }
+
+        @Override
+        boolean isSafeForInsert() {
+            return keyCount + 2 <= branchingFactor;
+        }
+
+        @Override
+        boolean isSafeForDelete() {
+            return keyCount >= (branchingFactor + 1) / 2;
+        }
+
+        /**
+         * Retourne la position de l'enfant correspondant à la clé donnée en paramètre.
+         *
+         * @param key la clé pour laquelle récupérer la position de l'enfant
+         * @return la position de l'enfant correspondant à la clé
+         */
+        int getChildIndex(int key) {
+            int loc = binarySearch(keys, keyCount, key);
+            return loc >= 0 ? loc + 1 : -loc - 1;
+        }
+
+        /**
+         * Insère un enfant à droite de l'enfant situé à une position donnée.
+         *
+         * @param childIndex la position de l'enfant à gauche du nouvel enfant
+         * @param key        la clé de séparation
+         * @param child      l'enfant à insérer
+         */
+        void insertChild(int childIndex, int key, Node child) {
+            System.arraycopy(keys, childIndex, keys, childIndex + 1, keyCount - childIndex);
+            System.arraycopy(children, childIndex + 1, children, childIndex + 2, keyCount - childIndex);
+            keys[childIndex] = key;
+            children[childIndex + 1] = child;
+            keyCount++;
+        }
+
+        /**
+         * Supprime l'enfant situé à droite de la clé de séparation donnée, ainsi que cette clé.
+         *
+         * @param keyIndex la position de la clé de séparation
+         */
+        void deleteChild(int keyIndex) {
+            System.arraycopy(keys, keyIndex + 1, keys, keyIndex, keyCount - keyIndex - 1);
+            System.arraycopy(children, keyIndex + 2, children, keyIndex + 1, keyCount - keyIndex - 1);
+            children[keyCount] = null;
+            keyCount--;
+        }
+
+        /**
+         * Fusionne un enfant sous le minimum avec un voisin si leurs clés tiennent dans un seul noeud,
+         * sinon les redistribue équitablement. Ce noeud et l'enfant sont verrouillés ; le voisin l'est le temps de l'opération.
+         *
+         * @param childIndex la position de l'enfant sous le minimum
+         */
+        void rebalance(int childIndex) {
+            int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+            if (leftIndex + 1 > keyCount)
+                return;
+            Node left = children[leftIndex];
+            Node right = children[leftIndex + 1];
+            Node sibling = left == children[childIndex] ? right : left;
+            long stamp = sibling.lock.writeLock();
+            try {
+                if (left instanceof LeafNode leftLeaf) {
+                    rebalanceLeaves(leftIndex, leftLeaf, (LeafNode) right);
+                } else {
+                    rebalanceInternals(leftIndex, (InternalNode) left, (InternalNode) right);
+                }
+            } finally {
+                sibling.lock.unlockWrite(stamp);
+            }
+        }
+
+        private void rebalanceLeaves(int leftIndex, LeafNode left, LeafNode right) {
+            int total = left.keyCount + right.keyCount;
+            if (total <= branchingFactor - 1) {
+                System.arraycopy(right.keys, 0, left.keys, left.keyCount, right.keyCount);
+                System.arraycopy(right.rows, 0, left.rows, left.keyCount, right.keyCount);
+                left.keyCount = total;
+                right.keyCount = 0;
+                deleteChild(leftIndex);
+                return;
+            }
+            int newLeftCount = total / 2;
+            if (left.keyCount < newLeftCount) {
+                int moved = newLeftCount - left.keyCount;
+                System.arraycopy(right.keys, 0, left.keys, left.keyCount, moved);
+                System.arraycopy(right.rows, 0, left.rows, left.keyCount, moved);
+                System.arraycopy(right.keys, moved, right.keys, 0, right.keyCount - moved);
+                System.arraycopy(right.rows, moved, right.rows, 0, right.keyCount - moved);
+            } else {
+                int moved = left.keyCount - newLeftCount;
+                System.arraycopy(right.keys, 0, right.keys, moved, right.keyCount);
+                System.arraycopy(right.rows, 0, right.rows, moved, right.keyCount);
+                System.arraycopy(left.keys, newLeftCount, right.keys, 0, moved);
+                System.arraycopy(left.rows, newLeftCount, right.rows, 0, moved);
+            }
+            left.keyCount = newLeftCount;
+            right.keyCount = total - newLeftCount;
+            keys[leftIndex] = right.keys[0];
+        }
+
+        private void rebalanceInternals(int leftIndex, InternalNode left, InternalNode right) {
+            int totalChildren = left.keyCount + right.keyCount + 2;
+            // Concatène les clés et les enfants des deux noeuds, séparés par la clé du parent
+            int[] allKeys = new int[totalChildren - 1];
+            Node[] allChildren = new Node[totalChildren];
+            System.arraycopy(left.keys, 0, allKeys, 0, left.keyCount);
+            allKeys[left.keyCount] = keys[leftIndex];
+            System.arraycopy(right.keys, 0, allKeys, left.keyCount + 1, right.keyCount);
+            System.arraycopy(left.children, 0, allChildren, 0, left.keyCount + 1);
+            System.arraycopy(right.children, 0, allChildren, left.keyCount + 1, right.keyCount + 1);
+
+            if (totalChildren <= branchingFactor) {
+                System.arraycopy(allKeys, 0, left.keys, 0, totalChildren - 1);
+                System.arraycopy(allChildren, 0, left.children, 0, totalChildren);
+                left.keyCount = totalChildren - 1;
+                right.keyCount = 0;
+                deleteChild(leftIndex);
+                return;
+            }
+            int newLeftChildren = totalChildren / 2;
+            System.arraycopy(allKeys, 0, left.keys, 0, newLeftChildren - 1);
+            System.arraycopy(allChildren, 0, left.children, 0, newLeftChildren);
+            Arrays.fill(left.children, newLeftChildren, left.children.length, null);
+            System.arraycopy(allKeys, newLeftChildren, right.keys, 0, totalChildren - newLeftChildren - 1);
+            System.arraycopy(allChildren, newLeftChildren, right.children, 0, totalChildren - newLeftChildren);
+            Arrays.fill(right.children, totalChildren - newLeftChildren, right.children.length, null);
+            left.keyCount = newLeftChildren - 1;
+            right.keyCount = totalChildren - newLeftChildren - 1;
+            keys[leftIndex] = allKeys[newLeftChildren - 1];
+        }
+    }
+
+    /**
+     * Cette classe représente une feuille de l'arbre : des clés et les lignes associées.
+     */
+    private class LeafNode extends Node {
+        /**
+         * Les lignes associées aux clés de cette feuille.
+         */
+        final int[] rows = new int[branchingFactor];
+
+        void insertAt(int index, int key, int row) {
+            System.arraycopy(keys, index, keys, index + 1, keyCount - index);
+            System.arraycopy(rows, index, rows, index + 1, keyCount - index);
+            keys[index] = key;
+            rows[index] = row;
+            keyCount++;
+        }
+
+        void deleteAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, keyCount - index - 1);
+            System.arraycopy(rows, index + 1, rows, index, keyCount - index - 1);
+            keyCount--;
+        }
+
+        @Override
+        int getSplitKey() {
+            return keys[(keyCount + 1) / 2];
+        }
+
+        @Override
+        Node split() {
+            LeafNode sibling = new LeafNode();
+            int from = (keyCount + 1) / 2, to = keyCount;
+            sibling.keyCount = to - from;
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(rows, from, sibling.rows, 0, to - from);
+            keyCount = from;
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyCount > branchingFactor - 1;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyCount < branchingFactor / 2;
+        }
+
+        @Override
+        boolean isSafeForInsert() {
+            return keyCount + 1 <= branchingFactor - 1;
+        }
+
+        @Override
+        boolean isSafeForDelete() {
+            return keyCount - 1 >= branchingFactor / 2;
+        }
+    }
+
+    /**
+     * Itérateur lisant les feuilles une à une entre deux bornes. Chaque feuille est copiée puis validée sans verrou ;
+     * la feuille suivante est retrouvée depuis la racine à partir de la clé de séparation qui borne la feuille courante.
+     */
+    private class RangeIterator implements PrimitiveIterator.OfInt {
+        private final boolean hasUpper;
+        private final int upperKey;
+        private final BPlusTree.RangePolicy upperPolicy;
+        /**
+         * La borne inférieure de la prochaine feuille à lire, ou false si l'itération part de la première feuille.
+         */
+        private boolean hasLower;
+        private int lowerKey;
+        private BPlusTree.RangePolicy lowerPolicy;
+        /**
+         * Si true, la feuille courante est la dernière de l'arbre.
+         */
+        private boolean lastLeaf;
+        private final int[] keys = new int[branchingFactor];
+        private final int[] rows = new int[branchingFactor];
+        private int count;
+        private int position;
+        private boolean done;
+
+        RangeIterator(boolean hasLower, int lowerKey, BPlusTree.RangePolicy lowerPolicy,
+                      boolean hasUpper, int upperKey, BPlusTree.RangePolicy upperPolicy) {
+            this.hasLower = hasLower;
+            this.lowerKey = lowerKey;
+            this.lowerPolicy = lowerPolicy;
+            this.hasUpper = hasUpper;
+            this.upperKey = upperKey;
+            this.upperPolicy = upperPolicy;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!done && position >= count) {
+                if (lastLeaf) {
+                    done = true;
+                    break;
+                }
+                readLeaf();
+            }
+            if (done)
+                return false;
+            if (hasUpper) {
+                int key = keys[position];
+                if (key > upperKey || (key == upperKey && upperPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                    done = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return rows[position++];
+        }
+
+        /**
+         * Copie les clés de la feuille contenant la borne inférieure qui la respectent, puis avance la borne
+         * inférieure à la clé de séparation suivant cette feuille.
+         */
+        private void readLeaf() {
+            while (true) {
+                Node node = root;
+                long stamp = node.lock.tryOptimisticRead();
+                boolean hasHigh = false;
+                int highKey = 0;
+                if (stamp != 0 && node == root) {
+                    while (node instanceof InternalNode internal) {
+                        int childIndex = hasLower ? internal.getChildIndex(lowerKey) : 0;
+                        int keyCount = Math.min(internal.keyCount, keys.length);
+                        if (childIndex < keyCount) {
+                            // Les séparateurs rencontrés en descendant sont de plus en plus proches de la feuille
+                            hasHigh = true;
+                            highKey = internal.keys[childIndex];
+                        }
+                        Node child = internal.children[childIndex];
+                        long childStamp = child != null ? child.lock.tryOptimisticRead() : 0;
+                        if (childStamp == 0 || !node.lock.validate(stamp)) {
+                            node = null;
+                            break;
+                        }
+                        node = child;
+                        stamp = childStamp;
+                    }
+                    if (node != null) {
+                        LeafNode leaf = (LeafNode) node;
+                        int leafCount = Math.min(leaf.keyCount, keys.length);
+                        int start = 0;
+                        if (hasLower) {
+                            int loc = binarySearch(leaf.keys, leafCount, lowerKey);
+                            start = loc >= 0 ? (lowerPolicy == BPlusTree.RangePolicy.INCLUSIVE ? loc : loc + 1) : -loc - 1;
+                        }
+                        int copied = Math.max(0, leafCount - start);
+                        System.arraycopy(leaf.keys, start, keys, 0, copied);
+                        System.arraycopy(leaf.rows, start, rows, 0, copied);
+                        if (leaf.lock.validate(stamp)) {
+                            count = copied;
+                            position = 0;
+                            lastLeaf = !hasHigh;
+                            hasLower = true;
+                            lowerKey = highKey;
+                            lowerPolicy = BPlusTree.RangePolicy.INCLUSIVE;
+                            return;
+                        }
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package fr.miage.fsgbd;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Condition sur les lignes d'une table, utilisée par les requêtes (voir {@link Table#select(String...)}).
+ * Les conditions simples portent sur une colonne désignée par son nom et se combinent avec {@link #and(Condition...)}
+ * et {@link #or(Condition...)}. Une cellule vide ne vérifie aucune comparaison ; seule une égalité avec null la sélectionne.
+ * <p>
+ * Les conditions sont immuables. Pour être évaluées, elles sont compilées en un filtre de vecteurs de sélection
+ * qui lit directement le stockage des colonnes concernées, par tranches de lignes, sans construire les lignes.
+ */
+public abstract class Condition {
+
+    Condition() {
+    }
+
+    /**
+     * Crée la condition colonne = valeur.
+     *
+     * @param column le nom de la colonne.
+     * @param value  la valeur, ou null pour sélectionner les cellules vides.
+     * @return la condition.
+     */
+    public static Condition eq(String column, Object value) {
+        return new Comparison(column, Operator.EQ, value);
+    }
+
+    /**
+     * Crée la condition colonne &lt; valeur.
+     *
+     * @param column le nom de la colonne.
+     * @param value  la borne, non nulle.
+     * @return la condition.
+     */
+    public static Condition lt(String column, Object value) {
+        return new Comparison(column, Operator.LT, requireBound(column, value));
+    }
+
+    /**
+     * Crée la condition colonne &lt;= valeur.
+     *
+     * @param column le nom de la colonne.
+     * @param value  la borne, non nulle.
+     * @return la condition.
+     */
+    public static Condition le(String column, Object value) {
+        return new Comparison(column, Operator.LE, requireBound(column, value));
+    }
+
+    /**
+     * Crée la condition colonne &gt; valeur.
+     *
+     * @param column le nom de la colonne.
+     * @param value  la borne, non nulle.
+     * @return la condition.
+     */
+    public static Condition gt(String column, Object value) {
+        return new Comparison(column, Operator.GT, requireBound(column, value));
+    }
+
+    /**
+     * Crée la condition colonne &gt;= valeur.
+     *
+     * @param column le nom de la colonne.
+     * @param value  la borne, non nulle.
+     * @return la condition.
+     */
+    public static Condition ge(String column, Object value) {
+        return new Comparison(column, Operator.GE, requireBound(column, value));
+    }
+
+    /**
+     * Crée la condition colonne BETWEEN from AND to (bornes incluses).
+     *
+     * @param column le nom de la colonne.
+     * @param from   la borne inférieure, non nulle.
+     * @param to     la borne supérieure, non nulle.
+     * @return la condition.
+     */
+    public static Condition between(String column, Object from, Object to) {
+        return new Between(column, requireBound(column, from), requireBound(column, to));
+    }
+
+    /**
+     * Crée la condition colonne IN (valeurs).
+     *
+     * @param column le nom de la colonne.
+     * @param values les valeurs acceptées, non nulles.
+     * @return la condition.
+     */
+    public static Condition in(String column, Object... values) {
+        for (Object value : values) {
+            requireBound(column, value);
+        }
+        return new In(column, values.clone());
+    }
+
+    /**
+     * Crée la conjonction de plusieurs conditions.
+     *
+     * @param conditions les conditions, toutes vérifiées par les lignes sélectionnées.
+     * @return la condition.
+     */
+    public static Condition and(Condition... conditions) {
+        return new And(requireOperands(conditions));
+    }
+
+    /**
+     * Crée la disjonction de plusieurs conditions.
+     *
+     * @param conditions les conditions, dont au moins une est vérifiée par les lignes sélectionnées.
+     * @return la condition.
+     */
+    public static Condition or(Condition... conditions) {
+        return new Or(requireOperands(conditions));
+    }
+
+    /**
+     * Compile la condition pour une évaluation par tranches de lignes d'une table.
+     *
+     * @param table la table interrogée.
+     * @return la condition compilée.
+     * @throws IllegalArgumentException si une colonne n'existe pas.
+     */
+    abstract VectorPredicate vectorize(Table table);
+
+    /**
+     * Indique si des lignes peuvent vérifier la condition d'après les statistiques de leurs colonnes
+     * (sert à sauter les groupes de lignes d'un {@link ColumnarFile}).
+     *
+     * @param statistics les statistiques d'une colonne à partir de son nom, ou null si elles sont inconnues.
+     * @return false si aucune des lignes ne peut vérifier la condition.
+     */
+    abstract boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics);
+
+    private static Object requireBound(String column, Object value) {
+        if (value == null)
+            throw new IllegalArgumentException("Null value in condition on column: " + column);
+        return value;
+    }
+
+    private static Condition[] requireOperands(Condition[] conditions) {
+        if (conditions.length == 0)
+            throw new IllegalArgumentException("At least one condition is required");
+        return conditions.clone();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+
+    static String format(Object value) {
+        return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+    }
+
+    /**
+     * Les opérateurs de comparaison.
+     */
+    enum Operator {
+        EQ("="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * Condition portant sur une seule colonne.
+     */
+    abstract static class ColumnCondition extends Condition {
+        final String column;
+
+        ColumnCondition(String column) {
+            this.column = column;
+        }
+
+        IColumn target(Table table) {
+            return table.getColumn(table.getColumnIndex(column));
+        }
+
+        /**
+         * Teste la valeur d'une cellule.
+         *
+         * @param value la valeur de la cellule, éventuellement nulle.
+         * @return true si la valeur vérifie la condition.
+         */
+        abstract boolean test(Object value);
+    }
+
+    /**
+     * Comparaison d'une colonne avec une valeur.
+     */
+    static final class Comparison extends ColumnCondition {
+        final Operator operator;
+        final Object value;
+
+        Comparison(String column, Operator operator, Object value) {
+            super(column);
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        VectorPredicate vectorize(Table table) {
+            IColumn target = target(table);
+            return switch (operator) {
+                case EQ -> value == null ? ColumnVectors.generic(target, this::test) : ColumnVectors.range(target, value, true, value, true, this::test);
+                case LT -> ColumnVectors.range(target, null, true, value, false, this::test);
+                case LE -> ColumnVectors.range(target, null, true, value, true, this::test);
+                case GT -> ColumnVectors.range(target, value, false, null, true, this::test);
+                case GE -> ColumnVectors.range(target, value, true, null, true, this::test);
+            };
+        }
+
+        @Override
+        boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics) {
+            ColumnarFile.Statistics stats = statistics.apply(column);
+            if (stats == null)
+                return true;
+            return switch (operator) {
+                case EQ -> value == null ? stats.nullCount > 0 : stats.mayContain(value, true, value, true);
+                case LT -> stats.mayContain(null, true, value, false);
+                case LE -> stats.mayContain(null, true, value, true);
+                case GT -> stats.mayContain(value, false, null, true);
+                case GE -> stats.mayContain(value, true, null, true);
+            };
+        }
+
+        @Override
+        boolean test(Object cell) {
+            if (operator == Operator.EQ)
+                return Objects.equals(cell, value);
+            if (cell == null)
+                return false;
+            int cmp = compare(cell, value);
+            return switch (operator) {
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+                default -> throw new AssertionError(operator);
+            };
+        }
+
+        @Override
+        public String toString() {
+            return column + " " + operator.symbol + " " + format(value);
+        }
+    }
+
+    /**
+     * Intervalle de valeurs d'une colonne, bornes incluses.
+     */
+    static final class Between extends ColumnCondition {
+        final Object from;
+        final Object to;
+
+        Between(String column, Object from, Object to) {
+            super(column);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        VectorPredicate vectorize(Table table) {
+            return ColumnVectors.range(target(table), from, true, to, true, this::test);
+        }
+
+        @Override
+        boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics) {
+            ColumnarFile.Statistics stats = statistics.apply(column);
+            return stats == null || stats.mayContain(from, true, to, true);
+        }
+
+        @Override
+        boolean test(Object cell) {
+            return cell != null && compare(cell, from) >= 0 && compare(cell, to) <= 0;
+        }
+
+        @Override
+        public String toString() {
+            return column + " BETWEEN " + format(from) + " AND " + format(to);
+        }
+    }
+
+    /**
+     * Appartenance de la valeur d'une colonne à une liste de valeurs.
+     */
+    static final class In extends ColumnCondition {
+        final Object[] values;
+
+        In(String column, Object[] values) {
+            super(column);
+            this.values = values;
+        }
+
+        @Override
+        VectorPredicate vectorize(Table table) {
+            Set<Object> accepted = new HashSet<>(Arrays.asList(values));
+            return ColumnVectors.generic(target(table), accepted::contains);
+        }
+
+        @Override
+        boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics) {
+            ColumnarFile.Statistics stats = statistics.apply(column);
+            if (stats == null)
+                return true;
+            for (Object value : values) {
+                if (value != null && stats.mayContain(value, true, value, true))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        boolean test(Object cell) {
+            return cell != null && Arrays.asList(values).contains(cell);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(column).append(" IN (");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(format(values[i]));
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * Conjonction de conditions.
+     */
+    static final class And extends Condition {
+        final Condition[] operands;
+
+        And(Condition[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        VectorPredicate vectorize(Table table) {
+            return ColumnVectors.and(vectorizeAll(operands, table));
+        }
+
+        @Override
+        boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics) {
+            for (Condition operand : operands) {
+                if (!operand.mayMatch(statistics))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " AND ");
+        }
+    }
+
+    /**
+     * Disjonction de conditions.
+     */
+    static final class Or extends Condition {
+        final Condition[] operands;
+
+        Or(Condition[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        VectorPredicate vectorize(Table table) {
+            return ColumnVectors.or(vectorizeAll(operands, table));
+        }
+
+        @Override
+        boolean mayMatch(Function<String, ColumnarFile.Statistics> statistics) {
+            for (Condition operand : operands) {
+                if (operand.mayMatch(statistics))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " OR ");
+        }
+    }
+
+    private static VectorPredicate[] vectorizeAll(Condition[] operands, Table table) {
+        VectorPredicate[] predicates = new VectorPredicate[operands.length];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = operands[i].vectorize(table);
+        }
+        return predicates;
+    }
+
+    private static String join(Condition[] operands, String separator) {
+        if (operands.length == 1)
+            return operands[0].toString();
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0)
+                sb.append(separator);
+            sb.append(operands[i]);
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,905 @@
+package fr.miage.fsgbd;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lecture en flux d'un fichier CSV écrit par {@link CSVExporter#export(String, Table)} : une ligne de noms de colonnes,
+ * une ligne de types, puis une ligne par ligne de la table.
+ * <p>
+ * Le fichier est lu par blocs dans un tampon d'octets réutilisé, et les champs sont analysés directement dans ce
+ * tampon : les entiers, doubles et booléens sont convertis sans créer de String, et les octets UTF-8 des chaînes sont
+ * recopiés tels quels dans le stockage de {@link StringColumn}. Les valeurs sont écrites dans le stockage des colonnes,
+ * dont la capacité est assurée par lots de lignes ; la table est créée à la fin, puis l'index de sa clé primaire est
+ * construit par chargement en masse. Seuls le tampon de lecture et les colonnes occupent donc la mémoire.
+ * <p>
+ * Avec plusieurs threads, les lignes de données sont découpées en intervalles d'octets lus en parallèle : chaque
+ * intervalle traite les lignes qui commencent dans ses bornes, ce qui aligne les intervalles sur les fins de ligne.
+ * Une fin de ligne entre guillemets fait partie d'une valeur : pour savoir si le début d'un intervalle est entre
+ * guillemets, les guillemets de chaque intervalle sont d'abord comptés en parallèle, et la parité du nombre de
+ * guillemets qui précèdent un intervalle donne l'état de son premier octet (un guillemet doublé compte deux fois).
+ * Chaque intervalle remplit ensuite ses propres colonnes, qui sont concaténées dans l'ordre du fichier ; l'index de
+ * la clé primaire, construit une seule fois sur la colonne complète, détecte les doublons entre intervalles.
+ * <p>
+ * Les champs suivent la RFC 4180 : un champ entre guillemets peut contenir des virgules, des fins de ligne et des
+ * guillemets doublés ; les guillemets qui l'entourent ne font pas partie de la valeur. Les numéros de ligne des
+ * erreurs comptent les lignes de la table, et non les fins de ligne du fichier.
+ * Dans les colonnes d'entiers, de doubles et de booléens, la valeur « null » désigne une cellule vide.
+ */
+final class CsvReader {
+    /**
+     * La taille initiale du tampon de lecture (agrandi si une ligne ne tient pas dedans).
+     */
+    static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * Le nombre de lignes dont la capacité des colonnes est assurée en une fois.
+     */
+    private static final int BATCH_SIZE = 4096;
+    /**
+     * Le nombre d'intervalles lus par thread, pour équilibrer la charge entre les threads.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+    /**
+     * La taille minimale d'un intervalle lu en parallèle, en octets.
+     */
+    private static final long MIN_RANGE_SIZE = 4L << 20;
+
+    /**
+     * Les puissances de 10 représentées exactement par un double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final FileChannel channel;
+    /**
+     * La position dans le fichier à partir de laquelle les lignes n'appartiennent plus à ce lecteur.
+     */
+    private final long end;
+    /**
+     * La position dans le fichier du prochain bloc à lire.
+     */
+    private long filePosition;
+    /**
+     * La position dans le fichier du premier octet du tampon.
+     */
+    private long bufferOffset;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * La fin des octets lus dans le tampon.
+     */
+    private int limit;
+    /**
+     * Le début de la prochaine ligne dans le tampon.
+     */
+    private int position;
+    /**
+     * La position jusqu'à laquelle le tampon a déjà été parcouru à la recherche d'une fin de ligne.
+     */
+    private int scanned;
+    /**
+     * Indique si la position {@link #scanned} est entre guillemets dans la ligne en cours.
+     */
+    private boolean inQuotes;
+    private boolean endOfFile;
+    /**
+     * Les bornes de la dernière ligne lue dans le tampon, et la position de son début dans le fichier.
+     */
+    private int lineFrom;
+    private int lineTo;
+    private long lineStart;
+    /**
+     * Le numéro de la dernière ligne lue, à partir de 0 pour la première ligne de ce lecteur.
+     */
+    private int lineNumber = -1;
+    /**
+     * Le nombre de lignes lues qui commencent avant {@link #end}.
+     */
+    private int ownedLines;
+
+    /**
+     * Les bornes des champs de la dernière ligne découpée, et si chaque champ contient des guillemets.
+     */
+    private int[] fieldFrom = new int[16];
+    private int[] fieldTo = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+    /**
+     * Reçoit les octets d'un champ entre guillemets, une fois les guillemets retirés.
+     */
+    private byte[] unquoted = new byte[64];
+
+    /**
+     * Crée un lecteur des lignes qui commencent dans un intervalle du fichier.
+     *
+     * @param channel  le canal du fichier
+     * @param start    la position du début de l'intervalle
+     * @param end      la position de la fin de l'intervalle (exclue)
+     * @param inQuotes true si l'octet qui précède le début de l'intervalle est entre guillemets
+     */
+    private CsvReader(FileChannel channel, long start, long end, boolean inQuotes) throws IOException {
+        this.channel = channel;
+        this.end = end;
+        if (start > 0) {
+            // La ligne qui contient l'octet précédent appartient à l'intervalle précédent
+            filePosition = bufferOffset = start - 1;
+            this.inQuotes = inQuotes;
+            nextLine();
+            lineNumber = -1;
+            ownedLines = 0;
+        }
+    }
+
+    /**
+     * Lit une table depuis un fichier CSV.
+     *
+     * @param path    le chemin du fichier
+     * @param threads le nombre de threads qui analysent le fichier
+     * @return la table, dont la clé primaire est indexée
+     * @throws IOException              si la lecture échoue
+     * @throws IllegalArgumentException si le fichier est mal formé ou si la clé primaire contient des doublons
+     */
+    static Table read(Path path, int threads) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("Illegal thread count: " + threads);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CsvReader reader = new CsvReader(channel, 0, Long.MAX_VALUE, false);
+            if (!reader.nextLine())
+                throw new IllegalArgumentException("Invalid file format. File must contain at least 2 lines.");
+            String[] columnNames = reader.fields();
+            if (!reader.nextLine())
+                throw new IllegalArgumentException("Invalid file format. File must contain at least 2 lines.");
+            String[] columnTypes = reader.fields();
+            if (columnNames.length != columnTypes.length) {
+                throw new IllegalArgumentException("Invalid file format. Column names and types must have the same length.");
+            }
+
+            long dataStart = reader.bufferOffset + reader.position;
+            long rangeCount = Math.min((long) threads * RANGES_PER_THREAD, (channel.size() - dataStart) / MIN_RANGE_SIZE);
+            ColumnLoader[] loaders;
+            int rows;
+            if (threads == 1 || rangeCount <= 1) {
+                loaders = ColumnLoader.forTypes(columnNames, columnTypes);
+                rows = reader.readRows(loaders);
+            } else {
+                Chunk chunk = readParallel(channel, dataStart, (int) rangeCount, threads, columnNames, columnTypes);
+                loaders = chunk.loaders;
+                rows = chunk.rows;
+            }
+            return createTable(loaders, rows);
+        }
+    }
+
+    /**
+     * Lit les lignes de données en parallèle, par intervalles, puis concatène les colonnes des intervalles.
+     *
+     * @return les colonnes complètes
+     */
+    private static Chunk readParallel(FileChannel channel, long dataStart, int rangeCount, int threads,
+                                      String[] columnNames, String[] columnTypes) throws IOException {
+        long size = channel.size();
+        long[] starts = new long[rangeCount + 1];
+        for (int i = 0; i < rangeCount; i++) {
+            starts[i] = dataStart + (size - dataStart) * i / rangeCount;
+        }
+        starts[rangeCount] = size;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Les guillemets sont comptés entre les octets qui précèdent les débuts de deux intervalles consécutifs
+            List<Callable<Long>> counts = new ArrayList<>(rangeCount - 1);
+            for (int i = 0; i < rangeCount - 1; i++) {
+                long from = starts[i] - 1;
+                long to = starts[i + 1] - 1;
+                counts.add(() -> countQuotes(channel, from, to));
+            }
+            boolean[] inQuotes = new boolean[rangeCount];
+            List<Future<Long>> quotes = executor.invokeAll(counts);
+            for (int i = 1; i < rangeCount; i++) {
+                inQuotes[i] = inQuotes[i - 1] ^ (quotes.get(i - 1).get() & 1) != 0;
+            }
+
+            List<Callable<Chunk>> tasks = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount; i++) {
+                long start = starts[i];
+                long end = i == rangeCount - 1 ? Long.MAX_VALUE : starts[i + 1];
+                boolean startInQuotes = inQuotes[i];
+                tasks.add(() -> {
+                    CsvReader reader = new CsvReader(channel, start, end, startInQuotes);
+                    ColumnLoader[] loaders = ColumnLoader.forTypes(columnNames, columnTypes);
+                    int rows = reader.readRows(loaders);
+                    return new Chunk(loaders, rows, reader.ownedLines);
+                });
+            }
+            List<Future<Chunk>> futures = executor.invokeAll(tasks);
+
+            // Les numéros de ligne des erreurs sont relatifs à leur intervalle : ils sont décalés du nombre de lignes
+            // des intervalles précédents, tous lus sans erreur si l'erreur est la première dans l'ordre du fichier
+            Chunk[] chunks = new Chunk[rangeCount];
+            int line = 2;
+            for (int i = 0; i < rangeCount; i++) {
+                try {
+                    chunks[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof InvalidRowException invalid)
+                        throw invalid.shift(line);
+                    if (cause instanceof IOException io)
+                        throw io;
+                    if (cause instanceof RuntimeException runtime)
+                        throw runtime;
+                    throw (Error) cause;
+                }
+                line += chunks[i].lines;
+            }
+
+            ColumnLoader[] loaders = chunks[0].loaders;
+            int[] firstRows = new int[rangeCount + 1];
+            firstRows[1] = chunks[0].rows;
+            for (int i = 1; i < rangeCount; i++) {
+                firstRows[i + 1] = firstRows[i] + chunks[i].rows;
+            }
+            // Chaque colonne est concaténée par un thread distinct
+            List<Callable<Void>> concatenations = new ArrayList<>(loaders.length);
+            for (int column = 0; column < loaders.length; column++) {
+                int c = column;
+                concatenations.add(() -> {
+                    for (int i = 1; i < rangeCount; i++) {
+                        loaders[c].append(chunks[i].loaders[c], firstRows[i], chunks[i].rows);
+                        chunks[i].loaders[c] = null;
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(concatenations)) {
+                future.get();
+            }
+            return new Chunk(loaders, firstRows[rangeCount], line - 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("CSV import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compte les guillemets d'une partie du fichier.
+     *
+     * @param channel le canal du fichier
+     * @param from    la position du premier octet
+     * @param to      la position de la fin (exclue)
+     * @return le nombre de guillemets
+     */
+    private static long countQuotes(FileChannel channel, long from, long to) throws IOException {
+        byte[] bytes = new byte[(int) Math.min(BUFFER_SIZE, to - from)];
+        long count = 0;
+        for (long position = from; position < to; ) {
+            ByteBuffer target = ByteBuffer.wrap(bytes, 0, (int) Math.min(bytes.length, to - position));
+            int read = channel.read(target, position);
+            if (read < 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '"')
+                    count++;
+            }
+            position += read;
+        }
+        return count;
+    }
+
+    /**
+     * Crée la table à partir des colonnes chargées et construit l'index de sa clé primaire.
+     */
+    private static Table createTable(ColumnLoader[] loaders, int rows) {
+        List<IColumn> columns = new ArrayList<>(loaders.length);
+        for (ColumnLoader loader : loaders) {
+            columns.add(loader.finish(rows));
+        }
+        Table table = new Table(true, columns, new int[0]);
+
+        // L'index de la clé primaire est construit en une fois à la fin du chargement (chargement en masse)
+        try {
+            table.getPkColumn().enableIndex(4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid file format. Duplicate primary key.", e);
+        }
+        return table;
+    }
+
+    /**
+     * Charge dans les colonnes les lignes de ce lecteur.
+     *
+     * @return le nombre de lignes chargées
+     */
+    private int readRows(ColumnLoader[] loaders) throws IOException {
+        int rows = 0;
+        // Les lignes vides en fin de fichier sont ignorées : elles ne sont traitées que si une ligne non vide les suit,
+        // éventuellement au-delà de la fin de l'intervalle
+        int pendingEmptyLines = 0;
+        int firstEmptyLine = 0;
+        while (nextLine()) {
+            boolean owned = lineStart < end;
+            if (!owned && pendingEmptyLines == 0)
+                break;
+            if (lineFrom == lineTo) {
+                if (owned) {
+                    if (pendingEmptyLines == 0)
+                        firstEmptyLine = lineNumber;
+                    pendingEmptyLines++;
+                }
+                continue;
+            }
+            if (pendingEmptyLines > 0) {
+                int line = lineNumber, to = lineTo;
+                lineTo = lineFrom;
+                for (int i = 0; i < pendingEmptyLines; i++) {
+                    lineNumber = firstEmptyLine + i;
+                    rows = loadRow(loaders, rows);
+                }
+                lineNumber = line;
+                lineTo = to;
+                pendingEmptyLines = 0;
+            }
+            if (!owned)
+                break;
+            rows = loadRow(loaders, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Découpe la dernière ligne lue et ajoute ses valeurs aux colonnes.
+     *
+     * @return le nombre de lignes chargées
+     */
+    private int loadRow(ColumnLoader[] loaders, int rows) {
+        if (split() != loaders.length) {
+            throw new InvalidRowException(lineNumber, " does not have the same number of columns as the header.");
+        }
+        if (rows % BATCH_SIZE == 0) {
+            for (ColumnLoader loader : loaders) {
+                loader.ensureCapacity(rows + BATCH_SIZE);
+            }
+        }
+        for (int i = 0; i < loaders.length; i++) {
+            byte[] bytes = buffer;
+            int from = fieldFrom[i];
+            int to = fieldTo[i];
+            if (fieldQuoted[i]) {
+                // unquote peut agrandir le tampon : il est lu après l'appel
+                to = unquote(from, to);
+                bytes = unquoted;
+                from = 0;
+            }
+            loaders[i].load(rows, bytes, from, to, lineNumber);
+        }
+        return rows + 1;
+    }
+
+    /**
+     * Avance jusqu'à la ligne suivante du fichier, en lisant un nouveau bloc si elle n'est pas entière dans le tampon.
+     * Une ligne se termine à la première fin de ligne hors guillemets.
+     *
+     * @return false à la fin du fichier
+     */
+    private boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    startLine(i > position && buffer[i - 1] == '\r' ? i - 1 : i);
+                    position = scanned = i + 1;
+                    return true;
+                }
+            }
+            scanned = limit;
+            if (endOfFile) {
+                if (position == limit)
+                    return false;
+                // Des guillemets non refermés s'étendent jusqu'à la fin du fichier
+                inQuotes = false;
+                startLine(limit);
+                position = scanned = limit;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    private void startLine(int to) {
+        lineFrom = position;
+        lineTo = to;
+        lineStart = bufferOffset + position;
+        lineNumber++;
+        if (lineStart < end)
+            ownedLines++;
+    }
+
+    /**
+     * Lit le bloc suivant du fichier, après avoir déplacé la ligne incomplète au début du tampon.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        bufferOffset += position;
+        position = 0;
+        scanned = limit = remaining;
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        while (target.hasRemaining()) {
+            int read = channel.read(target, filePosition);
+            if (read < 0) {
+                endOfFile = true;
+                break;
+            }
+            filePosition += read;
+        }
+        limit = target.position();
+    }
+
+    /**
+     * Découpe la dernière ligne lue en champs séparés par des virgules hors guillemets.
+     *
+     * @return le nombre de champs
+     */
+    private int split() {
+        int count = 0;
+        int start = lineFrom;
+        boolean inQuotes = false;
+        boolean quoted = false;
+        for (int i = lineFrom; i < lineTo; i++) {
+            byte b = buffer[i];
+            if (b == '"') {
+                inQuotes = !inQuotes;
+                quoted = true;
+            } else if (b == ',' && !inQuotes) {
+                addField(count++, start, i, quoted);
+                start = i + 1;
+                quoted = false;
+            }
+        }
+        addField(count++, start, lineTo, quoted);
+        return count;
+    }
+
+    private void addField(int field, int from, int to, boolean quoted) {
+        if (field == fieldFrom.length) {
+            fieldFrom = Arrays.copyOf(fieldFrom, field * 2);
+            fieldTo = Arrays.copyOf(fieldTo, field * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, field * 2);
+        }
+        fieldFrom[field] = from;
+        fieldTo[field] = to;
+        fieldQuoted[field] = quoted;
+    }
+
+    /**
+     * Recopie un champ dans le tampon {@link #unquoted}, sans ses guillemets délimitants : entre guillemets,
+     * un guillemet doublé désigne un guillemet de la valeur.
+     *
+     * @return la longueur du champ sans guillemets
+     */
+    private int unquote(int from, int to) {
+        if (to - from > unquoted.length) {
+            unquoted = new byte[to - from];
+        }
+        int length = 0;
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b != '"') {
+                unquoted[length++] = b;
+            } else if (quoted && i + 1 < to && buffer[i + 1] == '"') {
+                unquoted[length++] = b;
+                i++;
+            } else {
+                quoted = !quoted;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Découpe la dernière ligne lue en chaînes (lignes d'en-tête).
+     */
+    private String[] fields() {
+        int count = split();
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (fieldQuoted[i]) {
+                fields[i] = new String(unquoted, 0, unquote(fieldFrom[i], fieldTo[i]), StandardCharsets.UTF_8);
+            } else {
+                fields[i] = new String(buffer, fieldFrom[i], fieldTo[i] - fieldFrom[i], StandardCharsets.UTF_8);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Indique si un champ est la valeur « null » d'une cellule vide.
+     */
+    private static boolean isNull(byte[] bytes, int from, int to) {
+        return to - from == 4 && bytes[from] == 'n' && bytes[from + 1] == 'u' && bytes[from + 2] == 'l' && bytes[from + 3] == 'l';
+    }
+
+    /**
+     * Convertit un champ en entier, comme {@link Integer#parseInt(String)}.
+     */
+    static int parseInt(byte[] bytes, int from, int to, int line) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        // Au plus 10 chiffres significatifs : la valeur tient dans un long
+        while (i < to - 1 && bytes[i] == '0') {
+            i++;
+        }
+        if (i == to || to - i > 10)
+            throw invalidValue("Integer", bytes, from, to, line);
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw invalidValue("Integer", bytes, from, to, line);
+            value = value * 10 + digit;
+        }
+        if (negative)
+            value = -value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw invalidValue("Integer", bytes, from, to, line);
+        return (int) value;
+    }
+
+    /**
+     * Convertit un champ en double, comme {@link Double#parseDouble(String)}. Les nombres décimaux simples
+     * (au plus 15 chiffres significatifs et un exposant décimal d'au plus 22) sont convertis exactement par une seule
+     * multiplication ou division par une puissance de 10 ; les autres passent par {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(byte[] bytes, int from, int to, int line) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) {
+            exact &= mantissa < MAX_EXACT_MANTISSA / 10;
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+        }
+        if (i < to && bytes[i] == '.') {
+            for (i++; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++, digits++) {
+                exact &= mantissa < MAX_EXACT_MANTISSA / 10;
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                exponent--;
+            }
+        }
+        if (digits > 0 && i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < to && (bytes[j] == '-' || bytes[j] == '+')) {
+                negativeExponent = bytes[j] == '-';
+                j++;
+            }
+            int value = 0;
+            int start = j;
+            for (; j < to && j - start < 4 && bytes[j] >= '0' && bytes[j] <= '9'; j++) {
+                value = value * 10 + (bytes[j] - '0');
+            }
+            if (j > start) {
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+
+        if (digits > 0 && i == to && exact && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw invalidValue("Double", bytes, from, to, line);
+        }
+    }
+
+    /**
+     * Convertit un champ en booléen, comme {@link Boolean#parseBoolean(String)}.
+     */
+    static boolean parseBoolean(byte[] bytes, int from, int to) {
+        return to - from == 4 && (bytes[from] | 0x20) == 't' && (bytes[from + 1] | 0x20) == 'r'
+                && (bytes[from + 2] | 0x20) == 'u' && (bytes[from + 3] | 0x20) == 'e';
+    }
+
+    private static IllegalArgumentException invalidValue(String type, byte[] bytes, int from, int to, int line) {
+        return new InvalidRowException(line, " has an invalid " + type + " value: " + new String(bytes, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Erreur de format d'une ligne de données, dont le numéro peut être relatif au début d'un intervalle.
+     */
+    private static final class InvalidRowException extends IllegalArgumentException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final int line;
+        private final String detail;
+
+        InvalidRowException(int line, String detail) {
+            super("Invalid file format. Row " + line + detail);
+            this.line = line;
+            this.detail = detail;
+        }
+
+        /**
+         * @param offset le numéro de la première ligne de l'intervalle
+         * @return la même erreur, numérotée depuis le début du fichier
+         */
+        InvalidRowException shift(int offset) {
+            return new InvalidRowException(offset + line, detail);
+        }
+    }
+
+    /**
+     * Les colonnes chargées depuis un intervalle du fichier.
+     */
+    private static final class Chunk {
+        final ColumnLoader[] loaders;
+        final int rows;
+        /**
+         * Le nombre de lignes du fichier dans l'intervalle, lignes vides comprises.
+         */
+        final int lines;
+
+        Chunk(ColumnLoader[] loaders, int rows, int lines) {
+            this.loaders = loaders;
+            this.rows = rows;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Remplit le stockage d'une colonne avec les champs d'un fichier CSV.
+     */
+    private abstract static class ColumnLoader {
+        final BitSet nulls = new BitSet();
+
+        static ColumnLoader[] forTypes(String[] names, String[] types) {
+            ColumnLoader[] loaders = new ColumnLoader[names.length];
+            for (int i = 0; i < loaders.length; i++) {
+                loaders[i] = forType(names[i], types[i]);
+            }
+            return loaders;
+        }
+
+        static ColumnLoader forType(String name, String type) {
+            switch (type) {
+                case "Integer":
+                    return new IntLoader(new IntColumn(name, 0));
+                case "String":
+                    return new StringLoader(new StringColumn(name, 0));
+                case "Double":
+                    return new DoubleLoader(new DoubleColumn(name, 0));
+                case "Boolean":
+                    return new BooleanLoader(new BooleanColumn(name, 0));
+                default:
+                    throw new IllegalArgumentException("Invalid file format. Unknown column type: " + type);
+            }
+        }
+
+        /**
+         * Assure la capacité du stockage de la colonne.
+         */
+        abstract void ensureCapacity(int capacity);
+
+        /**
+         * Écrit la valeur d'un champ dans une ligne de la colonne.
+         */
+        abstract void load(int row, byte[] bytes, int from, int to, int line);
+
+        /**
+         * Ajoute à la fin de la colonne les lignes chargées par un autre chargeur du même type.
+         *
+         * @param chunk     le chargeur des lignes à ajouter
+         * @param rows      le nombre de lignes de cette colonne
+         * @param chunkRows le nombre de lignes à ajouter
+         */
+        abstract void append(ColumnLoader chunk, int rows, int chunkRows);
+
+        void appendNulls(ColumnLoader chunk, int rows) {
+            for (int row = chunk.nulls.nextSetBit(0); row >= 0; row = chunk.nulls.nextSetBit(row + 1)) {
+                nulls.set(rows + row);
+            }
+        }
+
+        /**
+         * Termine le chargement de la colonne.
+         *
+         * @param rows le nombre de lignes chargées
+         * @return la colonne
+         */
+        abstract IColumn finish(int rows);
+    }
+
+    private static final class IntLoader extends ColumnLoader {
+        private final IntColumn column;
+
+        IntLoader(IntColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            column.ensureCapacity(capacity);
+        }
+
+        @Override
+        void load(int row, byte[] bytes, int from, int to, int line) {
+            if (isNull(bytes, from, to)) {
+                nulls.set(row);
+            } else {
+                column.values[row] = parseInt(bytes, from, to, line);
+            }
+        }
+
+        @Override
+        void append(ColumnLoader chunk, int rows, int chunkRows) {
+            column.ensureCapacity(rows + chunkRows);
+            System.arraycopy(((IntLoader) chunk).column.values, 0, column.values, rows, chunkRows);
+            appendNulls(chunk, rows);
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, nulls, 0, null);
+            return column;
+        }
+    }
+
+    private static final class DoubleLoader extends ColumnLoader {
+        private final DoubleColumn column;
+
+        DoubleLoader(DoubleColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            column.ensureCapacity(capacity);
+        }
+
+        @Override
+        void load(int row, byte[] bytes, int from, int to, int line) {
+            if (isNull(bytes, from, to)) {
+                nulls.set(row);
+            } else {
+                column.values[row] = parseDouble(bytes, from, to, line);
+            }
+        }
+
+        @Override
+        void append(ColumnLoader chunk, int rows, int chunkRows) {
+            column.ensureCapacity(rows + chunkRows);
+            System.arraycopy(((DoubleLoader) chunk).column.values, 0, column.values, rows, chunkRows);
+            appendNulls(chunk, rows);
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, nulls, 0, null);
+            return column;
+        }
+    }
+
+    private static final class BooleanLoader extends ColumnLoader {
+        private final BooleanColumn column;
+
+        BooleanLoader(BooleanColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            // Le bitset s'agrandit tout seul
+        }
+
+        @Override
+        void load(int row, byte[] bytes, int from, int to, int line) {
+            if (isNull(bytes, from, to)) {
+                nulls.set(row);
+            } else if (parseBoolean(bytes, from, to)) {
+                column.values.set(row);
+            }
+        }
+
+        @Override
+        void append(ColumnLoader chunk, int rows, int chunkRows) {
+            BitSet values = ((BooleanLoader) chunk).column.values;
+            for (int row = values.nextSetBit(0); row >= 0; row = values.nextSetBit(row + 1)) {
+                column.values.set(rows + row);
+            }
+            appendNulls(chunk, rows);
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, nulls, 0, null);
+            return column;
+        }
+    }
+
+    private static final class StringLoader extends ColumnLoader {
+        private final StringColumn column;
+
+        StringLoader(StringColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            column.ensureCapacity(capacity);
+        }
+
+        @Override
+        void load(int row, byte[] bytes, int from, int to, int line) {
+            // La valeur « null » reste une chaîne : l'export écrit les cellules vides et la chaîne « null » de la même façon
+            int length = to - from;
+            if (column.byteCount + length > column.bytes.length) {
+                column.bytes = Arrays.copyOf(column.bytes, Math.max(column.byteCount + length, column.bytes.length * 2));
+            }
+            System.arraycopy(bytes, from, column.bytes, column.byteCount, length);
+            column.offsets[row] = column.byteCount;
+            column.lengths[row] = length;
+            column.byteCount += length;
+        }
+
+        @Override
+        void append(ColumnLoader chunk, int rows, int chunkRows) {
+            StringColumn other = ((StringLoader) chunk).column;
+            column.ensureCapacity(rows + chunkRows);
+            if (column.byteCount + other.byteCount > column.bytes.length) {
+                column.bytes = Arrays.copyOf(column.bytes, column.byteCount + other.byteCount);
+            }
+            System.arraycopy(other.bytes, 0, column.bytes, column.byteCount, other.byteCount);
+            for (int i = 0; i < chunkRows; i++) {
+                column.offsets[rows + i] = other.offsets[i] + column.byteCount;
+            }
+            System.arraycopy(other.lengths, 0, column.lengths, rows, chunkRows);
+            column.byteCount += other.byteCount;
+        }
+
+        @Override
+        IColumn finish(int rows) {
+            column.restore(rows, nulls, 0, null);
+            return column;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package fr.miage.fsgbd;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Écriture en flux d'une table dans un fichier CSV relu par {@link CsvReader} : une ligne de noms de colonnes,
+ * une ligne de types, puis une ligne par ligne de la table.
+ * <p>
+ * Les lignes sont écrites par tranches de {@link #CHUNK_SIZE} lignes. Chaque tranche est mise en forme dans un tampon
+ * d'octets par un formateur par colonne qui lit directement le stockage de la colonne : les entiers sont écrits chiffre
+ * par chiffre, les doubles sans passer par une String, les octets UTF-8 des chaînes sont recopiés tels quels.
+ * Le tampon est écrit dans le fichier dès qu'il dépasse {@link #BUFFER_SIZE} octets : la mémoire utilisée ne dépend
+ * pas de la taille de la table.
+ * <p>
+ * Les lignes sont écrites dans l'ordre de stockage, ou dans l'ordre de la clé primaire en suivant la chaîne des
+ * feuilles de son arbre B+ (les lignes dont la clé est vide sont écrites à la fin). En parallèle, les tranches sont
+ * mises en forme par plusieurs threads et écrites dans l'ordre. Les chaînes suivent la RFC 4180 : une chaîne
+ * contenant une virgule, un guillemet ou une fin de ligne est écrite entre guillemets, ses guillemets doublés ;
+ * une cellule vide est écrite « null ». La table ne doit pas être modifiée pendant l'écriture.
+ */
+final class CsvWriter {
+    /**
+     * Le nombre de lignes d'une tranche.
+     */
+    static final int CHUNK_SIZE = 4096;
+    /**
+     * La taille à partir de laquelle le tampon de sortie est écrit dans le fichier.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * Le nombre de tranches en cours de mise en forme par thread, lors d'une écriture parallèle.
+     */
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private final Table table;
+    private final ColumnFormatter[] formatters;
+
+    private CsvWriter(Table table) {
+        this.table = table;
+        this.formatters = new ColumnFormatter[table.numColumns()];
+        for (int i = 0; i < formatters.length; i++) {
+            formatters[i] = ColumnFormatter.forColumn(table.getColumn(i));
+        }
+    }
+
+    /**
+     * Écrit une table dans un fichier CSV.
+     *
+     * @param table     la table
+     * @param path      le chemin du fichier, remplacé s'il existe
+     * @param orderByPK true pour écrire les lignes dans l'ordre de la clé primaire
+     * @param threads   le nombre de threads qui mettent en forme les lignes
+     * @throws IOException              si l'écriture échoue
+     * @throws IllegalArgumentException si une colonne a un type non supporté ou si le nombre de threads n'est pas positif
+     */
+    static void write(Table table, Path path, boolean orderByPK, int threads) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("Illegal thread count: " + threads);
+        CsvWriter writer = new CsvWriter(table);
+        ByteOutput header = new ByteOutput(256);
+        for (int i = 0; i < table.numColumns(); i++) {
+            if (i > 0)
+                header.write(',');
+            header.writeString(table.getColumn(i).getName());
+        }
+        header.write('\n');
+        for (int i = 0; i < table.numColumns(); i++) {
+            if (i > 0)
+                header.write(',');
+            header.writeString(table.getColumn(i).getType().getSimpleName());
+        }
+        header.write('\n');
+
+        RowSource rows = orderByPK ? writer.new PrimaryKeyOrder() : writer.new StorageOrder();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (threads == 1) {
+                writer.writeSequential(channel, header, rows);
+            } else {
+                writeFully(channel, header);
+                writer.writeParallel(channel, rows, threads);
+            }
+        }
+    }
+
+    private void writeSequential(FileChannel channel, ByteOutput out, RowSource source) throws IOException {
+        int[] rows = new int[CHUNK_SIZE];
+        int count;
+        while ((count = source.next(rows)) > 0) {
+            format(rows, count, out);
+            if (out.length >= BUFFER_SIZE) {
+                writeFully(channel, out);
+                out.length = 0;
+            }
+        }
+        writeFully(channel, out);
+    }
+
+    /**
+     * Met en forme les tranches dans un pool de threads et les écrit dans l'ordre : au plus
+     * {@link #CHUNKS_PER_THREAD} tranches par thread sont en cours, ce qui borne la mémoire utilisée.
+     */
+    private void writeParallel(FileChannel channel, RowSource source, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayDeque<Future<ByteOutput>> pending = new ArrayDeque<>();
+            while (true) {
+                int[] rows = new int[CHUNK_SIZE];
+                int count = source.next(rows);
+                if (count == 0)
+                    break;
+                pending.add(executor.submit(() -> {
+                    ByteOutput out = new ByteOutput(64 * count);
+                    format(rows, count, out);
+                    return out;
+                }));
+                if (pending.size() >= threads * CHUNKS_PER_THREAD) {
+                    writeFully(channel, pending.poll().get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeFully(channel, pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("CSV export interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Met en forme une tranche de lignes.
+     */
+    private void format(int[] rows, int count, ByteOutput out) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            for (int j = 0; j < formatters.length; j++) {
+                if (j > 0)
+                    out.write(',');
+                formatters[j].format(row, out);
+            }
+            out.write('\n');
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteOutput out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(out.bytes, 0, out.length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fournit les lignes à écrire, tranche par tranche.
+     */
+    private interface RowSource {
+        /**
+         * @param rows reçoit les lignes de la tranche suivante
+         * @return le nombre de lignes de la tranche, 0 s'il n'y en a plus
+         */
+        int next(int[] rows);
+    }
+
+    /**
+     * Les lignes dans l'ordre de stockage, sans les lignes supprimées.
+     */
+    private final class StorageOrder implements RowSource {
+        private int row;
+
+        @Override
+        public int next(int[] rows) {
+            int rowSlots = table.numRowSlots();
+            int count = 0;
+            for (; row < rowSlots && count < rows.length; row++) {
+                if (!table.isRowDeleted(row))
+                    rows[count++] = row;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Les lignes dans l'ordre de la clé primaire, puis celles dont la clé est vide dans l'ordre de stockage.
+     */
+    private final class PrimaryKeyOrder implements RowSource {
+        private final IColumn pk = table.getPkColumn();
+        private final Iterator<Integer> ordered = pk.rangeIterator(null, BPlusTree.RangePolicy.INCLUSIVE, null, BPlusTree.RangePolicy.INCLUSIVE);
+        private int row;
+
+        @Override
+        public int next(int[] rows) {
+            int count = 0;
+            while (count < rows.length && ordered.hasNext()) {
+                rows[count++] = ordered.next();
+            }
+            int rowSlots = table.numRowSlots();
+            for (; row < rowSlots && count < rows.length; row++) {
+                if (!table.isRowDeleted(row) && pk.getValue(row) == null)
+                    rows[count++] = row;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Tampon d'octets extensible.
+     */
+    static final class ByteOutput {
+        byte[] bytes;
+        int length;
+        /**
+         * Reçoit la représentation d'un double avant sa conversion en octets, sans créer de String.
+         */
+        private final StringBuilder scratch = new StringBuilder(32);
+
+        ByteOutput(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+            }
+        }
+
+        void write(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+        }
+
+        void write(byte[] source, int from, int count) {
+            ensureCapacity(count);
+            System.arraycopy(source, from, bytes, length, count);
+            length += count;
+        }
+
+        void writeString(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeField(encoded, 0, encoded.length);
+        }
+
+        /**
+         * Écrit les octets UTF-8 d'une chaîne comme un champ RFC 4180 : le champ est écrit entre guillemets s'il
+         * contient une virgule, un guillemet ou une fin de ligne, et ses guillemets sont alors doublés.
+         */
+        void writeField(byte[] source, int from, int to) {
+            boolean quoted = false;
+            for (int i = from; i < to && !quoted; i++) {
+                byte b = source[i];
+                quoted = b == ',' || b == '"' || b == '\n' || b == '\r';
+            }
+            if (!quoted) {
+                write(source, from, to - from);
+                return;
+            }
+            write('"');
+            int start = from;
+            for (int i = from; i < to; i++) {
+                if (source[i] == '"') {
+                    // Le guillemet termine un segment et commence le suivant : il est écrit deux fois
+                    write(source, start, i + 1 - start);
+                    start = i;
+                }
+            }
+            write(source, start, to - start);
+            write('"');
+        }
+
+        void writeNull() {
+            ensureCapacity(4);
+            bytes[length++] = 'n';
+            bytes[length++] = 'u';
+            bytes[length++] = 'l';
+            bytes[length++] = 'l';
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(11);
+            long v = value;
+            if (v < 0) {
+                bytes[length++] = '-';
+                v = -v;
+            }
+            int digits = 1;
+            for (long p = 10; p <= v; p *= 10) {
+                digits++;
+            }
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            length += digits;
+        }
+
+        void writeDouble(double value) {
+            // Même représentation que Double.toString, que StringBuilder produit sans String intermédiaire
+            scratch.setLength(0);
+            scratch.append(value);
+            int count = scratch.length();
+            ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                bytes[length++] = (byte) scratch.charAt(i);
+            }
+        }
+
+        void writeBoolean(boolean value) {
+            if (value) {
+                ensureCapacity(4);
+                bytes[length++] = 't';
+                bytes[length++] = 'r';
+                bytes[length++] = 'u';
+                bytes[length++] = 'e';
+            } else {
+                ensureCapacity(5);
+                bytes[length++] = 'f';
+                bytes[length++] = 'a';
+                bytes[length++] = 'l';
+                bytes[length++] = 's';
+                bytes[length++] = 'e';
+            }
+        }
+
+    }
+
+    /**
+     * Met en forme les cellules d'une colonne. Un formateur ne conserve pas d'état : il peut servir à plusieurs threads.
+     */
+    private abstract static class ColumnFormatter {
+        static ColumnFormatter forColumn(IColumn column) {
+            Class<?> type = column.getType();
+            if (type != Integer.class && type != Double.class && type != String.class && type != Boolean.class)
+                throw new IllegalArgumentException("Export failed. Unsupported column type: " + type.getSimpleName());
+
+            if (column instanceof IntColumn ints) {
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (ints.nulls.get(row)) out.writeNull();
+                        else out.writeInt(ints.values[row]);
+                    }
+                };
+            }
+            if (column instanceof OffHeapIntColumn ints) {
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (ints.nulls.get(row)) out.writeNull();
+                        else out.writeInt(ints.getInt(row));
+                    }
+                };
+            }
+            if (column instanceof DoubleColumn doubles) {
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (doubles.nulls.get(row)) out.writeNull();
+                        else out.writeDouble(doubles.values[row]);
+                    }
+                };
+            }
+            if (column instanceof OffHeapDoubleColumn doubles) {
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (doubles.nulls.get(row)) out.writeNull();
+                        else out.writeDouble(doubles.getDouble(row));
+                    }
+                };
+            }
+            if (column instanceof BooleanColumn booleans) {
+                BitSet values = booleans.values;
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (booleans.nulls.get(row)) out.writeNull();
+                        else out.writeBoolean(values.get(row));
+                    }
+                };
+            }
+            if (column instanceof StringColumn strings) {
+                return new ColumnFormatter() {
+                    @Override
+                    void format(int row, ByteOutput out) {
+                        if (strings.nulls.get(row)) {
+                            out.writeNull();
+                            return;
+                        }
+                        int from = strings.offsets[row];
+                        out.writeField(strings.bytes, from, from + strings.lengths[row]);
+                    }
+                };
+            }
+            return new ColumnFormatter() {
+                @Override
+                void format(int row, ByteOutput out) {
+                    out.writeString(String.valueOf(column.getValue(row)));
+                }
+            };
+        }
+
+        abstract void format(int row, ByteOutput out);
+    }
+}
@@ -0,0 +1,838 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Arbre B+ à clés int stocké dans un fichier et lu au travers d'un {@link BufferPool} : seules les pages présentes
+ * dans les cadres du cache sont en mémoire, l'arbre peut donc être bien plus grand que la mémoire disponible.
+ * Chaque noeud occupe une page, avec la même disposition que {@link OffHeapIntBPlusTree} :
+ * <pre>
+ * [type][nombre de clés][suivant][-][clés : branchingFactor int][lignes ou enfants : branchingFactor + 1 int]
+ * </pre>
+ * La page 0 contient les métadonnées de l'arbre (facteur de branche, racine, première page libre) : un arbre
+ * enregistré avec {@link #flush()} peut être rouvert à partir du même fichier.
+ * Un noeud n'est accédé qu'entre un épinglage et un désépinglage de sa page ; pendant une insertion ou une suppression,
+ * seul le chemin depuis la racine (et les frères d'un noeud séparé ou fusionné) reste épinglé.
+ */
+public class DiskIntBPlusTree implements IIndex<Integer> {
+    private static final int MAGIC = 0x46534254;
+    private static final int VERSION = 1;
+    private static final int META_PAGE = 0;
+
+    private static final int TYPE = 0;
+    private static final int COUNT = 4;
+    private static final int NEXT = 8;
+    private static final int KEYS = 16;
+    private static final int LEAF = 1;
+    private static final int NONE = -1;
+
+    private final BufferPool pool;
+    /**
+     * Nombre à partir duquel on considère qu'un noeud est plein et doit être séparé en deux.
+     */
+    private final int branchingFactor;
+    /**
+     * La position des lignes (feuilles) ou des enfants (noeuds internes) dans une page.
+     */
+    private final int valuesOffset;
+    /**
+     * La page de la racine de l'arbre.
+     */
+    private int root;
+    /**
+     * La première page libre, ou NONE. Les pages libres sont chaînées par leur champ « suivant ».
+     */
+    private int freePage = NONE;
+    /**
+     * Tampons de travail utilisés pour redistribuer les clés de deux noeuds frères.
+     */
+    private final int[] scratchKeys, scratchValues;
+    /**
+     * La clé de séparation remontée par la dernière séparation de noeud.
+     */
+    private int splitKey;
+
+    /**
+     * Ouvre l'arbre contenu dans le fichier d'un cache de pages, ou crée un arbre vide si le fichier est vide.
+     * Le facteur de branche est le plus grand permettant à un noeud de tenir dans une page.
+     *
+     * @param pool le cache de pages du fichier de l'arbre.
+     */
+    public DiskIntBPlusTree(BufferPool pool) {
+        this(pool, maxBranchingFactor(pool.pageSize()));
+    }
+
+    /**
+     * Ouvre l'arbre contenu dans le fichier d'un cache de pages, ou crée un arbre vide si le fichier est vide.
+     *
+     * @param pool            le cache de pages du fichier de l'arbre.
+     * @param branchingFactor le facteur de branche d'un nouvel arbre (un arbre existant garde le sien).
+     * @throws IllegalArgumentException si le facteur de branche est invalide ou si un noeud ne tient pas dans une page.
+     * @throws IllegalStateException    si le fichier ne contient pas un arbre.
+     */
+    public DiskIntBPlusTree(BufferPool pool, int branchingFactor) {
+        this.pool = pool;
+        if (pool.pageCount() > 0) {
+            ByteBuffer meta = pool.pin(META_PAGE);
+            try {
+                if (meta.getInt(0) != MAGIC || meta.getInt(4) != VERSION)
+                    throw new IllegalStateException("Invalid file format. Not a B+ tree file.");
+                branchingFactor = meta.getInt(8);
+                root = meta.getInt(12);
+                freePage = meta.getInt(16);
+            } finally {
+                pool.unpin(META_PAGE, false);
+            }
+        }
+        if (branchingFactor <= 2 || branchingFactor > maxBranchingFactor(pool.pageSize()))
+            throw new IllegalArgumentException("Illegal branching factor: " + branchingFactor);
+
+        this.branchingFactor = branchingFactor;
+        this.valuesOffset = KEYS + 4 * branchingFactor;
+        this.scratchKeys = new int[2 * branchingFactor + 1];
+        this.scratchValues = new int[2 * branchingFactor + 2];
+        if (pool.pageCount() == 0) {
+            pool.allocatePage();
+            root = allocate(true);
+            writeMeta();
+        }
+    }
+
+    /**
+     * Retourne le plus grand facteur de branche permettant à un noeud de tenir dans une page.
+     *
+     * @param pageSize la taille d'une page, en octets.
+     * @return le facteur de branche maximal.
+     */
+    public static int maxBranchingFactor(int pageSize) {
+        return (pageSize - KEYS - 4) / 8;
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public int search(int key) {
+        int leaf = findLeaf(key);
+        ByteBuffer node = pool.pin(leaf);
+        try {
+            int loc = binarySearch(node, key);
+            return loc >= 0 ? value(node, loc) : -1;
+        } finally {
+            pool.unpin(leaf, false);
+        }
+    }
+
+    /**
+     * Insère une ligne dans l'arbre. Si la clé est déjà présente, sa ligne est remplacée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(int key, int row) {
+        insertValue(key, row, true);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre seulement si la clé n'y est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(int key, int row) {
+        return insertValue(key, row, false);
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(int key) {
+        deleteValue(root, key);
+        ByteBuffer node = pool.pin(root);
+        int oldRoot = root;
+        try {
+            if (node.getInt(TYPE) != LEAF && keyCount(node) == 0) {
+                root = value(node, 0);
+            }
+        } finally {
+            pool.unpin(oldRoot, false);
+        }
+        if (root != oldRoot) {
+            free(oldRoot);
+        }
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     * Aucune page n'est épinglée entre deux appels à l'itérateur.
+     *
+     * @param from       la borne inférieure
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int from, BPlusTree.RangePolicy fromPolicy, int to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(true, from, fromPolicy, true, to, toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut.
+     * Les pages de l'ancien arbre sont ajoutées aux pages libres.
+     *
+     * @param keys       les clés à charger.
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(int[] keys, int[] rows, int count, double fillFactor) {
+        if (fillFactor <= 0 || fillFactor > 1)
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+
+        int[] sortedKeys = Arrays.copyOf(keys, count);
+        int[] sortedRows = Arrays.copyOf(rows, count);
+        IntBPlusTree.sortPairs(sortedKeys, sortedRows, count);
+        for (int i = 1; i < count; i++) {
+            if (sortedKeys[i] == sortedKeys[i - 1])
+                throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+        }
+
+        freeSubtree(root);
+
+        int leafCapacity = BPlusTree.nodeCapacity(branchingFactor - 1, branchingFactor / 2, fillFactor);
+        int leafCount = Math.max(1, (count + leafCapacity - 1) / leafCapacity);
+        int[] level = new int[leafCount];
+        int[] firstKeys = new int[leafCount];
+        int offset = 0;
+        for (int i = 0; i < leafCount; i++) {
+            int size = count / leafCount + (i < count % leafCount ? 1 : 0);
+            int leaf = allocate(true);
+            ByteBuffer node = pool.pin(leaf);
+            for (int j = 0; j < size; j++) {
+                setKey(node, j, sortedKeys[offset + j]);
+                setValue(node, j, sortedRows[offset + j]);
+            }
+            node.putInt(COUNT, size);
+            pool.unpin(leaf, true);
+            if (i > 0) {
+                ByteBuffer previous = pool.pin(level[i - 1]);
+                previous.putInt(NEXT, leaf);
+                pool.unpin(level[i - 1], true);
+            }
+            firstKeys[i] = size > 0 ? sortedKeys[offset] : 0;
+            offset += size;
+            level[i] = leaf;
+        }
+
+        int levelSize = leafCount;
+        int childCapacity = BPlusTree.nodeCapacity(branchingFactor, (branchingFactor + 1) / 2, fillFactor);
+        while (levelSize > 1) {
+            int parentCount = BPlusTree.parentCount(levelSize, childCapacity);
+            offset = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int size = levelSize / parentCount + (i < levelSize % parentCount ? 1 : 0);
+                int parent = allocate(false);
+                ByteBuffer node = pool.pin(parent);
+                for (int j = 0; j < size; j++) {
+                    setValue(node, j, level[offset + j]);
+                    if (j > 0)
+                        setKey(node, j - 1, firstKeys[offset + j]);
+                }
+                node.putInt(COUNT, size - 1);
+                pool.unpin(parent, true);
+                level[i] = parent;
+                firstKeys[i] = firstKeys[offset];
+                offset += size;
+            }
+            levelSize = parentCount;
+        }
+        root = level[0];
+        writeMeta();
+    }
+
+    /**
+     * Enregistre les métadonnées de l'arbre et écrit toutes les pages modifiées dans le fichier.
+     */
+    public void flush() {
+        writeMeta();
+        pool.flush();
+    }
+
+    /**
+     * Retourne le cache de pages de l'arbre, par exemple pour consulter ses compteurs.
+     *
+     * @return le cache de pages
+     */
+    public BufferPool getBufferPool() {
+        return pool;
+    }
+
+    @Override
+    public int search(Integer key) {
+        return search(key.intValue());
+    }
+
+    @Override
+    public void insert(Integer key, int row) {
+        insert(key.intValue(), row);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Integer key, int row) {
+        return insertIfAbsent(key.intValue(), row);
+    }
+
+    @Override
+    public void delete(Integer key) {
+        delete(key.intValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(Integer from, BPlusTree.RangePolicy fromPolicy, Integer to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(from != null, from != null ? from : 0, fromPolicy, to != null, to != null ? to : 0, toPolicy);
+    }
+
+    @Override
+    public void bulkLoad(List<Integer> keys, int[] rows, double fillFactor) {
+        int[] primitiveKeys = new int[keys.size()];
+        for (int i = 0; i < primitiveKeys.length; i++) {
+            primitiveKeys[i] = keys.get(i);
+        }
+        bulkLoad(primitiveKeys, rows, primitiveKeys.length, fillFactor);
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        return toJTree(root);
+    }
+
+    private DefaultMutableTreeNode toJTree(int page) {
+        ByteBuffer node = pool.pin(page);
+        int[] children;
+        DefaultMutableTreeNode treeNode;
+        try {
+            StringBuilder sb = new StringBuilder();
+            boolean leaf = node.getInt(TYPE) == LEAF;
+            int count = keyCount(node);
+            for (int i = 0; i < count; i++) {
+                if (sb.length() > 0)
+                    sb.append(' ');
+
+                sb.append("(");
+                sb.append(key(node, i));
+                if (leaf) {
+                    sb.append(",");
+                    sb.append(value(node, i));
+                }
+                sb.append(")");
+            }
+            treeNode = new DefaultMutableTreeNode(sb.toString(), true);
+            children = new int[leaf ? 0 : count + 1];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = value(node, i);
+            }
+        } finally {
+            pool.unpin(page, false);
+        }
+
+        for (int child : children) {
+            treeNode.add(toJTree(child));
+        }
+        return treeNode;
+    }
+
+    private boolean insertValue(int key, int row, boolean replace) {
+        int leaf = findLeaf(key);
+        ByteBuffer node = pool.pin(leaf);
+        boolean found = false;
+        try {
+            int loc = binarySearch(node, key);
+            if (loc >= 0) {
+                found = true;
+                if (replace)
+                    setValue(node, loc, row);
+            }
+        } finally {
+            pool.unpin(leaf, found && replace);
+        }
+        if (found)
+            return false;
+
+        int sibling = insertValue(root, key, row);
+        if (sibling != NONE) {
+            int newRoot = allocate(false);
+            ByteBuffer rootNode = pool.pin(newRoot);
+            setKey(rootNode, 0, splitKey);
+            setValue(rootNode, 0, root);
+            setValue(rootNode, 1, sibling);
+            rootNode.putInt(COUNT, 1);
+            pool.unpin(newRoot, true);
+            root = newRoot;
+        }
+        return true;
+    }
+
+    /**
+     * Insère une clé absente dans le sous-arbre d'un noeud. La page du noeud reste épinglée pendant la descente.
+     *
+     * @param page la page du noeud racine du sous-arbre
+     * @param key  la clé à insérer
+     * @param row  la ligne associée à la clé
+     * @return la page du nouveau frère droit si le noeud a été séparé (sa clé de séparation est dans splitKey), NONE sinon
+     */
+    private int insertValue(int page, int key, int row) {
+        ByteBuffer node = pool.pin(page);
+        boolean modified = false;
+        try {
+            int count = keyCount(node);
+            if (node.getInt(TYPE) == LEAF) {
+                int index = -binarySearch(node, key) - 1;
+                shiftRight(node, KEYS, index, count);
+                shiftRight(node, valuesOffset, index, count);
+                setKey(node, index, key);
+                setValue(node, index, row);
+                node.putInt(COUNT, ++count);
+                modified = true;
+                return count > branchingFactor - 1 ? splitLeaf(page, node) : NONE;
+            }
+
+            int childIndex = childIndex(node, key);
+            int sibling = insertValue(value(node, childIndex), key, row);
+            if (sibling == NONE)
+                return NONE;
+            shiftRight(node, KEYS, childIndex, count);
+            shiftRight(node, valuesOffset, childIndex + 1, count + 1);
+            setKey(node, childIndex, splitKey);
+            setValue(node, childIndex + 1, sibling);
+            node.putInt(COUNT, ++count);
+            modified = true;
+            return count + 1 > branchingFactor ? splitInternal(node) : NONE;
+        } finally {
+            pool.unpin(page, modified);
+        }
+    }
+
+    private int splitLeaf(int page, ByteBuffer node) {
+        int count = keyCount(node);
+        int from = (count + 1) / 2;
+        int siblingPage = allocate(true);
+        ByteBuffer sibling = pool.pin(siblingPage);
+        for (int i = from; i < count; i++) {
+            setKey(sibling, i - from, key(node, i));
+            setValue(sibling, i - from, value(node, i));
+        }
+        sibling.putInt(COUNT, count - from);
+        sibling.putInt(NEXT, node.getInt(NEXT));
+        node.putInt(COUNT, from);
+        node.putInt(NEXT, siblingPage);
+        splitKey = key(sibling, 0);
+        pool.unpin(siblingPage, true);
+        return siblingPage;
+    }
+
+    private int splitInternal(ByteBuffer node) {
+        int count = keyCount(node);
+        int from = count / 2 + 1;
+        int siblingPage = allocate(false);
+        ByteBuffer sibling = pool.pin(siblingPage);
+        for (int i = from; i < count; i++) {
+            setKey(sibling, i - from, key(node, i));
+        }
+        for (int i = from; i <= count; i++) {
+            setValue(sibling, i - from, value(node, i));
+        }
+        sibling.putInt(COUNT, count - from);
+        node.putInt(COUNT, from - 1);
+        splitKey = key(node, from - 1);
+        pool.unpin(siblingPage, true);
+        return siblingPage;
+    }
+
+    /**
+     * Supprime une clé du sous-arbre d'un noeud.
+     *
+     * @param page la page du noeud racine du sous-arbre
+     * @param key  la clé à supprimer
+     */
+    private void deleteValue(int page, int key) {
+        ByteBuffer node = pool.pin(page);
+        boolean modified = false;
+        try {
+            int count = keyCount(node);
+            if (node.getInt(TYPE) == LEAF) {
+                int loc = binarySearch(node, key);
+                if (loc >= 0) {
+                    shiftLeft(node, KEYS, loc, count);
+                    shiftLeft(node, valuesOffset, loc, count);
+                    node.putInt(COUNT, count - 1);
+                    modified = true;
+                }
+                return;
+            }
+
+            int childIndex = childIndex(node, key);
+            int child = value(node, childIndex);
+            deleteValue(child, key);
+            if (isUnderflow(child)) {
+                int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+                if (leftIndex + 1 > count)
+                    return;
+                rebalance(node, leftIndex);
+                modified = true;
+            }
+        } finally {
+            pool.unpin(page, modified);
+        }
+    }
+
+    /**
+     * Fusionne deux enfants voisins si leurs clés tiennent dans un seul noeud, sinon les redistribue équitablement.
+     *
+     * @param parent    le noeud parent, épinglé
+     * @param leftIndex la position de l'enfant gauche
+     */
+    private void rebalance(ByteBuffer parent, int leftIndex) {
+        int leftPage = value(parent, leftIndex);
+        int rightPage = value(parent, leftIndex + 1);
+        ByteBuffer left = pool.pin(leftPage);
+        ByteBuffer right = pool.pin(rightPage);
+        boolean merged = false;
+        try {
+            int leftCount = keyCount(left);
+            int rightCount = keyCount(right);
+
+            if (left.getInt(TYPE) == LEAF) {
+                int total = leftCount + rightCount;
+                if (total <= branchingFactor - 1) {
+                    for (int i = 0; i < rightCount; i++) {
+                        setKey(left, leftCount + i, key(right, i));
+                        setValue(left, leftCount + i, value(right, i));
+                    }
+                    left.putInt(COUNT, total);
+                    left.putInt(NEXT, right.getInt(NEXT));
+                    deleteChild(parent, leftIndex);
+                    merged = true;
+                    return;
+                }
+                for (int i = 0; i < leftCount; i++) {
+                    scratchKeys[i] = key(left, i);
+                    scratchValues[i] = value(left, i);
+                }
+                for (int i = 0; i < rightCount; i++) {
+                    scratchKeys[leftCount + i] = key(right, i);
+                    scratchValues[leftCount + i] = value(right, i);
+                }
+                int newLeftCount = total / 2;
+                for (int i = 0; i < total; i++) {
+                    ByteBuffer target = i < newLeftCount ? left : right;
+                    int position = i < newLeftCount ? i : i - newLeftCount;
+                    setKey(target, position, scratchKeys[i]);
+                    setValue(target, position, scratchValues[i]);
+                }
+                left.putInt(COUNT, newLeftCount);
+                right.putInt(COUNT, total - newLeftCount);
+                setKey(parent, leftIndex, scratchKeys[newLeftCount]);
+                return;
+            }
+
+            int totalChildren = leftCount + rightCount + 2;
+            for (int i = 0; i < leftCount; i++) {
+                scratchKeys[i] = key(left, i);
+            }
+            scratchKeys[leftCount] = key(parent, leftIndex);
+            for (int i = 0; i < rightCount; i++) {
+                scratchKeys[leftCount + 1 + i] = key(right, i);
+            }
+            for (int i = 0; i <= leftCount; i++) {
+                scratchValues[i] = value(left, i);
+            }
+            for (int i = 0; i <= rightCount; i++) {
+                scratchValues[leftCount + 1 + i] = value(right, i);
+            }
+
+            if (totalChildren <= branchingFactor) {
+                for (int i = leftCount; i < totalChildren - 1; i++) {
+                    setKey(left, i, scratchKeys[i]);
+                }
+                for (int i = leftCount + 1; i < totalChildren; i++) {
+                    setValue(left, i, scratchValues[i]);
+                }
+                left.putInt(COUNT, totalChildren - 1);
+                deleteChild(parent, leftIndex);
+                merged = true;
+                return;
+            }
+
+            int newLeftChildren = totalChildren / 2;
+            for (int i = 0; i < newLeftChildren; i++) {
+                setValue(left, i, scratchValues[i]);
+                if (i < newLeftChildren - 1)
+                    setKey(left, i, scratchKeys[i]);
+            }
+            for (int i = newLeftChildren; i < totalChildren; i++) {
+                setValue(right, i - newLeftChildren, scratchValues[i]);
+                if (i < totalChildren - 1)
+                    setKey(right, i - newLeftChildren, scratchKeys[i]);
+            }
+            left.putInt(COUNT, newLeftChildren - 1);
+            right.putInt(COUNT, totalChildren - newLeftChildren - 1);
+            setKey(parent, leftIndex, scratchKeys[newLeftChildren - 1]);
+        } finally {
+            pool.unpin(leftPage, true);
+            pool.unpin(rightPage, !merged);
+            if (merged) {
+                free(rightPage);
+            }
+        }
+    }
+
+    /**
+     * Supprime l'enfant situé à droite de la clé de séparation donnée, ainsi que cette clé.
+     *
+     * @param node     le noeud interne, épinglé
+     * @param keyIndex la position de la clé de séparation
+     */
+    private void deleteChild(ByteBuffer node, int keyIndex) {
+        int count = keyCount(node);
+        shiftLeft(node, KEYS, keyIndex, count);
+        shiftLeft(node, valuesOffset, keyIndex + 1, count + 1);
+        node.putInt(COUNT, count - 1);
+    }
+
+    private boolean isUnderflow(int page) {
+        ByteBuffer node = pool.pin(page);
+        try {
+            int count = keyCount(node);
+            return node.getInt(TYPE) == LEAF ? count < branchingFactor / 2 : count + 1 < (branchingFactor + 1) / 2;
+        } finally {
+            pool.unpin(page, false);
+        }
+    }
+
+    /**
+     * Retourne la page de la feuille dans laquelle se trouve (ou se trouverait) une clé.
+     *
+     * @param key la clé à chercher
+     * @return la page de la feuille correspondante
+     */
+    private int findLeaf(int key) {
+        int page = root;
+        while (true) {
+            ByteBuffer node = pool.pin(page);
+            int child = node.getInt(TYPE) == LEAF ? NONE : value(node, childIndex(node, key));
+            pool.unpin(page, false);
+            if (child == NONE)
+                return page;
+            page = child;
+        }
+    }
+
+    /**
+     * Retourne la page de la première feuille de l'arbre.
+     *
+     * @return la page de la feuille la plus à gauche
+     */
+    private int firstLeaf() {
+        int page = root;
+        while (true) {
+            ByteBuffer node = pool.pin(page);
+            int child = node.getInt(TYPE) == LEAF ? NONE : value(node, 0);
+            pool.unpin(page, false);
+            if (child == NONE)
+                return page;
+            page = child;
+        }
+    }
+
+    /**
+     * Alloue une page de noeud vide, en réutilisant une page libérée si possible.
+     *
+     * @param leaf true pour une feuille, false pour un noeud interne
+     * @return la page du noeud
+     */
+    private int allocate(boolean leaf) {
+        int page;
+        if (freePage != NONE) {
+            page = freePage;
+        } else {
+            page = pool.allocatePage();
+        }
+        ByteBuffer node = pool.pin(page);
+        if (page == freePage) {
+            freePage = node.getInt(NEXT);
+        }
+        node.putInt(TYPE, leaf ? LEAF : 0);
+        node.putInt(COUNT, 0);
+        node.putInt(NEXT, NONE);
+        pool.unpin(page, true);
+        return page;
+    }
+
+    private void free(int page) {
+        ByteBuffer node = pool.pin(page);
+        node.putInt(NEXT, freePage);
+        pool.unpin(page, true);
+        freePage = page;
+    }
+
+    private void freeSubtree(int page) {
+        ByteBuffer node = pool.pin(page);
+        int[] children = new int[node.getInt(TYPE) == LEAF ? 0 : keyCount(node) + 1];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = value(node, i);
+        }
+        pool.unpin(page, false);
+        for (int child : children) {
+            freeSubtree(child);
+        }
+        free(page);
+    }
+
+    private void writeMeta() {
+        ByteBuffer meta = pool.pin(META_PAGE);
+        meta.putInt(0, MAGIC);
+        meta.putInt(4, VERSION);
+        meta.putInt(8, branchingFactor);
+        meta.putInt(12, root);
+        meta.putInt(16, freePage);
+        pool.unpin(META_PAGE, true);
+    }
+
+    private int childIndex(ByteBuffer node, int key) {
+        int loc = binarySearch(node, key);
+        return loc >= 0 ? loc + 1 : -loc - 1;
+    }
+
+    /**
+     * Recherche dichotomique d'une clé parmi les clés d'un noeud.
+     *
+     * @param node le noeud
+     * @param key  la clé à chercher
+     * @return la position de la clé si elle est présente, sinon (-(point d'insertion) - 1)
+     */
+    private static int binarySearch(ByteBuffer node, int key) {
+        int low = 0;
+        int high = node.getInt(COUNT) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = node.getInt(KEYS + 4 * mid);
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private static void shiftRight(ByteBuffer node, int area, int from, int count) {
+        for (int i = count; i > from; i--) {
+            node.putInt(area + 4 * i, node.getInt(area + 4 * (i - 1)));
+        }
+    }
+
+    private static void shiftLeft(ByteBuffer node, int area, int from, int count) {
+        for (int i = from; i < count - 1; i++) {
+            node.putInt(area + 4 * i, node.getInt(area + 4 * (i + 1)));
+        }
+    }
+
+    private static int keyCount(ByteBuffer node) {
+        return node.getInt(COUNT);
+    }
+
+    private static int key(ByteBuffer node, int index) {
+        return node.getInt(KEYS + 4 * index);
+    }
+
+    private static void setKey(ByteBuffer node, int index, int key) {
+        node.putInt(KEYS + 4 * index, key);
+    }
+
+    /**
+     * Retourne la ligne d'une clé (feuille) ou la page d'un enfant (noeud interne).
+     */
+    private int value(ByteBuffer node, int index) {
+        return node.getInt(valuesOffset + 4 * index);
+    }
+
+    private void setValue(ByteBuffer node, int index, int value) {
+        node.putInt(valuesOffset + 4 * index, value);
+    }
+
+    /**
+     * Itérateur parcourant la chaîne des feuilles entre deux bornes.
+     */
+    private class RangeIterator implements PrimitiveIterator.OfInt {
+        private final boolean hasUpper;
+        private final int upperKey;
+        private final BPlusTree.RangePolicy upperPolicy;
+        private int leaf;
+        private int position;
+
+        RangeIterator(boolean hasLower, int lowerKey, BPlusTree.RangePolicy lowerPolicy,
+                      boolean hasUpper, int upperKey, BPlusTree.RangePolicy upperPolicy) {
+            this.hasUpper = hasUpper;
+            this.upperKey = upperKey;
+            this.upperPolicy = upperPolicy;
+            if (hasLower) {
+                leaf = findLeaf(lowerKey);
+                ByteBuffer node = pool.pin(leaf);
+                int loc = binarySearch(node, lowerKey);
+                pool.unpin(leaf, false);
+                position = loc >= 0 ? (lowerPolicy == BPlusTree.RangePolicy.INCLUSIVE ? loc : loc + 1) : -loc - 1;
+            } else {
+                leaf = firstLeaf();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (leaf != NONE) {
+                ByteBuffer node = pool.pin(leaf);
+                int page = leaf;
+                try {
+                    if (position < keyCount(node)) {
+                        if (hasUpper) {
+                            int key = key(node, position);
+                            if (key > upperKey || (key == upperKey && upperPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                                leaf = NONE;
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                    leaf = node.getInt(NEXT);
+                    position = 0;
+                } finally {
+                    pool.unpin(page, false);
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ByteBuffer node = pool.pin(leaf);
+            try {
+                return value(node, position++);
+            } finally {
+                pool.unpin(leaf, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package fr.miage.fsgbd;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * Arbre B+ spécialisé pour des clés de type double associées à des identifiants de ligne.
+ * Les clés et les lignes sont stockées dans des tableaux primitifs (pas de boxing) et la recherche
+ * dans un noeud se fait par une recherche dichotomique écrite à la main.
+ * Les clés sont ordonnées selon {@link Double#compare(double, double)}, comme des clés de type Double :
+ * elles sont stockées sous forme de long encodés dans cet ordre.
+ */
+public class DoubleBPlusTree extends PrimitiveBPlusTree<Double, long[]> {
+    /**
+     * Crée un arbre B+ avec un facteur de branche donné.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     */
+    public DoubleBPlusTree(int branchingFactor) {
+        super(branchingFactor);
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public int search(double key) {
+        return searchKey(flip(Double.doubleToLongBits(key)));
+    }
+
+    /**
+     * Cherche les lignes associées à un lot de clés, en un seul parcours de l'arbre.
+     *
+     * @param keys  les clés à chercher.
+     * @param count le nombre de clés à chercher.
+     * @param rows  reçoit, pour chaque clé, la ligne associée ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public void searchAll(double[] keys, int count, int[] rows) {
+        searchAllKeys(encode(keys, count), count, rows);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre. Si la clé est déjà présente, sa ligne est remplacée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(double key, int row) {
+        insertKey(flip(Double.doubleToLongBits(key)), row, true);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre seulement si la clé n'y est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(double key, int row) {
+        return insertKey(flip(Double.doubleToLongBits(key)), row, false);
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(double key) {
+        deleteKey(flip(Double.doubleToLongBits(key)));
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     *
+     * @param from       la borne inférieure
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    public PrimitiveIterator.OfInt rangeIterator(double from, BPlusTree.RangePolicy fromPolicy, double to, BPlusTree.RangePolicy toPolicy) {
+        return rangeIterator(true, flip(Double.doubleToLongBits(from)), fromPolicy, true, flip(Double.doubleToLongBits(to)), toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut.
+     *
+     * @param keys       les clés à charger.
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(double[] keys, int[] rows, int count, double fillFactor) {
+        bulkLoadKeys(encode(keys, count), Arrays.copyOf(rows, count), count, fillFactor);
+    }
+
+    /**
+     * Insère un lot de couples (clé, ligne), sauf ceux dont la clé est déjà présente dans l'arbre ou apparaît
+     * plus tôt dans le lot, en un seul parcours de l'arbre.
+     *
+     * @param keys     les clés à insérer.
+     * @param rows     les lignes associées aux clés.
+     * @param count    le nombre de couples à insérer.
+     * @param inserted reçoit, pour chaque couple, true s'il a été inséré et false sinon.
+     * @return le nombre de couples insérés.
+     */
+    public int insertAllIfAbsent(double[] keys, int[] rows, int count, boolean[] inserted) {
+        return insertAllKeysIfAbsent(encode(keys, count), rows, count, inserted);
+    }
+
+    @Override
+    long[] newKeys(int length) {
+        return new long[length];
+    }
+
+    @Override
+    int length(long[] keys) {
+        return keys.length;
+    }
+
+    @Override
+    long key(long[] keys, int index) {
+        return keys[index];
+    }
+
+    @Override
+    void setKey(long[] keys, int index, long key) {
+        keys[index] = key;
+    }
+
+    @Override
+    int locate(long[] keys, int count, long key) {
+        return LongBPlusTree.binarySearch(keys, count, key);
+    }
+
+    @Override
+    void sort(long[] keys, int[] rows, int count) {
+        LongBPlusTree.sortPairs(keys, rows, count);
+    }
+
+    @Override
+    long toKey(Double value) {
+        return flip(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    Double fromKey(long key) {
+        return Double.longBitsToDouble(flip(key));
+    }
+
+    /**
+     * Encode un double en long dont l'ordre des entiers est celui de {@link Double#compare(double, double)} :
+     * les bits d'un nombre négatif sont inversés (sauf le signe), pour que les plus grandes valeurs absolues
+     * viennent en premier. L'encodage est sa propre inverse.
+     *
+     * @param bits les bits de la valeur (ou la valeur encodée, pour décoder)
+     * @return la valeur encodée (ou les bits de la valeur décodée)
+     */
+    private static long flip(long bits) {
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Encode un lot de clés.
+     *
+     * @param keys  les clés à encoder
+     * @param count le nombre de clés
+     * @return les clés encodées
+     */
+    private static long[] encode(double[] keys, int count) {
+        long[] encoded = new long[count];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = flip(Double.doubleToLongBits(keys[i]));
+        }
+        return encoded;
+    }
+}
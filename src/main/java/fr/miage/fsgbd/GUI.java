@@ -25,10 +25,10 @@ public class GUI extends JFrame {
 
     private void buildTable(int numValuesPerNode) {
         table = new Table();
-        table.addColumn(new Column<Integer>(Integer.class, "ID", numValuesPerNode));
-        table.addColumn(new Column<String>(String.class, "Email", numValuesPerNode));
-        table.addColumn(new Column<String>(String.class, "Nom", 0));
-        table.addColumn(new Column<String>(String.class, "Adresse", 0));
+        table.addColumn(new IntColumn("ID", numValuesPerNode));
+        table.addColumn(new StringColumn("Email", numValuesPerNode));
+        table.addColumn(new StringColumn("Nom", 0));
+        table.addColumn(new StringColumn("Adresse", 0));
     }
 
     private void updateTree() {
@@ -269,14 +269,30 @@ public class GUI extends JFrame {
             updateTree();
         });
         buttonLoad.addActionListener(e -> {
-            FileSerializer<Table> fileSerializer = new FileSerializer<>(txtFile.getText());
-            table = fileSerializer.deserialize();
+            if (txtFile.getText().endsWith(TableFile.EXTENSION)) {
+                try {
+                    table = TableFile.open(txtFile.getText());
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            } else {
+                FileSerializer<Table> fileSerializer = new FileSerializer<>(txtFile.getText());
+                table = fileSerializer.deserialize();
+            }
 
             updateTree();
         });
         buttonSave.addActionListener(e -> {
-            FileSerializer<Table> fileSerializer = new FileSerializer<>(txtFile.getText());
-            fileSerializer.serialize(table);
+            if (txtFile.getText().endsWith(TableFile.EXTENSION)) {
+                try {
+                    TableFile.save(table, txtFile.getText());
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            } else {
+                FileSerializer<Table> fileSerializer = new FileSerializer<>(txtFile.getText());
+                fileSerializer.serialize(table);
+            }
 
             updateTree();
         });
@@ -0,0 +1,382 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * Index par hachage : table à adressage ouvert et sondage linéaire. Le hachage de chaque clé est conservé à côté
+ * d'elle : seules les clés de même hachage sont comparées avec equals, et la migration ne recalcule aucun hachage.
+ * Les suppressions décalent les entrées suivantes de leur groupe (pas de marqueur de suppression).
+ * <p>
+ * L'agrandissement est incrémental : lorsque la table dépasse son taux de remplissage maximal, une table deux fois
+ * plus grande est allouée et chaque insertion suivante y déplace quelques cases de l'ancienne table. Une recherche
+ * consulte la nouvelle table puis, tant que la migration n'est pas terminée, l'ancienne : aucune insertion ne
+ * recopie donc toute la table d'un coup. Chaque clé n'est présente que dans l'une des deux tables.
+ * <p>
+ * Pour des clés int, le hachage est une bijection : il identifie la clé, qui n'est alors pas stockée
+ * (voir {@link IntHashIndex}).
+ *
+ * @param <K> le type des clés indexées
+ */
+public class HashIndex<K> implements IIndex<K> {
+    /**
+     * Valeur de ligne d'une case vide.
+     */
+    private static final int EMPTY = -1;
+    /**
+     * Valeur de ligne d'une case de l'ancienne table déjà migrée ou supprimée.
+     */
+    private static final int DELETED = -2;
+    /**
+     * Le taux de remplissage au-delà duquel la table est agrandie.
+     */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    /**
+     * Le nombre de cases de l'ancienne table migrées à chaque insertion.
+     */
+    private static final int MIGRATION_STEP = 8;
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * L'inverse modulo 2^32 du multiplicateur de {@link #hash(int)}.
+     */
+    private static final int INVERSE_MULTIPLIER = 0x144CBC89;
+
+    /**
+     * Indique si le hachage d'une clé l'identifie (clés int) : les clés ne sont alors pas stockées.
+     */
+    private final boolean hashIsKey;
+    private Slots table;
+    /**
+     * L'ancienne table pendant un agrandissement, null sinon.
+     */
+    private Slots oldTable;
+    /**
+     * La prochaine case de l'ancienne table à migrer.
+     */
+    private int migrated;
+
+    /**
+     * Crée un index vide.
+     */
+    public HashIndex() {
+        this(false);
+    }
+
+    /**
+     * Crée un index vide.
+     *
+     * @param hashIsKey true si le hachage d'une clé l'identifie, pour ne pas stocker les clés
+     */
+    HashIndex(boolean hashIsKey) {
+        this.hashIsKey = hashIsKey;
+        this.table = new Slots(INITIAL_CAPACITY, hashIsKey);
+    }
+
+    @Override
+    public int search(K key) {
+        return search(key, hash(key));
+    }
+
+    @Override
+    public void insert(K key, int row) {
+        put(key, hash(key), row, true);
+    }
+
+    @Override
+    public boolean insertIfAbsent(K key, int row) {
+        return put(key, hash(key), row, false);
+    }
+
+    @Override
+    public void delete(K key) {
+        delete(key, hash(key));
+    }
+
+    /**
+     * Retourne le nombre de clés de l'index.
+     *
+     * @return le nombre de clés.
+     */
+    public int size() {
+        return table.size + (oldTable != null ? oldTable.size : 0);
+    }
+
+    /**
+     * Remplace le contenu de l'index par les couples (clé, ligne) donnés. La table est dimensionnée d'emblée
+     * pour toutes les clés ; le taux de remplissage des arbres B+ ne s'applique pas.
+     *
+     * @throws IllegalArgumentException si une clé est présente plusieurs fois.
+     */
+    @Override
+    public void bulkLoad(List<K> keys, int[] rows, double fillFactor) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < keys.size()) {
+            capacity <<= 1;
+        }
+        table = new Slots(capacity, hashIsKey);
+        oldTable = null;
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            int hash = hash(key);
+            if (table.find(key, hash) >= 0)
+                throw new IllegalArgumentException("Duplicate key: " + key);
+            table.place(key, hash, rows[i]);
+        }
+    }
+
+    @Override
+    public void shiftRows(int removedRow) {
+        table.shiftRows(removedRow);
+        if (oldTable != null)
+            oldTable.shiftRows(removedRow);
+    }
+
+    @Override
+    public boolean isOrdered() {
+        return false;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(K from, BPlusTree.RangePolicy fromPolicy, K to, BPlusTree.RangePolicy toPolicy) {
+        throw new UnsupportedOperationException("Hash indexes do not support range scans");
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        DefaultMutableTreeNode root = new DefaultMutableTreeNode("Hachage (" + size() + " clés)", true);
+        table.addEntries(root);
+        if (oldTable != null)
+            oldTable.addEntries(root);
+        return root;
+    }
+
+    /**
+     * Cherche la ligne associée à une clé dont le hachage est déjà calculé.
+     *
+     * @param key  la clé à chercher (ignorée si le hachage identifie la clé)
+     * @param hash le hachage de la clé
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente.
+     */
+    final int search(Object key, int hash) {
+        int slot = table.find(key, hash);
+        if (slot >= 0)
+            return table.rows[slot];
+        if (oldTable != null) {
+            slot = oldTable.find(key, hash);
+            if (slot >= 0)
+                return oldTable.rows[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Supprime une clé dont le hachage est déjà calculé.
+     *
+     * @param key  la clé à supprimer (ignorée si le hachage identifie la clé)
+     * @param hash le hachage de la clé
+     */
+    final void delete(Object key, int hash) {
+        int slot = table.find(key, hash);
+        if (slot >= 0) {
+            table.removeSlot(slot);
+        } else if (oldTable != null) {
+            slot = oldTable.find(key, hash);
+            if (slot >= 0)
+                oldTable.markDeleted(slot);
+        }
+    }
+
+    /**
+     * Insère une clé dont le hachage est déjà calculé.
+     *
+     * @param key     la clé à insérer (ignorée si le hachage identifie la clé)
+     * @param hash    le hachage de la clé
+     * @param row     la ligne associée à la clé
+     * @param replace true pour remplacer la ligne si la clé est déjà présente
+     * @return true si la ligne a été insérée ou remplacée, false si la clé était déjà présente et n'a pas été remplacée
+     */
+    final boolean put(Object key, int hash, int row, boolean replace) {
+        int slot = table.find(key, hash);
+        if (slot >= 0) {
+            if (replace)
+                table.rows[slot] = row;
+            return replace;
+        }
+        if (oldTable != null) {
+            slot = oldTable.find(key, hash);
+            if (slot >= 0) {
+                if (!replace)
+                    return false;
+                // La clé est déplacée dans la table courante avec sa nouvelle ligne
+                oldTable.markDeleted(slot);
+            }
+        }
+
+        if (size() + 1 > table.rows.length * MAX_LOAD_FACTOR)
+            grow();
+        table.place(key, hash, row);
+        if (oldTable != null)
+            migrate(MIGRATION_STEP);
+        return true;
+    }
+
+    /**
+     * Commence un agrandissement : la table courante devient l'ancienne table, à migrer au fil des insertions.
+     */
+    private void grow() {
+        if (oldTable != null) {
+            // Agrandissement précédent pas encore terminé (suppressions et réinsertions nombreuses) : on le termine
+            migrate(oldTable.rows.length - migrated);
+        }
+        oldTable = table;
+        migrated = 0;
+        table = new Slots(oldTable.rows.length << 1, hashIsKey);
+    }
+
+    /**
+     * Déplace des cases de l'ancienne table vers la table courante.
+     *
+     * @param steps le nombre de cases à migrer.
+     */
+    private void migrate(int steps) {
+        int end = Math.min(oldTable.rows.length, migrated + steps);
+        for (int i = migrated; i < end; i++) {
+            if (oldTable.rows[i] >= 0) {
+                table.place(oldTable.keys != null ? oldTable.keys[i] : null, oldTable.hashes[i], oldTable.rows[i]);
+                oldTable.markDeleted(i);
+            }
+        }
+        migrated = end;
+        if (migrated == oldTable.rows.length)
+            oldTable = null;
+    }
+
+    private static int hash(Object key) {
+        return hash(key.hashCode());
+    }
+
+    /**
+     * Mélange les bits d'un entier. La fonction est une bijection (multiplication par un nombre impair puis
+     * décalage xor), inversée par {@link #unhash(int)}.
+     *
+     * @param key l'entier à mélanger
+     * @return le hachage
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Retrouve l'entier dont le hachage est donné.
+     *
+     * @param hash le hachage
+     * @return l'entier d'origine
+     */
+    private static int unhash(int hash) {
+        return (hash ^ (hash >>> 16)) * INVERSE_MULTIPLIER;
+    }
+
+    /**
+     * Une table à adressage ouvert : clés, hachages et lignes dans trois tableaux parallèles.
+     * Le tableau des clés est absent lorsque le hachage identifie la clé.
+     */
+    private static class Slots {
+        final Object[] keys;
+        final int[] hashes;
+        final int[] rows;
+        int size;
+
+        Slots(int capacity, boolean hashIsKey) {
+            keys = hashIsKey ? null : new Object[capacity];
+            hashes = new int[capacity];
+            rows = new int[capacity];
+            Arrays.fill(rows, EMPTY);
+        }
+
+        int find(Object key, int hash) {
+            int mask = rows.length - 1;
+            int slot = hash & mask;
+            int row;
+            while ((row = rows[slot]) != EMPTY) {
+                if (row != DELETED && hashes[slot] == hash && (keys == null || key.equals(keys[slot])))
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Place une clé absente de la table dans la première case vide de son groupe.
+         */
+        void place(Object key, int hash, int row) {
+            int mask = rows.length - 1;
+            int slot = hash & mask;
+            while (rows[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys != null)
+                keys[slot] = key;
+            hashes[slot] = hash;
+            rows[slot] = row;
+            size++;
+        }
+
+        /**
+         * Vide une case en y ramenant les entrées suivantes du groupe qui ne peuvent pas être placées avant elle,
+         * pour que les sondages ne s'arrêtent jamais trop tôt.
+         */
+        void removeSlot(int slot) {
+            int mask = rows.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (rows[next] != EMPTY) {
+                int home = hashes[next] & mask;
+                // L'entrée peut combler le trou si sa case d'origine n'est pas entre le trou (exclu) et elle (inclus)
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    if (keys != null)
+                        keys[hole] = keys[next];
+                    hashes[hole] = hashes[next];
+                    rows[hole] = rows[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            if (keys != null)
+                keys[hole] = null;
+            rows[hole] = EMPTY;
+            size--;
+        }
+
+        /**
+         * Marque une case comme supprimée sans interrompre les sondages qui la traversent (ancienne table seulement).
+         */
+        void markDeleted(int slot) {
+            if (keys != null)
+                keys[slot] = null;
+            rows[slot] = DELETED;
+            size--;
+        }
+
+        /**
+         * Décale les lignes situées après une ligne supprimée ; les cases vides ou supprimées (négatives) sont ignorées.
+         */
+        void shiftRows(int removedRow) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] > removedRow)
+                    rows[i]--;
+            }
+        }
+
+        void addEntries(DefaultMutableTreeNode root) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] >= 0) {
+                    Object key = keys != null ? keys[i] : (Object) unhash(hashes[i]);
+                    root.add(new DefaultMutableTreeNode("(" + key + "," + rows[i] + ")", false));
+                }
+            }
+        }
+    }
+}
@@ -2,33 +2,62 @@ package fr.miage.fsgbd;
 
 import javax.swing.tree.TreeNode;
 import java.io.Serializable;
+import java.util.Iterator;
 
 public interface IColumn extends Serializable {
     String getName();
 
     void enableIndex(int maxValuesPerNode);
 
+    void enableIndex(int maxValuesPerNode, double fillFactor);
+
+    void enableIndex(int maxValuesPerNode, double fillFactor, boolean offHeap);
+
+    void enableIndex(int maxValuesPerNode, IndexKind kind);
+
     void addValue(Object value);
 
+    boolean addValueIfAbsent(Object value);
+
+    void appendAll(Object[] batch, int count);
+
+    int indexAllIfAbsent(Object[] batch, int count, int firstRow, boolean[] accepted);
+
     void updateValue(int row, Object value);
 
+    boolean updateValueIfAbsent(int row, Object value);
+
     void removeValue(Object value);
 
     void removeAt(int row);
 
+    void clearAt(int row);
+
     Object getValue(int row);
 
     int size();
 
     int search(Object value);
 
+    void searchAll(Object[] values, int count, int[] rows);
+
     boolean contains(Object value);
 
+    Iterator<Integer> rangeIterator(Object from, BPlusTree.RangePolicy fromPolicy, Object to, BPlusTree.RangePolicy toPolicy);
+
     void drop();
 
     Class<?> getType();
 
     boolean isIndexed();
 
+    IndexKind getIndexKind();
+
+    int getBranchingFactor();
+
+    long memoryFootprint();
+
+    IColumn snapshot();
+
     TreeNode toJTree();
 }
@@ -0,0 +1,151 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * Un index associant les valeurs d'une colonne à leur identifiant de ligne.
+ *
+ * @param <K> le type des clés indexées
+ */
+public interface IIndex<K> {
+    /**
+     * Crée un index vide adapté à un type de colonne : les types Integer, Long et Double utilisent
+     * un arbre B+ à clés primitives, les autres types utilisent l'arbre B+ générique.
+     *
+     * @param type            le type des valeurs de la colonne
+     * @param branchingFactor le facteur de branche de l'arbre B+
+     * @param <K>             le type des clés indexées
+     * @return un nouvel index vide
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <K> IIndex<K> forType(Class<?> type, int branchingFactor) {
+        if (type == Integer.class) {
+            return (IIndex<K>) new IntBPlusTree(branchingFactor);
+        } else if (type == Long.class) {
+            return (IIndex<K>) new LongBPlusTree(branchingFactor);
+        } else if (type == Double.class) {
+            return (IIndex<K>) new DoubleBPlusTree(branchingFactor);
+        }
+        return new BPlusTreeIndex(branchingFactor);
+    }
+
+    /**
+     * Crée un index vide adapté à un type de colonne, en stockant si possible ses noeuds hors du tas.
+     * Seules les clés Integer disposent d'un arbre hors du tas ; les autres types restent sur le tas.
+     *
+     * @param type            le type des valeurs de la colonne
+     * @param branchingFactor le facteur de branche de l'arbre B+
+     * @param offHeap         true pour stocker les noeuds hors du tas
+     * @param <K>             le type des clés indexées
+     * @return un nouvel index vide
+     */
+    @SuppressWarnings("unchecked")
+    static <K> IIndex<K> forType(Class<?> type, int branchingFactor, boolean offHeap) {
+        if (offHeap && type == Integer.class) {
+            return (IIndex<K>) new OffHeapIntBPlusTree(branchingFactor);
+        }
+        return forType(type, branchingFactor);
+    }
+
+    /**
+     * Crée un index vide d'un type donné, adapté à un type de colonne. Les index par hachage ont une table
+     * à clés int primitives pour les colonnes Integer et une table générique pour les autres types ;
+     * les arbres B+ sont créés comme par {@link #forType(Class, int, boolean)}.
+     *
+     * @param type            le type des valeurs de la colonne
+     * @param branchingFactor le facteur de branche de l'arbre B+ (ignoré pour un index par hachage)
+     * @param offHeap         true pour stocker les noeuds de l'arbre B+ hors du tas
+     * @param kind            le type d'index (null pour un arbre B+)
+     * @param <K>             le type des clés indexées
+     * @return un nouvel index vide
+     */
+    @SuppressWarnings("unchecked")
+    static <K> IIndex<K> forType(Class<?> type, int branchingFactor, boolean offHeap, IndexKind kind) {
+        if (kind == IndexKind.HASH) {
+            return type == Integer.class ? (IIndex<K>) new IntHashIndex() : new HashIndex<>();
+        }
+        return forType(type, branchingFactor, offHeap);
+    }
+
+    int search(K key);
+
+    /**
+     * Cherche les lignes associées à un lot de clés. Par défaut, chaque clé est cherchée depuis la racine ;
+     * les arbres B+ à clés primitives trient le lot et le cherchent en un seul parcours de l'arbre.
+     *
+     * @param keys les clés à chercher
+     * @param rows reçoit la ligne associée à chaque clé, ou -1 si la clé n'est pas présente
+     */
+    default void searchAll(List<K> keys, int[] rows) {
+        for (int i = 0; i < keys.size(); i++) {
+            rows[i] = search(keys.get(i));
+        }
+    }
+
+    void insert(K key, int row);
+
+    boolean insertIfAbsent(K key, int row);
+
+    void delete(K key);
+
+    /**
+     * Insère un lot de couples (clé, ligne), sauf ceux dont la clé est déjà présente dans l'index ou apparaît
+     * plus tôt dans le lot. Par défaut, les couples sont insérés un par un ; les arbres B+ à clés primitives
+     * trient le lot et le fusionnent dans leurs feuilles en un seul parcours.
+     *
+     * @param keys     les clés à insérer
+     * @param rows     les lignes associées aux clés
+     * @param inserted reçoit, pour chaque couple, true s'il a été inséré et false sinon
+     * @return le nombre de couples insérés
+     */
+    default int insertAllIfAbsent(List<K> keys, int[] rows, boolean[] inserted) {
+        int count = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            inserted[i] = insertIfAbsent(keys.get(i), rows[i]);
+            if (inserted[i])
+                count++;
+        }
+        return count;
+    }
+
+    void bulkLoad(List<K> keys, int[] rows, double fillFactor);
+
+    /**
+     * Décale les lignes situées après une ligne supprimée (suppression avec décalage des lignes suivantes).
+     * Chaque ligne indexée est lue une seule fois, sans toucher aux clés ni à la structure de l'index.
+     * Par défaut, l'index ne sait pas décaler ses lignes : seuls les index utilisables par une colonne le savent.
+     *
+     * @param removedRow la ligne supprimée, déjà retirée de l'index
+     * @throws UnsupportedOperationException si l'index ne sait pas décaler ses lignes
+     */
+    default void shiftRows(int removedRow) {
+        throw new UnsupportedOperationException("Row shifts are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Indique si l'index conserve l'ordre des clés, c'est-à-dire s'il sait parcourir un intervalle de clés.
+     *
+     * @return true pour un arbre B+, false pour un index par hachage
+     */
+    default boolean isOrdered() {
+        return true;
+    }
+
+    PrimitiveIterator.OfInt rangeIterator(K from, BPlusTree.RangePolicy fromPolicy, K to, BPlusTree.RangePolicy toPolicy);
+
+    DefaultMutableTreeNode toJTree();
+
+    /**
+     * Retourne un instantané de l'index en lecture seule, qui partage sa structure avec lui sans la copier.
+     * Par défaut, l'index ne sait pas partager sa structure et retourne null : l'instantané d'une colonne reconstruit
+     * alors son index à la première recherche. Les arbres B+ à clés primitives copient leurs noeuds partagés
+     * avant de les modifier.
+     *
+     * @return l'instantané de l'index, ou null si l'index ne sait pas en créer
+     */
+    default IIndex<K> snapshot() {
+        return null;
+    }
+}
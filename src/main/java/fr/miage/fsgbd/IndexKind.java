@@ -0,0 +1,16 @@
+package fr.miage.fsgbd;
+
+/**
+ * Le type d'index d'une colonne.
+ */
+public enum IndexKind {
+    /**
+     * Arbre B+ : recherche en O(log n), parcours par intervalle dans l'ordre des valeurs.
+     */
+    BTREE,
+    /**
+     * Table de hachage à adressage ouvert : recherche en temps constant, mais pas de parcours par intervalle
+     * (les recherches par intervalle d'une colonne indexée ainsi parcourent la colonne).
+     */
+    HASH
+}
@@ -0,0 +1,89 @@
+package fr.miage.fsgbd;
+
+import java.io.Serial;
+import java.util.Arrays;
+
+/**
+ * Colonne d'entiers stockés dans un tableau de int (sans objet Integer par cellule).
+ */
+public class IntColumn extends AbstractColumn<Integer> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les valeurs de la colonne (seules les size premières sont valides).
+     */
+    int[] values = new int[16];
+
+    /**
+     * Constructeur de la classe IntColumn.
+     *
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     */
+    public IntColumn(String name, int maxValuesPerNode) {
+        super(Integer.class, name, maxValuesPerNode);
+    }
+
+    /**
+     * Retourne la valeur d'une ligne sans boxing. La valeur d'une cellule vide n'est pas significative.
+     *
+     * @param row la ligne dont on veut récupérer la valeur
+     * @return la valeur de la ligne
+     */
+    public int getInt(int row) {
+        return values[row];
+    }
+
+    @Override
+    protected Integer read(int row) {
+        return values[row];
+    }
+
+    @Override
+    protected void write(int row, Integer value) {
+        values[row] = value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1)));
+        }
+    }
+
+    @Override
+    protected void shift(int row) {
+        System.arraycopy(values, row + 1, values, row, size - row - 1);
+    }
+
+    @Override
+    protected void clearStorage() {
+        values = new int[16];
+    }
+
+    @Override
+    protected void copyStorage() {
+        values = values.clone();
+    }
+
+    @Override
+    protected long storageFootprint() {
+        return 16 + 4L * values.length;
+    }
+
+    @Override
+    protected int scan(Integer value) {
+        if (value == null) {
+            return super.scan(null);
+        }
+        int key = value;
+        for (int i = 0; i < size; i++) {
+            if (values[i] == key && !nulls.get(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,55 @@
+package fr.miage.fsgbd;
+
+/**
+ * Index par hachage à clés int primitives : le hachage d'un int est une bijection, seuls les hachages et les lignes
+ * sont donc stockés (pas de tableau de clés, pas de boxing ni d'appel à equals). La table elle-même est celle de
+ * {@link HashIndex}.
+ */
+public class IntHashIndex extends HashIndex<Integer> {
+    /**
+     * Crée un index vide.
+     */
+    public IntHashIndex() {
+        super(true);
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente.
+     */
+    public int search(int key) {
+        return search(null, hash(key));
+    }
+
+    /**
+     * Insère une clé ou remplace la ligne qui lui est associée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(int key, int row) {
+        put(null, hash(key), row, true);
+    }
+
+    /**
+     * Insère une clé seulement si elle n'est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(int key, int row) {
+        return put(null, hash(key), row, false);
+    }
+
+    /**
+     * Supprime une clé de l'index.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(int key) {
+        delete(null, hash(key));
+    }
+}
@@ -0,0 +1,225 @@
+package fr.miage.fsgbd;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * Arbre B+ spécialisé pour des clés de type long associées à des identifiants de ligne.
+ * Les clés et les lignes sont stockées dans des tableaux primitifs (pas de boxing) et la recherche
+ * dans un noeud se fait par une recherche dichotomique écrite à la main.
+ */
+public class LongBPlusTree extends PrimitiveBPlusTree<Long, long[]> {
+    /**
+     * Crée un arbre B+ avec un facteur de branche donné.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     */
+    public LongBPlusTree(int branchingFactor) {
+        super(branchingFactor);
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public int search(long key) {
+        return searchKey(key);
+    }
+
+    /**
+     * Cherche les lignes associées à un lot de clés, en un seul parcours de l'arbre.
+     *
+     * @param keys  les clés à chercher.
+     * @param count le nombre de clés à chercher.
+     * @param rows  reçoit, pour chaque clé, la ligne associée ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public void searchAll(long[] keys, int count, int[] rows) {
+        searchAllKeys(Arrays.copyOf(keys, count), count, rows);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre. Si la clé est déjà présente, sa ligne est remplacée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(long key, int row) {
+        insertKey(key, row, true);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre seulement si la clé n'y est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(long key, int row) {
+        return insertKey(key, row, false);
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(long key) {
+        deleteKey(key);
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     *
+     * @param from       la borne inférieure
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    public PrimitiveIterator.OfInt rangeIterator(long from, BPlusTree.RangePolicy fromPolicy, long to, BPlusTree.RangePolicy toPolicy) {
+        return rangeIterator(true, from, fromPolicy, true, to, toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut.
+     *
+     * @param keys       les clés à charger.
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(long[] keys, int[] rows, int count, double fillFactor) {
+        bulkLoadKeys(Arrays.copyOf(keys, count), Arrays.copyOf(rows, count), count, fillFactor);
+    }
+
+    /**
+     * Insère un lot de couples (clé, ligne), sauf ceux dont la clé est déjà présente dans l'arbre ou apparaît
+     * plus tôt dans le lot, en un seul parcours de l'arbre.
+     *
+     * @param keys     les clés à insérer.
+     * @param rows     les lignes associées aux clés.
+     * @param count    le nombre de couples à insérer.
+     * @param inserted reçoit, pour chaque couple, true s'il a été inséré et false sinon.
+     * @return le nombre de couples insérés.
+     */
+    public int insertAllIfAbsent(long[] keys, int[] rows, int count, boolean[] inserted) {
+        return insertAllKeysIfAbsent(Arrays.copyOf(keys, count), rows, count, inserted);
+    }
+
+    @Override
+    long[] newKeys(int length) {
+        return new long[length];
+    }
+
+    @Override
+    int length(long[] keys) {
+        return keys.length;
+    }
+
+    @Override
+    long key(long[] keys, int index) {
+        return keys[index];
+    }
+
+    @Override
+    void setKey(long[] keys, int index, long key) {
+        keys[index] = key;
+    }
+
+    @Override
+    int locate(long[] keys, int count, long key) {
+        return binarySearch(keys, count, key);
+    }
+
+    @Override
+    void sort(long[] keys, int[] rows, int count) {
+        sortPairs(keys, rows, count);
+    }
+
+    @Override
+    long toKey(Long value) {
+        return value;
+    }
+
+    @Override
+    Long fromKey(long key) {
+        return key;
+    }
+
+    /**
+     * Recherche dichotomique d'une clé parmi les premières clés d'un tableau trié.
+     *
+     * @param keys  le tableau de clés
+     * @param count le nombre de clés valides dans le tableau
+     * @param key   la clé à chercher
+     * @return la position de la clé si elle est présente, sinon (-(point d'insertion) - 1)
+     */
+    static int binarySearch(long[] keys, int count, long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = keys[mid];
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Trie des couples (clé, ligne) par clé croissante (tri fusion stable, sans boxing).
+     * Si les clés sont déjà triées, les tableaux ne sont pas modifiés.
+     *
+     * @param keys  les clés à trier
+     * @param rows  les lignes associées, déplacées avec leur clé
+     * @param count le nombre de couples à trier
+     */
+    static void sortPairs(long[] keys, int[] rows, int count) {
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++) {
+            sorted = !(keys[i] < keys[i - 1]);
+        }
+        if (sorted)
+            return;
+
+        long[] sourceKeys = keys, targetKeys = new long[count];
+        int[] sourceRows = rows, targetRows = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int mid = Math.min(low + width, count), high = Math.min(low + 2 * width, count);
+                int i = low, j = mid, k = low;
+                while (i < mid && j < high) {
+                    if (sourceKeys[j] < sourceKeys[i]) {
+                        targetKeys[k] = sourceKeys[j];
+                        targetRows[k++] = sourceRows[j++];
+                    } else {
+                        targetKeys[k] = sourceKeys[i];
+                        targetRows[k++] = sourceRows[i++];
+                    }
+                }
+                System.arraycopy(sourceKeys, i, targetKeys, k, mid - i);
+                System.arraycopy(sourceRows, i, targetRows, k, mid - i);
+                k += mid - i;
+                System.arraycopy(sourceKeys, j, targetKeys, k, high - j);
+                System.arraycopy(sourceRows, j, targetRows, k, high - j);
+            }
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapRows = sourceRows;
+            sourceRows = targetRows;
+            targetRows = swapRows;
+        }
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, count);
+            System.arraycopy(sourceRows, 0, rows, 0, count);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package fr.miage.fsgbd;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+
+/**
+ * Colonne de nombres à virgule stockés hors du tas, dans des pages natives de taille fixe.
+ * Les valeurs ne sont pas parcourues par le ramasse-miettes :
+ * la taille de la colonne n'influe ni sur la taille du tas ni sur la durée des collections.
+ */
+public class OffHeapDoubleColumn extends AbstractColumn<Double> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Le nombre de valeurs par page, sous forme de décalage (2^13 double = 64 Kio).
+     */
+    private static final int PAGE_SHIFT = 13;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    /**
+     * La taille d'une page, en octets.
+     */
+    static final int PAGE_SIZE = Double.BYTES << PAGE_SHIFT;
+
+    /**
+     * Les pages contenant les valeurs (seules les size premières sont valides).
+     */
+    private transient OffHeapPages pages = new OffHeapPages(PAGE_SIZE);
+
+    /**
+     * Constructeur de la classe OffHeapDoubleColumn. L'index éventuel reste sur le tas (pas d'arbre hors du tas pour les clés double).
+     *
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     */
+    public OffHeapDoubleColumn(String name, int maxValuesPerNode) {
+        super(Double.class, name, maxValuesPerNode);
+    }
+
+    /**
+     * Retourne la valeur d'une ligne sans boxing. La valeur d'une cellule vide n'est pas significative.
+     *
+     * @param row la ligne dont on veut récupérer la valeur
+     * @return la valeur de la ligne
+     */
+    public double getDouble(int row) {
+        return pages.page(row >>> PAGE_SHIFT).getDouble((row & PAGE_MASK) * Double.BYTES);
+    }
+
+    private void setDouble(int row, double value) {
+        pages.writablePage(row >>> PAGE_SHIFT).putDouble((row & PAGE_MASK) * Double.BYTES, value);
+    }
+
+    /**
+     * Remplace le stockage de la colonne par des pages existantes (projetées depuis un fichier de table).
+     *
+     * @param pages les pages contenant les valeurs
+     */
+    void restorePages(OffHeapPages pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    protected Double read(int row) {
+        return getDouble(row);
+    }
+
+    @Override
+    protected void write(int row, Double value) {
+        setDouble(row, value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        pages.ensurePages((capacity + PAGE_MASK) >>> PAGE_SHIFT);
+    }
+
+    @Override
+    protected void shift(int row) {
+        for (int i = row; i < size - 1; i++) {
+            setDouble(i, getDouble(i + 1));
+        }
+    }
+
+    @Override
+    protected void clearStorage() {
+        pages.release();
+    }
+
+    @Override
+    protected void copyStorage() {
+        pages = pages.copy();
+    }
+
+    @Override
+    protected void prepareSnapshot() {
+        pages = pages.view();
+    }
+
+    @Override
+    protected long storageFootprint() {
+        return pages.footprint();
+    }
+
+    @Override
+    protected int scan(Double value) {
+        if (value == null) {
+            return super.scan(null);
+        }
+        double key = value;
+        for (int i = 0; i < size; i++) {
+            if (Double.compare(getDouble(i), key) == 0 && !nulls.get(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(getDouble(i));
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        pages = new OffHeapPages(PAGE_SIZE);
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            setDouble(i, in.readDouble());
+        }
+    }
+}
@@ -0,0 +1,773 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Arbre B+ à clés int dont les noeuds sont stockés hors du tas, dans des pages de {@link OffHeapPages}.
+ * Un noeud est un emplacement de taille fixe identifié par son numéro ; les clés, les lignes et les numéros
+ * des enfants y sont rangés côte à côte :
+ * <pre>
+ * [type][nombre de clés][suivant][-][clés : branchingFactor int][lignes ou enfants : branchingFactor + 1 int]
+ * </pre>
+ * Le champ « suivant » chaîne les feuilles entre elles, ou les emplacements libres entre eux.
+ * Contrairement à {@link IntBPlusTree}, une fusion qui dépasserait la capacité d'un emplacement est remplacée
+ * par une redistribution des clés entre les deux noeuds frères.
+ */
+public class OffHeapIntBPlusTree implements IIndex<Integer> {
+    private static final int TYPE = 0;
+    private static final int COUNT = 4;
+    private static final int NEXT = 8;
+    private static final int KEYS = 16;
+    private static final int LEAF = 1;
+    private static final int NONE = -1;
+
+    /**
+     * Nombre à partir duquel on considère qu'un noeud est plein et doit être séparé en deux.
+     */
+    private final int branchingFactor;
+    /**
+     * La position des lignes (feuilles) ou des enfants (noeuds internes) dans un noeud.
+     */
+    private final int valuesOffset;
+    /**
+     * La taille d'un noeud, en octets.
+     */
+    private final int nodeBytes;
+    /**
+     * Le nombre de noeuds par page.
+     */
+    private final int nodesPerPage;
+    /**
+     * Les pages contenant les noeuds.
+     */
+    private final OffHeapPages pages;
+    /**
+     * Le nombre d'emplacements de noeud utilisés ou libérés.
+     */
+    private int nodeCount;
+    /**
+     * Le premier emplacement libre, ou NONE.
+     */
+    private int freeNode = NONE;
+    /**
+     * La racine de l'arbre.
+     */
+    private int root;
+    /**
+     * Tampons de travail utilisés pour redistribuer les clés de deux noeuds frères.
+     */
+    private final int[] scratchKeys, scratchValues;
+    /**
+     * La clé de séparation remontée par la dernière séparation de noeud.
+     */
+    private int splitKey;
+
+    /**
+     * Crée un arbre B+ avec un facteur de branche donné et la taille de page par défaut.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     */
+    public OffHeapIntBPlusTree(int branchingFactor) {
+        this(branchingFactor, OffHeapPages.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Crée un arbre B+ avec un facteur de branche et une taille de page donnés.
+     * Si un noeud ne tient pas dans une page, la page est agrandie à la taille d'un noeud.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     * @param pageSize        la taille des pages, en octets.
+     */
+    public OffHeapIntBPlusTree(int branchingFactor, int pageSize) {
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Illegal branching factor: " + branchingFactor);
+
+        this.branchingFactor = branchingFactor;
+        this.valuesOffset = KEYS + 4 * branchingFactor;
+        this.nodeBytes = valuesOffset + 4 * (branchingFactor + 1);
+        this.pages = new OffHeapPages(Math.max(pageSize, nodeBytes));
+        this.nodesPerPage = pages.pageSize() / nodeBytes;
+        this.scratchKeys = new int[2 * branchingFactor + 1];
+        this.scratchValues = new int[2 * branchingFactor + 2];
+        root = allocate(true);
+    }
+
+    /**
+     * Recrée un arbre à partir de ses pages, par exemple projetées en mémoire depuis un fichier de table.
+     *
+     * @param branchingFactor le facteur de branche de l'arbre.
+     * @param pages           les pages contenant les noeuds.
+     * @param root            le numéro de la racine.
+     * @param nodeCount       le nombre d'emplacements de noeud utilisés ou libérés.
+     * @param freeNode        le premier emplacement libre, ou -1.
+     */
+    OffHeapIntBPlusTree(int branchingFactor, OffHeapPages pages, int root, int nodeCount, int freeNode) {
+        this.branchingFactor = branchingFactor;
+        this.valuesOffset = KEYS + 4 * branchingFactor;
+        this.nodeBytes = valuesOffset + 4 * (branchingFactor + 1);
+        this.pages = pages;
+        this.nodesPerPage = pages.pageSize() / nodeBytes;
+        this.scratchKeys = new int[2 * branchingFactor + 1];
+        this.scratchValues = new int[2 * branchingFactor + 2];
+        this.root = root;
+        this.nodeCount = nodeCount;
+        this.freeNode = freeNode;
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    public int search(int key) {
+        int leaf = findLeaf(key);
+        int loc = binarySearch(leaf, key);
+        return loc >= 0 ? value(leaf, loc) : -1;
+    }
+
+    /**
+     * Insère une ligne dans l'arbre. Si la clé est déjà présente, sa ligne est remplacée.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     */
+    public void insert(int key, int row) {
+        insertValue(key, row, true);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre seulement si la clé n'y est pas déjà présente.
+     *
+     * @param key la clé à insérer.
+     * @param row la ligne associée à la clé.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    public boolean insertIfAbsent(int key, int row) {
+        return insertValue(key, row, false);
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer.
+     */
+    public void delete(int key) {
+        deleteValue(root, key);
+        if (!isLeaf(root) && keyCount(root) == 0) {
+            int oldRoot = root;
+            root = value(root, 0);
+            free(oldRoot);
+        }
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     *
+     * @param from       la borne inférieure
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param to         la borne supérieure
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int from, BPlusTree.RangePolicy fromPolicy, int to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(true, from, fromPolicy, true, to, toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut.
+     *
+     * @param keys       les clés à charger.
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    public void bulkLoad(int[] keys, int[] rows, int count, double fillFactor) {
+        if (fillFactor <= 0 || fillFactor > 1)
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+
+        int[] sortedKeys = Arrays.copyOf(keys, count);
+        int[] sortedRows = Arrays.copyOf(rows, count);
+        IntBPlusTree.sortPairs(sortedKeys, sortedRows, count);
+        for (int i = 1; i < count; i++) {
+            if (sortedKeys[i] == sortedKeys[i - 1])
+                throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+        }
+
+        pages.release();
+        nodeCount = 0;
+        freeNode = NONE;
+
+        int leafCapacity = BPlusTree.nodeCapacity(branchingFactor - 1, branchingFactor / 2, fillFactor);
+        int leafCount = Math.max(1, (count + leafCapacity - 1) / leafCapacity);
+        int[] level = new int[leafCount];
+        int[] firstKeys = new int[leafCount];
+        int previous = NONE;
+        int offset = 0;
+        for (int i = 0; i < leafCount; i++) {
+            int size = count / leafCount + (i < count % leafCount ? 1 : 0);
+            int leaf = allocate(true);
+            for (int j = 0; j < size; j++) {
+                setKey(leaf, j, sortedKeys[offset + j]);
+                setValue(leaf, j, sortedRows[offset + j]);
+            }
+            setKeyCount(leaf, size);
+            firstKeys[i] = size > 0 ? sortedKeys[offset] : 0;
+            offset += size;
+            if (previous != NONE)
+                setNextNode(previous, leaf);
+            previous = leaf;
+            level[i] = leaf;
+        }
+
+        int levelSize = leafCount;
+        int childCapacity = BPlusTree.nodeCapacity(branchingFactor, (branchingFactor + 1) / 2, fillFactor);
+        while (levelSize > 1) {
+            int parentCount = BPlusTree.parentCount(levelSize, childCapacity);
+            offset = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int size = levelSize / parentCount + (i < levelSize % parentCount ? 1 : 0);
+                int parent = allocate(false);
+                for (int j = 0; j < size; j++) {
+                    setValue(parent, j, level[offset + j]);
+                    if (j > 0)
+                        setKey(parent, j - 1, firstKeys[offset + j]);
+                }
+                setKeyCount(parent, size - 1);
+                level[i] = parent;
+                firstKeys[i] = firstKeys[offset];
+                offset += size;
+            }
+            levelSize = parentCount;
+        }
+        root = level[0];
+    }
+
+    /**
+     * Retourne la mémoire native occupée par les noeuds de l'arbre.
+     *
+     * @return la mémoire occupée, en octets
+     */
+    public long footprint() {
+        return pages.footprint();
+    }
+
+    OffHeapPages pages() {
+        return pages;
+    }
+
+    int branchingFactor() {
+        return branchingFactor;
+    }
+
+    int root() {
+        return root;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int freeNode() {
+        return freeNode;
+    }
+
+    @Override
+    public int search(Integer key) {
+        return search(key.intValue());
+    }
+
+    @Override
+    public void insert(Integer key, int row) {
+        insert(key.intValue(), row);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Integer key, int row) {
+        return insertIfAbsent(key.intValue(), row);
+    }
+
+    @Override
+    public void delete(Integer key) {
+        delete(key.intValue());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(Integer from, BPlusTree.RangePolicy fromPolicy, Integer to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(from != null, from != null ? from : 0, fromPolicy, to != null, to != null ? to : 0, toPolicy);
+    }
+
+    @Override
+    public void bulkLoad(List<Integer> keys, int[] rows, double fillFactor) {
+        int[] primitiveKeys = new int[keys.size()];
+        for (int i = 0; i < primitiveKeys.length; i++) {
+            primitiveKeys[i] = keys.get(i);
+        }
+        bulkLoad(primitiveKeys, rows, primitiveKeys.length, fillFactor);
+    }
+
+    @Override
+    public void shiftRows(int removedRow) {
+        for (int leaf = firstLeaf(); leaf != NONE; leaf = nextNode(leaf)) {
+            for (int i = 0; i < keyCount(leaf); i++) {
+                int row = value(leaf, i);
+                if (row > removedRow)
+                    setValue(leaf, i, row - 1);
+            }
+        }
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        return toJTree(root);
+    }
+
+    private DefaultMutableTreeNode toJTree(int node) {
+        StringBuilder sb = new StringBuilder();
+        boolean leaf = isLeaf(node);
+        for (int i = 0; i < keyCount(node); i++) {
+            if (sb.length() > 0)
+                sb.append(' ');
+
+            sb.append("(");
+            sb.append(key(node, i));
+            if (leaf) {
+                sb.append(",");
+                sb.append(value(node, i));
+            }
+            sb.append(")");
+        }
+
+        DefaultMutableTreeNode treeNode = new DefaultMutableTreeNode(sb.toString(), true);
+        if (!leaf) {
+            for (int i = 0; i <= keyCount(node); i++) {
+                treeNode.add(toJTree(value(node, i)));
+            }
+        }
+
+        return treeNode;
+    }
+
+    private boolean insertValue(int key, int row, boolean replace) {
+        int leaf = findLeaf(key);
+        int loc = binarySearch(leaf, key);
+        if (loc >= 0) {
+            if (replace)
+                setValue(leaf, loc, row);
+            return false;
+        }
+        int sibling = insertValue(root, key, row);
+        if (sibling != NONE) {
+            int newRoot = allocate(false);
+            setKey(newRoot, 0, splitKey);
+            setValue(newRoot, 0, root);
+            setValue(newRoot, 1, sibling);
+            setKeyCount(newRoot, 1);
+            root = newRoot;
+        }
+        return true;
+    }
+
+    /**
+     * Insère une clé absente dans le sous-arbre d'un noeud.
+     *
+     * @param node le noeud racine du sous-arbre
+     * @param key  la clé à insérer
+     * @param row  la ligne associée à la clé
+     * @return le nouveau frère droit si le noeud a été séparé (sa clé de séparation est dans splitKey), NONE sinon
+     */
+    private int insertValue(int node, int key, int row) {
+        int count = keyCount(node);
+        if (isLeaf(node)) {
+            int index = -binarySearch(node, key) - 1;
+            shiftRight(node, KEYS, index, count);
+            shiftRight(node, valuesOffset, index, count);
+            setKey(node, index, key);
+            setValue(node, index, row);
+            setKeyCount(node, ++count);
+            return count > branchingFactor - 1 ? splitLeaf(node) : NONE;
+        }
+
+        int childIndex = childIndex(node, key);
+        int sibling = insertValue(value(node, childIndex), key, row);
+        if (sibling == NONE)
+            return NONE;
+        shiftRight(node, KEYS, childIndex, count);
+        shiftRight(node, valuesOffset, childIndex + 1, count + 1);
+        setKey(node, childIndex, splitKey);
+        setValue(node, childIndex + 1, sibling);
+        setKeyCount(node, ++count);
+        return count + 1 > branchingFactor ? splitInternal(node) : NONE;
+    }
+
+    private int splitLeaf(int node) {
+        int count = keyCount(node);
+        int from = (count + 1) / 2;
+        int sibling = allocate(true);
+        for (int i = from; i < count; i++) {
+            setKey(sibling, i - from, key(node, i));
+            setValue(sibling, i - from, value(node, i));
+        }
+        setKeyCount(sibling, count - from);
+        setKeyCount(node, from);
+        setNextNode(sibling, nextNode(node));
+        setNextNode(node, sibling);
+        splitKey = key(sibling, 0);
+        return sibling;
+    }
+
+    private int splitInternal(int node) {
+        int count = keyCount(node);
+        int from = count / 2 + 1;
+        int sibling = allocate(false);
+        for (int i = from; i < count; i++) {
+            setKey(sibling, i - from, key(node, i));
+        }
+        for (int i = from; i <= count; i++) {
+            setValue(sibling, i - from, value(node, i));
+        }
+        setKeyCount(sibling, count - from);
+        setKeyCount(node, from - 1);
+        splitKey = key(node, from - 1);
+        return sibling;
+    }
+
+    private void deleteValue(int node, int key) {
+        int count = keyCount(node);
+        if (isLeaf(node)) {
+            int loc = binarySearch(node, key);
+            if (loc >= 0) {
+                shiftLeft(node, KEYS, loc, count);
+                shiftLeft(node, valuesOffset, loc, count);
+                setKeyCount(node, count - 1);
+            }
+            return;
+        }
+
+        int childIndex = childIndex(node, key);
+        int child = value(node, childIndex);
+        deleteValue(child, key);
+        if (isUnderflow(child)) {
+            int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+            if (leftIndex + 1 > keyCount(node))
+                return;
+            rebalance(node, leftIndex);
+        }
+    }
+
+    /**
+     * Fusionne deux enfants voisins si leurs clés tiennent dans un seul noeud, sinon les redistribue équitablement.
+     *
+     * @param parent    le noeud parent
+     * @param leftIndex la position de l'enfant gauche
+     */
+    private void rebalance(int parent, int leftIndex) {
+        int left = value(parent, leftIndex);
+        int right = value(parent, leftIndex + 1);
+        int leftCount = keyCount(left);
+        int rightCount = keyCount(right);
+
+        if (isLeaf(left)) {
+            int total = leftCount + rightCount;
+            if (total <= branchingFactor - 1) {
+                for (int i = 0; i < rightCount; i++) {
+                    setKey(left, leftCount + i, key(right, i));
+                    setValue(left, leftCount + i, value(right, i));
+                }
+                setKeyCount(left, total);
+                setNextNode(left, nextNode(right));
+                deleteChild(parent, leftIndex);
+                free(right);
+                return;
+            }
+            for (int i = 0; i < leftCount; i++) {
+                scratchKeys[i] = key(left, i);
+                scratchValues[i] = value(left, i);
+            }
+            for (int i = 0; i < rightCount; i++) {
+                scratchKeys[leftCount + i] = key(right, i);
+                scratchValues[leftCount + i] = value(right, i);
+            }
+            int newLeftCount = total / 2;
+            for (int i = 0; i < total; i++) {
+                int target = i < newLeftCount ? left : right;
+                int position = i < newLeftCount ? i : i - newLeftCount;
+                setKey(target, position, scratchKeys[i]);
+                setValue(target, position, scratchValues[i]);
+            }
+            setKeyCount(left, newLeftCount);
+            setKeyCount(right, total - newLeftCount);
+            setKey(parent, leftIndex, scratchKeys[newLeftCount]);
+            return;
+        }
+
+        int totalChildren = leftCount + rightCount + 2;
+        for (int i = 0; i < leftCount; i++) {
+            scratchKeys[i] = key(left, i);
+        }
+        scratchKeys[leftCount] = key(parent, leftIndex);
+        for (int i = 0; i < rightCount; i++) {
+            scratchKeys[leftCount + 1 + i] = key(right, i);
+        }
+        for (int i = 0; i <= leftCount; i++) {
+            scratchValues[i] = value(left, i);
+        }
+        for (int i = 0; i <= rightCount; i++) {
+            scratchValues[leftCount + 1 + i] = value(right, i);
+        }
+
+        if (totalChildren <= branchingFactor) {
+            for (int i = leftCount; i < totalChildren - 1; i++) {
+                setKey(left, i, scratchKeys[i]);
+            }
+            for (int i = leftCount + 1; i < totalChildren; i++) {
+                setValue(left, i, scratchValues[i]);
+            }
+            setKeyCount(left, totalChildren - 1);
+            deleteChild(parent, leftIndex);
+            free(right);
+            return;
+        }
+
+        int newLeftChildren = totalChildren / 2;
+        for (int i = 0; i < newLeftChildren; i++) {
+            setValue(left, i, scratchValues[i]);
+            if (i < newLeftChildren - 1)
+                setKey(left, i, scratchKeys[i]);
+        }
+        for (int i = newLeftChildren; i < totalChildren; i++) {
+            setValue(right, i - newLeftChildren, scratchValues[i]);
+            if (i < totalChildren - 1)
+                setKey(right, i - newLeftChildren, scratchKeys[i]);
+        }
+        setKeyCount(left, newLeftChildren - 1);
+        setKeyCount(right, totalChildren - newLeftChildren - 1);
+        setKey(parent, leftIndex, scratchKeys[newLeftChildren - 1]);
+    }
+
+    /**
+     * Supprime l'enfant situé à droite de la clé de séparation donnée, ainsi que cette clé.
+     *
+     * @param node     le noeud interne
+     * @param keyIndex la position de la clé de séparation
+     */
+    private void deleteChild(int node, int keyIndex) {
+        int count = keyCount(node);
+        shiftLeft(node, KEYS, keyIndex, count);
+        shiftLeft(node, valuesOffset, keyIndex + 1, count + 1);
+        setKeyCount(node, count - 1);
+    }
+
+    private boolean isUnderflow(int node) {
+        int count = keyCount(node);
+        return isLeaf(node) ? count < branchingFactor / 2 : count + 1 < (branchingFactor + 1) / 2;
+    }
+
+    /**
+     * Retourne la feuille dans laquelle se trouve (ou se trouverait) une clé.
+     *
+     * @param key la clé à chercher
+     * @return la feuille correspondante
+     */
+    private int findLeaf(int key) {
+        int node = root;
+        while (!isLeaf(node)) {
+            node = value(node, childIndex(node, key));
+        }
+        return node;
+    }
+
+    /**
+     * Retourne la première feuille de l'arbre.
+     *
+     * @return la feuille la plus à gauche
+     */
+    private int firstLeaf() {
+        int node = root;
+        while (!isLeaf(node)) {
+            node = value(node, 0);
+        }
+        return node;
+    }
+
+    private int childIndex(int node, int key) {
+        int loc = binarySearch(node, key);
+        return loc >= 0 ? loc + 1 : -loc - 1;
+    }
+
+    /**
+     * Recherche dichotomique d'une clé parmi les clés d'un noeud.
+     *
+     * @param node le noeud
+     * @param key  la clé à chercher
+     * @return la position de la clé si elle est présente, sinon (-(point d'insertion) - 1)
+     */
+    private int binarySearch(int node, int key) {
+        ByteBuffer page = page(node);
+        int base = base(node);
+        int low = 0;
+        int high = page.getInt(base + COUNT) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = page.getInt(base + KEYS + 4 * mid);
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Alloue un noeud vide, en réutilisant un emplacement libéré si possible.
+     *
+     * @param leaf true pour une feuille, false pour un noeud interne
+     * @return le numéro du noeud
+     */
+    private int allocate(boolean leaf) {
+        int node;
+        if (freeNode != NONE) {
+            node = freeNode;
+            freeNode = nextNode(node);
+        } else {
+            node = nodeCount++;
+            pages.ensurePages(node / nodesPerPage + 1);
+        }
+        ByteBuffer page = writablePage(node);
+        int base = base(node);
+        page.putInt(base + TYPE, leaf ? LEAF : 0);
+        page.putInt(base + COUNT, 0);
+        page.putInt(base + NEXT, NONE);
+        return node;
+    }
+
+    private void free(int node) {
+        setNextNode(node, freeNode);
+        freeNode = node;
+    }
+
+    private void shiftRight(int node, int area, int from, int count) {
+        ByteBuffer page = writablePage(node);
+        int base = base(node) + area;
+        for (int i = count; i > from; i--) {
+            page.putInt(base + 4 * i, page.getInt(base + 4 * (i - 1)));
+        }
+    }
+
+    private void shiftLeft(int node, int area, int from, int count) {
+        ByteBuffer page = writablePage(node);
+        int base = base(node) + area;
+        for (int i = from; i < count - 1; i++) {
+            page.putInt(base + 4 * i, page.getInt(base + 4 * (i + 1)));
+        }
+    }
+
+    private ByteBuffer page(int node) {
+        return pages.page(node / nodesPerPage);
+    }
+
+    private ByteBuffer writablePage(int node) {
+        return pages.writablePage(node / nodesPerPage);
+    }
+
+    private int base(int node) {
+        return (node % nodesPerPage) * nodeBytes;
+    }
+
+    private boolean isLeaf(int node) {
+        return page(node).getInt(base(node) + TYPE) == LEAF;
+    }
+
+    private int keyCount(int node) {
+        return page(node).getInt(base(node) + COUNT);
+    }
+
+    private void setKeyCount(int node, int count) {
+        writablePage(node).putInt(base(node) + COUNT, count);
+    }
+
+    private int nextNode(int node) {
+        return page(node).getInt(base(node) + NEXT);
+    }
+
+    private void setNextNode(int node, int next) {
+        writablePage(node).putInt(base(node) + NEXT, next);
+    }
+
+    private int key(int node, int index) {
+        return page(node).getInt(base(node) + KEYS + 4 * index);
+    }
+
+    private void setKey(int node, int index, int key) {
+        writablePage(node).putInt(base(node) + KEYS + 4 * index, key);
+    }
+
+    /**
+     * Retourne la ligne d'une clé (feuille) ou le numéro d'un enfant (noeud interne).
+     */
+    private int value(int node, int index) {
+        return page(node).getInt(base(node) + valuesOffset + 4 * index);
+    }
+
+    private void setValue(int node, int index, int value) {
+        writablePage(node).putInt(base(node) + valuesOffset + 4 * index, value);
+    }
+
+    /**
+     * Itérateur parcourant la chaîne des feuilles entre deux bornes.
+     */
+    private class RangeIterator implements PrimitiveIterator.OfInt {
+        private final boolean hasUpper;
+        private final int upperKey;
+        private final BPlusTree.RangePolicy upperPolicy;
+        private int leaf;
+        private int position;
+
+        RangeIterator(boolean hasLower, int lowerKey, BPlusTree.RangePolicy lowerPolicy,
+                      boolean hasUpper, int upperKey, BPlusTree.RangePolicy upperPolicy) {
+            this.hasUpper = hasUpper;
+            this.upperKey = upperKey;
+            this.upperPolicy = upperPolicy;
+            if (hasLower) {
+                leaf = findLeaf(lowerKey);
+                int loc = binarySearch(leaf, lowerKey);
+                position = loc >= 0 ? (lowerPolicy == BPlusTree.RangePolicy.INCLUSIVE ? loc : loc + 1) : -loc - 1;
+            } else {
+                leaf = firstLeaf();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (leaf != NONE && position >= keyCount(leaf)) {
+                leaf = nextNode(leaf);
+                position = 0;
+            }
+            if (leaf == NONE)
+                return false;
+            if (hasUpper) {
+                int key = key(leaf, position);
+                if (key > upperKey || (key == upperKey && upperPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                    leaf = NONE;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return value(leaf, position++);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package fr.miage.fsgbd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Un ensemble de pages de taille fixe allouées hors du tas Java (ByteBuffer directs).
+ * Le contenu des pages n'est pas parcouru par le ramasse-miettes : seuls les quelques objets ByteBuffer
+ * qui les référencent vivent sur le tas, quelle que soit la quantité de données stockées.
+ * Les pages sont en petit-boutiste, ce qui permet de les écrire telles quelles dans un fichier de table
+ * et de les projeter en mémoire à la relecture (voir {@link TableFile}).
+ */
+public class OffHeapPages {
+    /**
+     * La taille de page par défaut, en octets.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1 << 16;
+
+    /**
+     * La taille d'une page, en octets.
+     */
+    private final int pageSize;
+    /**
+     * Les pages allouées (seules les pageCount premières sont valides).
+     */
+    private ByteBuffer[] pages = new ByteBuffer[8];
+    /**
+     * Le nombre de pages allouées.
+     */
+    private int pageCount;
+
+    /**
+     * Crée un ensemble de pages vide.
+     *
+     * @param pageSize la taille d'une page, en octets
+     */
+    public OffHeapPages(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Crée un ensemble à partir de pages existantes, par exemple projetées en mémoire depuis un fichier.
+     * Les pages allouées ensuite sont des ByteBuffer directs.
+     *
+     * @param pageSize la taille d'une page, en octets
+     * @param pages    les pages existantes, de taille pageSize et en petit-boutiste
+     */
+    public OffHeapPages(int pageSize, ByteBuffer[] pages) {
+        this(pageSize);
+        this.pages = Arrays.copyOf(pages, Math.max(8, pages.length));
+        this.pageCount = pages.length;
+    }
+
+    /**
+     * Retourne la taille d'une page.
+     *
+     * @return la taille d'une page, en octets
+     */
+    public int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Retourne le nombre de pages allouées.
+     *
+     * @return le nombre de pages allouées
+     */
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Retourne une page. Les accès se font en position absolue.
+     *
+     * @param index le numéro de la page
+     * @return la page
+     */
+    public ByteBuffer page(int index) {
+        return pages[index];
+    }
+
+    /**
+     * Retourne une page modifiable. Une page en lecture seule (projetée depuis un fichier de table) est d'abord
+     * remplacée par une copie dans un ByteBuffer direct : le fichier n'est jamais modifié.
+     *
+     * @param index le numéro de la page
+     * @return la page, modifiable
+     */
+    public ByteBuffer writablePage(int index) {
+        ByteBuffer page = pages[index];
+        if (page.isReadOnly()) {
+            ByteBuffer copy = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.LITTLE_ENDIAN);
+            copy.put(0, page, 0, pageSize);
+            pages[index] = copy;
+            page = copy;
+        }
+        return page;
+    }
+
+    /**
+     * Alloue des pages jusqu'à en avoir au moins le nombre donné. Les nouvelles pages sont remplies de zéros.
+     *
+     * @param count le nombre de pages voulu
+     */
+    public void ensurePages(int count) {
+        if (count > pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(count, pages.length * 2));
+        }
+        while (pageCount < count) {
+            pages[pageCount++] = ByteBuffer.allocateDirect(pageSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Retourne un ensemble partageant les pages actuelles : les pages allouées ensuite par l'un des deux ensembles
+     * ne sont pas visibles de l'autre, mais le contenu des pages partagées l'est.
+     *
+     * @return un nouvel ensemble référençant les mêmes pages
+     */
+    public OffHeapPages view() {
+        return new OffHeapPages(pageSize, Arrays.copyOf(pages, pageCount));
+    }
+
+    /**
+     * Retourne une copie des pages, dans de nouveaux ByteBuffer directs.
+     *
+     * @return un nouvel ensemble contenant une copie des pages
+     */
+    public OffHeapPages copy() {
+        OffHeapPages copy = new OffHeapPages(pageSize);
+        copy.ensurePages(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            copy.pages[i].put(0, pages[i], 0, pageSize);
+        }
+        return copy;
+    }
+
+    /**
+     * Abandonne toutes les pages. La mémoire native est rendue au système quand les ByteBuffer sont collectés.
+     */
+    public void release() {
+        pages = new ByteBuffer[8];
+        pageCount = 0;
+    }
+
+    /**
+     * Retourne la mémoire native occupée par les pages.
+     *
+     * @return la mémoire occupée, en octets
+     */
+    public long footprint() {
+        return (long) pageCount * pageSize;
+    }
+}
@@ -0,0 +1,273 @@
+package fr.miage.fsgbd;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Une table dont les lignes sont réparties, selon leur clé primaire, entre plusieurs tables indépendantes
+ * (partitions), chacune avec ses propres colonnes, ses propres index et son propre verrou.
+ * Les écritures sur des partitions différentes se font en parallèle ; une recherche par clé primaire n'interroge
+ * que la partition de la clé, et un parcours interroge toutes les partitions en parallèle puis fusionne leurs résultats.
+ * <p>
+ * La répartition se fait par hachage de la clé primaire, ou par intervalles de clés primaires : dans ce cas,
+ * un parcours par intervalle n'interroge que les partitions concernées, et leurs lignes sont déjà dans l'ordre.
+ * Les identifiants de ligne sont propres à chaque partition : les lignes sont désignées par leur clé primaire.
+ */
+public class PartitionedTable implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les partitions de la table.
+     */
+    private final Table[] partitions;
+    /**
+     * Les clés primaires séparant les partitions (répartition par intervalles), ou null pour une répartition par hachage.
+     * La partition i contient les clés strictement inférieures à splitKeys[i] et supérieures ou égales à splitKeys[i - 1].
+     */
+    private final Object[] splitKeys;
+
+    /**
+     * Crée une table répartie par hachage de la clé primaire.
+     *
+     * @param partitionCount le nombre de partitions.
+     * @param factory        crée une partition vide, avec les colonnes de la table.
+     */
+    public PartitionedTable(int partitionCount, Supplier<Table> factory) {
+        this(partitionCount, null, factory);
+    }
+
+    /**
+     * Crée une table répartie par intervalles de clés primaires.
+     *
+     * @param splitKeys les clés primaires séparant les partitions, triées par ordre croissant (n clés donnent n + 1 partitions).
+     * @param factory   crée une partition vide, avec les colonnes de la table.
+     */
+    public PartitionedTable(Object[] splitKeys, Supplier<Table> factory) {
+        this(splitKeys.length + 1, splitKeys.clone(), factory);
+    }
+
+    private PartitionedTable(int partitionCount, Object[] splitKeys, Supplier<Table> factory) {
+        if (partitionCount <= 0)
+            throw new IllegalArgumentException("Illegal partition count: " + partitionCount);
+        if (splitKeys != null) {
+            for (int i = 1; i < splitKeys.length; i++) {
+                if (compare(splitKeys[i - 1], splitKeys[i]) >= 0)
+                    throw new IllegalArgumentException("Split keys must be sorted and distinct");
+            }
+        }
+
+        this.splitKeys = splitKeys;
+        this.partitions = new Table[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = factory.get();
+        }
+    }
+
+    /**
+     * Ajoute une ligne à la partition de sa clé primaire (la première valeur de la ligne).
+     *
+     * @param row les valeurs de la ligne.
+     * @return true si la ligne a été ajoutée, false si une colonne indexée de sa partition contient déjà l'une de ses valeurs.
+     * @throws IllegalArgumentException si la taille de la ligne ne correspond pas au nombre de colonnes.
+     */
+    public boolean addRow(Object[] row) {
+        return partitionOf(row[0]).addRow(row);
+    }
+
+    /**
+     * Supprime une ligne à partir de sa clé primaire.
+     *
+     * @param pk la clé primaire de la ligne à supprimer.
+     * @return true si la ligne a été supprimée, false si aucune ligne n'a cette clé primaire.
+     */
+    public boolean removeRow(Object pk) {
+        return partitionOf(pk).removeRow(pk);
+    }
+
+    /**
+     * Met à jour une cellule d'une ligne désignée par sa clé primaire. La clé primaire elle-même ne peut pas être
+     * modifiée, car la ligne devrait changer de partition.
+     *
+     * @param pk     la clé primaire de la ligne.
+     * @param column l'indice de la colonne, différent de 0.
+     * @param value  la nouvelle valeur.
+     * @return true si la cellule a été mise à jour, false si la ligne n'existe pas ou si la colonne est indexée et contient déjà la valeur.
+     * @throws IllegalArgumentException si la colonne est la clé primaire.
+     */
+    public boolean updateValue(Object pk, int column, Object value) {
+        if (column == 0)
+            throw new IllegalArgumentException("The primary key of a partitioned table cannot be updated");
+
+        Table partition = partitionOf(pk);
+        synchronized (partition) {
+            int row = partition.getRowIndexByPK(pk);
+            return row != -1 && partition.updateValue(row, column, value);
+        }
+    }
+
+    /**
+     * Récupère une ligne à partir de sa clé primaire, en n'interrogeant que sa partition.
+     *
+     * @param pk la clé primaire de la ligne.
+     * @return les valeurs de la ligne, ou null si aucune ligne n'a cette clé primaire.
+     */
+    public Object[] getRowByPK(Object pk) {
+        Table partition = partitionOf(pk);
+        synchronized (partition) {
+            return partition.getRowByPK(pk);
+        }
+    }
+
+    /**
+     * Récupère les lignes dont la clé primaire est comprise entre deux bornes incluses, triées par clé primaire.
+     *
+     * @param from la borne inférieure, ou null pour partir de la plus petite clé.
+     * @param to   la borne supérieure, ou null pour aller jusqu'à la plus grande clé.
+     * @return la liste des lignes dont la clé primaire est comprise entre les deux bornes.
+     */
+    public List<Object[]> getRowsByPKRange(Object from, Object to) {
+        return getRowsByPKRange(from, BPlusTree.RangePolicy.INCLUSIVE, to, BPlusTree.RangePolicy.INCLUSIVE);
+    }
+
+    /**
+     * Récupère les lignes dont la clé primaire est comprise entre deux bornes, triées par clé primaire.
+     * Les partitions concernées sont parcourues en parallèle ; avec une répartition par hachage, leurs résultats
+     * (chacun trié) sont ensuite fusionnés.
+     *
+     * @param from       la borne inférieure, ou null pour partir de la plus petite clé.
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure.
+     * @param to         la borne supérieure, ou null pour aller jusqu'à la plus grande clé.
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure.
+     * @return la liste des lignes dont la clé primaire est comprise entre les deux bornes.
+     */
+    public List<Object[]> getRowsByPKRange(Object from, BPlusTree.RangePolicy fromPolicy, Object to, BPlusTree.RangePolicy toPolicy) {
+        int first = 0, last = partitions.length - 1;
+        if (splitKeys != null) {
+            first = from != null ? partitionIndex(from) : 0;
+            last = to != null ? partitionIndex(to) : partitions.length - 1;
+            if (first > last)
+                return new ArrayList<>();
+        }
+        List<List<Object[]>> results = Arrays.stream(partitions, first, last + 1)
+                .parallel()
+                .map(partition -> {
+                    synchronized (partition) {
+                        return partition.getRowsByPKRange(from, fromPolicy, to, toPolicy);
+                    }
+                })
+                .toList();
+
+        if (splitKeys != null) {
+            // Les partitions sont dans l'ordre des clés : il suffit de concaténer leurs lignes
+            List<Object[]> rows = new ArrayList<>();
+            for (List<Object[]> result : results) {
+                rows.addAll(result);
+            }
+            return rows;
+        }
+        return merge(results);
+    }
+
+    /**
+     * Récupère le nombre de lignes de la table, toutes partitions confondues.
+     *
+     * @return le nombre de lignes.
+     */
+    public int numRows() {
+        int rows = 0;
+        for (Table partition : partitions) {
+            synchronized (partition) {
+                rows += partition.numRows();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Récupère le nombre de partitions.
+     *
+     * @return le nombre de partitions.
+     */
+    public int numPartitions() {
+        return partitions.length;
+    }
+
+    /**
+     * Récupère une partition. Ses modifications doivent passer par la table partitionnée, pour que chaque
+     * ligne reste dans la partition de sa clé primaire.
+     *
+     * @param index l'indice de la partition.
+     * @return la partition.
+     */
+    public Table getPartition(int index) {
+        return partitions[index];
+    }
+
+    /**
+     * Retourne la partition à laquelle appartient une clé primaire.
+     *
+     * @param pk la clé primaire.
+     * @return la partition de la clé.
+     */
+    public Table partitionOf(Object pk) {
+        return partitions[partitionIndex(pk)];
+    }
+
+    private int partitionIndex(Object pk) {
+        if (splitKeys == null) {
+            int hash = pk.hashCode() * 0x9E3779B9;
+            return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+        }
+        int low = 0, high = splitKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(splitKeys[mid], pk) <= 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Fusionne des listes de lignes triées par clé primaire (fusion à k voies).
+     *
+     * @param results les listes de lignes, chacune triée par clé primaire.
+     * @return les lignes de toutes les listes, triées par clé primaire.
+     */
+    private static List<Object[]> merge(List<List<Object[]>> results) {
+        int total = 0;
+        // Chaque curseur est [indice de la liste, position dans la liste]
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, results.size()),
+                (a, b) -> compare(results.get(a[0]).get(a[1])[0], results.get(b[0]).get(b[1])[0]));
+        for (int i = 0; i < results.size(); i++) {
+            total += results.get(i).size();
+            if (!results.get(i).isEmpty()) {
+                cursors.add(new int[]{i, 0});
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(total);
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            List<Object[]> result = results.get(cursor[0]);
+            rows.add(result.get(cursor[1]));
+            if (++cursor[1] < result.size()) {
+                cursors.add(cursor);
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+}
@@ -0,0 +1,1022 @@
+package fr.miage.fsgbd;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Arbre B+ à clés primitives associées à des identifiants de ligne : la logique des noeuds est commune,
+ * les sous-classes ne fournissent que le stockage des clés (int[], long[]...) et leur recherche dichotomique.
+ * Les clés sont passées aux méthodes de l'arbre sous la forme d'un long dont l'ordre naturel est celui des clés
+ * (voir {@link #toKey(Object)}), sans boxing.
+ * Un instantané de l'arbre ({@link #snapshot()}) partage ses noeuds : l'arbre copie un noeud partagé avant de le modifier,
+ * ainsi que le chemin qui y mène depuis la racine. Les feuilles ne sont donc pas chaînées entre elles ; un parcours
+ * d'intervalle passe d'une feuille à la suivante en remontant vers leur ancêtre commun.
+ *
+ * @param <T> le type boxé des clés, pour l'interface {@link IIndex}
+ * @param <K> le type du tableau stockant les clés d'un noeud
+ */
+abstract class PrimitiveBPlusTree<T, K> implements IIndex<T>, Cloneable {
+    /**
+     * Nombre à partir duquel on considère qu'un noeud est plein et doit être séparé en deux.
+     */
+    private final int branchingFactor;
+    /**
+     * La racine de l'arbre.
+     */
+    private Node root;
+    /**
+     * La génération courante de l'arbre : seuls les noeuds créés pendant cette génération peuvent être modifiés
+     * en place, les autres sont partagés avec un instantané.
+     */
+    private Object generation = new Object();
+
+    /**
+     * Crée un arbre B+ avec un facteur de branche donné.
+     *
+     * @param branchingFactor le facteur de branche déclenchant la séparation d'un noeud.
+     */
+    PrimitiveBPlusTree(int branchingFactor) {
+        if (branchingFactor <= 2)
+            throw new IllegalArgumentException("Illegal branching factor: " + branchingFactor);
+
+        this.branchingFactor = branchingFactor;
+        root = new LeafNode();
+    }
+
+    /**
+     * Crée un tableau de clés.
+     *
+     * @param length la taille du tableau
+     * @return le nouveau tableau
+     */
+    abstract K newKeys(int length);
+
+    /**
+     * Retourne la taille d'un tableau de clés.
+     *
+     * @param keys le tableau de clés
+     * @return sa taille
+     */
+    abstract int length(K keys);
+
+    /**
+     * Lit une clé dans un tableau de clés.
+     *
+     * @param keys  le tableau de clés
+     * @param index la position de la clé
+     * @return la clé, sous forme de long
+     */
+    abstract long key(K keys, int index);
+
+    /**
+     * Écrit une clé dans un tableau de clés.
+     *
+     * @param keys  le tableau de clés
+     * @param index la position de la clé
+     * @param key   la clé, sous forme de long
+     */
+    abstract void setKey(K keys, int index, long key);
+
+    /**
+     * Recherche dichotomique d'une clé parmi les premières clés d'un tableau trié.
+     *
+     * @param keys  le tableau de clés
+     * @param count le nombre de clés valides dans le tableau
+     * @param key   la clé à chercher, sous forme de long
+     * @return la position de la clé si elle est présente, sinon (-(point d'insertion) - 1)
+     */
+    abstract int locate(K keys, int count, long key);
+
+    /**
+     * Trie des couples (clé, ligne) par clé croissante (tri stable, sans boxing).
+     *
+     * @param keys  les clés à trier
+     * @param rows  les lignes associées, déplacées avec leur clé
+     * @param count le nombre de couples à trier
+     */
+    abstract void sort(K keys, int[] rows, int count);
+
+    /**
+     * Convertit une clé boxée en long, en conservant l'ordre des clés.
+     *
+     * @param value la clé boxée
+     * @return la clé sous forme de long
+     */
+    abstract long toKey(T value);
+
+    /**
+     * Convertit une clé sous forme de long en clé boxée (affichage et messages d'erreur).
+     *
+     * @param key la clé sous forme de long
+     * @return la clé boxée
+     */
+    abstract T fromKey(long key);
+
+    /**
+     * Retourne un instantané de l'arbre en O(1) : l'instantané et l'arbre partagent leurs noeuds, et l'arbre
+     * copie ensuite chaque noeud partagé qu'il modifie. L'instantané ne doit pas être modifié.
+     *
+     * @return l'instantané de l'arbre
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public PrimitiveBPlusTree<T, K> snapshot() {
+        PrimitiveBPlusTree<T, K> copy;
+        try {
+            copy = (PrimitiveBPlusTree<T, K>) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.generation = new Object();
+        generation = new Object();
+        return copy;
+    }
+
+    /**
+     * Cherche la ligne associée à une clé.
+     *
+     * @param key la clé à chercher, sous forme de long.
+     * @return la ligne associée à la clé, ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    final int searchKey(long key) {
+        LeafNode leaf = findLeaf(key);
+        int loc = locate(leaf.keys, leaf.keyCount, key);
+        return loc >= 0 ? leaf.rows[loc] : -1;
+    }
+
+    /**
+     * Cherche les lignes associées à un lot de clés. Les clés sont triées puis cherchées en un seul parcours
+     * de l'arbre : chaque noeud est visité une seule fois pour toutes les clés de son intervalle, les descentes
+     * partagent donc leur chemin depuis la racine et les feuilles sont lues dans l'ordre des clés.
+     *
+     * @param keys  les clés à chercher (le tableau est trié en place).
+     * @param count le nombre de clés à chercher.
+     * @param rows  reçoit, pour chaque clé, la ligne associée ou -1 si la clé n'est pas présente dans l'arbre.
+     */
+    final void searchAllKeys(K keys, int count, int[] rows) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        sort(keys, positions, count);
+        if (count > 0)
+            root.searchAll(keys, positions, 0, count, rows);
+    }
+
+    /**
+     * Insère une ligne dans l'arbre.
+     *
+     * @param key     la clé à insérer, sous forme de long.
+     * @param row     la ligne associée à la clé.
+     * @param replace true pour remplacer la ligne si la clé est déjà présente.
+     * @return true si la ligne a été insérée, false si la clé était déjà présente.
+     */
+    final boolean insertKey(long key, int row, boolean replace) {
+        root = writable(root);
+        if (!root.insertValue(key, row, replace))
+            return false;
+        if (root.isOverflow()) {
+            Node sibling = root.split();
+            InternalNode newRoot = new InternalNode();
+            setKey(newRoot.keys, 0, sibling.getFirstLeafKey());
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            newRoot.keyCount = 1;
+            root = newRoot;
+        }
+        return true;
+    }
+
+    /**
+     * Supprime une clé de l'arbre.
+     *
+     * @param key la clé à supprimer, sous forme de long.
+     */
+    final void deleteKey(long key) {
+        root = writable(root);
+        root.deleteValue(key);
+        if (root instanceof InternalNode && root.keyCount == 0)
+            root = ((InternalNode) root).children[0];
+    }
+
+    /**
+     * Retourne un itérateur paresseux sur les lignes dont la clé est comprise entre deux bornes, dans l'ordre des clés.
+     *
+     * @param hasLower   false pour partir de la plus petite clé
+     * @param from       la borne inférieure, sous forme de long
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure
+     * @param hasUpper   false pour aller jusqu'à la plus grande clé
+     * @param to         la borne supérieure, sous forme de long
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure
+     * @return un itérateur sur les lignes comprises entre les deux bornes
+     */
+    final PrimitiveIterator.OfInt rangeIterator(boolean hasLower, long from, BPlusTree.RangePolicy fromPolicy,
+                                                boolean hasUpper, long to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(hasLower, from, fromPolicy, hasUpper, to, toPolicy);
+    }
+
+    /**
+     * Remplace le contenu de l'arbre par les couples (clé, ligne) donnés, en construisant l'arbre de bas en haut :
+     * les couples sont triés, les feuilles sont remplies séquentiellement puis chaque niveau interne est construit
+     * à partir du niveau inférieur.
+     *
+     * @param sortedKeys les clés à charger (le tableau est trié en place).
+     * @param sortedRows les lignes associées aux clés (le tableau est trié en place).
+     * @param count      le nombre de couples à charger.
+     * @param fillFactor le taux de remplissage des noeuds, entre 0 (exclu) et 1.
+     * @throws IllegalArgumentException si le taux de remplissage est invalide ou si une clé est présente plusieurs fois.
+     */
+    final void bulkLoadKeys(K sortedKeys, int[] sortedRows, int count, double fillFactor) {
+        if (fillFactor <= 0 || fillFactor > 1)
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+
+        sort(sortedKeys, sortedRows, count);
+        for (int i = 1; i < count; i++) {
+            if (key(sortedKeys, i) == key(sortedKeys, i - 1))
+                throw new IllegalArgumentException("Duplicate key: " + fromKey(key(sortedKeys, i)));
+        }
+
+        int leafCapacity = BPlusTree.nodeCapacity(branchingFactor - 1, branchingFactor / 2, fillFactor);
+        int leafCount = Math.max(1, (count + leafCapacity - 1) / leafCapacity);
+        Node[] level = newNodes(leafCount);
+        int offset = 0;
+        for (int i = 0; i < leafCount; i++) {
+            int size = count / leafCount + (i < count % leafCount ? 1 : 0);
+            LeafNode leaf = new LeafNode();
+            System.arraycopy(sortedKeys, offset, leaf.keys, 0, size);
+            System.arraycopy(sortedRows, offset, leaf.rows, 0, size);
+            leaf.keyCount = size;
+            offset += size;
+            level[i] = leaf;
+        }
+
+        int levelSize = leafCount;
+        int childCapacity = BPlusTree.nodeCapacity(branchingFactor, (branchingFactor + 1) / 2, fillFactor);
+        while (levelSize > 1) {
+            int parentCount = BPlusTree.parentCount(levelSize, childCapacity);
+            offset = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int size = levelSize / parentCount + (i < levelSize % parentCount ? 1 : 0);
+                InternalNode parent = new InternalNode();
+                for (int j = 0; j < size; j++) {
+                    parent.children[j] = level[offset + j];
+                    if (j > 0)
+                        setKey(parent.keys, j - 1, level[offset + j].getFirstLeafKey());
+                }
+                parent.keyCount = size - 1;
+                offset += size;
+                level[i] = parent;
+            }
+            levelSize = parentCount;
+        }
+        root = level[0];
+    }
+
+    /**
+     * Insère un lot de couples (clé, ligne), sauf ceux dont la clé est déjà présente dans l'arbre ou apparaît
+     * plus tôt dans le lot. Les couples sont triés puis fusionnés dans l'arbre en un seul parcours de gauche à droite :
+     * chaque noeud traversé reçoit en une fois toutes les clés de son intervalle, au lieu d'une descente
+     * depuis la racine par clé, et les noeuds trop remplis sont séparés en autant de noeuds que nécessaire.
+     *
+     * @param sortedKeys les clés à insérer (le tableau est trié en place).
+     * @param rows       les lignes associées aux clés.
+     * @param count      le nombre de couples à insérer.
+     * @param inserted   reçoit, pour chaque couple, true s'il a été inséré et false sinon.
+     * @return le nombre de couples insérés.
+     */
+    final int insertAllKeysIfAbsent(K sortedKeys, int[] rows, int count, boolean[] inserted) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        sort(sortedKeys, positions, count);
+
+        // Le tri est stable : seule la première occurrence d'une clé dans le lot est conservée
+        int[] sortedRows = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct > 0 && key(sortedKeys, i) == key(sortedKeys, distinct - 1)) {
+                inserted[positions[i]] = false;
+                continue;
+            }
+            setKey(sortedKeys, distinct, key(sortedKeys, i));
+            positions[distinct] = positions[i];
+            sortedRows[distinct++] = rows[positions[i]];
+        }
+
+        boolean[] added = new boolean[distinct];
+        if (distinct > 0) {
+            root = writable(root);
+            Node[] siblings = root.insertAll(sortedKeys, sortedRows, 0, distinct, added);
+            while (siblings.length > 0) {
+                Node[] children = newNodes(siblings.length + 1);
+                long[] separators = new long[siblings.length];
+                children[0] = root;
+                for (int i = 0; i < siblings.length; i++) {
+                    children[i + 1] = siblings[i];
+                    separators[i] = siblings[i].getFirstLeafKey();
+                }
+                InternalNode newRoot = new InternalNode();
+                siblings = newRoot.distribute(separators, children, children.length);
+                root = newRoot;
+            }
+        }
+
+        int insertedCount = 0;
+        for (int i = 0; i < distinct; i++) {
+            inserted[positions[i]] = added[i];
+            if (added[i])
+                insertedCount++;
+        }
+        return insertedCount;
+    }
+
+    /**
+     * Convertit un lot de clés boxées en tableau de clés.
+     *
+     * @param keys les clés boxées
+     * @return le tableau de clés
+     */
+    private K toKeys(List<T> keys) {
+        K primitiveKeys = newKeys(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            setKey(primitiveKeys, i, toKey(keys.get(i)));
+        }
+        return primitiveKeys;
+    }
+
+    @Override
+    public int search(T key) {
+        return searchKey(toKey(key));
+    }
+
+    @Override
+    public void searchAll(List<T> keys, int[] rows) {
+        searchAllKeys(toKeys(keys), keys.size(), rows);
+    }
+
+    @Override
+    public void insert(T key, int row) {
+        insertKey(toKey(key), row, true);
+    }
+
+    @Override
+    public boolean insertIfAbsent(T key, int row) {
+        return insertKey(toKey(key), row, false);
+    }
+
+    @Override
+    public void delete(T key) {
+        deleteKey(toKey(key));
+    }
+
+    @Override
+    public void shiftRows(int removedRow) {
+        root = writable(root);
+        root.shiftRows(removedRow);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt rangeIterator(T from, BPlusTree.RangePolicy fromPolicy, T to, BPlusTree.RangePolicy toPolicy) {
+        return new RangeIterator(from != null, from != null ? toKey(from) : 0, fromPolicy, to != null, to != null ? toKey(to) : 0, toPolicy);
+    }
+
+    @Override
+    public int insertAllIfAbsent(List<T> keys, int[] rows, boolean[] inserted) {
+        return insertAllKeysIfAbsent(toKeys(keys), rows, keys.size(), inserted);
+    }
+
+    @Override
+    public void bulkLoad(List<T> keys, int[] rows, double fillFactor) {
+        bulkLoadKeys(toKeys(keys), Arrays.copyOf(rows, keys.size()), keys.size(), fillFactor);
+    }
+
+    @Override
+    public DefaultMutableTreeNode toJTree() {
+        return toJTree(root);
+    }
+
+    private DefaultMutableTreeNode toJTree(Node node) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < node.keyCount; i++) {
+            if (sb.length() > 0)
+                sb.append(' ');
+
+            sb.append("(");
+            sb.append(fromKey(key(node.keys, i)));
+            if (node instanceof LeafNode) {
+                sb.append(",");
+                sb.append(((LeafNode) node).rows[i]);
+            }
+            sb.append(")");
+        }
+
+        DefaultMutableTreeNode treeNode = new DefaultMutableTreeNode(sb.toString(), true);
+        if (node instanceof InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            for (int i = 0; i <= internal.keyCount; i++) {
+                treeNode.add(toJTree(internal.children[i]));
+            }
+        }
+
+        return treeNode;
+    }
+
+    /**
+     * Retourne la feuille dans laquelle se trouve (ou se trouverait) une clé.
+     *
+     * @param key la clé à chercher
+     * @return la feuille correspondante
+     */
+    private LeafNode findLeaf(long key) {
+        Node node = root;
+        while (node instanceof InternalNode) {
+            InternalNode internal = (InternalNode) node;
+            node = internal.children[internal.getChildIndex(key)];
+        }
+        return (LeafNode) node;
+    }
+
+    /**
+     * Retourne un noeud modifiable en place : le noeud lui-même s'il a été créé pendant la génération courante,
+     * sinon une copie (le noeud est partagé avec un instantané).
+     *
+     * @param node le noeud à modifier
+     * @return le noeud ou sa copie
+     */
+    private Node writable(Node node) {
+        return node.generation == generation ? node : node.copy();
+    }
+
+    /**
+     * Copie un tableau de clés dans un tableau plus grand.
+     *
+     * @param keys   le tableau à copier
+     * @param length la taille du nouveau tableau
+     * @return le nouveau tableau
+     */
+    private K grow(K keys, int length) {
+        K copy = newKeys(length);
+        System.arraycopy(keys, 0, copy, 0, length(keys));
+        return copy;
+    }
+
+    /**
+     * Crée un tableau de noeuds (la classe Node dépend des paramètres de l'arbre, le tableau ne peut pas être créé directement).
+     *
+     * @param length la taille du tableau
+     * @return le nouveau tableau
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node[] newNodes(int length) {
+        return (Node[]) new PrimitiveBPlusTree.Node[length];
+    }
+
+    /**
+     * Cette classe abstraite représente un noeud de l'arbre.
+     */
+    private abstract class Node {
+        /**
+         * Les clés de ce noeud (seules les keyCount premières sont valides).
+         */
+        K keys;
+        /**
+         * Le nombre de clés dans ce noeud.
+         */
+        int keyCount;
+        /**
+         * La génération de l'arbre pendant laquelle ce noeud a été créé.
+         */
+        final Object generation = PrimitiveBPlusTree.this.generation;
+
+        /**
+         * Copie ce noeud dans la génération courante de l'arbre (les enfants restent partagés).
+         *
+         * @return la copie du noeud
+         */
+        abstract Node copy();
+
+        /**
+         * Cherche dans ce sous-arbre les clés [from, to) d'un lot trié.
+         *
+         * @param probes    les clés du lot, triées
+         * @param positions la position de chaque clé dans le lot d'origine
+         * @param from      la première clé à chercher
+         * @param to        la fin (exclue) des clés à chercher
+         * @param results   reçoit la ligne de chaque clé à sa position d'origine, ou -1
+         */
+        abstract void searchAll(K probes, int[] positions, int from, int to, int[] results);
+
+        abstract boolean insertValue(long key, int row, boolean replace);
+
+        /**
+         * Insère dans ce sous-arbre les couples [from, to) d'un lot trié, aux clés distinctes.
+         * Si le noeud déborde, il est séparé en plusieurs noeuds.
+         *
+         * @param newKeys les clés du lot, triées
+         * @param newRows les lignes associées aux clés
+         * @param from    le premier couple à insérer
+         * @param to      la fin (exclue) des couples à insérer
+         * @param added   reçoit, pour chaque couple, true s'il a été inséré et false si sa clé était déjà présente
+         * @return les noeuds créés à droite de ce noeud, dans l'ordre des clés (éventuellement aucun)
+         */
+        abstract Node[] insertAll(K newKeys, int[] newRows, int from, int to, boolean[] added);
+
+        abstract void deleteValue(long key);
+
+        /**
+         * Décale les lignes de ce sous-arbre situées après une ligne supprimée, en copiant les noeuds partagés.
+         *
+         * @param removedRow la ligne supprimée
+         */
+        abstract void shiftRows(int removedRow);
+
+        abstract long getFirstLeafKey();
+
+        abstract void merge(Node sibling);
+
+        abstract Node split();
+
+        abstract boolean isOverflow();
+
+        abstract boolean isUnderflow();
+    }
+
+    /**
+     * Cette classe représente un noeud interne de l'arbre : keyCount clés et keyCount + 1 enfants.
+     */
+    private class InternalNode extends Node {
+        /**
+         * Les enfants de ce noeud.
+         */
+        Node[] children;
+
+        InternalNode() {
+            this(newKeys(branchingFactor), newNodes(branchingFactor + 1));
+        }
+
+        InternalNode(K keys, Node[] children) {
+            this.keys = keys;
+            this.children = children;
+        }
+
+        @Override
+        Node copy() {
+            InternalNode node = new InternalNode(grow(keys, length(keys)), children.clone());
+            node.keyCount = keyCount;
+            return node;
+        }
+
+        /**
+         * Retourne un enfant modifiable en place, en le copiant s'il est partagé avec un instantané.
+         *
+         * @param childIndex la position de l'enfant
+         * @return l'enfant, modifiable en place
+         */
+        Node writableChild(int childIndex) {
+            Node child = writable(children[childIndex]);
+            children[childIndex] = child;
+            return child;
+        }
+
+        @Override
+        void shiftRows(int removedRow) {
+            for (int c = 0; c <= keyCount; c++) {
+                writableChild(c).shiftRows(removedRow);
+            }
+        }
+
+        @Override
+        boolean insertValue(long key, int row, boolean replace) {
+            int childIndex = getChildIndex(key);
+            Node child = writableChild(childIndex);
+            if (!child.insertValue(key, row, replace))
+                return false;
+            if (child.isOverflow()) {
+                Node sibling = child.split();
+                insertChild(childIndex, sibling.getFirstLeafKey(), sibling);
+            }
+            return true;
+        }
+
+        @Override
+        void searchAll(K probes, int[] positions, int from, int to, int[] results) {
+            int start = from;
+            while (start < to) {
+                // Les clés suivantes inférieures à la clé de séparation de l'enfant vont au même enfant
+                int childIndex = getChildIndex(key(probes, start));
+                int end = start + 1;
+                while (end < to && (childIndex == keyCount || key(probes, end) < key(keys, childIndex)))
+                    end++;
+                children[childIndex].searchAll(probes, positions, start, end, results);
+                start = end;
+            }
+        }
+
+        @Override
+        Node[] insertAll(K newKeys, int[] newRows, int from, int to, boolean[] added) {
+            long[] mergedKeys = new long[keyCount + 1];
+            Node[] mergedChildren = newNodes(keyCount + 1);
+            int count = 0;
+            int start = from;
+            for (int c = 0; c <= keyCount; c++) {
+                // Les clés inférieures à la c-ième clé de séparation vont au c-ième enfant
+                int end = start;
+                while (end < to && (c == keyCount || key(newKeys, end) < key(keys, c)))
+                    end++;
+
+                Node child = start < end ? writableChild(c) : children[c];
+                Node[] siblings = start < end ? child.insertAll(newKeys, newRows, start, end, added) : null;
+                int needed = count + 1 + (siblings != null ? siblings.length : 0);
+                if (needed > mergedChildren.length) {
+                    int capacity = Math.max(needed, 2 * mergedChildren.length);
+                    mergedKeys = Arrays.copyOf(mergedKeys, capacity);
+                    mergedChildren = Arrays.copyOf(mergedChildren, capacity);
+                }
+                if (count > 0)
+                    mergedKeys[count - 1] = key(keys, c - 1);
+                mergedChildren[count++] = child;
+                if (siblings != null) {
+                    for (Node sibling : siblings) {
+                        mergedKeys[count - 1] = sibling.getFirstLeafKey();
+                        mergedChildren[count++] = sibling;
+                    }
+                }
+                start = end;
+            }
+            return distribute(mergedKeys, mergedChildren, count);
+        }
+
+        @Override
+        void deleteValue(long key) {
+            int childIndex = getChildIndex(key);
+            Node child = writableChild(childIndex);
+            child.deleteValue(key);
+            if (child.isUnderflow()) {
+                int leftIndex = childIndex > 0 ? childIndex - 1 : childIndex;
+                if (leftIndex + 1 > keyCount)
+                    return;
+                Node left = writableChild(leftIndex);
+                Node right = children[leftIndex + 1];
+                left.merge(right);
+                deleteChild(leftIndex);
+                if (left.isOverflow()) {
+                    Node sibling = left.split();
+                    insertChild(leftIndex, sibling.getFirstLeafKey(), sibling);
+                }
+            }
+        }
+
+        @Override
+        long getFirstLeafKey() {
+            return children[0].getFirstLeafKey();
+        }
+
+        @Override
+        void merge(Node sibling) {
+            InternalNode node = (InternalNode) sibling;
+            int newCount = keyCount + 1 + node.keyCount;
+            if (newCount >= length(keys)) {
+                keys = grow(keys, newCount + 1);
+                children = Arrays.copyOf(children, newCount + 2);
+            }
+            setKey(keys, keyCount, node.getFirstLeafKey());
+            System.arraycopy(node.keys, 0, keys, keyCount + 1, node.keyCount);
+            System.arraycopy(node.children, 0, children, keyCount + 1, node.keyCount + 1);
+            keyCount = newCount;
+        }
+
+        @Override
+        Node split() {
+            int from = keyCount / 2 + 1, to = keyCount;
+            InternalNode sibling = new InternalNode();
+            sibling.keyCount = to - from;
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(children, from, sibling.children, 0, to - from + 1);
+
+            Arrays.fill(children, from, to + 1, null);
+            keyCount = from - 1;
+
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyCount + 1 > branchingFactor;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyCount + 1 < (branchingFactor + 1) / 2;
+        }
+
+        /**
+         * Retourne la position de l'enfant correspondant à la clé donnée en paramètre.
+         *
+         * @param key la clé pour laquelle récupérer la position de l'enfant
+         * @return la position de l'enfant correspondant à la clé
+         */
+        int getChildIndex(long key) {
+            int loc = locate(keys, keyCount, key);
+            return loc >= 0 ? loc + 1 : -loc - 1;
+        }
+
+        /**
+         * Répartit des enfants entre ce noeud et autant de nouveaux noeuds que nécessaire, de tailles égales.
+         *
+         * @param newKeys     les clés de séparation : newKeys[i] sépare les enfants i et i + 1
+         * @param newChildren les enfants à répartir
+         * @param childCount  le nombre d'enfants
+         * @return les noeuds créés à droite de ce noeud (éventuellement aucun)
+         */
+        Node[] distribute(long[] newKeys, Node[] newChildren, int childCount) {
+            int pieces = (childCount + branchingFactor - 1) / branchingFactor;
+            Node[] siblings = newNodes(pieces - 1);
+            InternalNode node = this;
+            int offset = 0;
+            for (int p = 0; p < pieces; p++) {
+                int size = childCount / pieces + (p < childCount % pieces ? 1 : 0);
+                if (p > 0) {
+                    node = new InternalNode();
+                    siblings[p - 1] = node;
+                }
+                System.arraycopy(newChildren, offset, node.children, 0, size);
+                Arrays.fill(node.children, size, node.children.length, null);
+                for (int i = 0; i < size - 1; i++) {
+                    setKey(node.keys, i, newKeys[offset + i]);
+                }
+                node.keyCount = size - 1;
+                offset += size;
+            }
+            return siblings;
+        }
+
+        /**
+         * Insère un enfant à droite de l'enfant situé à une position donnée.
+         *
+         * @param childIndex la position de l'enfant à gauche du nouvel enfant
+         * @param key        la clé de séparation
+         * @param child      l'enfant à insérer
+         */
+        void insertChild(int childIndex, long key, Node child) {
+            System.arraycopy(keys, childIndex, keys, childIndex + 1, keyCount - childIndex);
+            System.arraycopy(children, childIndex + 1, children, childIndex + 2, keyCount - childIndex);
+            setKey(keys, childIndex, key);
+            children[childIndex + 1] = child;
+            keyCount++;
+        }
+
+        /**
+         * Supprime l'enfant situé à droite de la clé de séparation donnée, ainsi que cette clé.
+         *
+         * @param keyIndex la position de la clé de séparation
+         */
+        void deleteChild(int keyIndex) {
+            System.arraycopy(keys, keyIndex + 1, keys, keyIndex, keyCount - keyIndex - 1);
+            System.arraycopy(children, keyIndex + 2, children, keyIndex + 1, keyCount - keyIndex - 1);
+            children[keyCount] = null;
+            keyCount--;
+        }
+    }
+
+    /**
+     * Cette classe représente une feuille de l'arbre : des clés et les lignes associées.
+     */
+    private class LeafNode extends Node {
+        /**
+         * Les lignes associées aux clés de cette feuille.
+         */
+        int[] rows;
+
+        LeafNode() {
+            this(newKeys(branchingFactor), new int[branchingFactor]);
+        }
+
+        LeafNode(K keys, int[] rows) {
+            this.keys = keys;
+            this.rows = rows;
+        }
+
+        @Override
+        Node copy() {
+            LeafNode node = new LeafNode(grow(keys, length(keys)), rows.clone());
+            node.keyCount = keyCount;
+            return node;
+        }
+
+        @Override
+        void shiftRows(int removedRow) {
+            for (int i = 0; i < keyCount; i++) {
+                if (rows[i] > removedRow)
+                    rows[i]--;
+            }
+        }
+
+        @Override
+        boolean insertValue(long key, int row, boolean replace) {
+            int loc = locate(keys, keyCount, key);
+            if (loc >= 0) {
+                if (replace)
+                    rows[loc] = row;
+                return false;
+            }
+            int index = -loc - 1;
+            System.arraycopy(keys, index, keys, index + 1, keyCount - index);
+            System.arraycopy(rows, index, rows, index + 1, keyCount - index);
+            setKey(keys, index, key);
+            rows[index] = row;
+            keyCount++;
+            return true;
+        }
+
+        @Override
+        void searchAll(K probes, int[] positions, int from, int to, int[] results) {
+            for (int i = from; i < to; i++) {
+                int loc = locate(keys, keyCount, key(probes, i));
+                results[positions[i]] = loc >= 0 ? rows[loc] : -1;
+            }
+        }
+
+        @Override
+        Node[] insertAll(K newKeys, int[] newRows, int from, int to, boolean[] added) {
+            // Fusion des clés de la feuille et du lot ; les clés déjà présentes ne sont pas insérées
+            K mergedKeys = newKeys(keyCount + to - from);
+            int[] mergedRows = new int[keyCount + to - from];
+            int i = 0, j = from, count = 0;
+            while (i < keyCount || j < to) {
+                long key = i < keyCount ? key(keys, i) : 0;
+                if (j == to || (i < keyCount && key < key(newKeys, j))) {
+                    setKey(mergedKeys, count, key);
+                    mergedRows[count++] = rows[i++];
+                } else if (i < keyCount && key == key(newKeys, j)) {
+                    added[j++] = false;
+                } else {
+                    setKey(mergedKeys, count, key(newKeys, j));
+                    mergedRows[count++] = newRows[j];
+                    added[j++] = true;
+                }
+            }
+
+            int pieces = Math.max(1, (count + branchingFactor - 2) / (branchingFactor - 1));
+            Node[] siblings = newNodes(pieces - 1);
+            LeafNode leaf = this;
+            int offset = 0;
+            for (int p = 0; p < pieces; p++) {
+                int size = count / pieces + (p < count % pieces ? 1 : 0);
+                if (p > 0) {
+                    LeafNode sibling = new LeafNode();
+                    leaf = sibling;
+                    siblings[p - 1] = sibling;
+                }
+                System.arraycopy(mergedKeys, offset, leaf.keys, 0, size);
+                System.arraycopy(mergedRows, offset, leaf.rows, 0, size);
+                leaf.keyCount = size;
+                offset += size;
+            }
+            return siblings;
+        }
+
+        @Override
+        void deleteValue(long key) {
+            int loc = locate(keys, keyCount, key);
+            if (loc >= 0) {
+                System.arraycopy(keys, loc + 1, keys, loc, keyCount - loc - 1);
+                System.arraycopy(rows, loc + 1, rows, loc, keyCount - loc - 1);
+                keyCount--;
+            }
+        }
+
+        @Override
+        long getFirstLeafKey() {
+            return key(keys, 0);
+        }
+
+        @Override
+        void merge(Node sibling) {
+            LeafNode node = (LeafNode) sibling;
+            int newCount = keyCount + node.keyCount;
+            if (newCount > length(keys)) {
+                keys = grow(keys, newCount);
+                rows = Arrays.copyOf(rows, newCount);
+            }
+            System.arraycopy(node.keys, 0, keys, keyCount, node.keyCount);
+            System.arraycopy(node.rows, 0, rows, keyCount, node.keyCount);
+            keyCount = newCount;
+        }
+
+        @Override
+        Node split() {
+            LeafNode sibling = new LeafNode();
+            int from = (keyCount + 1) / 2, to = keyCount;
+            sibling.keyCount = to - from;
+            System.arraycopy(keys, from, sibling.keys, 0, to - from);
+            System.arraycopy(rows, from, sibling.rows, 0, to - from);
+            keyCount = from;
+            return sibling;
+        }
+
+        @Override
+        boolean isOverflow() {
+            return keyCount > branchingFactor - 1;
+        }
+
+        @Override
+        boolean isUnderflow() {
+            return keyCount < branchingFactor / 2;
+        }
+    }
+
+    /**
+     * Itérateur parcourant les feuilles entre deux bornes. Il garde le chemin de la racine à la feuille courante
+     * pour passer à la feuille suivante sans chaînage entre les feuilles.
+     */
+    private class RangeIterator implements PrimitiveIterator.OfInt {
+        private final boolean hasUpper;
+        private final long upperKey;
+        private final BPlusTree.RangePolicy upperPolicy;
+        /**
+         * Les noeuds internes entre la racine et la feuille courante, et la position de l'enfant suivi dans chacun.
+         */
+        private final Node[] parents;
+        private final int[] slots;
+        private LeafNode leaf;
+        private int position;
+
+        RangeIterator(boolean hasLower, long lowerKey, BPlusTree.RangePolicy lowerPolicy,
+                      boolean hasUpper, long upperKey, BPlusTree.RangePolicy upperPolicy) {
+            this.hasUpper = hasUpper;
+            this.upperKey = upperKey;
+            this.upperPolicy = upperPolicy;
+            // Toutes les feuilles sont à la même profondeur
+            int depth = 0;
+            for (Node node = root; node instanceof InternalNode; node = ((InternalNode) node).children[0]) {
+                depth++;
+            }
+            parents = newNodes(depth);
+            slots = new int[depth];
+            Node node = root;
+            for (int level = 0; level < depth; level++) {
+                InternalNode internal = (InternalNode) node;
+                parents[level] = internal;
+                slots[level] = hasLower ? internal.getChildIndex(lowerKey) : 0;
+                node = internal.children[slots[level]];
+            }
+            leaf = (LeafNode) node;
+            if (hasLower) {
+                int loc = locate(leaf.keys, leaf.keyCount, lowerKey);
+                position = loc >= 0 ? (lowerPolicy == BPlusTree.RangePolicy.INCLUSIVE ? loc : loc + 1) : -loc - 1;
+            }
+        }
+
+        /**
+         * Passe à la feuille suivante : remonte jusqu'au premier ancêtre ayant un enfant plus à droite,
+         * puis redescend par les enfants les plus à gauche.
+         */
+        private void nextLeaf() {
+            int level = parents.length - 1;
+            while (level >= 0 && slots[level] == parents[level].keyCount) {
+                level--;
+            }
+            if (level < 0) {
+                leaf = null;
+                return;
+            }
+            slots[level]++;
+            Node node = ((InternalNode) parents[level]).children[slots[level]];
+            for (level++; level < parents.length; level++) {
+                parents[level] = node;
+                slots[level] = 0;
+                node = ((InternalNode) node).children[0];
+            }
+            leaf = (LeafNode) node;
+            position = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (leaf != null && position >= leaf.keyCount) {
+                nextLeaf();
+            }
+            if (leaf == null)
+                return false;
+            if (hasUpper) {
+                long key = key(leaf.keys, position);
+                if (key > upperKey || (key == upperKey && upperPolicy == BPlusTree.RangePolicy.EXCLUSIVE)) {
+                    leaf = null;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return leaf.rows[position++];
+        }
+    }
+}
@@ -0,0 +1,839 @@
+package fr.miage.fsgbd;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Requête de sélection sur une table (voir {@link Table#select(String...)}) : une condition, une projection
+ * sur certaines colonnes et un nombre maximal de lignes.
+ * <p>
+ * Les agrégats ({@link #count()}, {@link #sum(String)}, {@link #avg(String)}, {@link #min(String)}, {@link #max(String)},
+ * {@link #groupBy(String, String)}) portent sur les lignes sélectionnées ; ils peuvent être calculés en parallèle
+ * (voir {@link #parallel(ForkJoinPool)}).
+ * <p>
+ * À l'exécution, un planificateur choisit le chemin d'accès aux lignes. Une égalité ou une liste IN sur une colonne
+ * indexée devient une recherche dans son index, des comparaisons sur une colonne indexée par un arbre B+ deviennent
+ * un parcours d'intervalle, et une disjonction dont toutes les branches ont un chemin d'accès devient l'union de
+ * ces chemins. Sinon, la table est parcourue. Les lignes candidates sont traitées par tranches d'environ 2000 lignes :
+ * seules les conditions non couvertes par le chemin d'accès sont évaluées, colonne par colonne sur le stockage
+ * des colonnes, et produisent un vecteur de sélection qui alimente la projection ou les agrégats.
+ * Les lignes sont retournées dans l'ordre du chemin d'accès ({@link #explain()} le décrit).
+ */
+public class Query {
+    /**
+     * Rangs des chemins d'accès : le planificateur retient celui de plus petit rang.
+     */
+    private static final int RANK_EMPTY = 0;
+    private static final int RANK_INDEX_LOOKUP = 1;
+    private static final int RANK_INDEX_IN = 2;
+    private static final int RANK_SECONDARY_LOOKUP = 3;
+    private static final int RANK_SECONDARY_IN = 4;
+    private static final int RANK_UNION = 5;
+    private static final int RANK_INDEX_RANGE = 6;
+    private static final int RANK_SECONDARY_RANGE = 7;
+    private static final int RANK_SCAN = 8;
+    /**
+     * Le nombre maximal de lignes parcourues par une tâche feuille d'une agrégation parallèle.
+     */
+    private static final int PARALLEL_THRESHOLD = 16 * ColumnVectors.CHUNK_SIZE;
+
+    /**
+     * La table interrogée.
+     */
+    private final Table table;
+    /**
+     * Les colonnes retournées, ou null pour toutes les colonnes.
+     */
+    private final int[] projection;
+    /**
+     * La condition des lignes sélectionnées, ou null pour toutes les lignes.
+     */
+    private Condition condition;
+    /**
+     * Le nombre maximal de lignes retournées, ou -1 sans limite.
+     */
+    private int limit = -1;
+    /**
+     * Le pool qui exécute les agrégats en parallèle, ou null pour une exécution séquentielle.
+     */
+    private ForkJoinPool pool;
+
+    Query(Table table, int[] projection) {
+        this.table = table;
+        this.projection = projection;
+    }
+
+    /**
+     * Ajoute une condition aux lignes sélectionnées (combinée avec AND aux conditions déjà ajoutées).
+     *
+     * @param condition la condition.
+     * @return cette requête.
+     */
+    public Query where(Condition condition) {
+        this.condition = this.condition == null ? condition : Condition.and(this.condition, condition);
+        return this;
+    }
+
+    /**
+     * Limite le nombre de lignes retournées. Le parcours s'arrête dès que la limite est atteinte.
+     *
+     * @param limit le nombre maximal de lignes.
+     * @return cette requête.
+     * @throws IllegalArgumentException si la limite est négative.
+     */
+    public Query limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Exécute la requête.
+     *
+     * @return les lignes sélectionnées, réduites aux colonnes de la projection.
+     * @throws IllegalArgumentException si la condition porte sur une colonne inexistante.
+     */
+    public List<Object[]> execute() {
+        List<Object[]> result = new ArrayList<>();
+        run(plan(condition), (rows, count) -> {
+            for (int i = 0; i < count && (limit < 0 || result.size() < limit); i++) {
+                result.add(project(rows[i]));
+            }
+            return limit < 0 || result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * Exécute les agrégats de la requête en parallèle dans un pool de fork/join : lorsque la table est parcourue,
+     * ses lignes sont découpées en intervalles traités par des tâches distinctes, dont les résultats partiels
+     * sont fusionnés à la jonction des tâches, sans verrou. La projection ({@link #execute()}) et les chemins
+     * d'accès par index restent séquentiels. La table ne doit pas être modifiée pendant l'exécution
+     * (interroger un instantané, voir {@link Table#snapshot()}, si des écritures sont possibles).
+     *
+     * @param pool le pool qui exécute les tâches.
+     * @return cette requête.
+     */
+    public Query parallel(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+        return this;
+    }
+
+    /**
+     * Exécute les agrégats de la requête en parallèle dans le pool commun (voir {@link #parallel(ForkJoinPool)}).
+     *
+     * @return cette requête.
+     */
+    public Query parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compte les lignes sélectionnées (sans tenir compte de la limite).
+     *
+     * @return le nombre de lignes sélectionnées.
+     * @throws IllegalArgumentException si la condition porte sur une colonne inexistante.
+     */
+    public long count() {
+        return aggregate(() -> new long[1], (count, rows, n) -> count[0] += n, (a, b) -> {
+            a[0] += b[0];
+            return a;
+        })[0];
+    }
+
+    /**
+     * Calcule la somme d'une colonne numérique sur les lignes sélectionnées (sans tenir compte de la limite).
+     * Les cellules vides sont ignorées.
+     *
+     * @param column le nom de la colonne.
+     * @return la somme (Long pour une colonne d'entiers, Double pour une colonne de doubles).
+     * @throws IllegalArgumentException si la colonne n'existe pas ou n'est pas numérique.
+     */
+    public Number sum(String column) {
+        return aggregate(column).sum();
+    }
+
+    /**
+     * Calcule la moyenne d'une colonne numérique sur les lignes sélectionnées (sans tenir compte de la limite).
+     * Les cellules vides sont ignorées.
+     *
+     * @param column le nom de la colonne.
+     * @return la moyenne, ou null si aucune valeur n'est sélectionnée.
+     * @throws IllegalArgumentException si la colonne n'existe pas ou n'est pas numérique.
+     */
+    public Double avg(String column) {
+        return aggregate(column).avg();
+    }
+
+    /**
+     * Calcule la plus petite valeur d'une colonne sur les lignes sélectionnées (sans tenir compte de la limite).
+     *
+     * @param column le nom de la colonne.
+     * @return la plus petite valeur non nulle, ou null si aucune valeur n'est sélectionnée.
+     * @throws IllegalArgumentException si la colonne n'existe pas.
+     */
+    public Object min(String column) {
+        return aggregate(column).min();
+    }
+
+    /**
+     * Calcule la plus grande valeur d'une colonne sur les lignes sélectionnées (sans tenir compte de la limite).
+     *
+     * @param column le nom de la colonne.
+     * @return la plus grande valeur non nulle, ou null si aucune valeur n'est sélectionnée.
+     * @throws IllegalArgumentException si la colonne n'existe pas.
+     */
+    public Object max(String column) {
+        return aggregate(column).max();
+    }
+
+    /**
+     * Calcule en un seul parcours tous les agrégats d'une colonne sur les lignes sélectionnées
+     * (sans tenir compte de la limite).
+     *
+     * @param column le nom de la colonne.
+     * @return les agrégats de la colonne.
+     * @throws IllegalArgumentException si la colonne n'existe pas.
+     */
+    public Aggregate aggregate(String column) {
+        IColumn target = table.getColumn(table.getColumnIndex(column));
+        return aggregate(() -> new Aggregate(target), Aggregate::accumulate, Aggregate::merge);
+    }
+
+    /**
+     * Regroupe les lignes sélectionnées par valeur d'une colonne et calcule les agrégats d'une autre colonne
+     * pour chaque groupe (sans tenir compte de la limite). Les cellules vides de la colonne de regroupement
+     * forment le groupe de clé null.
+     *
+     * @param groupColumn le nom de la colonne de regroupement.
+     * @param column      le nom de la colonne agrégée.
+     * @return les agrégats de chaque groupe, sans ordre particulier.
+     * @throws IllegalArgumentException si une colonne n'existe pas.
+     */
+    public Map<Object, Aggregate> groupBy(String groupColumn, String column) {
+        IColumn group = table.getColumn(table.getColumnIndex(groupColumn));
+        IColumn target = table.getColumn(table.getColumnIndex(column));
+        return aggregate(HashMap::new, (groups, rows, count) -> {
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                Object key = group.getValue(row);
+                Aggregate aggregate = groups.get(key);
+                if (aggregate == null) {
+                    aggregate = new Aggregate(target);
+                    groups.put(key, aggregate);
+                }
+                aggregate.accumulate(row);
+            }
+        }, (a, b) -> mergeGroups(a, b, Aggregate::merge));
+    }
+
+    /**
+     * Compte les lignes sélectionnées par valeur d'une colonne (sans tenir compte de la limite).
+     * Les cellules vides forment le groupe de clé null.
+     *
+     * @param groupColumn le nom de la colonne de regroupement.
+     * @return le nombre de lignes de chaque groupe, sans ordre particulier.
+     * @throws IllegalArgumentException si la colonne n'existe pas.
+     */
+    public Map<Object, Long> countBy(String groupColumn) {
+        IColumn group = table.getColumn(table.getColumnIndex(groupColumn));
+        return aggregate(HashMap::new, (groups, rows, count) -> {
+            for (int i = 0; i < count; i++) {
+                groups.merge(group.getValue(rows[i]), 1L, Long::sum);
+            }
+        }, (a, b) -> mergeGroups(a, b, Long::sum));
+    }
+
+    /**
+     * Fusionne les groupes du plus petit résultat partiel dans le plus grand.
+     */
+    private static <V> HashMap<Object, V> mergeGroups(HashMap<Object, V> a, HashMap<Object, V> b, BinaryOperator<V> merge) {
+        HashMap<Object, V> into = a.size() >= b.size() ? a : b;
+        HashMap<Object, V> from = into == a ? b : a;
+        from.forEach((key, value) -> into.merge(key, value, merge));
+        return into;
+    }
+
+    /**
+     * Calcule un agrégat sur les lignes sélectionnées, en parallèle si la requête le demande et si la table est parcourue.
+     *
+     * @param identity    crée un résultat partiel vide.
+     * @param accumulator ajoute un vecteur de sélection à un résultat partiel.
+     * @param merge       fusionne deux résultats partiels (et peut réutiliser l'un d'eux).
+     * @return le résultat.
+     */
+    private <R> R aggregate(Supplier<R> identity, ChunkAccumulator<R> accumulator, BinaryOperator<R> merge) {
+        Plan plan = plan(condition);
+        if (pool != null && plan.access instanceof Scan)
+            return pool.invoke(new ScanTask<>(plan.residual, 0, table.numRowSlots(), identity, accumulator, merge));
+        R result = identity.get();
+        run(plan, (rows, count) -> {
+            accumulator.accept(result, rows, count);
+            return true;
+        });
+        return result;
+    }
+
+    /**
+     * Exécute le plan de la requête par tranches : les lignes candidates de chaque tranche sont filtrées
+     * par la condition résiduelle compilée, puis le vecteur de sélection obtenu est transmis au consommateur.
+     *
+     * @param consumer reçoit les vecteurs de sélection non vides, jusqu'à ce qu'il retourne false.
+     */
+    private void run(Plan plan, ChunkConsumer consumer) {
+        VectorPredicate filter = plan.residual == null ? null : plan.residual.vectorize(table);
+        int[] rows = new int[ColumnVectors.CHUNK_SIZE];
+
+        if (plan.access instanceof Scan) {
+            scan(0, table.numRowSlots(), filter, rows, consumer);
+            return;
+        }
+
+        Iterator<Integer> candidates = plan.access.rows(table);
+        while (candidates.hasNext()) {
+            int count = 0;
+            while (count < rows.length && candidates.hasNext()) {
+                rows[count++] = candidates.next();
+            }
+            if (filter != null)
+                count = filter.refine(rows, count);
+            if (count > 0 && !consumer.accept(rows, count))
+                return;
+        }
+    }
+
+    /**
+     * Parcourt un intervalle de lignes de la table par tranches, en sautant les lignes supprimées.
+     *
+     * @param filter   la condition compilée, ou null.
+     * @param rows     le vecteur de sélection, de {@link ColumnVectors#CHUNK_SIZE} lignes.
+     * @param consumer reçoit les vecteurs de sélection non vides, jusqu'à ce qu'il retourne false.
+     */
+    private void scan(int from, int to, VectorPredicate filter, int[] rows, ChunkConsumer consumer) {
+        for (int start = from; start < to; start += ColumnVectors.CHUNK_SIZE) {
+            int end = Math.min(start + ColumnVectors.CHUNK_SIZE, to);
+            int count;
+            int deleted = table.nextDeletedRow(start);
+            if (deleted == -1 || deleted >= end) {
+                count = filter == null ? ColumnVectors.fill(start, end, rows) : filter.select(start, end, rows);
+            } else {
+                count = 0;
+                for (int row = start; row < end; row++) {
+                    if (!table.isRowDeleted(row))
+                        rows[count++] = row;
+                }
+                if (filter != null)
+                    count = filter.refine(rows, count);
+            }
+            if (count > 0 && !consumer.accept(rows, count))
+                return;
+        }
+    }
+
+    /**
+     * Décrit le plan d'exécution de la requête, une opération par ligne : chaque opération consomme les lignes
+     * produites par l'opération indentée en dessous d'elle.
+     *
+     * @return la description du plan.
+     * @throws IllegalArgumentException si la condition porte sur une colonne inexistante.
+     */
+    public String explain() {
+        Plan plan = plan(condition);
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        if (limit >= 0) {
+            line(sb, depth++, "Limite : " + limit);
+        }
+        if (projection != null) {
+            StringBuilder names = new StringBuilder();
+            for (int column : projection) {
+                if (names.length() > 0)
+                    names.append(", ");
+                names.append(table.getColumn(column).getName());
+            }
+            line(sb, depth++, "Projection : " + names);
+        }
+        if (plan.residual != null) {
+            line(sb, depth++, "Filtre : " + plan.residual);
+        }
+        plan.access.describe(table, sb, depth);
+        return sb.toString();
+    }
+
+    private Object[] project(int row) {
+        if (projection == null)
+            return table.getRow(row);
+        Object[] values = new Object[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            values[i] = table.getColumn(projection[i]).getValue(row);
+        }
+        return values;
+    }
+
+    /**
+     * Choisit le chemin d'accès d'une condition et la partie de la condition qu'il ne couvre pas.
+     */
+    private Plan plan(Condition condition) {
+        if (condition == null)
+            return new Plan(new Scan(), null);
+        if (condition instanceof Condition.Or or) {
+            Access[] branches = new Access[or.operands.length];
+            boolean exact = true;
+            for (int i = 0; i < branches.length; i++) {
+                Plan branch = plan(or.operands[i]);
+                if (branch.access instanceof Scan)
+                    return new Plan(new Scan(), condition);
+                branches[i] = branch.access;
+                exact &= branch.residual == null;
+            }
+            return new Plan(new Union(branches), exact ? null : condition);
+        }
+
+        List<Condition> conjuncts = new ArrayList<>();
+        flatten(condition, conjuncts);
+
+        // Regroupe par colonne les conditions simples, dans l'ordre où les colonnes apparaissent
+        Map<Integer, List<Condition.ColumnCondition>> byColumn = new LinkedHashMap<>();
+        for (Condition conjunct : conjuncts) {
+            if (conjunct instanceof Condition.ColumnCondition simple) {
+                byColumn.computeIfAbsent(table.getColumnIndex(simple.column), c -> new ArrayList<>()).add(simple);
+            }
+        }
+
+        Access best = new Scan();
+        List<Condition> covered = List.of();
+        for (Map.Entry<Integer, List<Condition.ColumnCondition>> entry : byColumn.entrySet()) {
+            List<Condition> used = new ArrayList<>();
+            Access access = columnAccess(entry.getKey(), entry.getValue(), used);
+            if (access != null && access.rank() < best.rank()) {
+                best = access;
+                covered = used;
+            }
+        }
+        for (Condition conjunct : conjuncts) {
+            if (conjunct instanceof Condition.Or) {
+                Plan branch = plan(conjunct);
+                if (branch.access.rank() < best.rank()) {
+                    best = branch.access;
+                    covered = branch.residual == null ? List.of(conjunct) : List.of();
+                }
+            }
+        }
+
+        List<Condition> residual = new ArrayList<>();
+        for (Condition conjunct : conjuncts) {
+            if (!covered.contains(conjunct))
+                residual.add(conjunct);
+        }
+        return new Plan(best, residual.isEmpty() ? null
+                : residual.size() == 1 ? residual.get(0) : Condition.and(residual.toArray(new Condition[0])));
+    }
+
+    /**
+     * Choisit le chemin d'accès d'un groupe de conditions simples portant sur une même colonne.
+     *
+     * @param column     la colonne.
+     * @param conditions les conditions de la colonne.
+     * @param used       reçoit les conditions couvertes par le chemin d'accès.
+     * @return le chemin d'accès, ou null si la colonne n'a pas d'index utilisable.
+     */
+    private Access columnAccess(int column, List<Condition.ColumnCondition> conditions, List<Condition> used) {
+        IColumn target = table.getColumn(column);
+        boolean unique = target.isIndexed();
+        boolean secondary = !unique && table.findSecondaryIndex(new int[]{column}) != -1;
+        if (!unique && !secondary)
+            return null;
+
+        for (Condition.ColumnCondition condition : conditions) {
+            if (condition instanceof Condition.Comparison comparison && comparison.operator == Condition.Operator.EQ
+                    && comparison.value != null) {
+                used.add(condition);
+                return new Lookup(column, unique, new Object[]{comparison.value});
+            }
+        }
+        for (Condition.ColumnCondition condition : conditions) {
+            if (condition instanceof Condition.In in) {
+                used.add(condition);
+                return new Lookup(column, unique, in.values);
+            }
+        }
+        if (unique && target.getIndexKind() != IndexKind.BTREE)
+            return null;
+
+        Range range = new Range(column, unique);
+        for (Condition.ColumnCondition condition : conditions) {
+            if (condition instanceof Condition.Between between) {
+                range.narrowFrom(between.from, BPlusTree.RangePolicy.INCLUSIVE);
+                range.narrowTo(between.to, BPlusTree.RangePolicy.INCLUSIVE);
+            } else if (condition instanceof Condition.Comparison comparison && comparison.operator != Condition.Operator.EQ) {
+                switch (comparison.operator) {
+                    case LT -> range.narrowTo(comparison.value, BPlusTree.RangePolicy.EXCLUSIVE);
+                    case LE -> range.narrowTo(comparison.value, BPlusTree.RangePolicy.INCLUSIVE);
+                    case GT -> range.narrowFrom(comparison.value, BPlusTree.RangePolicy.EXCLUSIVE);
+                    case GE -> range.narrowFrom(comparison.value, BPlusTree.RangePolicy.INCLUSIVE);
+                    default -> throw new AssertionError(comparison.operator);
+                }
+            } else {
+                continue;
+            }
+            used.add(condition);
+        }
+        if (used.isEmpty())
+            return null;
+        return range.isEmpty() ? new Empty() : range;
+    }
+
+    private static void flatten(Condition condition, List<Condition> conjuncts) {
+        if (condition instanceof Condition.And and) {
+            for (Condition operand : and.operands) {
+                flatten(operand, conjuncts);
+            }
+        } else {
+            conjuncts.add(condition);
+        }
+    }
+
+    private static void line(StringBuilder sb, int depth, String text) {
+        sb.append("  ".repeat(depth)).append(text).append('\n');
+    }
+
+    /**
+     * Consommateur des vecteurs de sélection produits par l'exécution d'une requête.
+     */
+    private interface ChunkConsumer {
+        /**
+         * @param rows  les lignes sélectionnées de la tranche.
+         * @param count le nombre de lignes sélectionnées.
+         * @return true pour recevoir la tranche suivante, false pour arrêter l'exécution.
+         */
+        boolean accept(int[] rows, int count);
+    }
+
+    /**
+     * Ajoute un vecteur de sélection à un résultat partiel d'agrégat.
+     */
+    private interface ChunkAccumulator<R> {
+        void accept(R result, int[] rows, int count);
+    }
+
+    /**
+     * Tâche de fork/join qui agrège un intervalle de lignes de la table : l'intervalle est coupé en deux
+     * (à une frontière de tranche) tant qu'il dépasse {@link #PARALLEL_THRESHOLD} lignes. Chaque tâche feuille
+     * compile sa propre condition, car une condition compilée réutilise ses tampons.
+     */
+    private final class ScanTask<R> extends RecursiveTask<R> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final Condition residual;
+        private final int from;
+        private final int to;
+        private final Supplier<R> identity;
+        private final ChunkAccumulator<R> accumulator;
+        private final BinaryOperator<R> merge;
+
+        ScanTask(Condition residual, int from, int to, Supplier<R> identity, ChunkAccumulator<R> accumulator, BinaryOperator<R> merge) {
+            this.residual = residual;
+            this.from = from;
+            this.to = to;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                R result = identity.get();
+                VectorPredicate filter = residual == null ? null : residual.vectorize(table);
+                scan(from, to, filter, new int[ColumnVectors.CHUNK_SIZE], (rows, count) -> {
+                    accumulator.accept(result, rows, count);
+                    return true;
+                });
+                return result;
+            }
+            int middle = from + (to - from) / 2 / ColumnVectors.CHUNK_SIZE * ColumnVectors.CHUNK_SIZE;
+            ScanTask<R> left = new ScanTask<>(residual, from, middle, identity, accumulator, merge);
+            left.fork();
+            R right = new ScanTask<>(residual, middle, to, identity, accumulator, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    /**
+     * Un plan : le chemin d'accès aux lignes candidates et la condition qu'elles doivent encore vérifier.
+     */
+    private static final class Plan {
+        final Access access;
+        final Condition residual;
+
+        Plan(Access access, Condition residual) {
+            this.access = access;
+            this.residual = residual;
+        }
+    }
+
+    /**
+     * Un chemin d'accès : produit les identifiants des lignes candidates.
+     */
+    private abstract static class Access {
+        abstract int rank();
+
+        abstract Iterator<Integer> rows(Table table);
+
+        abstract void describe(Table table, StringBuilder sb, int depth);
+
+        /**
+         * Produit les lignes candidates sous forme d'un tableau trié sans doublon (pour une union).
+         */
+        int[] sortedRows(Table table) {
+            Iterator<Integer> rows = rows(table);
+            int[] result = new int[16];
+            int count = 0;
+            while (rows.hasNext()) {
+                if (count == result.length)
+                    result = Arrays.copyOf(result, count * 2);
+                result[count++] = rows.next();
+            }
+            return IntStream.of(result).limit(count).sorted().distinct().toArray();
+        }
+    }
+
+    /**
+     * Parcours complet de la table, dans l'ordre des lignes.
+     */
+    private static final class Scan extends Access {
+        @Override
+        int rank() {
+            return RANK_SCAN;
+        }
+
+        @Override
+        Iterator<Integer> rows(Table table) {
+            return IntStream.range(0, table.numRowSlots()).filter(row -> !table.isRowDeleted(row)).iterator();
+        }
+
+        @Override
+        void describe(Table table, StringBuilder sb, int depth) {
+            line(sb, depth, "Parcours complet de la table (par tranches de " + ColumnVectors.CHUNK_SIZE + " lignes)");
+        }
+    }
+
+    /**
+     * Aucune ligne : les conditions d'une colonne sont incompatibles.
+     */
+    private static final class Empty extends Access {
+        @Override
+        int rank() {
+            return RANK_EMPTY;
+        }
+
+        @Override
+        Iterator<Integer> rows(Table table) {
+            return IntStream.empty().iterator();
+        }
+
+        @Override
+        void describe(Table table, StringBuilder sb, int depth) {
+            line(sb, depth, "Aucune ligne (conditions incompatibles)");
+        }
+    }
+
+    /**
+     * Recherche d'une ou plusieurs valeurs dans l'index d'une colonne (unique ou secondaire).
+     */
+    private static final class Lookup extends Access {
+        final int column;
+        final boolean unique;
+        final Object[] values;
+
+        Lookup(int column, boolean unique, Object[] values) {
+            this.column = column;
+            this.unique = unique;
+            this.values = values;
+        }
+
+        @Override
+        int rank() {
+            if (values.length == 1)
+                return unique ? RANK_INDEX_LOOKUP : RANK_SECONDARY_LOOKUP;
+            return unique ? RANK_INDEX_IN : RANK_SECONDARY_IN;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Iterator<Integer> rows(Table table) {
+            if (unique) {
+                int[] rows = new int[values.length];
+                table.getColumn(column).searchAll(values, values.length, rows);
+                IntStream found = IntStream.of(rows).filter(row -> row != -1);
+                return (values.length == 1 ? found : found.sorted().distinct()).iterator();
+            }
+            SecondaryIndex index = table.secondaryIndexes()[table.findSecondaryIndex(new int[]{column})];
+            if (values.length == 1)
+                return IntStream.of(index.search((Comparable) values[0])).iterator();
+            return Arrays.stream(values).flatMapToInt(value -> IntStream.of(index.search((Comparable) value)))
+                    .sorted().distinct().iterator();
+        }
+
+        @Override
+        void describe(Table table, StringBuilder sb, int depth) {
+            StringBuilder keys = new StringBuilder();
+            for (Object value : values) {
+                if (keys.length() > 0)
+                    keys.append(", ");
+                keys.append(Condition.format(value));
+            }
+            String name = table.getColumn(column).getName();
+            line(sb, depth, (values.length == 1 ? "Recherche ponctuelle dans " : "Recherche de " + values.length + " valeurs dans ")
+                    + indexName(table, column, unique) + " (" + name + (values.length == 1 ? " = " + keys : " IN (" + keys + ")") + ")");
+        }
+    }
+
+    /**
+     * Parcours d'un intervalle de valeurs dans l'arbre B+ d'une colonne (index unique ou secondaire).
+     */
+    private static final class Range extends Access {
+        final int column;
+        final boolean unique;
+        Object from;
+        BPlusTree.RangePolicy fromPolicy = BPlusTree.RangePolicy.INCLUSIVE;
+        Object to;
+        BPlusTree.RangePolicy toPolicy = BPlusTree.RangePolicy.INCLUSIVE;
+
+        Range(int column, boolean unique) {
+            this.column = column;
+            this.unique = unique;
+        }
+
+        void narrowFrom(Object value, BPlusTree.RangePolicy policy) {
+            int cmp = from == null ? 1 : Condition.compare(value, from);
+            if (cmp > 0 || cmp == 0 && policy == BPlusTree.RangePolicy.EXCLUSIVE) {
+                from = value;
+                fromPolicy = policy;
+            }
+        }
+
+        void narrowTo(Object value, BPlusTree.RangePolicy policy) {
+            int cmp = to == null ? -1 : Condition.compare(value, to);
+            if (cmp < 0 || cmp == 0 && policy == BPlusTree.RangePolicy.EXCLUSIVE) {
+                to = value;
+                toPolicy = policy;
+            }
+        }
+
+        boolean isEmpty() {
+            if (from == null || to == null)
+                return false;
+            int cmp = Condition.compare(from, to);
+            return cmp > 0 || cmp == 0 && (fromPolicy == BPlusTree.RangePolicy.EXCLUSIVE || toPolicy == BPlusTree.RangePolicy.EXCLUSIVE);
+        }
+
+        @Override
+        int rank() {
+            return unique ? RANK_INDEX_RANGE : RANK_SECONDARY_RANGE;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Iterator<Integer> rows(Table table) {
+            if (unique)
+                return table.getColumn(column).rangeIterator(from, fromPolicy, to, toPolicy);
+            SecondaryIndex index = table.secondaryIndexes()[table.findSecondaryIndex(new int[]{column})];
+            return IntStream.of(index.searchRange((Comparable) from, fromPolicy, (Comparable) to, toPolicy)).iterator();
+        }
+
+        @Override
+        void describe(Table table, StringBuilder sb, int depth) {
+            String interval = (from == null ? "]-inf" : (fromPolicy == BPlusTree.RangePolicy.INCLUSIVE ? "[" : "]") + Condition.format(from))
+                    + " ; " + (to == null ? "+inf[" : Condition.format(to) + (toPolicy == BPlusTree.RangePolicy.INCLUSIVE ? "]" : "["));
+            line(sb, depth, "Parcours d'intervalle dans " + indexName(table, column, unique)
+                    + " (" + table.getColumn(column).getName() + " dans " + interval + ")");
+        }
+    }
+
+    /**
+     * Union des lignes de plusieurs chemins d'accès (disjonction), par ordre croissant des lignes.
+     */
+    private static final class Union extends Access {
+        final Access[] branches;
+
+        Union(Access[] branches) {
+            this.branches = branches;
+        }
+
+        @Override
+        int rank() {
+            int rank = RANK_UNION;
+            for (Access branch : branches) {
+                rank = Math.max(rank, branch.rank());
+            }
+            return rank;
+        }
+
+        @Override
+        Iterator<Integer> rows(Table table) {
+            return IntStream.of(sortedRows(table)).iterator();
+        }
+
+        @Override
+        int[] sortedRows(Table table) {
+            int[] rows = new int[0];
+            for (Access branch : branches) {
+                rows = merge(rows, branch.sortedRows(table));
+            }
+            return rows;
+        }
+
+        @Override
+        void describe(Table table, StringBuilder sb, int depth) {
+            line(sb, depth, "Union");
+            for (Access branch : branches) {
+                branch.describe(table, sb, depth + 1);
+            }
+        }
+
+        /**
+         * Fusionne deux tableaux triés sans doublon.
+         */
+        private static int[] merge(int[] a, int[] b) {
+            int[] result = new int[a.length + b.length];
+            int i = 0, j = 0, count = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    result[count++] = a[i++];
+                } else if (a[i] > b[j]) {
+                    result[count++] = b[j++];
+                } else {
+                    result[count++] = a[i++];
+                    j++;
+                }
+            }
+            while (i < a.length) {
+                result[count++] = a[i++];
+            }
+            while (j < b.length) {
+                result[count++] = b[j++];
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    private static String indexName(Table table, int column, boolean unique) {
+        if (!unique)
+            return "l'index secondaire";
+        return table.getColumn(column).getIndexKind() == IndexKind.HASH ? "l'index par hachage" : "l'arbre B+";
+    }
+}
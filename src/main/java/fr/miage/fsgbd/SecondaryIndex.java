@@ -0,0 +1,217 @@
+package fr.miage.fsgbd;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Index secondaire non unique : chaque valeur distincte d'une colonne est une clé de l'arbre B+, associée
+ * à la liste triée des lignes qui contiennent cette valeur (liste de postings).
+ * Les cellules vides ne sont pas indexées.
+ *
+ * @param <K> le type des valeurs indexées
+ */
+public class SecondaryIndex<K extends Comparable<? super K>> {
+    /**
+     * L'arbre B+ associant chaque valeur à ses lignes.
+     */
+    private final BPlusTree<K, Postings> tree;
+    /**
+     * Le nombre de couples (valeur, ligne) de l'index.
+     */
+    private int size;
+
+    /**
+     * Crée un index secondaire vide.
+     *
+     * @param branchingFactor le facteur de branche de l'arbre B+.
+     */
+    public SecondaryIndex(int branchingFactor) {
+        this.tree = new BPlusTree<>(branchingFactor);
+    }
+
+    /**
+     * Construit l'index secondaire des valeurs d'une colonne (voir {@link #build(List, int)}).
+     *
+     * @param column          la colonne à indexer.
+     * @param branchingFactor le facteur de branche de l'arbre B+.
+     * @param <K>             le type des valeurs indexées
+     * @return l'index secondaire de la colonne.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>> SecondaryIndex<K> build(IColumn column, int branchingFactor) {
+        return build(new AbstractList<K>() {
+            @Override
+            public K get(int row) {
+                return (K) column.getValue(row);
+            }
+
+            @Override
+            public int size() {
+                return column.size();
+            }
+        }, branchingFactor);
+    }
+
+    /**
+     * Construit un index secondaire par chargement en masse de l'arbre B+ : les couples (valeur, ligne)
+     * sont triés par valeur puis regroupés en listes de postings.
+     *
+     * @param values          la valeur de chaque ligne (null pour une ligne non indexée).
+     * @param branchingFactor le facteur de branche de l'arbre B+.
+     * @param <K>             le type des valeurs indexées
+     * @return l'index secondaire des valeurs.
+     */
+    public static <K extends Comparable<? super K>> SecondaryIndex<K> build(List<K> values, int branchingFactor) {
+        SecondaryIndex<K> index = new SecondaryIndex<>(branchingFactor);
+        ArrayList<Integer> rows = new ArrayList<>(values.size());
+        for (int row = 0; row < values.size(); row++) {
+            if (values.get(row) != null) {
+                rows.add(row);
+            }
+        }
+        // Tri stable : les lignes d'une même valeur restent dans l'ordre croissant
+        rows.sort((a, b) -> values.get(a).compareTo(values.get(b)));
+
+        List<K> keys = new ArrayList<>();
+        List<Postings> postings = new ArrayList<>();
+        for (int row : rows) {
+            K key = values.get(row);
+            if (keys.isEmpty() || keys.get(keys.size() - 1).compareTo(key) != 0) {
+                keys.add(key);
+                postings.add(new Postings());
+            }
+            postings.get(postings.size() - 1).add(row);
+        }
+        index.tree.bulkLoad(keys, postings, Column.DEFAULT_FILL_FACTOR);
+        index.size = rows.size();
+        return index;
+    }
+
+    /**
+     * Ajoute une ligne à la liste des lignes d'une valeur.
+     *
+     * @param key la valeur de la ligne.
+     * @param row la ligne.
+     */
+    public void add(K key, int row) {
+        if (key == null)
+            return;
+        Postings postings = tree.search(key);
+        if (postings == null) {
+            postings = new Postings();
+            tree.insert(key, postings);
+        }
+        if (postings.add(row))
+            size++;
+    }
+
+    /**
+     * Retire une ligne de la liste des lignes d'une valeur. La valeur est retirée de l'arbre avec sa dernière ligne.
+     *
+     * @param key la valeur de la ligne.
+     * @param row la ligne.
+     */
+    public void remove(K key, int row) {
+        if (key == null)
+            return;
+        Postings postings = tree.search(key);
+        if (postings != null && postings.remove(row)) {
+            size--;
+            if (postings.count == 0)
+                tree.delete(key);
+        }
+    }
+
+    /**
+     * Retourne les lignes contenant une valeur, par ordre croissant.
+     *
+     * @param key la valeur à chercher.
+     * @return les lignes contenant la valeur (tableau vide si aucune).
+     */
+    public int[] search(K key) {
+        Postings postings = key == null ? null : tree.search(key);
+        return postings == null ? new int[0] : Arrays.copyOf(postings.rows, postings.count);
+    }
+
+    /**
+     * Retourne les lignes dont la valeur est comprise entre deux bornes, dans l'ordre des valeurs
+     * (puis par ordre croissant pour une même valeur).
+     *
+     * @param from       la borne inférieure, ou null pour partir de la plus petite valeur.
+     * @param fromPolicy la politique à appliquer pour inclure ou exclure la borne inférieure.
+     * @param to         la borne supérieure, ou null pour aller jusqu'à la plus grande valeur.
+     * @param toPolicy   la politique à appliquer pour inclure ou exclure la borne supérieure.
+     * @return les lignes dont la valeur est comprise entre les deux bornes.
+     */
+    public int[] searchRange(K from, BPlusTree.RangePolicy fromPolicy, K to, BPlusTree.RangePolicy toPolicy) {
+        int[] rows = new int[16];
+        int count = 0;
+        Iterator<Postings> iterator = tree.rangeIterator(from, fromPolicy, to, toPolicy);
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            if (count + postings.count > rows.length)
+                rows = Arrays.copyOf(rows, Math.max(2 * rows.length, count + postings.count));
+            System.arraycopy(postings.rows, 0, rows, count, postings.count);
+            count += postings.count;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Décale les lignes situées après une ligne supprimée (suppression avec décalage des lignes suivantes).
+     *
+     * @param removedRow la ligne supprimée, déjà retirée de l'index.
+     */
+    public void shiftRows(int removedRow) {
+        Iterator<Postings> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            for (int i = 0; i < postings.count; i++) {
+                if (postings.rows[i] > removedRow)
+                    postings.rows[i]--;
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de couples (valeur, ligne) de l'index.
+     *
+     * @return le nombre de lignes indexées.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Liste triée des lignes contenant une même valeur.
+     */
+    private static class Postings {
+        int[] rows = new int[2];
+        int count;
+
+        boolean add(int row) {
+            int loc = Arrays.binarySearch(rows, 0, count, row);
+            if (loc >= 0)
+                return false;
+            int index = -loc - 1;
+            if (count == rows.length)
+                rows = Arrays.copyOf(rows, count * 2);
+            System.arraycopy(rows, index, rows, index + 1, count - index);
+            rows[index] = row;
+            count++;
+            return true;
+        }
+
+        boolean remove(int row) {
+            int loc = Arrays.binarySearch(rows, 0, count, row);
+            if (loc < 0)
+                return false;
+            System.arraycopy(rows, loc + 1, rows, loc, count - loc - 1);
+            count--;
+            return true;
+        }
+    }
+}
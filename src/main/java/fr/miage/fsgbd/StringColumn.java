@@ -0,0 +1,165 @@
+package fr.miage.fsgbd;
+
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Colonne de chaînes de caractères stockées en UTF-8 dans un unique tableau d'octets.
+ * Chaque ligne référence ses octets par une position et une longueur : il n'y a pas d'objet String par cellule.
+ * Une mise à jour ajoute les nouveaux octets à la fin du tableau ; l'espace perdu est récupéré par compactage
+ * lorsque le tableau est plein et que moins de la moitié de ses octets sont encore référencés.
+ */
+public class StringColumn extends AbstractColumn<String> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Les octets UTF-8 de toutes les valeurs.
+     */
+    byte[] bytes = new byte[256];
+    /**
+     * Le nombre d'octets utilisés dans le tableau d'octets.
+     */
+    int byteCount;
+    /**
+     * La position des octets de chaque ligne.
+     */
+    int[] offsets = new int[16];
+    /**
+     * La longueur en octets de chaque ligne.
+     */
+    int[] lengths = new int[16];
+
+    /**
+     * Constructeur de la classe StringColumn.
+     *
+     * @param name             le nom de la colonne
+     * @param maxValuesPerNode le nombre maximal de valeurs par noeud de l'arbre B+ (si <= 0, désactive l'index)
+     */
+    public StringColumn(String name, int maxValuesPerNode) {
+        super(String.class, name, maxValuesPerNode);
+    }
+
+    /**
+     * Compare la valeur d'une ligne avec une suite d'octets UTF-8, sans créer de String.
+     *
+     * @param row    la ligne à comparer
+     * @param other  les octets à comparer
+     * @param from   la position du premier octet à comparer
+     * @param length le nombre d'octets à comparer
+     * @return true si la valeur de la ligne a exactement ces octets
+     */
+    public boolean equalsBytes(int row, byte[] other, int from, int length) {
+        return lengths[row] == length && Arrays.equals(bytes, offsets[row], offsets[row] + length, other, from, from + length);
+    }
+
+    @Override
+    protected String read(int row) {
+        return new String(bytes, offsets[row], lengths[row], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void write(int row, String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (byteCount + encoded.length > bytes.length) {
+            if (liveByteCount(row) <= byteCount / 2) {
+                compact(row);
+            }
+            if (byteCount + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(byteCount + encoded.length, bytes.length + (bytes.length >> 1)));
+            }
+        }
+        System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+        offsets[row] = byteCount;
+        lengths[row] = encoded.length;
+        byteCount += encoded.length;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > offsets.length) {
+            int newLength = Math.max(capacity, offsets.length + (offsets.length >> 1));
+            offsets = Arrays.copyOf(offsets, newLength);
+            lengths = Arrays.copyOf(lengths, newLength);
+        }
+    }
+
+    @Override
+    protected void shift(int row) {
+        System.arraycopy(offsets, row + 1, offsets, row, size - row - 1);
+        System.arraycopy(lengths, row + 1, lengths, row, size - row - 1);
+    }
+
+    @Override
+    protected void clearStorage() {
+        bytes = new byte[256];
+        byteCount = 0;
+        offsets = new int[16];
+        lengths = new int[16];
+    }
+
+    @Override
+    protected void copyStorage() {
+        // Les octets ne sont jamais modifiés en place : seuls les ajouts, au-delà de la fin de l'instantané, les écrivent
+        offsets = offsets.clone();
+        lengths = lengths.clone();
+    }
+
+    @Override
+    protected long storageFootprint() {
+        return 16 + bytes.length + 2 * (16 + 4L * offsets.length);
+    }
+
+    @Override
+    protected int scan(String value) {
+        if (value == null) {
+            return super.scan(null);
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            if (!nulls.get(i) && equalsBytes(i, encoded, 0, encoded.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compte les octets encore référencés par les lignes de la colonne.
+     *
+     * @param skippedRow une ligne dont les octets ne sont plus référencés (en cours de réécriture)
+     * @return le nombre d'octets référencés
+     */
+    private long liveByteCount(int skippedRow) {
+        long live = 0;
+        for (int i = 0; i < size; i++) {
+            if (i != skippedRow && !nulls.get(i)) {
+                live += lengths[i];
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Recopie les octets encore référencés au début d'un nouveau tableau.
+     *
+     * @param skippedRow une ligne dont les octets ne sont plus référencés (en cours de réécriture)
+     */
+    private void compact(int skippedRow) {
+        unshare();
+        byte[] compacted = new byte[bytes.length];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == skippedRow || nulls.get(i)) {
+                continue;
+            }
+            System.arraycopy(bytes, offsets[i], compacted, position, lengths[i]);
+            offsets[i] = position;
+            position += lengths[i];
+        }
+        bytes = compacted;
+        byteCount = position;
+    }
+}
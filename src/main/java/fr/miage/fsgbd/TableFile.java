@@ -0,0 +1,540 @@
+package fr.miage.fsgbd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Format de fichier de table paginé, alternative à la sérialisation Java de {@link FileSerializer}.
+ * <pre>
+ * [superbloc : 4 Kio][segments, chacun aligné sur 4 Kio][répertoire]
+ * </pre>
+ * Le superbloc contient le numéro magique, la version et la position du répertoire. Le répertoire décrit la table
+ * (mode de suppression, lignes libres) puis chaque colonne : nom, type, nombre de lignes, facteur de ramification,
+ * type d'index et position de ses segments (cellules vides, valeurs, index), et enfin les colonnes de chaque index
+ * secondaire ou composite. Tout est écrit en petit-boutiste.
+ * <p>
+ * Les valeurs des colonnes d'entiers et de nombres à virgule, ainsi que l'arbre B+ des colonnes d'entiers indexées
+ * par un arbre, sont écrits page par page dans le format de {@link OffHeapPages}. À l'ouverture, ces segments sont
+ * projetés en mémoire (FileChannel.map) et utilisés tels quels par {@link OffHeapIntColumn},
+ * {@link OffHeapDoubleColumn} et {@link OffHeapIntBPlusTree} : rien n'est copié ni reconstruit, les pages sont lues
+ * à leur premier accès.
+ * Le fichier est ouvert et projeté en lecture seule : une page modifiée est d'abord copiée hors du tas
+ * ({@link OffHeapPages#writablePage(int)}), les modifications de la table restent donc en mémoire jusqu'au prochain
+ * enregistrement. Les chaînes et les booléens sont relus dans {@link StringColumn} et {@link BooleanColumn} ;
+ * leur index éventuel, comme les index par hachage, est reconstruit par chargement en masse.
+ */
+public final class TableFile {
+    /**
+     * L'extension des fichiers de table paginés.
+     */
+    public static final String EXTENSION = ".tbl";
+
+    /**
+     * « FSGBDTBL » en ASCII, lu en petit-boutiste.
+     */
+    private static final long MAGIC = 0x4c42544442475346L;
+    private static final int VERSION = 3;
+    /**
+     * L'alignement du début des segments, et la taille réservée au superbloc.
+     */
+    private static final int BLOCK_SIZE = 4096;
+    /**
+     * La taille maximale d'une projection (un MappedByteBuffer est limité à 2 Gio).
+     */
+    private static final int MAX_MAPPING = 1 << 30;
+
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_STRING = 3;
+    private static final int TYPE_BOOLEAN = 4;
+
+    private TableFile() {
+    }
+
+    /**
+     * Enregistre une table. Le fichier est d'abord écrit à côté de la cible puis renommé, ce qui permet
+     * d'écraser le fichier dont la table a été ouverte (ses projections restent valides).
+     *
+     * @param table    la table à enregistrer
+     * @param filename le nom du fichier
+     * @throws IOException              si l'écriture échoue
+     * @throws IllegalArgumentException si une colonne a un type non supporté
+     */
+    public static void save(Table table, String filename) throws IOException {
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            PageWriter writer = new PageWriter(channel, BLOCK_SIZE);
+
+            int[] freeRows = table.getFreeRows();
+            long freeRowsPosition = writer.begin();
+            for (int row : freeRows) {
+                writer.putInt(row);
+            }
+
+            List<ColumnEntry> entries = new ArrayList<>();
+            for (IColumn column : table.getColumns()) {
+                entries.add(writeColumn(writer, column));
+            }
+
+            long directoryPosition = writer.begin();
+            writer.putByte(table.isCompactOnDelete() ? 1 : 0);
+            writer.putLong(freeRowsPosition);
+            writer.putInt(freeRows.length);
+            writer.putInt(entries.size());
+            for (ColumnEntry entry : entries) {
+                entry.write(writer);
+            }
+            int[][] secondaryColumns = table.getSecondaryColumns();
+            writer.putInt(secondaryColumns.length);
+            for (int[] indexColumns : secondaryColumns) {
+                writer.putInt(indexColumns.length);
+                for (int column : indexColumns) {
+                    writer.putInt(column);
+                }
+            }
+            long directoryLength = writer.position() - directoryPosition;
+            writer.flush();
+
+            ByteBuffer superblock = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            superblock.putLong(MAGIC).putInt(VERSION).putLong(directoryPosition).putLong(directoryLength);
+            superblock.clear();
+            while (superblock.hasRemaining()) {
+                channel.write(superblock, superblock.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ouvre une table enregistrée par {@link #save(Table, String)}.
+     *
+     * @param filename le nom du fichier
+     * @return la table
+     * @throws IOException si la lecture échoue ou si le fichier n'est pas un fichier de table
+     */
+    public static Table open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            ByteBuffer superblock = read(channel, 0, 28);
+            if (superblock.remaining() < 28 || superblock.getLong() != MAGIC)
+                throw new IOException("Invalid file format. Not a table file.");
+            int version = superblock.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported table file version: " + version);
+            ByteBuffer directory = read(channel, superblock.getLong(), superblock.getLong());
+
+            boolean compactOnDelete = directory.get() != 0;
+            long freeRowsPosition = directory.getLong();
+            int[] freeRows = new int[directory.getInt()];
+            read(channel, freeRowsPosition, 4L * freeRows.length).asIntBuffer().get(freeRows);
+
+            int columnCount = directory.getInt();
+            List<IColumn> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(openColumn(channel, ColumnEntry.read(directory)));
+            }
+            // Les index secondaires sont reconstruits par la table à leur première utilisation
+            int[][] secondaryColumns = new int[directory.getInt()][];
+            for (int i = 0; i < secondaryColumns.length; i++) {
+                secondaryColumns[i] = new int[directory.getInt()];
+                for (int j = 0; j < secondaryColumns[i].length; j++) {
+                    secondaryColumns[i][j] = directory.getInt();
+                }
+            }
+            return new Table(compactOnDelete, columns, freeRows, secondaryColumns);
+        }
+    }
+
+    /**
+     * Écrit les segments d'une colonne.
+     *
+     * @param writer l'écrivain du fichier
+     * @param column la colonne à écrire
+     * @return l'entrée du répertoire décrivant la colonne
+     */
+    private static ColumnEntry writeColumn(PageWriter writer, IColumn column) throws IOException {
+        ColumnEntry entry = new ColumnEntry();
+        entry.name = column.getName();
+        entry.size = column.size();
+        entry.branchingFactor = column.getBranchingFactor();
+        entry.indexKind = column.getIndexKind();
+
+        BitSet nulls = new BitSet();
+        Class<?> type = column.getType();
+        if (type == Integer.class) {
+            entry.type = TYPE_INTEGER;
+            int[] keys = new int[entry.size];
+            int[] rows = new int[entry.size];
+            int keyCount = 0;
+            entry.valuesPosition = writer.begin();
+            for (int row = 0; row < entry.size; row++) {
+                Integer value = (Integer) column.getValue(row);
+                if (value == null) {
+                    nulls.set(row);
+                    writer.putInt(0);
+                } else {
+                    writer.putInt(value);
+                    keys[keyCount] = value;
+                    rows[keyCount++] = row;
+                }
+            }
+            writer.padTo(entry.valuesPosition, OffHeapIntColumn.PAGE_SIZE);
+
+            if (entry.branchingFactor > 0 && entry.indexKind == IndexKind.BTREE) {
+                OffHeapIntBPlusTree tree = new OffHeapIntBPlusTree(entry.branchingFactor);
+                tree.bulkLoad(keys, rows, keyCount, Column.DEFAULT_FILL_FACTOR);
+                OffHeapPages pages = tree.pages();
+                entry.indexPosition = writer.begin();
+                entry.indexPageSize = pages.pageSize();
+                entry.indexPageCount = pages.pageCount();
+                entry.indexRoot = tree.root();
+                entry.indexNodeCount = tree.nodeCount();
+                entry.indexFreeNode = tree.freeNode();
+                for (int i = 0; i < pages.pageCount(); i++) {
+                    writer.putPage(pages.page(i));
+                }
+            }
+        } else if (type == Double.class) {
+            entry.type = TYPE_DOUBLE;
+            entry.valuesPosition = writer.begin();
+            for (int row = 0; row < entry.size; row++) {
+                Double value = (Double) column.getValue(row);
+                if (value == null) {
+                    nulls.set(row);
+                }
+                writer.putDouble(value == null ? 0 : value);
+            }
+            writer.padTo(entry.valuesPosition, OffHeapDoubleColumn.PAGE_SIZE);
+        } else if (type == String.class) {
+            entry.type = TYPE_STRING;
+            int[] offsets = new int[entry.size + 1];
+            entry.valuesPosition = writer.begin();
+            for (int row = 0; row < entry.size; row++) {
+                String value = (String) column.getValue(row);
+                byte[] encoded = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+                if (value == null) {
+                    nulls.set(row);
+                }
+                writer.putBytes(encoded);
+                offsets[row + 1] = offsets[row] + encoded.length;
+            }
+            entry.offsetsPosition = writer.begin();
+            for (int offset : offsets) {
+                writer.putInt(offset);
+            }
+        } else if (type == Boolean.class) {
+            entry.type = TYPE_BOOLEAN;
+            BitSet values = new BitSet();
+            for (int row = 0; row < entry.size; row++) {
+                Boolean value = (Boolean) column.getValue(row);
+                if (value == null) {
+                    nulls.set(row);
+                } else if (value) {
+                    values.set(row);
+                }
+            }
+            long[] words = values.toLongArray();
+            entry.valuesPosition = writer.begin();
+            for (int i = 0; i < (entry.size + 63) / 64; i++) {
+                writer.putLong(i < words.length ? words[i] : 0);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported column type: " + type.getSimpleName());
+        }
+
+        long[] nullWords = nulls.toLongArray();
+        entry.nullsPosition = writer.begin();
+        entry.nullWordCount = nullWords.length;
+        writer.putLongs(nullWords);
+        return entry;
+    }
+
+    /**
+     * Recrée une colonne à partir de son entrée du répertoire.
+     *
+     * @param channel le canal du fichier
+     * @param entry   l'entrée du répertoire décrivant la colonne
+     * @return la colonne
+     */
+    private static IColumn openColumn(FileChannel channel, ColumnEntry entry) throws IOException {
+        BitSet nulls = BitSet.valueOf(read(channel, entry.nullsPosition, 8L * entry.nullWordCount));
+        switch (entry.type) {
+            case TYPE_INTEGER: {
+                OffHeapIntColumn column = new OffHeapIntColumn(entry.name, 0);
+                column.restorePages(map(channel, entry.valuesPosition, pageCount(4L * entry.size, OffHeapIntColumn.PAGE_SIZE), OffHeapIntColumn.PAGE_SIZE));
+                OffHeapIntBPlusTree index = null;
+                if (entry.indexPosition >= 0) {
+                    OffHeapPages pages = map(channel, entry.indexPosition, entry.indexPageCount, entry.indexPageSize);
+                    index = new OffHeapIntBPlusTree(entry.branchingFactor, pages, entry.indexRoot, entry.indexNodeCount, entry.indexFreeNode);
+                }
+                column.indexKind = entry.indexKind;
+                column.restore(entry.size, nulls, entry.branchingFactor, index);
+                return column;
+            }
+            case TYPE_DOUBLE: {
+                OffHeapDoubleColumn column = new OffHeapDoubleColumn(entry.name, 0);
+                column.restorePages(map(channel, entry.valuesPosition, pageCount(8L * entry.size, OffHeapDoubleColumn.PAGE_SIZE), OffHeapDoubleColumn.PAGE_SIZE));
+                column.indexKind = entry.indexKind;
+                column.restore(entry.size, nulls, entry.branchingFactor, null);
+                return column;
+            }
+            case TYPE_STRING: {
+                StringColumn column = new StringColumn(entry.name, 0);
+                int[] offsets = new int[entry.size + 1];
+                read(channel, entry.offsetsPosition, 4L * offsets.length).asIntBuffer().get(offsets);
+                byte[] bytes = new byte[Math.max(256, offsets[entry.size])];
+                read(channel, entry.valuesPosition, offsets[entry.size]).get(bytes, 0, offsets[entry.size]);
+                column.bytes = bytes;
+                column.byteCount = offsets[entry.size];
+                column.offsets = new int[Math.max(16, entry.size)];
+                column.lengths = new int[Math.max(16, entry.size)];
+                for (int row = 0; row < entry.size; row++) {
+                    column.offsets[row] = offsets[row];
+                    column.lengths[row] = offsets[row + 1] - offsets[row];
+                }
+                column.indexKind = entry.indexKind;
+                column.restore(entry.size, nulls, entry.branchingFactor, null);
+                return column;
+            }
+            case TYPE_BOOLEAN: {
+                BooleanColumn column = new BooleanColumn(entry.name, 0);
+                column.values = BitSet.valueOf(read(channel, entry.valuesPosition, 8L * ((entry.size + 63) / 64)));
+                column.indexKind = entry.indexKind;
+                column.restore(entry.size, nulls, entry.branchingFactor, null);
+                return column;
+            }
+            default:
+                throw new IOException("Invalid file format. Unknown column type: " + entry.type);
+        }
+    }
+
+    private static int pageCount(long length, int pageSize) {
+        return (int) ((length + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Projette en mémoire, en lecture seule, des pages consécutives du fichier, par tranches d'au plus
+     * {@link #MAX_MAPPING} octets.
+     *
+     * @param channel   le canal du fichier
+     * @param position  la position de la première page
+     * @param pageCount le nombre de pages
+     * @param pageSize  la taille d'une page
+     * @return les pages projetées
+     */
+    private static OffHeapPages map(FileChannel channel, long position, int pageCount, int pageSize) throws IOException {
+        ByteBuffer[] pages = new ByteBuffer[pageCount];
+        int pagesPerMapping = Math.max(1, MAX_MAPPING / pageSize);
+        for (int first = 0; first < pageCount; first += pagesPerMapping) {
+            int count = Math.min(pagesPerMapping, pageCount - first);
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position + (long) first * pageSize, (long) count * pageSize);
+            for (int i = 0; i < count; i++) {
+                pages[first + i] = mapping.slice(i * pageSize, pageSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return new OffHeapPages(pageSize, pages);
+    }
+
+    /**
+     * Lit un segment du fichier dans un tampon du tas.
+     *
+     * @param channel  le canal du fichier
+     * @param position la position du segment
+     * @param length   la longueur du segment, en octets
+     * @return le tampon contenant le segment, prêt à être lu
+     */
+    private static ByteBuffer read(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Invalid file format. Segment too large: " + length);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                break;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * L'entrée du répertoire décrivant une colonne et la position de ses segments.
+     */
+    private static final class ColumnEntry {
+        String name;
+        int type;
+        int size;
+        int branchingFactor;
+        IndexKind indexKind = IndexKind.BTREE;
+        long nullsPosition;
+        int nullWordCount;
+        long valuesPosition;
+        long offsetsPosition = -1;
+        long indexPosition = -1;
+        int indexPageSize;
+        int indexPageCount;
+        int indexRoot;
+        int indexNodeCount;
+        int indexFreeNode;
+
+        void write(PageWriter writer) throws IOException {
+            byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+            writer.putInt(encodedName.length);
+            writer.putBytes(encodedName);
+            writer.putInt(type);
+            writer.putInt(size);
+            writer.putInt(branchingFactor);
+            writer.putInt(indexKind.ordinal());
+            writer.putLong(nullsPosition);
+            writer.putInt(nullWordCount);
+            writer.putLong(valuesPosition);
+            writer.putLong(offsetsPosition);
+            writer.putLong(indexPosition);
+            writer.putInt(indexPageSize);
+            writer.putInt(indexPageCount);
+            writer.putInt(indexRoot);
+            writer.putInt(indexNodeCount);
+            writer.putInt(indexFreeNode);
+        }
+
+        static ColumnEntry read(ByteBuffer directory) {
+            ColumnEntry entry = new ColumnEntry();
+            byte[] encodedName = new byte[directory.getInt()];
+            directory.get(encodedName);
+            entry.name = new String(encodedName, StandardCharsets.UTF_8);
+            entry.type = directory.getInt();
+            entry.size = directory.getInt();
+            entry.branchingFactor = directory.getInt();
+            entry.indexKind = IndexKind.values()[directory.getInt()];
+            entry.nullsPosition = directory.getLong();
+            entry.nullWordCount = directory.getInt();
+            entry.valuesPosition = directory.getLong();
+            entry.offsetsPosition = directory.getLong();
+            entry.indexPosition = directory.getLong();
+            entry.indexPageSize = directory.getInt();
+            entry.indexPageCount = directory.getInt();
+            entry.indexRoot = directory.getInt();
+            entry.indexNodeCount = directory.getInt();
+            entry.indexFreeNode = directory.getInt();
+            return entry;
+        }
+    }
+
+    /**
+     * Écrit séquentiellement dans le fichier au travers d'un tampon de 64 Kio.
+     */
+    private static final class PageWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        /**
+         * La position dans le fichier du premier octet du tampon.
+         */
+        private long flushed;
+
+        PageWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.flushed = position;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        /**
+         * Commence un segment : complète avec des zéros jusqu'au prochain bloc.
+         *
+         * @return la position du segment
+         */
+        long begin() throws IOException {
+            padTo(0, BLOCK_SIZE);
+            return position();
+        }
+
+        /**
+         * Complète avec des zéros pour que la longueur depuis une position soit un multiple d'une taille donnée.
+         */
+        void padTo(long start, int multiple) throws IOException {
+            long length = position() - start;
+            long target = start + (length + multiple - 1) / multiple * multiple;
+            while (position() < target) {
+                ensure(1);
+                int count = (int) Math.min(buffer.remaining(), target - position());
+                Arrays.fill(buffer.array(), buffer.position(), buffer.position() + count, (byte) 0);
+                buffer.position(buffer.position() + count);
+            }
+        }
+
+        void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putLongs(long[] values) throws IOException {
+            for (long value : values) {
+                putLong(value);
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Écrit une page entière directement depuis son tampon.
+         */
+        void putPage(ByteBuffer page) throws IOException {
+            flush();
+            ByteBuffer source = page.duplicate().clear();
+            while (source.hasRemaining()) {
+                flushed += channel.write(source, flushed);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                flush();
+            }
+        }
+    }
+}
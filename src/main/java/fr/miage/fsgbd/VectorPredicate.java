@@ -0,0 +1,28 @@
+package fr.miage.fsgbd;
+
+/**
+ * Condition compilée pour une évaluation par tranches de lignes (voir {@link Condition#vectorize(Table)}).
+ * Une tranche est décrite par un vecteur de sélection : le tableau des identifiants des lignes retenues.
+ * Chaque méthode compacte les lignes qui vérifient la condition au début du vecteur, dans le même ordre,
+ * et retourne leur nombre. Une instance réutilise ses tampons : elle ne doit servir qu'à un thread à la fois.
+ */
+interface VectorPredicate {
+    /**
+     * Sélectionne les lignes d'un intervalle contigu qui vérifient la condition.
+     *
+     * @param from la première ligne de l'intervalle.
+     * @param to   la ligne suivant la dernière ligne de l'intervalle (au plus {@link ColumnVectors#CHUNK_SIZE} lignes).
+     * @param rows reçoit les lignes sélectionnées, par ordre croissant.
+     * @return le nombre de lignes sélectionnées.
+     */
+    int select(int from, int to, int[] rows);
+
+    /**
+     * Restreint un vecteur de sélection aux lignes qui vérifient la condition.
+     *
+     * @param rows  les lignes à tester, remplacées par les lignes retenues.
+     * @param count le nombre de lignes à tester (au plus {@link ColumnVectors#CHUNK_SIZE}).
+     * @return le nombre de lignes retenues.
+     */
+    int refine(int[] rows, int count);
+}
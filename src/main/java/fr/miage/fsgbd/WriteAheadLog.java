@@ -0,0 +1,548 @@
+package fr.miage.fsgbd;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'écriture anticipée (write-ahead log) des modifications d'une table : ajouts de lignes (une par une ou
+ * par lot), suppressions et mises à jour de cellules. Chaque modification est ajoutée à la fin du fichier du journal, ce qui coûte
+ * O(taille de la modification) au lieu de réécrire toute la table, et est rejouée au redémarrage par-dessus
+ * le dernier instantané de la table (voir {@link Table#enableLog(WriteAheadLog)} et {@link Table#checkpoint(String)}).
+ * <pre>
+ * [magique : int][version : int][LSN de base : long][enregistrement]*
+ * enregistrement : [longueur : int][CRC32 : int][type : byte][contenu]
+ * </pre>
+ * Le numéro de séquence (LSN) d'un enregistrement est la position de sa fin dans le flux logique du journal :
+ * le LSN de base est le LSN du dernier point de contrôle, à partir duquel le fichier a été vidé.
+ * <p>
+ * En mode validation groupée, le premier rédacteur qui attend la durabilité de son enregistrement devient le meneur :
+ * il attend l'intervalle de vidage pour laisser les autres rédacteurs ajouter leurs enregistrements, puis écrit
+ * et force sur le disque (fsync) tous les enregistrements en attente en une seule fois. Les autres rédacteurs
+ * attendent la fin de ce vidage. Sinon, chaque validation écrit et force son enregistrement.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x46535741;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final byte ADD_ROW = 1;
+    private static final byte REMOVE_ROW = 2;
+    private static final byte UPDATE_VALUE = 3;
+    private static final byte ADD_ROWS = 4;
+
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte OBJECT = 6;
+
+    private final Path file;
+    private FileChannel channel;
+    private final boolean groupCommit;
+    private final long flushIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    /**
+     * Les enregistrements ajoutés mais pas encore écrits, et ceux en cours d'écriture par le meneur.
+     */
+    private RecordBuffer pending = new RecordBuffer(), writing = new RecordBuffer();
+    /**
+     * Tampon d'encodage du contenu d'un enregistrement, avant le calcul de sa somme de contrôle.
+     */
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    /**
+     * Le LSN correspondant au début du fichier, après l'en-tête.
+     */
+    private long baseLsn;
+    /**
+     * Le LSN de la fin du dernier enregistrement ajouté.
+     */
+    private long appendedLsn;
+    /**
+     * Le LSN jusqu'auquel les enregistrements sont écrits et forcés sur le disque.
+     */
+    private long durableLsn;
+    /**
+     * Si true, un meneur est en train de vider le journal.
+     */
+    private boolean flushing;
+
+    private long syncCount;
+
+    /**
+     * Ouvre (ou crée) un journal. Un enregistrement incomplet ou corrompu en fin de fichier, laissé par un arrêt
+     * brutal pendant une écriture, est supprimé.
+     *
+     * @param file                le fichier du journal
+     * @param groupCommit         true pour regrouper les écritures et les fsync de plusieurs rédacteurs,
+     *                            false pour forcer chaque enregistrement sur le disque à sa validation
+     * @param flushIntervalMicros en validation groupée, le temps pendant lequel le meneur attend d'autres
+     *                            enregistrements avant de vider le journal (0 pour vider immédiatement)
+     * @throws IOException si le fichier ne peut pas être ouvert ou n'est pas un journal
+     */
+    public WriteAheadLog(Path file, boolean groupCommit, long flushIntervalMicros) throws IOException {
+        if (flushIntervalMicros < 0)
+            throw new IllegalArgumentException("Illegal flush interval: " + flushIntervalMicros);
+
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.groupCommit = groupCommit;
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushIntervalMicros);
+
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(channel, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) ;
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Invalid file format. Not a write-ahead log.");
+            baseLsn = header.getLong();
+        }
+        appendedLsn = durableLsn = baseLsn + validLength();
+        channel.truncate(HEADER_SIZE + appendedLsn - baseLsn);
+        channel.position(HEADER_SIZE + appendedLsn - baseLsn);
+    }
+
+    /**
+     * Ajoute l'ajout d'une ligne au journal.
+     *
+     * @param row les valeurs de la ligne
+     * @return le LSN de l'enregistrement, à passer à {@link #commit(long)}
+     */
+    public long logAddRow(Object[] row) {
+        lock.lock();
+        try {
+            begin(ADD_ROW);
+            recordOut.writeInt(row.length);
+            for (Object value : row) {
+                writeValue(value);
+            }
+            return end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute l'ajout d'un lot de lignes au journal, en un seul enregistrement rejoué par {@link Table#addRows}.
+     * Seules les lignes acceptées par la table doivent être journalisées.
+     *
+     * @param rows les valeurs des lignes ajoutées
+     * @return le LSN de l'enregistrement, à passer à {@link #commit(long)}
+     */
+    public long logAddRows(Object[][] rows) {
+        lock.lock();
+        try {
+            begin(ADD_ROWS);
+            recordOut.writeInt(rows.length);
+            for (Object[] row : rows) {
+                recordOut.writeInt(row.length);
+                for (Object value : row) {
+                    writeValue(value);
+                }
+            }
+            return end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute la suppression d'une ligne au journal.
+     *
+     * @param pk la clé primaire de la ligne supprimée
+     * @return le LSN de l'enregistrement, à passer à {@link #commit(long)}
+     */
+    public long logRemoveRow(Object pk) {
+        lock.lock();
+        try {
+            begin(REMOVE_ROW);
+            writeValue(pk);
+            return end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute la mise à jour d'une cellule au journal.
+     *
+     * @param row    l'identifiant de la ligne
+     * @param column l'indice de la colonne
+     * @param value  la nouvelle valeur
+     * @return le LSN de l'enregistrement, à passer à {@link #commit(long)}
+     */
+    public long logUpdateValue(int row, int column, Object value) {
+        lock.lock();
+        try {
+            begin(UPDATE_VALUE);
+            recordOut.writeInt(row);
+            recordOut.writeInt(column);
+            writeValue(value);
+            return end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Attend que tous les enregistrements jusqu'à un LSN donné soient écrits et forcés sur le disque.
+     *
+     * @param lsn le LSN de l'enregistrement à rendre durable
+     */
+    public void commit(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                try {
+                    if (groupCommit && flushIntervalNanos > 0) {
+                        // Laisse les autres rédacteurs ajouter leurs enregistrements au même vidage
+                        lock.unlock();
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(flushIntervalNanos);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            lock.lock();
+                        }
+                    }
+                    RecordBuffer batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    long target = appendedLsn;
+                    if (groupCommit) {
+                        // Les ajouts peuvent continuer pendant l'écriture, qui se fait hors du verrou
+                        lock.unlock();
+                        try {
+                            write(batch);
+                        } finally {
+                            lock.lock();
+                        }
+                    } else {
+                        write(batch);
+                    }
+                    durableLsn = target;
+                } finally {
+                    flushing = false;
+                    flushed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rejoue sur une table les enregistrements postérieurs à un LSN donné, sans les journaliser à nouveau.
+     *
+     * @param table   la table sur laquelle appliquer les modifications
+     * @param fromLsn le LSN à partir duquel rejouer (celui du dernier instantané de la table)
+     * @return le nombre d'enregistrements rejoués
+     */
+    public int replay(Table table, long fromLsn) {
+        lock.lock();
+        try {
+            commit(appendedLsn);
+            int count = 0;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(HEADER_SIZE))));
+            long lsn = baseLsn;
+            while (lsn < durableLsn) {
+                int length = in.readInt();
+                in.readInt();
+                byte[] content = new byte[length];
+                in.readFully(content);
+                lsn += 8 + length;
+                if (lsn <= fromLsn)
+                    continue;
+
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(content));
+                switch (recordIn.readByte()) {
+                    case ADD_ROW -> {
+                        Object[] row = new Object[recordIn.readInt()];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = readValue(recordIn);
+                        }
+                        table.addRow(row);
+                    }
+                    case ADD_ROWS -> {
+                        Object[][] rows = new Object[recordIn.readInt()][];
+                        for (int i = 0; i < rows.length; i++) {
+                            rows[i] = new Object[recordIn.readInt()];
+                            for (int j = 0; j < rows[i].length; j++) {
+                                rows[i][j] = readValue(recordIn);
+                            }
+                        }
+                        table.addRows(rows);
+                    }
+                    case REMOVE_ROW -> table.removeRow(readValue(recordIn));
+                    case UPDATE_VALUE -> table.updateValue(recordIn.readInt(), recordIn.readInt(), readValue(recordIn));
+                    default -> throw new IOException("Unknown log record type");
+                }
+                count++;
+            }
+            channel.position(HEADER_SIZE + durableLsn - baseLsn);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vide le journal après un point de contrôle : les enregistrements jusqu'au LSN donné sont contenus dans
+     * l'instantané de la table et n'ont plus besoin d'être rejoués.
+     * Le journal vide est écrit à côté puis renommé : un arrêt brutal laisse l'ancien journal, dont les enregistrements
+     * sont tous antérieurs à l'instantané, ou le nouveau, dont le LSN de base est celui de l'instantané. Les LSN des
+     * enregistrements suivants restent donc toujours postérieurs au point de contrôle.
+     *
+     * @param checkpointLsn le LSN de l'instantané, qui doit être le LSN de fin du journal
+     */
+    public void truncate(long checkpointLsn) {
+        lock.lock();
+        try {
+            commit(appendedLsn);
+            if (checkpointLsn != appendedLsn)
+                throw new IllegalStateException("Log records were appended after the checkpoint");
+
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel empty = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeHeader(empty, checkpointLsn);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(HEADER_SIZE);
+            baseLsn = checkpointLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retourne le LSN de la fin du dernier enregistrement ajouté.
+     *
+     * @return le LSN de fin du journal
+     */
+    public long endLsn() {
+        lock.lock();
+        try {
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retourne le nombre de fsync effectués depuis l'ouverture du journal.
+     * En validation groupée, il est inférieur au nombre d'enregistrements validés.
+     *
+     * @return le nombre de fsync
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit(endLsn());
+        channel.close();
+    }
+
+    private void begin(byte type) {
+        record.reset();
+        record.write(type);
+    }
+
+    private long end() {
+        crc.reset();
+        crc.update(record.buffer(), 0, record.size());
+        pending.writeInt(record.size());
+        pending.writeInt((int) crc.getValue());
+        pending.write(record.buffer(), 0, record.size());
+        appendedLsn += 8 + record.size();
+        return appendedLsn;
+    }
+
+    private void write(RecordBuffer batch) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.buffer(), 0, batch.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.reset();
+        syncCount++;
+    }
+
+    private static void writeHeader(FileChannel target, long lsn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(lsn).flip();
+        while (header.hasRemaining()) {
+            target.write(header, header.position());
+        }
+        target.force(true);
+    }
+
+    /**
+     * Parcourt les enregistrements du fichier et retourne la longueur de ceux qui sont complets et intacts.
+     */
+    private long validLength() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(HEADER_SIZE))));
+        long remaining = channel.size() - HEADER_SIZE;
+        long length = 0;
+        CRC32 checksum = new CRC32();
+        try {
+            while (remaining - length >= 8) {
+                int recordLength = in.readInt();
+                int recordCrc = in.readInt();
+                if (recordLength <= 0 || recordLength > remaining - length - 8)
+                    break;
+                byte[] content = new byte[recordLength];
+                in.readFully(content);
+                checksum.reset();
+                checksum.update(content);
+                if ((int) checksum.getValue() != recordCrc)
+                    break;
+                length += 8 + recordLength;
+            }
+        } catch (EOFException e) {
+            // Enregistrement tronqué : la fin du fichier est ignorée
+        }
+        return length;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            recordOut.writeByte(NULL);
+        } else if (value instanceof Integer i) {
+            recordOut.writeByte(INTEGER);
+            recordOut.writeInt(i);
+        } else if (value instanceof Long l) {
+            recordOut.writeByte(LONG);
+            recordOut.writeLong(l);
+        } else if (value instanceof Double d) {
+            recordOut.writeByte(DOUBLE);
+            recordOut.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            recordOut.writeByte(BOOLEAN);
+            recordOut.writeBoolean(b);
+        } else if (value instanceof String s) {
+            recordOut.writeByte(STRING);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            recordOut.writeInt(bytes.length);
+            recordOut.write(bytes);
+        } else {
+            // Les autres types sont écrits avec la sérialisation Java
+            recordOut.writeByte(OBJECT);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            recordOut.writeInt(bytes.size());
+            bytes.writeTo(recordOut);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        switch (in.readByte()) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING:
+                byte[] chars = new byte[in.readInt()];
+                in.readFully(chars);
+                return new String(chars, StandardCharsets.UTF_8);
+            case OBJECT:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            default:
+                throw new IOException("Unknown log value type");
+        }
+    }
+
+    /**
+     * Un ByteArrayOutputStream dont le tableau interne est accessible, pour l'écrire sans copie.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(4096);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.DataGenerator;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le chargement d'une table ligne par ligne (addRow) avec le chargement par lots (addRows),
+ * pour des lots de 1, 100 et 10 000 lignes, avec des clés primaires croissantes ou aléatoires.
+ * Chaque mesure charge toutes les lignes dans une table vide.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class BatchInsertBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "100", "10000"})
+    public int batchSize;
+
+    @Param({"sequential", "random"})
+    public String keys;
+
+    private Object[][] rows;
+    private Table table;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Table model = createTable();
+        rows = new Object[size][];
+        for (int i = 0; i < size; i++) {
+            Object[] row = new Object[model.numColumns()];
+            row[0] = i;
+            for (int j = 1; j < row.length; j++) {
+                row[j] = DataGenerator.generateDataForColumn(model.getColumn(j));
+            }
+            rows[i] = row;
+        }
+        if (keys.equals("random")) {
+            Random random = new Random(42);
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Object[] swap = rows[i];
+                rows[i] = rows[j];
+                rows[j] = swap;
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createEmptyTable() {
+        table = createTable();
+    }
+
+    @Benchmark
+    public int addRow() {
+        int added = 0;
+        for (Object[] row : rows) {
+            if (table.addRow(row))
+                added++;
+        }
+        return added;
+    }
+
+    @Benchmark
+    public int addRows() {
+        int added = 0;
+        for (int from = 0; from < size; from += batchSize) {
+            added += table.addRows(Arrays.copyOfRange(rows, from, Math.min(from + batchSize, size)));
+        }
+        return added;
+    }
+
+    private static Table createTable() {
+        Table table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Email", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+        return table;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.Column;
+import fr.miage.fsgbd.DoubleColumn;
+import fr.miage.fsgbd.IntColumn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le parcours complet d'une colonne stockée dans une ArrayList d'objets boxés (Column)
+ * avec celui d'une colonne typée stockée dans un tableau primitif (IntColumn, DoubleColumn).
+ * L'empreinte mémoire de chaque colonne est affichée à la construction.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class ColumnStorageBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Column<Integer> boxedInts;
+    private Column<Double> boxedDoubles;
+    private IntColumn ints;
+    private DoubleColumn doubles;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boxedInts = new Column<>(Integer.class, "int", 0);
+        boxedDoubles = new Column<>(Double.class, "double", 0);
+        ints = new IntColumn("int", 0);
+        doubles = new DoubleColumn("double", 0);
+
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            int intValue = random.nextInt();
+            double doubleValue = random.nextDouble();
+            boxedInts.addValue(intValue);
+            boxedDoubles.addValue(doubleValue);
+            ints.addValue(intValue);
+            doubles.addValue(doubleValue);
+        }
+
+        System.out.println();
+        System.out.println("Column<Integer> : " + boxedInts.memoryFootprint() / (1024 * 1024) + " Mo, IntColumn : " + ints.memoryFootprint() / (1024 * 1024) + " Mo");
+        System.out.println("Column<Double> : " + boxedDoubles.memoryFootprint() / (1024 * 1024) + " Mo, DoubleColumn : " + doubles.memoryFootprint() / (1024 * 1024) + " Mo");
+    }
+
+    @Benchmark
+    public long sumBoxedInts() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += (Integer) boxedInts.getValue(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long sumInts() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += ints.getInt(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sumBoxedDoubles() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += (Double) boxedDoubles.getValue(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sumDoubles() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += doubles.getDouble(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,104 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BooleanColumn;
+import fr.miage.fsgbd.CSVExporter;
+import fr.miage.fsgbd.ColumnarFile;
+import fr.miage.fsgbd.Condition;
+import fr.miage.fsgbd.DoubleColumn;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le format colonnaire au format CSV sur une même table (clé croissante, chaîne très variée, chaîne peu
+ * variée, entier, double, booléen) : durée de l'export et de l'import, et lecture filtrée d'un intervalle de clés,
+ * qui ne lit que les groupes de lignes dont les statistiques le permettent. La taille des deux fichiers est affichée
+ * à la préparation du benchmark.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class ColumnarFileBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    private Table table;
+    private Path csvFile;
+    private Path columnarFile;
+    private Path output;
+    private Condition keyRange;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+        table.addColumn(new StringColumn("Ville", 0));
+        table.addColumn(new IntColumn("Age", 0));
+        table.addColumn(new DoubleColumn("Salaire", 0));
+        table.addColumn(new BooleanColumn("Actif", 0));
+
+        Random random = new Random(42);
+        Object[][] batch = new Object[100_000][];
+        for (int first = 0; first < rows; first += batch.length) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Object[]{first + i, "nom" + random.nextInt(100_000), "Ville" + random.nextInt(50),
+                        random.nextInt(100), 1000 + random.nextInt(400_000) / 100.0, random.nextBoolean()};
+            }
+            table.addRows(batch);
+        }
+
+        csvFile = File.createTempFile("table", ".csv").toPath();
+        columnarFile = File.createTempFile("table", ColumnarFile.EXTENSION).toPath();
+        output = File.createTempFile("output", ".tmp").toPath();
+        CSVExporter.export(csvFile.toString(), table, false, 1);
+        ColumnarFile.export(columnarFile.toString(), table);
+        System.out.printf("CSV: %d bytes, columnar: %d bytes%n", Files.size(csvFile), Files.size(columnarFile));
+
+        keyRange = Condition.between("ID", rows / 2, rows / 2 + 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(csvFile);
+        Files.delete(columnarFile);
+        Files.delete(output);
+    }
+
+    @Benchmark
+    public void exportCsv() throws IOException {
+        CSVExporter.export(output.toString(), table, false, 1);
+    }
+
+    @Benchmark
+    public void exportColumnar() throws IOException {
+        ColumnarFile.export(output.toString(), table);
+    }
+
+    @Benchmark
+    public Table importCsv() throws IOException {
+        return CSVExporter.importFrom(csvFile.toString());
+    }
+
+    @Benchmark
+    public Table importColumnar() throws IOException {
+        return ColumnarFile.importFrom(columnarFile.toString());
+    }
+
+    @Benchmark
+    public List<Object[]> scanColumnar() throws IOException {
+        return ColumnarFile.scan(columnarFile.toString(), keyRange);
+    }
+}
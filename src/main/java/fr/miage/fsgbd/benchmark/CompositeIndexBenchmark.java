@@ -0,0 +1,104 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BPlusTree;
+import fr.miage.fsgbd.CompositeIndex;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la recherche des lignes portant un nom et une adresse donnés (puis un intervalle d'âges),
+ * par un index composite (Nom, Adresse, Age) et par un index secondaire sur le nom dont on filtre les lignes.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class CompositeIndexBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Table table;
+    private CompositeIndex composite;
+    private String[] names;
+    private String[] addresses;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Nom", 0));
+        table.addColumn(new StringColumn("Adresse", 0));
+        table.addColumn(new IntColumn("Age", 0));
+
+        names = new String[1000];
+        addresses = new String[100];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "nom" + i;
+        }
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = "adresse" + i;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Object[] row = new Object[table.numColumns()];
+        for (int i = 0; i < size; i++) {
+            row[0] = i;
+            row[1] = names[random.nextInt(names.length)];
+            row[2] = addresses[random.nextInt(addresses.length)];
+            row[3] = random.nextInt(100);
+            table.addRow(row);
+        }
+        table.createIndex("Nom", false);
+        composite = table.createCompositeIndex("Nom", "Adresse", "Age");
+    }
+
+    @Benchmark
+    public int[] compositeEquality() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return composite.search(names[random.nextInt(names.length)], addresses[random.nextInt(addresses.length)]);
+    }
+
+    @Benchmark
+    public List<Integer> singleColumnEquality() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String address = addresses[random.nextInt(addresses.length)];
+        List<Integer> rows = new ArrayList<>();
+        for (int row : table.findRowIndexesBy("Nom", names[random.nextInt(names.length)])) {
+            if (address.equals(table.getColumn(2).getValue(row)))
+                rows.add(row);
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int[] compositeRange() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(80);
+        return composite.searchRange(new Object[]{names[random.nextInt(names.length)], addresses[random.nextInt(addresses.length)]},
+                from, BPlusTree.RangePolicy.INCLUSIVE, from + 20, BPlusTree.RangePolicy.INCLUSIVE);
+    }
+
+    @Benchmark
+    public List<Integer> singleColumnRange() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String address = addresses[random.nextInt(addresses.length)];
+        int from = random.nextInt(80);
+        List<Integer> rows = new ArrayList<>();
+        for (int row : table.findRowIndexesBy("Nom", names[random.nextInt(names.length)])) {
+            if (address.equals(table.getColumn(2).getValue(row))) {
+                int age = (Integer) table.getColumn(3).getValue(row);
+                if (age >= from && age <= from + 20)
+                    rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
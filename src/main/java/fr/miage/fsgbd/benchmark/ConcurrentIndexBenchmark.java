@@ -0,0 +1,139 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.ConcurrentIntBPlusTree;
+import fr.miage.fsgbd.IntBPlusTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mesure le débit des lectures et des écritures d'un index partagé selon le nombre de threads :
+ * un arbre B+ à clés int protégé par un verrou global (lecture/écriture) et l'arbre B+ concurrent
+ * (couplage optimiste des lectures, verrouillage des seuls noeuds modifiés par les écritures).
+ * Chaque benchmark existe pour 1, 2, 4 threads et autant de threads que de coeurs (suffixe max).
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+public class ConcurrentIndexBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"64"})
+    public int branchingFactor;
+
+    @Param({"global-lock", "concurrent"})
+    public String index;
+
+    private IntBPlusTree lockedTree;
+    private ReentrantReadWriteLock lock;
+    private ConcurrentIntBPlusTree concurrentTree;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] keys = new int[size];
+        int[] rows = new int[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            // Les clés paires sont chargées ; les écritures ajoutent et retirent des clés impaires
+            keys[i] = 2 * i;
+            rows[i] = random.nextInt(size);
+        }
+        if (index.equals("concurrent")) {
+            concurrentTree = new ConcurrentIntBPlusTree(branchingFactor);
+            concurrentTree.bulkLoad(keys, rows, size, 0.7);
+        } else {
+            lockedTree = new IntBPlusTree(branchingFactor);
+            lockedTree.bulkLoad(keys, rows, size, 0.7);
+            lock = new ReentrantReadWriteLock();
+        }
+    }
+
+    private int read() {
+        int key = 2 * ThreadLocalRandom.current().nextInt(size);
+        if (concurrentTree != null)
+            return concurrentTree.search(key);
+        lock.readLock().lock();
+        try {
+            return lockedTree.search(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = 2 * random.nextInt(size) + 1;
+        boolean insert = random.nextBoolean();
+        if (concurrentTree != null) {
+            if (insert)
+                concurrentTree.insert(key, key);
+            else
+                concurrentTree.delete(key);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (insert)
+                lockedTree.insert(key, key);
+            else
+                lockedTree.delete(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int read_1() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public int read_2() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int read_4() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int read_max() {
+        return read();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write_1() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void write_2() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void write_4() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void write_max() {
+        write();
+    }
+}
@@ -0,0 +1,78 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BooleanColumn;
+import fr.miage.fsgbd.CSVExporter;
+import fr.miage.fsgbd.DoubleColumn;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure l'export en flux d'une table (entier, chaîne, entier, double, booléen par ligne) dans un fichier CSV,
+ * dans l'ordre de stockage ou dans l'ordre de la clé primaire, selon le nombre de threads qui mettent en forme
+ * les lignes. Les clés sont insérées dans le désordre pour que les deux ordres diffèrent.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class CsvExportBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean orderByPK;
+
+    private Table table;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 32));
+        table.addColumn(new StringColumn("Nom", 0));
+        table.addColumn(new IntColumn("Age", 0));
+        table.addColumn(new DoubleColumn("Salaire", 0));
+        table.addColumn(new BooleanColumn("Actif", 0));
+
+        Random random = new Random(42);
+        int[] ids = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            int j = random.nextInt(i + 1);
+            ids[i] = ids[j];
+            ids[j] = i;
+        }
+        Object[][] batch = new Object[100_000][];
+        for (int first = 0; first < rows; first += batch.length) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Object[]{ids[first + i], "nom" + random.nextInt(100_000), random.nextInt(100),
+                        1000 + random.nextInt(400_000) / 100.0, random.nextBoolean()};
+            }
+            table.addRows(batch);
+        }
+        file = File.createTempFile("table", ".csv").toPath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public void exportCsv() throws IOException {
+        CSVExporter.export(file.toString(), table, orderByPK, threads);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.CSVExporter;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure l'import en flux d'un fichier CSV généré (entier, chaîne, entier, double, booléen par ligne), index de la clé
+ * primaire compris, selon le nombre de threads qui analysent le fichier. Le débit en lignes par seconde est le nombre
+ * de lignes divisé par la durée d'une opération ; la mémoire se mesure en lançant le benchmark avec un tas limité
+ * (-jvmArgs -Xmx...) ou avec -prof gc.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class CsvImportBenchmark {
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("table", ".csv").toPath();
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("ID,Nom,Age,Salaire,Actif\nInteger,String,Integer,Double,Boolean\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + ",nom" + random.nextInt(100_000) + "," + random.nextInt(100) + ","
+                        + (1000 + random.nextInt(400_000) / 100.0) + "," + random.nextBoolean() + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public Table importCsv() throws IOException {
+        return CSVExporter.importFrom(file.toString(), threads);
+    }
+}
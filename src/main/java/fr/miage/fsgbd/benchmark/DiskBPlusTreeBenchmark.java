@@ -0,0 +1,102 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BufferPool;
+import fr.miage.fsgbd.DiskIntBPlusTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure un arbre B+ stocké sur disque (DiskIntBPlusTree) selon le nombre de cadres de son cache de pages.
+ * En plus du temps, le benchmark rapporte les succès, échecs et évictions du cache pendant chaque itération,
+ * ce qui permet de dimensionner le cache par rapport au nombre de pages de l'arbre.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class DiskBPlusTreeBenchmark {
+    private static final int PAGE_SIZE = 4096;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"64", "1024", "16384"})
+    public int frames;
+
+    private Path file;
+    private BufferPool pool;
+    private DiskIntBPlusTree tree;
+    private Random random;
+
+    /**
+     * Compteurs du cache rapportés par JMH avec les résultats de chaque itération.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PoolCounters {
+        public long hits;
+        public long misses;
+        public long evictions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        random = new Random(42);
+        file = Files.createTempFile("index", ".idx");
+        Files.delete(file);
+        pool = new BufferPool(file, PAGE_SIZE, frames);
+        tree = new DiskIntBPlusTree(pool);
+
+        int[] keys = new int[size];
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+            rows[i] = i;
+        }
+        tree.bulkLoad(keys, rows, size, 0.7);
+        tree.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int search(PoolCounters counters) {
+        long hits = pool.getHits(), misses = pool.getMisses(), evictions = pool.getEvictions();
+        int row = tree.search(2 * random.nextInt(size));
+        count(counters, hits, misses, evictions);
+        return row;
+    }
+
+    @Benchmark
+    public void insert(PoolCounters counters) {
+        long hits = pool.getHits(), misses = pool.getMisses(), evictions = pool.getEvictions();
+        // Les clés impaires ne sont pas chargées au départ : les insertions ajoutent de nouvelles clés au hasard
+        int key = 2 * random.nextInt(size) + 1;
+        tree.insert(key, key);
+        count(counters, hits, misses, evictions);
+    }
+
+    private void count(PoolCounters counters, long hits, long misses, long evictions) {
+        counters.hits += pool.getHits() - hits;
+        counters.misses += pool.getMisses() - misses;
+        counters.evictions += pool.getEvictions() - evictions;
+    }
+}
@@ -0,0 +1,99 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.IColumn;
+import fr.miage.fsgbd.IIndex;
+import fr.miage.fsgbd.IndexKind;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'index par hachage et l'arbre B+ d'une colonne pour les recherches ponctuelles (clé présente ou absente)
+ * et pour l'insertion de nouvelles clés, sur des colonnes Integer et String.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class HashIndexBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"BTREE", "HASH"})
+    public IndexKind kind;
+
+    @Param({"int", "string"})
+    public String keyType;
+
+    private IColumn column;
+    private IIndex<Object> index;
+    private Object[] hits;
+    private Object[] misses;
+    private int probeIndex;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        column = keyType.equals("int") ? new IntColumn("ID", 0) : new StringColumn("ID", 0);
+        index = IIndex.forType(column.getType(), 64, false, kind);
+        Random random = new Random(42);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+        }
+        // Clés dans un ordre aléatoire, pour ne pas favoriser les parcours séquentiels de l'arbre
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+        }
+        for (int i = 0; i < size; i++) {
+            Object key = key(keys[i]);
+            column.addValue(key);
+            index.insert(key, i);
+        }
+        column.enableIndex(63, kind);
+
+        hits = new Object[1 << 16];
+        misses = new Object[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = key(2 * random.nextInt(size));
+            misses[i] = key(2 * random.nextInt(size) + 1);
+        }
+        nextKey = 2 * size;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // Retire les clés ajoutées par le benchmark d'insertion pour garder une taille constante
+        for (int key = 2 * size; key < nextKey; key++) {
+            index.delete(key(key));
+        }
+        nextKey = 2 * size;
+    }
+
+    private Object key(int key) {
+        return keyType.equals("int") ? (Object) key : "key" + key;
+    }
+
+    @Benchmark
+    public int searchHit() {
+        return column.search(hits[probeIndex++ & (hits.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return column.contains(misses[probeIndex++ & (misses.length - 1)]);
+    }
+
+    @Benchmark
+    public void insert() {
+        index.insert(key(nextKey++), 0);
+    }
+}
@@ -0,0 +1,75 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.Column;
+import fr.miage.fsgbd.IntBPlusTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le temps de construction d'un index : insertion clé par clé depuis la racine
+ * ou chargement en masse (tri puis construction de bas en haut).
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class IndexBuildBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"64"})
+    public int branchingFactor;
+
+    private int[] keys;
+    private int[] rows;
+    private Column<Integer> column;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        keys = new int[size];
+        rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+            rows[i] = i;
+        }
+        // Mélange des clés : l'ordre des lignes ne correspond pas à l'ordre des clés
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+
+        column = new Column<>(Integer.class, "id", 0);
+        for (int key : keys) {
+            column.addValue(key);
+        }
+    }
+
+    @Benchmark
+    public IntBPlusTree insertOneByOne() {
+        IntBPlusTree tree = new IntBPlusTree(branchingFactor);
+        for (int i = 0; i < size; i++) {
+            tree.insert(keys[i], rows[i]);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public IntBPlusTree bulkLoad() {
+        IntBPlusTree tree = new IntBPlusTree(branchingFactor);
+        tree.bulkLoad(keys, rows, size, Column.DEFAULT_FILL_FACTOR);
+        return tree;
+    }
+
+    @Benchmark
+    public Column<Integer> columnEnableIndex() {
+        column.enableIndex(branchingFactor - 1);
+        return column;
+    }
+}
@@ -0,0 +1,66 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.Column;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charge mixte insertion / suppression / recherche sur une table indexée, avec identifiants de ligne
+ * stables (pierres tombales) ou avec décalage des lignes lors d'une suppression.
+ * Les clés vivantes forment une fenêtre glissante [low, high) : on insère en haut et on supprime en bas.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+public class MixedWorkloadBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compactOnDelete;
+
+    private Table table;
+    private Random random;
+    private int low;
+    private int high;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        table = new Table(compactOnDelete);
+        table.addColumn(new Column<Integer>(Integer.class, "id", 4));
+        table.addColumn(new Column<String>(String.class, "name", 0));
+
+        for (int i = 0; i < size; i++) {
+            table.addRow(new Object[]{i, "name" + i});
+        }
+        random = new Random(42);
+        low = 0;
+        high = size;
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        table.addRow(new Object[]{high, "name" + high});
+        high++;
+        return table.removeRow(low++);
+    }
+
+    @Benchmark
+    public Object mixed() {
+        int op = random.nextInt(10);
+        if (op < 8 || high - low <= 1) {
+            return table.getRowByPK(low + random.nextInt(high - low));
+        } else if (op == 8) {
+            int key = high++;
+            return table.addRow(new Object[]{key, "name" + key});
+        } else {
+            return table.removeRow(low++);
+        }
+    }
+}
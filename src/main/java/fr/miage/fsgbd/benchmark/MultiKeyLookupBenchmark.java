@@ -0,0 +1,101 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.DataGenerator;
+import fr.miage.fsgbd.IntBPlusTree;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la recherche d'une liste de clés primaires (liste IN) clé par clé, avec une descente depuis la racine
+ * et une nouvelle ligne par clé, et la recherche groupée (les clés sont triées et cherchées en un seul parcours
+ * de l'arbre, les lignes sont écrites dans un tampon réutilisé), sur la table et directement sur l'index.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class MultiKeyLookupBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10", "1000", "100000"})
+    public int keyCount;
+
+    private Table table;
+    private IntBPlusTree tree;
+    private Object[] pks;
+    private int[] keys;
+    private Object[][] rowBuffer;
+    private int[] rowIdBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Email", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+
+        tree = new IntBPlusTree(64);
+        int[] rows = new int[size];
+        int[] allKeys = new int[size];
+        Object[] row = new Object[table.numColumns()];
+        for (int i = 0; i < size; i++) {
+            row[0] = i;
+            for (int j = 1; j < row.length; j++) {
+                row[j] = DataGenerator.generateDataForColumn(table.getColumn(j));
+            }
+            table.addRow(row);
+            allKeys[i] = i;
+            rows[i] = i;
+        }
+        tree.bulkLoad(allKeys, rows, size, 0.9);
+
+        // Une clé sur dix est absente de la table
+        Random random = new Random(42);
+        keys = new int[keyCount];
+        pks = new Object[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = random.nextInt(size + size / 10);
+            pks[i] = keys[i];
+        }
+        rowBuffer = new Object[keyCount][];
+        rowIdBuffer = new int[keyCount];
+    }
+
+    @Benchmark
+    public int getRowByPK() {
+        int found = 0;
+        for (Object pk : pks) {
+            if (table.getRowByPK(pk) != null)
+                found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getRowsByPKs() {
+        return table.getRowsByPKs(pks, rowBuffer);
+    }
+
+    @Benchmark
+    public int search() {
+        int sum = 0;
+        for (int key : keys) {
+            sum += tree.search(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int[] searchAll() {
+        tree.searchAll(keys, keyCount, rowIdBuffer);
+        return rowIdBuffer;
+    }
+}
@@ -0,0 +1,100 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.AbstractColumn;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.OffHeapIntColumn;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare une colonne indexée stockée sur le tas (IntColumn) et hors du tas (OffHeapIntColumn)
+ * sous une charge de mises à jour qui fait évoluer l'index en continu.
+ * En plus du temps, le benchmark rapporte les octets alloués sur le tas et le temps passé dans le ramasse-miettes
+ * pendant chaque itération (compteurs allocatedBytes et gcTimeMs).
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@BenchmarkMode(Mode.AverageTime)
+public class OffHeapStorageBenchmark {
+    private static final int UPDATES_PER_OP = 100_000;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private AbstractColumn<Integer> column;
+    private int[] keys;
+    private Random random;
+
+    /**
+     * Compteurs rapportés par JMH avec les résultats de chaque itération.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class GcCounters {
+        public long allocatedBytes;
+        public long gcTimeMs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            allocatedBytes = 0;
+            gcTimeMs = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new Random(42);
+        keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+
+        column = offHeap ? new OffHeapIntColumn("id", 0) : new IntColumn("id", 0);
+        for (int key : keys) {
+            column.addValue(key);
+        }
+        column.enableIndex(63);
+    }
+
+    @Benchmark
+    public AbstractColumn<Integer> updates(GcCounters counters) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long gcBefore = gcTime();
+
+        for (int i = 0; i < UPDATES_PER_OP; i++) {
+            int row = random.nextInt(size);
+            // Bascule la clé entre deux plages disjointes : elle reste unique dans l'index
+            keys[row] ^= 1 << 30;
+            column.updateValue(row, keys[row]);
+        }
+
+        counters.allocatedBytes += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        counters.gcTimeMs += gcTime() - gcBefore;
+        return column;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,77 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.Aggregate;
+import fr.miage.fsgbd.Condition;
+import fr.miage.fsgbd.DoubleColumn;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure l'accélération des agrégats calculés en parallèle par un pool de fork/join selon le nombre de threads
+ * (1 thread correspond à l'exécution séquentielle) : comptage filtré, somme, minimum, maximum et moyenne
+ * d'une colonne de doubles, et regroupement sur une colonne de chaînes.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class ParallelAggregateBenchmark {
+    @Param({"10000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    private Table table;
+    private ForkJoinPool pool;
+    private Condition filter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 0));
+        table.addColumn(new IntColumn("Age", 0));
+        table.addColumn(new DoubleColumn("Salaire", 0));
+        table.addColumn(new StringColumn("Ville", 0));
+
+        Random random = new Random(42);
+        Object[][] batch = new Object[100_000][];
+        for (int first = 0; first < size; first += batch.length) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Object[]{first + i, random.nextInt(100), 1000 + random.nextDouble() * 4000, "Ville" + random.nextInt(50)};
+            }
+            table.addRows(batch);
+        }
+        pool = new ForkJoinPool(threads);
+        filter = Condition.between("Age", 20, 60);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long count() {
+        return table.select().where(filter).parallel(pool).count();
+    }
+
+    @Benchmark
+    public Aggregate aggregate() {
+        return table.select().where(filter).parallel(pool).aggregate("Salaire");
+    }
+
+    @Benchmark
+    public Map<Object, Aggregate> groupBy() {
+        return table.select().parallel(pool).groupBy("Ville", "Salaire");
+    }
+}
@@ -0,0 +1,70 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.PartitionedTable;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mesure le débit des ajouts de lignes selon le nombre de rédacteurs concurrents et le nombre de partitions
+ * d'une table répartie par hachage de la clé primaire (une seule partition équivaut à une table sous verrou global).
+ * Chaque benchmark existe pour 1, 2, 4 threads et autant de threads que de coeurs (suffixe max).
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+public class PartitionedTableBenchmark {
+    @Param({"1", "4", "16"})
+    public int partitions;
+
+    private PartitionedTable table;
+    private final AtomicInteger nextKey = new AtomicInteger();
+
+    // Chaque itération repart d'une table vide, pour que la taille des partitions ne dépende pas du débit
+    @Setup(Level.Iteration)
+    public void setup() {
+        table = new PartitionedTable(partitions, () -> {
+            Table partition = new Table();
+            partition.addColumn(new IntColumn("ID", 63));
+            partition.addColumn(new StringColumn("Nom", 0));
+            return partition;
+        });
+        nextKey.set(0);
+    }
+
+    private boolean add() {
+        int key = nextKey.getAndIncrement();
+        return table.addRow(new Object[]{key, "nom" + key});
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean addRow_1() {
+        return add();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean addRow_2() {
+        return add();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean addRow_4() {
+        return add();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean addRow_max() {
+        return add();
+    }
+}
@@ -0,0 +1,87 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BPlusTree;
+import fr.miage.fsgbd.IntBPlusTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'arbre B+ générique (clés Integer) avec l'arbre B+ à clés int primitives,
+ * pour la recherche et l'insertion de clés aléatoires.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+public class PrimitiveIndexBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"64"})
+    public int branchingFactor;
+
+    private BPlusTree<Integer, Integer> genericTree;
+    private IntBPlusTree intTree;
+    private int[] probes;
+    private int probeIndex;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        genericTree = new BPlusTree<>(branchingFactor);
+        intTree = new IntBPlusTree(branchingFactor);
+
+        Random random = new Random(42);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt(Integer.MAX_VALUE / 2);
+            genericTree.insert(keys[i], i);
+            intTree.insert(keys[i], i);
+        }
+
+        // Les clés cherchées sont tirées parmi les clés insérées : chaque recherche trouve sa clé
+        probes = new int[1 << 16];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = keys[random.nextInt(size)];
+        }
+        nextKey = Integer.MAX_VALUE / 2;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        // Retire les clés ajoutées par les benchmarks d'insertion pour garder une taille constante
+        for (int key = Integer.MAX_VALUE / 2; key < nextKey; key++) {
+            genericTree.delete(key);
+            intTree.delete(key);
+        }
+        nextKey = Integer.MAX_VALUE / 2;
+    }
+
+    private int nextProbe() {
+        return probes[probeIndex++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public Integer searchGeneric() {
+        return genericTree.search(nextProbe());
+    }
+
+    @Benchmark
+    public int searchInt() {
+        return intTree.search(nextProbe());
+    }
+
+    @Benchmark
+    public void insertGeneric() {
+        genericTree.insert(nextKey++, 0);
+    }
+
+    @Benchmark
+    public void insertInt() {
+        intTree.insert(nextKey++, 0);
+    }
+}
@@ -0,0 +1,86 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.BPlusTree;
+import fr.miage.fsgbd.Column;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare une requête par intervalle sur la clé primaire (BETWEEN) via la chaîne des feuilles de l'arbre B+
+ * avec un parcours linéaire des valeurs de la colonne suivi d'un tri.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+public class RangeScanBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"10", "1000"})
+    public int rangeWidth;
+
+    private Table indexedTable;
+    private Table nonIndexedTable;
+    private int from;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        indexedTable = new Table();
+        indexedTable.addColumn(new Column<Integer>(Integer.class, "id", 64));
+        indexedTable.addColumn(new Column<String>(String.class, "name", 0));
+
+        nonIndexedTable = new Table();
+        nonIndexedTable.addColumn(new Column<Integer>(Integer.class, "id", 0));
+        nonIndexedTable.addColumn(new Column<String>(String.class, "name", 0));
+
+        // Les clés sont insérées dans le désordre : la liste des valeurs n'est pas triée
+        List<Integer> keys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, new Random(42));
+        for (int key : keys) {
+            indexedTable.addRow(new Object[]{key, "name" + key});
+            nonIndexedTable.addRow(new Object[]{key, "name" + key});
+        }
+
+        from = size / 2;
+    }
+
+    @Benchmark
+    public List<Object[]> rangeBTree() {
+        return indexedTable.getRowsByPKRange(from, from + rangeWidth - 1);
+    }
+
+    @Benchmark
+    public List<Object[]> rangeLinearScan() {
+        return nonIndexedTable.getRowsByPKRange(from, from + rangeWidth - 1);
+    }
+
+    @Benchmark
+    public void orderedFullScanBTree(Blackhole blackhole) {
+        Iterator<Integer> rows = indexedTable.getPkColumn().rangeIterator(null, BPlusTree.RangePolicy.INCLUSIVE, null, BPlusTree.RangePolicy.INCLUSIVE);
+        while (rows.hasNext()) {
+            blackhole.consume(rows.next());
+        }
+    }
+
+    @Benchmark
+    public void orderedFullScanSort(Blackhole blackhole) {
+        Iterator<Integer> rows = nonIndexedTable.getPkColumn().rangeIterator(null, BPlusTree.RangePolicy.INCLUSIVE, null, BPlusTree.RangePolicy.INCLUSIVE);
+        while (rows.hasNext()) {
+            blackhole.consume(rows.next());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.DataGenerator;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la recherche de toutes les lignes portant un nom donné, par parcours de la colonne (sans index)
+ * et par un index secondaire non unique, ainsi que le coût de cet index sur les ajouts de lignes.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class SecondaryIndexBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"none", "secondary"})
+    public String index;
+
+    private Table table;
+    private String[] names;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Email", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+
+        names = new String[1000];
+        Object[] row = new Object[table.numColumns()];
+        for (int i = 0; i < size; i++) {
+            row[0] = i;
+            row[1] = DataGenerator.generateDataForColumn(table.getColumn(1));
+            row[2] = "nom" + (i % names.length);
+            table.addRow(row);
+        }
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "nom" + i;
+        }
+        if (index.equals("secondary")) {
+            table.createIndex("Nom", false);
+        }
+        nextKey = size;
+    }
+
+    @Benchmark
+    public List<Object[]> findRowsBy() {
+        return table.findRowsBy("Nom", names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+
+    @Benchmark
+    public boolean addRow() {
+        int key = nextKey++;
+        return table.addRow(new Object[]{key, "user" + key + "@example.com", names[key % names.length]});
+    }
+}
@@ -0,0 +1,109 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.DataGenerator;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mesure la latence des lecteurs pendant que des écrivains ajoutent des lignes en continu :
+ * soit les lecteurs lisent la table sous son verrou (global-lock), soit ils lisent un instantané de la table,
+ * sans verrou, renouvelé régulièrement par les écrivains (snapshot).
+ * Le groupe readOnly mesure les lecteurs seuls, comme référence.
+ * Les lecteurs lisent une ligne par son numéro (row) ou par sa clé primaire (pk) : en mode snapshot, la lecture par clé
+ * inclut la première recherche dans chaque nouvel instantané, qui partage l'index de la table au lieu de le reconstruire.
+ */
+@State(Scope.Group)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.SampleTime)
+public class SnapshotBenchmark {
+    /**
+     * Le nombre d'ajouts entre deux renouvellements de l'instantané.
+     */
+    private static final int SNAPSHOT_INTERVAL = 10_000;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"global-lock", "snapshot"})
+    public String mode;
+
+    @Param({"row", "pk"})
+    public String lookup;
+
+    private Table table;
+    private volatile Table snapshot;
+    private final AtomicInteger nextKey = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Email", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+
+        Object[] row = new Object[table.numColumns()];
+        for (int i = 0; i < size; i++) {
+            row[0] = i;
+            for (int j = 1; j < row.length; j++) {
+                row[j] = DataGenerator.generateDataForColumn(table.getColumn(j));
+            }
+            table.addRow(row);
+        }
+        nextKey.set(size);
+        snapshot = table.snapshot();
+    }
+
+    private Object[] read() {
+        int row = ThreadLocalRandom.current().nextInt(size);
+        if (mode.equals("snapshot")) {
+            return read(snapshot, row);
+        }
+        synchronized (table) {
+            return read(table, row);
+        }
+    }
+
+    private Object[] read(Table source, int row) {
+        // Les clés primaires des lignes initiales sont leurs numéros de ligne
+        return lookup.equals("pk") ? source.getRowByPK(row) : source.getRow(row);
+    }
+
+    private boolean write() {
+        int key = nextKey.getAndIncrement();
+        boolean added = table.addRow(new Object[]{key, "user" + key + "@example.com", "user" + key});
+        if (mode.equals("snapshot") && key % SNAPSHOT_INTERVAL == 0) {
+            snapshot = table.snapshot();
+        }
+        return added;
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Object[] readAlone() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(4)
+    public Object[] reader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(2)
+    public boolean writer() {
+        return write();
+    }
+}
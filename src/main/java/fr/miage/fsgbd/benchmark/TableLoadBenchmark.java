@@ -0,0 +1,87 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.DataGenerator;
+import fr.miage.fsgbd.FileSerializer;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import fr.miage.fsgbd.TableFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le chargement d'une table sérialisée (.abr, ObjectInputStream puis reconstruction des index)
+ * avec l'ouverture du même contenu au format paginé (.tbl, projection en mémoire).
+ * La source est soit un fichier .abr existant (par exemple arbre.abr), soit une table générée d'un nombre de lignes donné.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+public class TableLoadBenchmark {
+    @Param({"arbre.abr", "100000", "1000000"})
+    public String source;
+
+    private String abrFile;
+    private String tblFile;
+    private Object firstKey;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Table table;
+        if (source.endsWith(".abr")) {
+            table = new FileSerializer<Table>(source).deserialize();
+            abrFile = source;
+        } else {
+            table = generate(Integer.parseInt(source));
+            abrFile = File.createTempFile("table", ".abr").getPath();
+            new FileSerializer<Table>(abrFile).serialize(table);
+        }
+        tblFile = File.createTempFile("table", TableFile.EXTENSION).getPath();
+        TableFile.save(table, tblFile);
+        firstKey = table.getPkColumn().getValue(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!abrFile.equals(source)) {
+            new File(abrFile).delete();
+        }
+        new File(tblFile).delete();
+    }
+
+    @Benchmark
+    public Object[] loadAbr() {
+        Table table = new FileSerializer<Table>(abrFile).deserialize();
+        return table.getRowByPK(firstKey);
+    }
+
+    @Benchmark
+    public Object[] openTbl() throws IOException {
+        Table table = TableFile.open(tblFile);
+        return table.getRowByPK(firstKey);
+    }
+
+    private static Table generate(int numRows) {
+        Table table = new Table();
+        table.addColumn(new IntColumn("ID", 63));
+        table.addColumn(new StringColumn("Email", 0));
+        table.addColumn(new StringColumn("Nom", 0));
+        table.addColumn(new StringColumn("Adresse", 0));
+
+        Object[] row = new Object[table.numColumns()];
+        for (int i = 0; i < numRows; i++) {
+            row[0] = i;
+            for (int j = 1; j < row.length; j++) {
+                row[j] = DataGenerator.generateDataForColumn(table.getColumn(j));
+            }
+            table.addRow(row);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,87 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.Condition;
+import fr.miage.fsgbd.DoubleColumn;
+import fr.miage.fsgbd.IColumn;
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare un parcours complet ligne par ligne (lecture des valeurs de chaque cellule puis test de la condition)
+ * avec le moteur de requêtes, qui évalue la condition et les agrégats par tranches de lignes sur le stockage
+ * primitif des colonnes : comptage et somme des lignes vérifiant un filtre, pour plusieurs sélectivités.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+public class VectorScanBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    /**
+     * Le pourcentage de lignes qui vérifient le filtre.
+     */
+    @Param({"1", "50", "99"})
+    public int selectivity;
+
+    private Table table;
+    private Condition filter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new Table();
+        table.addColumn(new IntColumn("ID", 0));
+        table.addColumn(new IntColumn("Age", 0));
+        table.addColumn(new DoubleColumn("Salaire", 0));
+
+        Random random = new Random(42);
+        Object[][] batch = new Object[100_000][];
+        for (int first = 0; first < size; first += batch.length) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Object[]{first + i, random.nextInt(100), 1000 + random.nextDouble() * 4000};
+            }
+            table.addRows(batch);
+        }
+        filter = Condition.lt("Age", selectivity);
+    }
+
+    @Benchmark
+    public long countRowAtATime() {
+        IColumn age = table.getColumn(1);
+        long count = 0;
+        for (int row = 0; row < table.numRowSlots(); row++) {
+            if (!table.isRowDeleted(row) && (Integer) age.getValue(row) < selectivity)
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long countVectorized() {
+        return table.select().where(filter).count();
+    }
+
+    @Benchmark
+    public double sumRowAtATime() {
+        IColumn age = table.getColumn(1);
+        IColumn salary = table.getColumn(2);
+        double sum = 0;
+        for (int row = 0; row < table.numRowSlots(); row++) {
+            if (!table.isRowDeleted(row) && (Integer) age.getValue(row) < selectivity)
+                sum += (Double) salary.getValue(row);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Number sumVectorized() {
+        return table.select().where(filter).sum("Salaire");
+    }
+}
@@ -0,0 +1,85 @@
+package fr.miage.fsgbd.benchmark;
+
+import fr.miage.fsgbd.IntColumn;
+import fr.miage.fsgbd.StringColumn;
+import fr.miage.fsgbd.Table;
+import fr.miage.fsgbd.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compare le débit des ajouts de lignes journalisés avec un fsync par modification et avec validation groupée,
+ * pour un ou plusieurs rédacteurs concurrents.
+ * Le compteur syncs rapporte le nombre de fsync de chaque itération (l'intervalle de vidage est ignoré sans validation groupée).
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+public class WriteAheadLogBenchmark {
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    @Param({"0", "100", "1000"})
+    public long flushIntervalMicros;
+
+    private Path file;
+    private WriteAheadLog log;
+    private Table table;
+    private final AtomicInteger nextKey = new AtomicInteger();
+
+    /**
+     * Compteurs rapportés par JMH avec les résultats de chaque itération.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SyncCounters {
+        public long syncs;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("table", ".wal");
+        log = new WriteAheadLog(file, groupCommit, flushIntervalMicros);
+        table = new Table();
+        IntColumn id = new IntColumn("ID", 63);
+        id.enableIndex(63);
+        table.addColumn(id);
+        table.addColumn(new StringColumn("Nom", 0));
+        table.enableLog(log);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean addRow(SyncCounters counters) {
+        return add(counters);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean addRowConcurrent(SyncCounters counters) {
+        return add(counters);
+    }
+
+    private boolean add(SyncCounters counters) {
+        long syncs = log.getSyncCount();
+        int key = nextKey.getAndIncrement();
+        boolean added = table.addRow(new Object[]{key, "nom" + key});
+        // Avec plusieurs rédacteurs, le compteur est partagé : l'écart est une approximation
+        counters.syncs += log.getSyncCount() - syncs;
+        return added;
+    }
+}